@@ -16,12 +16,13 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.Query;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.ListenerRegistration;
 import com.nexuspulse.app.adapters.CommentAdapter;
 import com.nexuspulse.app.models.Comment;
 import com.nexuspulse.app.repository.CommentRepository; // ✅ FIXED: repository (singular)
+import com.nexuspulse.app.repository.CommentThread;
 
 import java.util.ArrayList;
 import java.util.Date;
@@ -37,6 +38,9 @@ public class CommentsActivity extends AppCompatActivity {
     private RecyclerView recyclerViewComments;
     private CommentAdapter commentAdapter;
     private List<Comment> commentList;
+    private boolean commentsSynced;
+    private CommentThread<DocumentSnapshot> commentThread;
+    private ListenerRegistration commentsListener;
 
     private EditText etComment;
     private ImageButton btnSendComment;
@@ -106,6 +110,16 @@ public class CommentsActivity extends AppCompatActivity {
         LinearLayoutManager layoutManager = new LinearLayoutManager(this);
         recyclerViewComments.setLayoutManager(layoutManager);
         recyclerViewComments.setAdapter(commentAdapter);
+
+        // Older comments are fetched a page at a time when scrolling up to them
+        recyclerViewComments.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                if (dy < 0 && commentThread != null) {
+                    commentThread.onScrolled(layoutManager.findFirstVisibleItemPosition());
+                }
+            }
+        });
     }
 
     private void setupSendButton() {
@@ -129,41 +143,93 @@ public class CommentsActivity extends AppCompatActivity {
         progressBar.setVisibility(View.VISIBLE);
         tvNoComments.setVisibility(View.GONE);
 
-        db.collection("comments")
-                .whereEqualTo("postId", postId)
-                .orderBy("createdAt", Query.Direction.ASCENDING)
-                .addSnapshotListener((queryDocumentSnapshots, error) -> {
-                    progressBar.setVisibility(View.GONE);
+        // Paint the thread as saved on this device until the listener's first snapshot
+        commentRepository.getCachedComments(postId, new CommentRepository.OnCommentsListFetchedListener() {
+            @Override
+            public void onSuccess(List<Comment> comments) {
+                if (!commentsSynced && !comments.isEmpty()) {
+                    commentList.addAll(comments);
+                    commentAdapter.updateComments(commentList);
+                    recyclerViewComments.scrollToPosition(commentList.size() - 1);
+                }
+            }
 
-                    if (error != null) {
-                        Log.e(TAG, "Error loading comments", error);
-                        Toast.makeText(this, "Error loading comments", Toast.LENGTH_SHORT).show();
-                        return;
+            @Override
+            public void onFailure(String error) {
+                Log.e(TAG, "Error loading cached comments: " + error);
+            }
+        });
+
+        commentThread = new CommentThread<>(
+                (cursor, pageSize, listener) -> commentRepository.getOlderComments(postId, cursor, pageSize, listener),
+                new CommentThread.Listener() {
+                    @Override
+                    public void onLatestLoaded(List<Comment> items) {
+                        showComments(items);
+                        if (!items.isEmpty()) {
+                            recyclerViewComments.scrollToPosition(items.size() - 1);
+                        }
                     }
 
-                    if (queryDocumentSnapshots != null) {
-                        commentList.clear();
+                    @Override
+                    public void onOlderLoaded(List<Comment> items, int prependedCount) {
+                        // Inserted above the visible rows, which keep their place
+                        showComments(items);
+                    }
 
-                        for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
-                            Comment comment = document.toObject(Comment.class);
-                            comment.setCommentId(document.getId());
-                            commentList.add(comment);
+                    @Override
+                    public void onTailChanged(List<Comment> items, int appendedCount) {
+                        showComments(items);
+                        if (appendedCount > 0) {
+                            recyclerViewComments.smoothScrollToPosition(items.size() - 1);
                         }
+                    }
 
-                        commentAdapter.notifyDataSetChanged();
+                    @Override
+                    public void onError(String error) {
+                        Log.e(TAG, "Error loading older comments: " + error);
+                    }
+                });
 
-                        // Show/hide empty state
-                        if (commentList.isEmpty()) {
-                            tvNoComments.setVisibility(View.VISIBLE);
-                        } else {
-                            tvNoComments.setVisibility(View.GONE);
-                            // Scroll to bottom to show latest comment
-                            recyclerViewComments.scrollToPosition(commentList.size() - 1);
-                        }
+        listenToComments();
+    }
+
+    private void listenToComments() {
+        if (isDestroyed()) {
+            return;
+        }
+        // Only the newest page is listened to; older pages are fetched once
+        commentsListener = commentRepository.listenToLatestComments(postId, CommentThread.DEFAULT_PAGE_SIZE,
+                new CommentRepository.OnLatestCommentsListener() {
+                    @Override
+                    public void onFirstPage(List<Comment> newestFirst, DocumentSnapshot oldestDoc, boolean hasOlder) {
+                        progressBar.setVisibility(View.GONE);
+                        commentsSynced = true;
+                        commentThread.showLatest(newestFirst, oldestDoc, hasOlder);
+                        commentRepository.cacheComments(postId, commentList);
+                    }
+
+                    @Override
+                    public void onChanges(List<CommentThread.Change> changes, Comment oldestInWindow) {
+                        commentThread.applyChanges(changes, oldestInWindow);
+                        commentRepository.cacheComments(postId, commentList);
+                    }
+
+                    @Override
+                    public void onFailure(String error) {
+                        progressBar.setVisibility(View.GONE);
+                        Log.e(TAG, "Error loading comments: " + error);
+                        Toast.makeText(CommentsActivity.this, "Error loading comments", Toast.LENGTH_SHORT).show();
                     }
                 });
     }
 
+    private void showComments(List<Comment> items) {
+        commentList = new ArrayList<>(items);
+        commentAdapter.updateComments(commentList);
+        tvNoComments.setVisibility(commentList.isEmpty() ? View.VISIBLE : View.GONE);
+    }
+
     private void postComment(String commentText) {
         // Create comment object
         Comment comment = new Comment();
@@ -172,50 +238,39 @@ public class CommentsActivity extends AppCompatActivity {
         comment.setContent(commentText); // ✅ FIXED: setContent() not setText()
         comment.setCreatedAt(new Date());
 
-        // Add to Firestore directly (since CommentRepository might not have addComment method)
-        db.collection("comments")
-                .add(comment)
-                .addOnSuccessListener(documentReference -> {
-                    // Clear input
-                    etComment.setText("");
-
-                    // Re-enable button
-                    btnSendComment.setEnabled(true);
-
-                    // Show success message
-                    Toast.makeText(CommentsActivity.this, "Comment added", Toast.LENGTH_SHORT).show();
-
-                    // Update comment count in post
-                    updatePostCommentCount();
-                })
-                .addOnFailureListener(e -> {
-                    // Re-enable button
-                    btnSendComment.setEnabled(true);
-
-                    // Show error
-                    Toast.makeText(CommentsActivity.this, "Failed to add comment", Toast.LENGTH_SHORT).show();
-                    Log.e(TAG, "Error posting comment", e);
-                });
+        // Queued locally; the post's comment count is bumped in the same write
+        commentRepository.createComment(comment, new CommentRepository.OnCommentCreatedListener() {
+            @Override
+            public void onSuccess(String commentId) {
+                // Clear input
+                etComment.setText("");
+
+                // Re-enable button
+                btnSendComment.setEnabled(true);
+
+                // Show success message
+                Toast.makeText(CommentsActivity.this, "Comment added", Toast.LENGTH_SHORT).show();
+            }
+
+            @Override
+            public void onFailure(String error) {
+                // Re-enable button
+                btnSendComment.setEnabled(true);
+
+                // Show error
+                Toast.makeText(CommentsActivity.this, "Failed to add comment", Toast.LENGTH_SHORT).show();
+                Log.e(TAG, "Error posting comment: " + error);
+            }
+        });
     }
 
-    private void updatePostCommentCount() {
-        db.collection("posts")
-                .document(postId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        int currentCount = documentSnapshot.getLong("commentsCount") != null
-                                ? documentSnapshot.getLong("commentsCount").intValue()
-                                : 0;
-
-                        db.collection("posts")
-                                .document(postId)
-                                .update("commentsCount", currentCount + 1)
-                                .addOnSuccessListener(aVoid -> Log.d(TAG, "Comment count updated"))
-                                .addOnFailureListener(e -> Log.e(TAG, "Error updating comment count", e));
-                    }
-                })
-                .addOnFailureListener(e -> Log.e(TAG, "Error fetching post", e));
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (commentsListener != null) {
+            commentsListener.remove();
+            commentsListener = null;
+        }
     }
 
     @Override
@@ -1,5 +1,6 @@
 package com.nexuspulse.app;
 
+import android.content.ClipData;
 import android.content.Intent;
 import android.net.Uri;
 import android.os.Bundle;
@@ -10,6 +11,7 @@ import android.widget.EditText;
 import android.widget.FrameLayout;
 import android.widget.ImageButton;
 import android.widget.ImageView;
+import android.widget.LinearLayout;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
@@ -27,21 +29,27 @@ import com.google.android.material.button.MaterialButton;
 import com.google.android.material.card.MaterialCardView;  // ✅ ADDED THIS IMPORT
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.firebase.auth.FirebaseAuth;
+import com.nexuspulse.app.adapters.ImageGrid;
+import com.nexuspulse.app.feed.EngagementTracker;
 import com.nexuspulse.app.models.Post;
 import com.nexuspulse.app.models.User;
 import com.nexuspulse.app.repository.PostRepository;
 import com.nexuspulse.app.repository.UserRepository;
 import com.nexuspulse.app.utils.Constants;
-import com.nexuspulse.app.utils.SupabaseClient;
+import com.nexuspulse.app.utils.PostTokenizer;
 import com.nexuspulse.app.utils.ValidationUtil;
 
 import java.util.ArrayList;
+import java.util.List;
+
 
 public class CreatePostActivity extends AppCompatActivity {
 
     private EditText etPostContent;
     private TextView tvCharCount;
-    private ImageView ivSelectedImage;
+    // Preview cells indexed by ImageGrid slot
+    private ImageView[] previewImages;
+    private LinearLayout previewColumnEnd;
     private FloatingActionButton ivRemoveImage;
     private MaterialCardView btnSelectImage;  // ✅ CHANGED FROM ImageButton
     private ImageButton btnClose;             // ✅ SEPARATE LINE
@@ -50,7 +58,7 @@ public class CreatePostActivity extends AppCompatActivity {
     private FrameLayout loadingOverlay;
     private CardView imagePreviewContainer;
 
-    private Uri selectedImageUri;
+    private final List<Uri> selectedImageUris = new ArrayList<>();
     private String currentUserId;
     private User currentUser;
 
@@ -86,7 +94,13 @@ public class CreatePostActivity extends AppCompatActivity {
         btnPost = findViewById(R.id.btnPost);
         etPostContent = findViewById(R.id.etPostContent);
         btnSelectImage = findViewById(R.id.btnSelectImage);
-        ivSelectedImage = findViewById(R.id.ivSelectedImage);
+        previewImages = new ImageView[]{
+                findViewById(R.id.postImage),
+                findViewById(R.id.postImage2),
+                findViewById(R.id.postImage3),
+                findViewById(R.id.postImage4)
+        };
+        previewColumnEnd = findViewById(R.id.imageColumnEnd);
         ivRemoveImage = findViewById(R.id.ivRemoveImage);
         imagePreviewContainer = findViewById(R.id.imagePreviewContainer);
         progressBar = findViewById(R.id.progressBar);
@@ -124,13 +138,6 @@ public class CreatePostActivity extends AppCompatActivity {
         // Remove image button
         ivRemoveImage.setOnClickListener(v -> removeSelectedImage());
 
-        ivSelectedImage.setOnClickListener(v -> {
-            if (selectedImageUri != null) {
-                Intent intent = new Intent(CreatePostActivity.this, FullScreenImageActivity.class);
-                intent.putExtra("IMAGE_URL", selectedImageUri.toString());
-                startActivity(intent);
-            }
-        });
 
         // Character counter
         etPostContent.addTextChangedListener(new TextWatcher() {
@@ -182,14 +189,55 @@ public class CreatePostActivity extends AppCompatActivity {
     }
 
     private void openImagePicker() {
-        Intent intent = new Intent(Intent.ACTION_PICK);
+        if (selectedImageUris.size() >= Constants.MAX_POST_IMAGES) {
+            Toast.makeText(this, "Up to " + Constants.MAX_POST_IMAGES + " images per post",
+                    Toast.LENGTH_SHORT).show();
+            return;
+        }
+        // ACTION_PICK ignores EXTRA_ALLOW_MULTIPLE on most galleries
+        Intent intent = new Intent(Intent.ACTION_GET_CONTENT);
         intent.setType("image/*");
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        intent.putExtra(Intent.EXTRA_ALLOW_MULTIPLE, true);
         startActivityForResult(intent, REQUEST_IMAGE_PICK);
     }
 
     private void removeSelectedImage() {
-        selectedImageUri = null;
-        imagePreviewContainer.setVisibility(View.GONE);
+        selectedImageUris.clear();
+        showSelectedImages();
+    }
+
+    /**
+     * Lay the picked images out the way the feed will show them
+     */
+    private void showSelectedImages() {
+        int count = selectedImageUris.size();
+        imagePreviewContainer.setVisibility(count > 0 ? View.VISIBLE : View.GONE);
+        int[] slots = ImageGrid.slots(count);
+        boolean[] used = new boolean[ImageGrid.SLOTS];
+        for (int i = 0; i < count; i++) {
+            Uri uri = selectedImageUris.get(i);
+            ImageView cell = previewImages[slots[i]];
+            used[slots[i]] = true;
+            cell.setVisibility(View.VISIBLE);
+            Glide.with(this)
+                    .load(uri)
+                    .placeholder(android.R.drawable.ic_menu_gallery)
+                    .error(android.R.drawable.ic_menu_report_image)
+                    .into(cell);
+            cell.setOnClickListener(v -> {
+                Intent intent = new Intent(CreatePostActivity.this, FullScreenImageActivity.class);
+                intent.putExtra("IMAGE_URL", uri.toString());
+                startActivity(intent);
+            });
+        }
+        for (int slot = 0; slot < ImageGrid.SLOTS; slot++) {
+            if (!used[slot]) {
+                Glide.with(this).clear(previewImages[slot]);
+                previewImages[slot].setVisibility(slot == ImageGrid.TOP_START ? View.VISIBLE : View.GONE);
+            }
+        }
+        previewColumnEnd.setVisibility(count >= 2 ? View.VISIBLE : View.GONE);
     }
 
     @Override
@@ -209,16 +257,25 @@ public class CreatePostActivity extends AppCompatActivity {
         super.onActivityResult(requestCode, resultCode, data);
 
         if (requestCode == REQUEST_IMAGE_PICK && resultCode == RESULT_OK && data != null) {
-            selectedImageUri = data.getData();
-            if (selectedImageUri != null) {
-                Glide.with(this)
-                        .load(selectedImageUri)
-                        .placeholder(android.R.drawable.ic_menu_gallery)
-                        .error(android.R.drawable.ic_menu_report_image)
-                        .into(ivSelectedImage);
-
-                imagePreviewContainer.setVisibility(View.VISIBLE);
+            List<Uri> picked = new ArrayList<>();
+            ClipData clipData = data.getClipData();
+            if (clipData != null) {
+                for (int i = 0; i < clipData.getItemCount(); i++) {
+                    picked.add(clipData.getItemAt(i).getUri());
+                }
+            } else if (data.getData() != null) {
+                picked.add(data.getData());
+            }
+
+            for (Uri uri : picked) {
+                if (selectedImageUris.size() >= Constants.MAX_POST_IMAGES) {
+                    Toast.makeText(this, "Up to " + Constants.MAX_POST_IMAGES + " images per post",
+                            Toast.LENGTH_SHORT).show();
+                    break;
+                }
+                selectedImageUris.add(uri);
             }
+            showSelectedImages();
         }
     }
 
@@ -244,41 +301,8 @@ public class CreatePostActivity extends AppCompatActivity {
         // Show loading
         showLoading(true);
 
-        // Upload image if selected
-        if (selectedImageUri != null) {
-            uploadImageAndCreatePost(content);
-        } else {
-            createPostWithoutImage(content);
-        }
-    }
-
-    private void uploadImageAndCreatePost(String content) {
-        new Thread(() -> {
-            String imageUrl = SupabaseClient.uploadPostImage(
-                    CreatePostActivity.this,
-                    selectedImageUri,
-                    currentUserId
-            );
-
-            runOnUiThread(() -> {
-                if (imageUrl != null) {
-                    createPostWithImage(content, imageUrl);
-                } else {
-                    showLoading(false);
-                    Toast.makeText(this, "Failed to upload image", Toast.LENGTH_SHORT).show();
-                }
-            });
-        }).start();
-    }
-
-    private void createPostWithImage(String content, String imageURL) {
-        Post post = createPostObject(content, imageURL);
-        savePost(post);
-    }
-
-    private void createPostWithoutImage(String content) {
-        Post post = createPostObject(content, null);
-        savePost(post);
+        // The images are uploaded with the post once the outbox sends it
+        savePost(createPostObject(content, null));
     }
 
     private Post createPostObject(String content, String imageUrl) {
@@ -287,20 +311,22 @@ public class CreatePostActivity extends AppCompatActivity {
         post.setUserId(currentUserId);
         post.setUsername(currentUser.getUsername());
         post.setContent(content);
+        PostTokenizer.Tokens tokens = PostTokenizer.tokenize(content);
+        post.setHashtags(tokens.hashtags);
+        post.setMentions(tokens.mentions);
         post.setImageUrl(imageUrl);
         post.setUserProfileImage(currentUser.getProfileImageUrl());
         post.setLikesCount(0);
         post.setRetweetsCount(0);
         post.setCommentsCount(0);
-        post.setLikedBy(new ArrayList<>());
-        post.setRetweetedBy(new ArrayList<>());
         return post;
     }
 
     private void savePost(Post post) {
-        postRepository.createPost(post, new PostRepository.OnPostCreateListener() {
+        postRepository.createPost(post, new ArrayList<>(selectedImageUris), new PostRepository.OnPostCreateListener() {
             @Override
             public void onSuccess(String postId) {
+                EngagementTracker.getInstance().recordOwnPost(post.getHashtags());
                 runOnUiThread(() -> {
                     showLoading(false);
                     Toast.makeText(CreatePostActivity.this, "Posted!", Toast.LENGTH_SHORT).show();
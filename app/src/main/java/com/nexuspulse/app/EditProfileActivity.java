@@ -24,7 +24,6 @@ import com.google.firebase.auth.FirebaseAuth;
 import com.nexuspulse.app.models.User;
 import com.nexuspulse.app.repository.UserRepository;
 import com.nexuspulse.app.utils.Constants;
-import com.nexuspulse.app.utils.SupabaseClient;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -203,73 +202,28 @@ public class EditProfileActivity extends AppCompatActivity {
 
         showLoading(true);
 
-        // Upload images first if selected
-        uploadImagesAndSave(displayName, username, bio);
-    }
-
-    private void uploadImagesAndSave(String displayName, String username, String bio) {
-        new Thread(() -> {
-            String profileImageUrl = currentUser.getProfileImageUrl();
-            String coverImageUrl = currentUser.getCoverImageUrl();
-
-            // Upload profile image if selected
-            if (selectedProfileImageUri != null) {
-                profileImageUrl = SupabaseClient.uploadProfileImage(
-                        this,
-                        selectedProfileImageUri,
-                        currentUserId
-                );
-            }
-
-            // Upload cover image if selected
-            if (selectedCoverImageUri != null) {
-                coverImageUrl = SupabaseClient.uploadCoverImage(
-                        this,
-                        selectedCoverImageUri,
-                        currentUserId
-                );
-            }
-
-            final String finalProfileUrl = profileImageUrl;
-            final String finalCoverUrl = coverImageUrl;
-
-            runOnUiThread(() -> updateUserProfile(displayName, username, bio, finalProfileUrl, finalCoverUrl));
-        }).start();
-    }
-
-    private void updateUserProfile(String displayName, String username, String bio, String profileUrl, String coverUrl) {
         // Create updates map (using the same approach as your old code)
         Map<String, Object> updates = new HashMap<>();
         updates.put("displayName", displayName);
         updates.put("username", username);
         updates.put("bio", bio);
 
-        if (profileUrl != null) {
-            updates.put("profileImageUrl", profileUrl);
-        }
-
-        if (coverUrl != null) {
-            updates.put("coverImageUrl", coverUrl);
-        }
-
-        userRepository.updateUser(currentUserId, updates, new UserRepository.OnUpdateListener() {
-            @Override
-            public void onSuccess() {
-                runOnUiThread(() -> {
-                    showLoading(false);
-                    Toast.makeText(EditProfileActivity.this, "Profile updated!", Toast.LENGTH_SHORT).show();
-                    finish();
-                });
-            }
-
-            @Override
-            public void onFailure(String error) {
-                runOnUiThread(() -> {
-                    showLoading(false);
-                    Toast.makeText(EditProfileActivity.this, "Error: " + error, Toast.LENGTH_SHORT).show();
+        // Picked images are uploaded by the outbox before the profile is written
+        userRepository.updateProfile(currentUserId, updates, selectedProfileImageUri, selectedCoverImageUri,
+                new UserRepository.OnUpdateListener() {
+                    @Override
+                    public void onSuccess() {
+                        showLoading(false);
+                        Toast.makeText(EditProfileActivity.this, "Profile updated!", Toast.LENGTH_SHORT).show();
+                        finish();
+                    }
+
+                    @Override
+                    public void onFailure(String error) {
+                        showLoading(false);
+                        Toast.makeText(EditProfileActivity.this, "Error: " + error, Toast.LENGTH_SHORT).show();
+                    }
                 });
-            }
-        });
     }
 
     private void showLoading(boolean isLoading) {
@@ -1,13 +1,17 @@
 package com.nexuspulse.app;
 
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
+import android.view.View;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.OptIn;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
@@ -16,18 +20,46 @@ import androidx.recyclerview.widget.RecyclerView;
 import androidx.swiperefreshlayout.widget.SwipeRefreshLayout;
 
 import com.bumptech.glide.Glide;
+import com.google.android.material.badge.BadgeDrawable;
+import com.google.android.material.badge.BadgeUtils;
+import com.google.android.material.badge.ExperimentalBadgeUtils;
+import com.google.android.material.button.MaterialButton;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.imageview.ShapeableImageView;
 import com.google.android.material.tabs.TabLayout;
 import com.google.firebase.auth.FirebaseAuth;
-import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.firestore.Query;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.nexuspulse.app.adapters.PlaceholderFrameCounter;
 import com.nexuspulse.app.adapters.PostAdapter;
+import com.nexuspulse.app.feed.Candidate;
+import com.nexuspulse.app.feed.EngagementTracker;
+import com.nexuspulse.app.feed.FeedRanker;
+import com.nexuspulse.app.feed.FeedScorer;
+import com.nexuspulse.app.feed.ForYouFeed;
+import com.nexuspulse.app.feed.HashtagCandidates;
 import com.nexuspulse.app.models.Post;
+import com.nexuspulse.app.models.User;
+import com.nexuspulse.app.repository.AuthorResolver;
+import com.nexuspulse.app.repository.FeedChange;
+import com.nexuspulse.app.repository.FeedPager;
+import com.nexuspulse.app.repository.LikedPostsCache;
+import com.nexuspulse.app.repository.LiveFeedHead;
+import com.nexuspulse.app.repository.LocalStore;
+import com.nexuspulse.app.repository.NotificationRepository;
+import com.nexuspulse.app.repository.Outbox;
+import com.nexuspulse.app.repository.PostRepository;
+import com.nexuspulse.app.repository.ReactionRepository;
+import com.nexuspulse.app.repository.TimelineRepository;
+import com.nexuspulse.app.repository.UserProfileCache;
+import com.nexuspulse.app.repository.UserRepository;
+import com.nexuspulse.app.search.SearchEngine;
+import com.nexuspulse.app.utils.Constants;
 
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 
 
@@ -39,7 +71,6 @@ public class HomeActivity extends AppCompatActivity {
     private RecyclerView recyclerViewPosts;
     private PostAdapter postAdapter;
     private List<Post> postList;
-    private FirebaseFirestore db;
     private FirebaseAuth mAuth;
     private String currentUserId;
 
@@ -47,19 +78,54 @@ public class HomeActivity extends AppCompatActivity {
     private TabLayout tabLayout;
     private SwipeRefreshLayout swipeRefresh;
     private FloatingActionButton fabTweet;
+    private MaterialButton btnNewPosts;
     private ShapeableImageView profileAvatar;
 
-    private List<String> followingList;
+    private int followingCount = -1;
+    private AuthorResolver authorResolver;
+    private UserRepository userRepository;
+    private PostRepository postRepository;
+    private TimelineRepository timelineRepository;
+    private ReactionRepository reactionRepository;
+    private NotificationRepository notificationRepository;
+
+    // Unread notification groups, read from one counter document on resume
+    private long unreadNotifications;
+    private boolean menuCreated;
+    private BadgeDrawable notificationBadge;
+
+    // Candidates per For You refresh, by source
+    private static final int RECENT_CANDIDATES = 200;
+    private static final int FOLLOWED_CANDIDATES = 200;
+    private static final int HASHTAG_CANDIDATES = 150;
+
+    // Rows kept bound just off screen, so a short scroll back does not rebind them
+    private static final int ITEM_VIEW_CACHE_SIZE = 4;
+
+    // One pager per tab so switching tabs keeps what was already loaded;
+    // For You pages through its ranking by offset
+    private FeedPager<Integer> forYouPager;
+    private FeedPager<DocumentSnapshot> followingPager;
+    private ForYouFeed forYouFeed;
+    // Keeps the recent For You candidates current while Home is visible
+    private LiveFeedHead forYouHead;
+    // Posts newer than the For You ranking that the listener has seen since
+    private final Set<String> unrankedNewPosts = new HashSet<>();
+    private boolean timelineBackfillRequested;
+
+    // Cold-start time-to-first-content, logged once per activity instance
+    private long createdAtUptime;
+    private boolean firstContentLogged;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        createdAtUptime = SystemClock.uptimeMillis();
 
         setTheme(R.style.Theme_NexusPulse);
         setContentView(R.layout.activity_home);
 
         mAuth = FirebaseAuth.getInstance();
-        db = FirebaseFirestore.getInstance();
 
         if (mAuth.getCurrentUser() == null) {
             navigateToLogin();
@@ -67,18 +133,26 @@ public class HomeActivity extends AppCompatActivity {
         }
 
         currentUserId = mAuth.getCurrentUser().getUid();
-        followingList = new ArrayList<>();
+        authorResolver = new AuthorResolver();
+        userRepository = new UserRepository();
+        postRepository = new PostRepository();
+        timelineRepository = new TimelineRepository();
+        reactionRepository = new ReactionRepository();
+        notificationRepository = new NotificationRepository();
 
         initializeViews();
         setupToolbar();
+        setupPagers();
         setupRecyclerView();
         setupTabs();
         setupSwipeRefresh();
         setupFAB();
+        setupNewPostsButton();
         setupProfileAvatar();
 
-        loadCurrentUserProfile();
-        loadFollowingList();
+        // Paint what the last run saved; profile and network feed are loaded
+        // from onResume, which always follows onCreate
+        paintCachedFeed();
     }
 
     private void initializeViews() {
@@ -87,6 +161,7 @@ public class HomeActivity extends AppCompatActivity {
         tabLayout = findViewById(R.id.tabLayout);
         swipeRefresh = findViewById(R.id.swipeRefresh);
         fabTweet = findViewById(R.id.fabTweet);
+        btnNewPosts = findViewById(R.id.btnNewPosts);
         profileAvatar = findViewById(R.id.profileAvatar);
     }
 
@@ -97,18 +172,283 @@ public class HomeActivity extends AppCompatActivity {
         }
     }
 
+    private void setupPagers() {
+        forYouHead = postRepository.liveFeedHead(this::applyLiveChanges);
+        forYouFeed = new ForYouFeed(new FeedRanker(new FeedScorer()))
+                .addSource(Candidate.SOURCE_RECENT, RECENT_CANDIDATES,
+                        (limit, listener) -> forYouHead.start(limit, candidates(listener)))
+                .addSource(Candidate.SOURCE_FOLLOWED, FOLLOWED_CANDIDATES,
+                        (limit, listener) -> timelineRepository.getTimelinePage(currentUserId, null, limit,
+                                candidates(listener)))
+                .addSource(Candidate.SOURCE_HASHTAG, HASHTAG_CANDIDATES,
+                        new HashtagCandidates(postRepository, EngagementTracker.getInstance()));
+        forYouPager = new FeedPager<>(
+                (offset, pageSize, listener) -> {
+                    if (offset != null) {
+                        loadRankedPage(offset, pageSize, listener);
+                        return;
+                    }
+                    forYouFeed.refresh(EngagementTracker.getInstance().signals(currentUserId),
+                            new ForYouFeed.OnRankedListener() {
+                        @Override
+                        public void onRanked(List<Post> posts) {
+                            loadRankedPage(0, pageSize, listener);
+                        }
+
+                        @Override
+                        public void onFailure(String error) {
+                            listener.onFailure(error);
+                        }
+                    });
+                },
+                feedListener(0));
+        followingPager = new FeedPager<>(
+                (cursor, pageSize, listener) ->
+                        timelineRepository.getTimelinePage(currentUserId, cursor, pageSize, resolvingAuthors(listener)),
+                feedListener(1));
+    }
+
+    private static PostRepository.OnPostsPageFetchedListener candidates(ForYouFeed.OnCandidatesListener listener) {
+        return new PostRepository.OnPostsPageFetchedListener() {
+            @Override
+            public void onSuccess(List<Post> posts, DocumentSnapshot lastSnapshot, boolean hasMore) {
+                listener.onSuccess(posts);
+            }
+
+            @Override
+            public void onFailure(String error) {
+                listener.onFailure(error);
+            }
+        };
+    }
+
+    /**
+     * Hand the pager the next slice of the For You ranking, with badges and
+     * reaction state resolved for just that slice
+     */
+    private void loadRankedPage(int from, int pageSize, FeedPager.OnPageLoadedListener<Integer> listener) {
+        List<Post> ranked = forYouFeed.getRanked();
+        int to = Math.min(ranked.size(), from + pageSize);
+        List<Post> page = new ArrayList<>(ranked.subList(Math.min(from, to), to));
+        authorResolver.resolve(page, resolved ->
+                reactionRepository.loadReactionState(currentUserId, resolved, loaded ->
+                        listener.onSuccess(loaded, to, to < ranked.size())));
+    }
+
+    /**
+     * Resolve verified badges and the user's like/retweet state for a whole
+     * page before handing it to the pager
+     */
+    private PostRepository.OnPostsPageFetchedListener resolvingAuthors(
+            FeedPager.OnPageLoadedListener<DocumentSnapshot> listener) {
+        return new PostRepository.OnPostsPageFetchedListener() {
+            @Override
+            public void onSuccess(List<Post> posts, DocumentSnapshot lastSnapshot, boolean hasMore) {
+                authorResolver.resolve(posts, resolved ->
+                        reactionRepository.loadReactionState(currentUserId, resolved, loaded ->
+                                listener.onSuccess(loaded, lastSnapshot, hasMore)));
+            }
+
+            @Override
+            public void onFailure(String error) {
+                listener.onFailure(error);
+            }
+        };
+    }
+
+    /**
+     * Resolve badges and reaction state for ranked posts the live listener
+     * changed, then update them in place. New posts are not slotted into the
+     * ranking; they are counted on the new posts button, which ranks again.
+     */
+    private void applyLiveChanges(List<FeedChange> changes, Post oldestInWindow) {
+        Set<String> rankedIds = new HashSet<>();
+        Date newestRanked = null;
+        for (Post post : forYouFeed.getRanked()) {
+            rankedIds.add(post.getPostId());
+            if (post.getCreatedAt() != null && (newestRanked == null || post.getCreatedAt().after(newestRanked))) {
+                newestRanked = post.getCreatedAt();
+            }
+        }
+        List<Post> changed = new ArrayList<>();
+        for (FeedChange change : changes) {
+            String postId = change.post.getPostId();
+            if (change.type == FeedChange.Type.REMOVED) {
+                unrankedNewPosts.remove(postId);
+            } else if (rankedIds.contains(postId)) {
+                changed.add(change.post);
+            } else if (change.type == FeedChange.Type.ADDED && change.post.getCreatedAt() != null
+                    && (newestRanked == null || change.post.getCreatedAt().after(newestRanked))) {
+                // A reattached listener reports its whole window as added; only newer posts count
+                unrankedNewPosts.add(postId);
+            }
+        }
+        showNewPostsButton();
+        authorResolver.resolve(changed, resolved ->
+                reactionRepository.loadReactionState(currentUserId, resolved, loaded ->
+                        forYouPager.updateInPlace(changes, oldestInWindow)));
+    }
+
+    private void setupNewPostsButton() {
+        btnNewPosts.setOnClickListener(v -> {
+            recyclerViewPosts.scrollToPosition(0);
+            loadFollowingList(true);
+        });
+    }
+
+    private void showNewPostsButton() {
+        int count = unrankedNewPosts.size();
+        if (count > 0 && tabLayout.getSelectedTabPosition() == 0) {
+            btnNewPosts.setText(count == 1 ? "1 new post" : count + " new posts");
+            btnNewPosts.setVisibility(View.VISIBLE);
+        } else {
+            btnNewPosts.setVisibility(View.GONE);
+        }
+    }
+
+    private FeedPager.Listener feedListener(int tab) {
+        return new FeedPager.Listener() {
+            @Override
+            public void onPageLoaded(List<Post> items, int insertedFrom, int insertedCount, boolean firstPage) {
+                postRepository.cacheFeed(feedKey(tab), items);
+                if (tab == 0 && firstPage) {
+                    // Ranked again, from the listener's current window
+                    unrankedNewPosts.clear();
+                    showNewPostsButton();
+                }
+                if (tabLayout.getSelectedTabPosition() != tab) {
+                    return;
+                }
+                swipeRefresh.setRefreshing(false);
+                if (tab == 1 && firstPage && items.isEmpty()) {
+                    backfillTimelineOnce();
+                }
+                // The adapter diffs a copy in the background, so appended pages only bind new rows
+                postList = items;
+                postAdapter.updatePosts(postList);
+                Log.d(TAG, "Loaded " + insertedCount + " posts, " + items.size() + " total");
+                logFirstContent("network");
+            }
+
+            @Override
+            public void onItemsChanged(List<Post> items) {
+                postRepository.cacheFeed(feedKey(tab), items);
+                if (tabLayout.getSelectedTabPosition() == tab) {
+                    postList = items;
+                    postAdapter.updatePosts(postList);
+                }
+            }
+
+            @Override
+            public void onError(String error) {
+                Log.e(TAG, "Error loading posts: " + error);
+                swipeRefresh.setRefreshing(false);
+                Toast.makeText(HomeActivity.this, "Error loading posts", Toast.LENGTH_SHORT).show();
+            }
+        };
+    }
+
+    /**
+     * Follow edges created before timelines were fanned out have no entries
+     * yet; seed them once so the Following tab isn't empty
+     */
+    private void backfillTimelineOnce() {
+        if (timelineBackfillRequested || followingCount <= 0) {
+            return;
+        }
+        timelineBackfillRequested = true;
+        userRepository.getFollowing(currentUserId, null, Constants.MAX_BATCH_WRITES,
+                new UserRepository.OnUserIdsPageFetchedListener() {
+            @Override
+            public void onSuccess(List<String> userIds, DocumentSnapshot lastSnapshot, boolean hasMore) {
+                timelineRepository.backfillTimeline(currentUserId, userIds, new TimelineRepository.OnUpdateListener() {
+                    @Override
+                    public void onSuccess() {
+                        if (tabLayout.getSelectedTabPosition() == 1) {
+                            followingPager.refresh();
+                        } else {
+                            followingPager.reset();
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(String error) {
+                        Log.e(TAG, "Error backfilling timeline: " + error);
+                    }
+                });
+            }
+
+            @Override
+            public void onFailure(String error) {
+                Log.e(TAG, "Error loading followed users for backfill: " + error);
+            }
+        });
+    }
+
+    private String feedKey(int tab) {
+        return (tab == 1 ? LocalStore.FEED_FOLLOWING : LocalStore.FEED_FOR_YOU) + ":" + currentUserId;
+    }
+
+    /**
+     * Show the selected tab's feed as saved on this device while its first
+     * network page loads; the network page then replaces it through DiffUtil
+     */
+    private void paintCachedFeed() {
+        int tab = tabLayout.getSelectedTabPosition();
+        postRepository.getCachedFeed(feedKey(tab), new PostRepository.OnPostsListFetchedListener() {
+            @Override
+            public void onSuccess(List<Post> posts) {
+                if (posts.isEmpty() || tabLayout.getSelectedTabPosition() != tab || currentPager().hasLoaded()) {
+                    return;
+                }
+                postList = posts;
+                postAdapter.updatePosts(postList);
+                Log.d(TAG, "Painted " + posts.size() + " cached posts");
+                logFirstContent("disk");
+            }
+
+            @Override
+            public void onFailure(String error) {
+                Log.e(TAG, "Error loading cached feed: " + error);
+            }
+        });
+    }
+
+    private void logFirstContent(String source) {
+        if (!firstContentLogged) {
+            firstContentLogged = true;
+            Log.d(TAG, "First content from " + source + " after "
+                    + (SystemClock.uptimeMillis() - createdAtUptime) + " ms");
+        }
+    }
+
+    private FeedPager<?> currentPager() {
+        return tabLayout.getSelectedTabPosition() == 1 ? followingPager : forYouPager;
+    }
+
     private void setupRecyclerView() {
         postList = new ArrayList<>();
         postAdapter = new PostAdapter(this, postList, currentUserId);
+        postAdapter.setOnPostDeletedListener(post -> {
+            forYouPager.remove(post.getPostId());
+            followingPager.remove(post.getPostId());
+        });
         LinearLayoutManager layoutManager = new LinearLayoutManager(this);
         recyclerViewPosts.setLayoutManager(layoutManager);
         recyclerViewPosts.setAdapter(postAdapter);
+        recyclerViewPosts.setItemViewCacheSize(ITEM_VIEW_CACHE_SIZE);
+        recyclerViewPosts.addOnScrollListener(postAdapter.imagePreloader());
+        if (BuildConfig.DEBUG) {
+            recyclerViewPosts.addOnScrollListener(new PlaceholderFrameCounter(postAdapter));
+        }
 
         recyclerViewPosts.addOnScrollListener(new RecyclerView.OnScrollListener() {
             @Override
             public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
                 if (dy > 0) {
                     fabTweet.hide();
+                    // Prefetch the next page before the user reaches the end of the list
+                    currentPager().onScrolled(layoutManager.findLastVisibleItemPosition());
                 } else if (dy < 0) {
                     fabTweet.show();
                 }
@@ -122,7 +462,8 @@ public class HomeActivity extends AppCompatActivity {
         tabLayout.addOnTabSelectedListener(new TabLayout.OnTabSelectedListener() {
             @Override
             public void onTabSelected(TabLayout.Tab tab) {
-                loadPosts();
+                showNewPostsButton();
+                loadPosts(false);
             }
             @Override
             public void onTabUnselected(TabLayout.Tab tab) {}
@@ -139,7 +480,7 @@ public class HomeActivity extends AppCompatActivity {
                 R.color.twitter_blue_dark
         );
         swipeRefresh.setProgressBackgroundColorSchemeResource(R.color.black);
-        swipeRefresh.setOnRefreshListener(this::loadFollowingList);
+        swipeRefresh.setOnRefreshListener(() -> loadFollowingList(true));
     }
 
     private void setupFAB() {
@@ -174,133 +515,158 @@ public class HomeActivity extends AppCompatActivity {
             return;
         }
 
-        db.collection("users")
-                .document(currentUserId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        String profileImageUrl = documentSnapshot.getString("profileImageUrl");
-                        if (profileImageUrl != null && !profileImageUrl.isEmpty()) {
-                            Glide.with(HomeActivity.this)
-                                    .load(profileImageUrl)
-                                    .placeholder(R.drawable.ic_profile)
-                                    .error(R.drawable.ic_profile)
-                                    .circleCrop()
-                                    .into(profileAvatar);
-                            Log.d(TAG, "Profile image loaded successfully");
-                        } else {
-                            Log.d(TAG, "No profile image URL found for user");
-                        }
-                    } else {
-                        Log.w(TAG, "User document does not exist");
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error loading profile image", e);
-                });
+        userRepository.getUserById(currentUserId, new UserRepository.OnUserFetchedListener() {
+            @Override
+            public void onSuccess(User user) {
+                String profileImageUrl = user.getProfileImageUrl();
+                if (profileImageUrl != null && !profileImageUrl.isEmpty()) {
+                    Glide.with(HomeActivity.this)
+                            .load(profileImageUrl)
+                            .placeholder(R.drawable.ic_profile)
+                            .error(R.drawable.ic_profile)
+                            .circleCrop()
+                            .into(profileAvatar);
+                    Log.d(TAG, "Profile image loaded successfully");
+                } else {
+                    Log.d(TAG, "No profile image URL found for user");
+                }
+            }
+
+            @Override
+            public void onFailure(String error) {
+                Log.e(TAG, "Error loading profile image: " + error);
+            }
+        });
     }
 
-    private void loadFollowingList() {
-        db.collection("users")
-                .document(currentUserId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        List<String> following = (List<String>) documentSnapshot.get("following");
-                        if (following != null) {
-                            followingList = following;
-                            Log.d(TAG, "Following list loaded: " + followingList.size() + " users");
-                        } else {
-                            followingList = new ArrayList<>();
-                            Log.d(TAG, "No following list found");
-                        }
-                    }
-                    loadPosts();
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error loading following list", e);
-                    followingList = new ArrayList<>();
-                    loadPosts();
-                });
+    /**
+     * Check the following count, then show the selected tab. Without
+     * forceRefresh a tab that already has posts is shown as it is: For You
+     * is kept current by its live listener.
+     */
+    private void loadFollowingList(boolean forceRefresh) {
+        migrateFollowEdgesOnce();
+        userRepository.getUserById(currentUserId, new UserRepository.OnUserFetchedListener() {
+            @Override
+            public void onSuccess(User user) {
+                if (user.getFollowingCount() != followingCount) {
+                    followingPager.reset();
+                }
+                followingCount = user.getFollowingCount();
+                Log.d(TAG, "Following count loaded: " + followingCount + " users");
+                loadPosts(forceRefresh);
+            }
+
+            @Override
+            public void onFailure(String error) {
+                Log.e(TAG, "Error loading following count: " + error);
+                followingCount = 0;
+                followingPager.reset();
+                loadPosts(forceRefresh);
+            }
+        });
     }
 
     /**
-     * UPDATED: Load posts based on selected tab and set user verification
+     * Move this user's legacy followers/following arrays to follows/ edges
+     * the first time they open the app after the upgrade
      */
-    private void loadPosts() {
-        swipeRefresh.setRefreshing(true);
+    private void migrateFollowEdgesOnce() {
+        SharedPreferences prefs = getSharedPreferences(Constants.PREF_NAME, MODE_PRIVATE);
+        String key = Constants.KEY_FOLLOW_EDGES_MIGRATED + currentUserId;
+        if (prefs.getBoolean(key, false)) {
+            return;
+        }
+        userRepository.migrateFollowArrays(currentUserId, new UserRepository.OnUpdateListener() {
+            @Override
+            public void onSuccess() {
+                prefs.edit().putBoolean(key, true).apply();
+            }
 
+            @Override
+            public void onFailure(String error) {
+                Log.e(TAG, "Error migrating follow edges: " + error);
+            }
+        });
+    }
+
+    /**
+     * Show the selected tab's feed. Only the first page is fetched on refresh;
+     * further pages are loaded by the scroll prefetcher.
+     */
+    private void loadPosts(boolean forceRefresh) {
         int selectedTab = tabLayout.getSelectedTabPosition();
 
-        Query query = db.collection("posts")
-                .orderBy("createdAt", Query.Direction.DESCENDING)
-                .limit(50);
-
-        // If "Following" tab is selected and user follows someone
-        if (selectedTab == 1 && followingList != null && !followingList.isEmpty()) {
-            query = db.collection("posts")
-                    .whereIn("userId", followingList)
-                    .orderBy("createdAt", Query.Direction.DESCENDING)
-                    .limit(50);
-            Log.d(TAG, "Loading Following feed from " + followingList.size() + " users");
-        } else if (selectedTab == 1) {
-            postList.clear();
-            postAdapter.notifyDataSetChanged();
+        if (selectedTab == 1 && followingCount <= 0) {
+            postList = new ArrayList<>();
+            postAdapter.updatePosts(postList);
             swipeRefresh.setRefreshing(false);
             Toast.makeText(this, "Follow users to see their posts here", Toast.LENGTH_SHORT).show();
             return;
-        } else {
-            Log.d(TAG, "Loading For You feed (all posts)");
         }
 
-        query.get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    postList.clear();
-                    for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
-                        Post post = document.toObject(Post.class);
-                        post.setPostId(document.getId());
-                        postList.add(post);
-
-                        // Fetch verified status from users collection
-                        db.collection("users").document(post.getUserId()).get()
-                                .addOnSuccessListener(userDoc -> {
-                                    if (userDoc.exists()) {
-                                        boolean isVerified = userDoc.contains("verified")
-                                                && userDoc.getBoolean("verified") != null
-                                                && userDoc.getBoolean("verified");
-                                        post.setUserVerified(isVerified);
-                                        postAdapter.notifyDataSetChanged();
-                                    }
-                                })
-                                .addOnFailureListener(e -> Log.e(TAG, "Error fetching user verification status", e));
-                    }
-                    postAdapter.notifyDataSetChanged();
-                    if (swipeRefresh.isRefreshing()) {
-                        swipeRefresh.setRefreshing(false);
-                    }
-                    Log.d(TAG, "Loaded " + postList.size() + " posts");
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error loading posts", e);
-                    Toast.makeText(this, "Error loading posts", Toast.LENGTH_SHORT).show();
-                    if (swipeRefresh.isRefreshing()) {
-                        swipeRefresh.setRefreshing(false);
-                    }
-                });
+        FeedPager<?> pager = currentPager();
+        if (!pager.hasLoaded() && !pager.isLoading()) {
+            paintCachedFeed();
+        }
+        if (forceRefresh || (!pager.hasLoaded() && !pager.isLoading())) {
+            Log.d(TAG, selectedTab == 1
+                    ? "Loading Following feed from " + followingCount + " users"
+                    : "Loading For You feed (ranked)");
+            swipeRefresh.setRefreshing(true);
+            pager.refresh();
+        } else {
+            postList = pager.getItems();
+            postAdapter.updatePosts(postList);
+            swipeRefresh.setRefreshing(pager.isLoading());
+        }
     }
 
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.menu_home, menu);
+        menuCreated = true;
+        showUnreadBadge();
         return true;
     }
 
+    private void loadUnreadNotifications() {
+        notificationRepository.getUnreadCount(currentUserId, new NotificationRepository.OnUnreadCountListener() {
+            @Override
+            public void onSuccess(long unreadCount) {
+                unreadNotifications = unreadCount;
+                showUnreadBadge();
+            }
+
+            @Override
+            public void onFailure(String error) {
+                Log.e(TAG, "Error loading unread notifications: " + error);
+            }
+        });
+    }
+
+    @OptIn(markerClass = ExperimentalBadgeUtils.class)
+    private void showUnreadBadge() {
+        if (!menuCreated) {
+            return;
+        }
+        if (notificationBadge == null) {
+            notificationBadge = BadgeDrawable.create(this);
+            BadgeUtils.attachBadgeDrawable(notificationBadge, toolbar, R.id.action_notifications);
+        }
+        notificationBadge.setNumber((int) Math.min(unreadNotifications, Integer.MAX_VALUE));
+        notificationBadge.setVisible(unreadNotifications > 0);
+    }
+
     @Override
     public boolean onOptionsItemSelected(@NonNull MenuItem item) {
         int id = item.getItemId();
         if (id == R.id.action_search) {
             startActivity(new Intent(HomeActivity.this, SearchActivity.class));
             return true;
+        } else if (id == R.id.action_notifications) {
+            startActivity(new Intent(HomeActivity.this, NotificationsActivity.class));
+            return true;
         } else if (id == R.id.action_logout) {
             showLogoutDialog();
             return true;
@@ -317,8 +683,19 @@ public class HomeActivity extends AppCompatActivity {
                 .show();
     }
 
+    /**
+     * Sign out and drop everything cached or still queued for this account,
+     * so the next one doesn't see its feeds, likes, searches or taste, or
+     * send its writes
+     */
     private void performLogout() {
+        Outbox.getInstance().discard(currentUserId);
         mAuth.signOut();
+        LocalStore.getInstance().clear();
+        UserProfileCache.getInstance().clear();
+        LikedPostsCache.getInstance().clear();
+        SearchEngine.getInstance().clear();
+        EngagementTracker.getInstance().clear();
         Toast.makeText(this, "Logged out successfully", Toast.LENGTH_SHORT).show();
         navigateToLogin();
     }
@@ -330,10 +707,39 @@ public class HomeActivity extends AppCompatActivity {
         finish();
     }
 
+    @Override
+    protected void onStart() {
+        super.onStart();
+        if (forYouHead != null) {
+            forYouHead.resume();
+        }
+    }
+
     @Override
     protected void onResume() {
         super.onResume();
-        loadFollowingList();
+        loadFollowingList(false);
         loadCurrentUserProfile();
+        loadUnreadNotifications();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // Detached while hidden; reattaching soon after only reads what changed
+        if (forYouHead != null) {
+            forYouHead.pause();
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (forYouHead != null) {
+            forYouHead.stop();
+        }
+        if (forYouFeed != null) {
+            forYouFeed.cancel();
+        }
     }
 }
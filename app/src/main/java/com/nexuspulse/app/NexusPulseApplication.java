@@ -0,0 +1,27 @@
+package com.nexuspulse.app;
+
+import android.app.Application;
+
+import com.nexuspulse.app.feed.EngagementTracker;
+import com.nexuspulse.app.repository.CommentCountWorker;
+import com.nexuspulse.app.repository.LocalStore;
+import com.nexuspulse.app.repository.Outbox;
+import com.nexuspulse.app.search.SearchEngine;
+
+public class NexusPulseApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // Open the on-device store before the first screen asks for cached content
+        LocalStore.init(this);
+        // Load the search index saved by the last session
+        SearchEngine.init(this);
+        // Load what the reader engaged with, for For You ranking
+        EngagementTracker.init(this);
+        // Resume sending writes queued while offline or before the app was killed
+        Outbox.init(this);
+        // Daily check that comment counters match their threads
+        CommentCountWorker.schedule(this);
+    }
+}
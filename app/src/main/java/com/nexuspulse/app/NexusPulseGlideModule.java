@@ -0,0 +1,44 @@
+package com.nexuspulse.app;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.util.DisplayMetrics;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.bumptech.glide.GlideBuilder;
+import com.bumptech.glide.annotation.GlideModule;
+import com.bumptech.glide.load.engine.bitmap_recycle.LruBitmapPool;
+import com.bumptech.glide.load.engine.cache.InternalCacheDiskCacheFactory;
+import com.bumptech.glide.load.engine.cache.LruResourceCache;
+import com.bumptech.glide.module.AppGlideModule;
+import com.nexuspulse.app.utils.ImageCacheBudget;
+
+/**
+ * Sizes Glide's memory cache, bitmap pool and disk cache for this device
+ * (see {@link ImageCacheBudget}). Found by Glide's annotation processor.
+ */
+@GlideModule
+public class NexusPulseGlideModule extends AppGlideModule {
+    private static final String TAG = "NexusPulseGlideModule";
+
+    @Override
+    public void applyOptions(@NonNull Context context, @NonNull GlideBuilder builder) {
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+        ImageCacheBudget budget = ImageCacheBudget.forDevice(activityManager.getMemoryClass(),
+                activityManager.isLowRamDevice(), metrics.widthPixels, metrics.heightPixels);
+        Log.d(TAG, "Memory cache " + budget.memoryCacheBytes / 1024 + "KB, bitmap pool "
+                + budget.bitmapPoolBytes / 1024 + "KB, disk cache " + budget.diskCacheBytes / (1024 * 1024) + "MB");
+
+        builder.setMemoryCache(new LruResourceCache(budget.memoryCacheBytes));
+        builder.setBitmapPool(new LruBitmapPool(budget.bitmapPoolBytes));
+        builder.setDiskCache(new InternalCacheDiskCacheFactory(context, budget.diskCacheBytes));
+    }
+
+    @Override
+    public boolean isManifestParsingEnabled() {
+        return false;
+    }
+}
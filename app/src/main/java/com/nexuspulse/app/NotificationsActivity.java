@@ -1,4 +1,105 @@
 package com.nexuspulse.app;
 
-public class NotificationsActivity {
+import android.content.Intent;
+import android.os.Bundle;
+import android.util.Log;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.firebase.auth.FirebaseAuth;
+import com.nexuspulse.app.adapters.NotificationAdapter;
+import com.nexuspulse.app.models.Notification;
+import com.nexuspulse.app.repository.NotificationRepository;
+import com.nexuspulse.app.utils.Constants;
+
+import java.util.List;
+
+public class NotificationsActivity extends AppCompatActivity {
+
+    private static final String TAG = "NotificationsActivity";
+
+    private NotificationAdapter notificationAdapter;
+    private NotificationRepository notificationRepository;
+    private String currentUserId;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        setTheme(R.style.Theme_NexusPulse);
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_notifications);
+
+        if (FirebaseAuth.getInstance().getCurrentUser() == null) {
+            finish();
+            return;
+        }
+        currentUserId = FirebaseAuth.getInstance().getCurrentUser().getUid();
+        notificationRepository = new NotificationRepository();
+
+        RecyclerView recyclerView = findViewById(R.id.recyclerViewNotifications);
+        notificationAdapter = new NotificationAdapter(this, this::openNotification);
+        recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        recyclerView.setAdapter(notificationAdapter);
+
+        // Paint the last saved copy, then the server's
+        notificationRepository.getCachedNotifications(currentUserId,
+                new NotificationRepository.OnNotificationsListFetchedListener() {
+                    @Override
+                    public void onSuccess(List<Notification> notifications) {
+                        if (notificationAdapter.getItemCount() == 0) {
+                            notificationAdapter.updateNotifications(notifications);
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(String error) {}
+                });
+        loadNotifications();
+    }
+
+    private void loadNotifications() {
+        notificationRepository.getUserNotifications(currentUserId,
+                new NotificationRepository.OnNotificationsListFetchedListener() {
+                    @Override
+                    public void onSuccess(List<Notification> notifications) {
+                        notificationAdapter.updateNotifications(notifications);
+                        markAllRead();
+                    }
+
+                    @Override
+                    public void onFailure(String error) {
+                        Log.e(TAG, "Error loading notifications: " + error);
+                    }
+                });
+    }
+
+    /**
+     * Opening the screen clears the badge in one write, however long the
+     * backlog; the rows stay highlighted until the next visit
+     */
+    private void markAllRead() {
+        notificationRepository.markAllRead(currentUserId,
+                new NotificationRepository.OnUpdateListener() {
+                    @Override
+                    public void onSuccess() {}
+
+                    @Override
+                    public void onFailure(String error) {
+                        Log.e(TAG, "Error marking notifications as read: " + error);
+                    }
+                });
+    }
+
+    private void openNotification(Notification notification) {
+        Intent intent;
+        if (notification.getPostId() != null) {
+            intent = new Intent(this, CommentsActivity.class);
+            intent.putExtra(Constants.KEY_POST_ID, notification.getPostId());
+        } else {
+            intent = new Intent(this, ProfileActivity.class);
+            intent.putExtra(Constants.KEY_USER_ID_INTENT, notification.getFromUserId());
+        }
+        startActivity(intent);
+    }
 }
@@ -28,6 +28,10 @@ import com.nexuspulse.app.adapters.MediaAdapter;
 import com.nexuspulse.app.models.Comment;
 import com.nexuspulse.app.models.Post;
 import com.nexuspulse.app.models.User;
+import com.nexuspulse.app.repository.CommentRepository;
+import com.nexuspulse.app.repository.LocalStore;
+import com.nexuspulse.app.repository.PostRepository;
+import com.nexuspulse.app.repository.ReactionRepository;
 import com.nexuspulse.app.repository.UserRepository;
 
 import java.util.ArrayList;
@@ -37,6 +41,9 @@ public class ProfileActivity extends AppCompatActivity {
 
     private static final String TAG = "ProfileActivity";
 
+    // Rows kept bound just off screen, so a short scroll back does not rebind them
+    private static final int ITEM_VIEW_CACHE_SIZE = 4;
+
     // UI Components
     private MaterialToolbar toolbar;
     private ShapeableImageView ivProfileImage, ivCoverImage;
@@ -50,6 +57,8 @@ public class ProfileActivity extends AppCompatActivity {
     private RecyclerView recyclerViewPosts;
     private RecyclerView recyclerViewReplies;
     private RecyclerView recyclerViewMedia;
+    // Shared by the tab lists; their adapters use distinct view types
+    private final RecyclerView.RecycledViewPool tabViewPool = new RecyclerView.RecycledViewPool();
 
     // Adapters
     private PostAdapter postAdapter;
@@ -65,6 +74,10 @@ public class ProfileActivity extends AppCompatActivity {
     private FirebaseAuth mAuth;
     private FirebaseFirestore db;
     private UserRepository userRepository;
+    private ReactionRepository reactionRepository;
+    private PostRepository postRepository;
+    private CommentRepository commentRepository;
+    private boolean postsSynced;
     private String userId;
     private String currentUserId;
     private User currentUser;
@@ -84,6 +97,9 @@ public class ProfileActivity extends AppCompatActivity {
         mAuth = FirebaseAuth.getInstance();
         db = FirebaseFirestore.getInstance();
         userRepository = new UserRepository();
+        reactionRepository = new ReactionRepository();
+        postRepository = new PostRepository();
+        commentRepository = new CommentRepository();
         currentUserId = mAuth.getCurrentUser() != null ? mAuth.getCurrentUser().getUid() : "";
 
         // Get userId from intent
@@ -187,8 +203,17 @@ public class ProfileActivity extends AppCompatActivity {
     private void setupRecyclerView() {
         postList = new ArrayList<>();
         postAdapter = new PostAdapter(this, postList, currentUserId);
+        postAdapter.setOnPostDeletedListener(post -> {
+            postList.remove(post);
+            if (mediaList.removeIf(p -> post.getPostId().equals(p.getPostId()))) {
+                mediaAdapter.updateMedia(mediaList);
+            }
+        });
         recyclerViewPosts.setLayoutManager(new LinearLayoutManager(this));
+        recyclerViewPosts.setRecycledViewPool(tabViewPool);
+        recyclerViewPosts.setItemViewCacheSize(ITEM_VIEW_CACHE_SIZE);
         recyclerViewPosts.setAdapter(postAdapter);
+        recyclerViewPosts.addOnScrollListener(postAdapter.imagePreloader());
         recyclerViewPosts.setVisibility(View.VISIBLE);
     }
 
@@ -199,6 +224,8 @@ public class ProfileActivity extends AppCompatActivity {
         replyList = new ArrayList<>();
         repliesAdapter = new RepliesAdapter(this, replyList);
         recyclerViewReplies.setLayoutManager(new LinearLayoutManager(this));
+        recyclerViewReplies.setRecycledViewPool(tabViewPool);
+        recyclerViewReplies.setItemViewCacheSize(ITEM_VIEW_CACHE_SIZE);
         recyclerViewReplies.setAdapter(repliesAdapter);
         recyclerViewReplies.setVisibility(View.GONE);
     }
@@ -210,6 +237,8 @@ public class ProfileActivity extends AppCompatActivity {
         mediaList = new ArrayList<>();
         mediaAdapter = new MediaAdapter(this, mediaList);
         recyclerViewMedia.setLayoutManager(new LinearLayoutManager(this));
+        recyclerViewMedia.setRecycledViewPool(tabViewPool);
+        recyclerViewMedia.setItemViewCacheSize(ITEM_VIEW_CACHE_SIZE);
         recyclerViewMedia.setAdapter(mediaAdapter);
         recyclerViewMedia.setVisibility(View.GONE);
         Log.d(TAG, "Media RecyclerView setup complete");
@@ -239,31 +268,40 @@ public class ProfileActivity extends AppCompatActivity {
      * Load user profile data from Firestore
      */
     private void loadUserProfile() {
-        db.collection("users")
-                .document(userId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        currentUser = documentSnapshot.toObject(User.class);
-                        if (currentUser != null) {
-                            displayUserProfile(currentUser);
-                            if (currentUser.isVerified()) {
-                                ivVerifiedBadgeProfile.setVisibility(View.VISIBLE);
-                            } else {
-                                ivVerifiedBadgeProfile.setVisibility(View.GONE);
-                            }
+        if (currentUser == null) {
+            // Paint the copy saved on this device until Firestore answers
+            userRepository.getCachedUser(userId, new UserRepository.OnUserFetchedListener() {
+                @Override
+                public void onSuccess(User user) {
+                    if (currentUser == null) {
+                        displayUserProfile(user);
+                    }
+                }
 
+                @Override
+                public void onFailure(String error) {
+                    Log.d(TAG, "No cached profile for " + userId);
+                }
+            });
+        }
 
-                            if (!userId.equals(currentUserId)) {
-                                configureFollowButton();
-                            }
-                        }
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error loading profile", e);
-                    Toast.makeText(this, "Error loading profile", Toast.LENGTH_SHORT).show();
-                });
+        userRepository.getUserById(userId, new UserRepository.OnUserFetchedListener() {
+            @Override
+            public void onSuccess(User user) {
+                currentUser = user;
+                displayUserProfile(currentUser);
+
+                if (!userId.equals(currentUserId)) {
+                    configureFollowButton();
+                }
+            }
+
+            @Override
+            public void onFailure(String error) {
+                Log.e(TAG, "Error loading profile: " + error);
+                Toast.makeText(ProfileActivity.this, "Error loading profile", Toast.LENGTH_SHORT).show();
+            }
+        });
     }
 
     /**
@@ -285,6 +323,7 @@ public class ProfileActivity extends AppCompatActivity {
 
         tvFollowingCount.setText(String.valueOf(user.getFollowingCount()));
         tvFollowersCount.setText(String.valueOf(user.getFollowersCount()));
+        ivVerifiedBadgeProfile.setVisibility(user.isVerified() ? View.VISIBLE : View.GONE);
 
         // Load cover image
         Glide.with(this)
@@ -307,10 +346,12 @@ public class ProfileActivity extends AppCompatActivity {
     private void configureFollowButton() {
         if (currentUser == null) return;
 
-        isFollowing = currentUser.getFollowers() != null
-                && currentUser.getFollowers().contains(currentUserId);
-
-        updateFollowButtonUI(isFollowing);
+        btnFollowUnfollow.setEnabled(false);
+        userRepository.isFollowing(currentUserId, userId, following -> {
+            isFollowing = following;
+            updateFollowButtonUI(isFollowing);
+            btnFollowUnfollow.setEnabled(true);
+        });
 
         btnFollowUnfollow.setOnClickListener(v -> {
             if (isFollowing) {
@@ -397,20 +438,44 @@ public class ProfileActivity extends AppCompatActivity {
      */
     private void loadUserPosts() {
         Log.d(TAG, "Loading posts for userId: " + userId);
+        String feedKey = LocalStore.userFeedKey(userId);
+        if (!postsSynced) {
+            postRepository.getCachedFeed(feedKey, new PostRepository.OnPostsListFetchedListener() {
+                @Override
+                public void onSuccess(List<Post> posts) {
+                    if (!postsSynced && postList.isEmpty() && !posts.isEmpty()) {
+                        postList.addAll(posts);
+                        postAdapter.updatePosts(postList);
+                    }
+                }
+
+                @Override
+                public void onFailure(String error) {
+                    Log.e(TAG, "Error loading cached posts: " + error);
+                }
+            });
+        }
+
         db.collection("posts")
                 .whereEqualTo("userId", userId)
                 .orderBy("createdAt", Query.Direction.DESCENDING)
                 .limit(50)
                 .get()
                 .addOnSuccessListener(queryDocumentSnapshots -> {
-                    postList.clear();
+                    List<Post> posts = new ArrayList<>();
                     for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
                         Post post = document.toObject(Post.class);
                         post.setPostId(document.getId());
-                        postList.add(post);
+                        posts.add(post);
                     }
-                    postAdapter.notifyDataSetChanged();
-                    Log.d(TAG, "Posts loaded count: " + postList.size());
+                    postRepository.cacheFeed(feedKey, posts);
+                    reactionRepository.loadReactionState(currentUserId, posts, loaded -> {
+                        postsSynced = true;
+                        postList.clear();
+                        postList.addAll(loaded);
+                        postAdapter.updatePosts(postList);
+                        Log.d(TAG, "Posts loaded count: " + postList.size());
+                    });
                 })
                 .addOnFailureListener(e -> {
                     Log.e(TAG, "Error loading posts", e);
@@ -422,70 +487,59 @@ public class ProfileActivity extends AppCompatActivity {
      */
     private void loadUserReplies() {
         Log.d(TAG, "Loading replies for userId: " + userId);
-        db.collection("comments")
-                .whereEqualTo("userId", userId)
-                .orderBy("createdAt", Query.Direction.DESCENDING)
-                .limit(50)
-                .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
-                    replyList.clear();
-                    Log.d(TAG, "Replies query returned documents: " + queryDocumentSnapshots.size());
+        commentRepository.getCommentsByUser(userId, 50, new CommentRepository.OnCommentsListFetchedListener() {
+            @Override
+            public void onSuccess(List<Comment> replies) {
+                replyList.clear();
+                Log.d(TAG, "Replies query returned documents: " + replies.size());
+
+                if (replies.isEmpty()) {
+                    repliesAdapter.updateReplies(replyList);
+                    Log.d(TAG, "No replies found");
+                    return;
+                }
+
+                // Fetch the user info to get the real username
+                userRepository.getUserById(userId, new UserRepository.OnUserFetchedListener() {
+                    @Override
+                    public void onSuccess(User user) {
+                        String realUsername = user.getUsername();
+                        String profileImage = user.getProfileImageUrl();
+
+                        // Populate replies with the correct username
+                        for (Comment reply : replies) {
+                            // Override the username field with the real username
+                            reply.setUsername(realUsername);
+
+                            // Override profile image if available
+                            if (profileImage != null && !profileImage.isEmpty()) {
+                                reply.setUserProfileImage(profileImage);
+                            }
 
-                    if (queryDocumentSnapshots.isEmpty()) {
-                        repliesAdapter.notifyDataSetChanged();
-                        Log.d(TAG, "No replies found");
-                        return;
+                            Log.d(TAG, "Loaded reply: " + reply.getContent() +
+                                    " by: " + realUsername);
+                            replyList.add(reply);
+                        }
+
+                        repliesAdapter.updateReplies(replyList);
+                        Log.d(TAG, "Replies loaded count: " + replyList.size());
                     }
 
-                    // Fetch the user info to get the real username
-                    db.collection("users")
-                            .document(userId)
-                            .get()
-                            .addOnSuccessListener(userDoc -> {
-                                String realUsername = "Unknown";
-                                String profileImage = null;
-
-                                if (userDoc.exists()) {
-                                    User user = userDoc.toObject(User.class);
-                                    if (user != null) {
-                                        realUsername = user.getUsername();
-                                        profileImage = user.getProfileImageUrl();
-                                    }
-                                }
-
-                                // Populate replies with the correct username
-                                for (QueryDocumentSnapshot doc : queryDocumentSnapshots) {
-                                    Comment reply = doc.toObject(Comment.class);
-
-                                    // Override the username field with the real username
-                                    reply.setUsername(realUsername);
-
-                                    // Override profile image if available
-                                    if (profileImage != null && !profileImage.isEmpty()) {
-                                        reply.setUserProfileImage(profileImage);
-                                    }
-
-                                    Log.d(TAG, "Loaded reply: " + reply.getContent() +
-                                            " by: " + realUsername);
-                                    replyList.add(reply);
-                                }
-
-                                repliesAdapter.notifyDataSetChanged();
-                                Log.d(TAG, "Replies loaded count: " + replyList.size());
-                            })
-                            .addOnFailureListener(e -> {
-                                Log.e(TAG, "Error loading user for replies", e);
-                                // Still show replies even if username fetch fails
-                                for (QueryDocumentSnapshot doc : queryDocumentSnapshots) {
-                                    Comment reply = doc.toObject(Comment.class);
-                                    replyList.add(reply);
-                                }
-                                repliesAdapter.notifyDataSetChanged();
-                            });
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error loading replies", e);
+                    @Override
+                    public void onFailure(String error) {
+                        Log.e(TAG, "Error loading user for replies: " + error);
+                        // Still show replies even if username fetch fails
+                        replyList.addAll(replies);
+                        repliesAdapter.updateReplies(replyList);
+                    }
                 });
+            }
+
+            @Override
+            public void onFailure(String error) {
+                Log.e(TAG, "Error loading replies: " + error);
+            }
+        });
     }
 
     /**
@@ -512,7 +566,7 @@ public class ProfileActivity extends AppCompatActivity {
                     }
 
                     // Notify adapter that data has changed
-                    mediaAdapter.notifyDataSetChanged();
+                    mediaAdapter.updateMedia(mediaList);
                     Log.d(TAG, "Media loaded count: " + mediaList.size());
                 })
                 .addOnFailureListener(e -> {
@@ -2,12 +2,15 @@ package com.nexuspulse.app;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.Editable;
 import android.text.TextWatcher;
 import android.view.View;
 import android.widget.EditText;
 import android.widget.LinearLayout;
 import android.widget.ProgressBar;
+import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
@@ -16,24 +19,38 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.google.android.material.appbar.MaterialToolbar;
 import com.google.firebase.auth.FirebaseAuth;
+import com.nexuspulse.app.adapters.PostAdapter;
 import com.nexuspulse.app.adapters.UserAdapter;
+import com.nexuspulse.app.models.Post;
 import com.nexuspulse.app.models.User;
+import com.nexuspulse.app.repository.PostRepository;
+import com.nexuspulse.app.repository.ReactionRepository;
 import com.nexuspulse.app.repository.UserRepository;
+import com.nexuspulse.app.search.SearchEngine;
+import com.nexuspulse.app.search.SearchPipeline;
 import com.nexuspulse.app.utils.Constants;
 
 import java.util.ArrayList;
 import java.util.List;
 
 public class SearchActivity extends AppCompatActivity {
+    private static final int POST_SEARCH_LIMIT = 20;
 
     private EditText etSearch;
     private RecyclerView rvUsers;
+    private RecyclerView rvPosts;
+    private TextView tvPostsHeader;
     private ProgressBar progressBar;
     private LinearLayout emptyState;
     private UserAdapter userAdapter;
     private List<User> userList;
+    private PostAdapter postAdapter;
+    private List<Post> postList;
     private UserRepository userRepository;
+    private PostRepository postRepository;
+    private ReactionRepository reactionRepository;
     private String currentUserId;
+    private SearchPipeline<User> searchPipeline;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -52,11 +69,15 @@ public class SearchActivity extends AppCompatActivity {
 
         // Initialize
         userRepository = new UserRepository();
+        postRepository = new PostRepository();
+        reactionRepository = new ReactionRepository();
         currentUserId = FirebaseAuth.getInstance().getCurrentUser().getUid();
 
         // Initialize views
         etSearch = findViewById(R.id.etSearch);
         rvUsers = findViewById(R.id.rvUsers);
+        rvPosts = findViewById(R.id.rvPosts);
+        tvPostsHeader = findViewById(R.id.tvPostsHeader);
         progressBar = findViewById(R.id.progressBar);
         emptyState = findViewById(R.id.emptyState);
 
@@ -71,24 +92,68 @@ public class SearchActivity extends AppCompatActivity {
         rvUsers.setLayoutManager(new LinearLayoutManager(this));
         rvUsers.setAdapter(userAdapter);
 
+        postList = new ArrayList<>();
+        postAdapter = new PostAdapter(this, postList, currentUserId);
+        postAdapter.setOnPostDeletedListener(post -> {
+            postList.remove(post);
+            showPosts(new ArrayList<>(postList));
+        });
+        rvPosts.setLayoutManager(new LinearLayoutManager(this));
+        rvPosts.setAdapter(postAdapter);
+
         // Show empty state initially
         showEmptyState(true);
 
-        // Search text watcher
+        // Search as you type: debounced, cached, latest query wins
+        Handler handler = new Handler(Looper.getMainLooper());
+        searchPipeline = new SearchPipeline<>(new SearchPipeline.Scheduler() {
+            @Override
+            public void schedule(Runnable task, long delayMillis) {
+                handler.postDelayed(task, delayMillis);
+            }
+
+            @Override
+            public void cancel(Runnable task) {
+                handler.removeCallbacks(task);
+            }
+        }, this::searchRemote, (user, query) -> user.getUsername() != null && user.getUsername().startsWith(query),
+                UserRepository.SEARCH_LIMIT, new SearchPipeline.Listener<User>() {
+            @Override
+            public void onLoading(String query) {
+                progressBar.setVisibility(View.VISIBLE);
+            }
+
+            @Override
+            public void onResults(String query, List<User> users) {
+                showUsers(users);
+                searchPosts(query);
+            }
+
+            @Override
+            public void onFailure(String query, String error) {
+                Toast.makeText(SearchActivity.this, "Error: " + error, Toast.LENGTH_SHORT).show();
+                searchLocal(query);
+                searchPosts(query);
+            }
+
+            @Override
+            public void onCleared() {
+                progressBar.setVisibility(View.GONE);
+                userList.clear();
+                userAdapter.updateUsers(userList);
+                postList.clear();
+                postAdapter.updatePosts(postList);
+                showEmptyState(true);
+            }
+        });
+
         etSearch.addTextChangedListener(new TextWatcher() {
             @Override
             public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
 
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
-                String query = s.toString().trim();
-                if (query.length() > 0) {
-                    searchUsers(query);
-                } else {
-                    userList.clear();
-                    userAdapter.notifyDataSetChanged();
-                    showEmptyState(true);
-                }
+                searchPipeline.setQuery(s.toString());
             }
 
             @Override
@@ -102,49 +167,101 @@ public class SearchActivity extends AppCompatActivity {
         etSearch.requestFocus();
     }
 
-    private void searchUsers(String query) {
-        progressBar.setVisibility(View.VISIBLE);
-        showEmptyState(false);
-        rvUsers.setVisibility(View.GONE);
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        searchPipeline.close();
+    }
 
+    private void searchRemote(String query, SearchPipeline.Callback<User> callback) {
         userRepository.searchUsers(query, new UserRepository.OnUsersListFetchedListener() {
             @Override
             public void onSuccess(List<User> users) {
-                progressBar.setVisibility(View.GONE);
-                userList.clear();
-
-                // Remove current user from results
-                for (User user : users) {
-                    if (!user.getUserId().equals(currentUserId)) {
-                        userList.add(user);
-                    }
-                }
-
-                userAdapter.notifyDataSetChanged();
-
-                if (userList.isEmpty()) {
-                    showEmptyState(true);
-                } else {
-                    rvUsers.setVisibility(View.VISIBLE);
-                }
+                callback.onSuccess(users);
             }
 
             @Override
             public void onFailure(String error) {
-                progressBar.setVisibility(View.GONE);
-                Toast.makeText(SearchActivity.this, "Error: " + error, Toast.LENGTH_SHORT).show();
-                showEmptyState(true);
+                callback.onFailure(error);
             }
         });
     }
 
+    /**
+     * Offline: answer from the users saved on this device
+     */
+    private void searchLocal(String query) {
+        SearchEngine.getInstance().searchUsers(query, UserRepository.SEARCH_LIMIT, ids ->
+                userRepository.getCachedUsers(ids, new UserRepository.OnUsersListFetchedListener() {
+                    @Override
+                    public void onSuccess(List<User> users) {
+                        if (!isDestroyed() && query.equals(etSearch.getText().toString().trim())) {
+                            showUsers(users);
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(String error) {
+                        showUsers(new ArrayList<>());
+                    }
+                }));
+    }
+
+    /**
+     * Posts seen on this device that match, from the on-device index
+     */
+    private void searchPosts(String query) {
+        SearchEngine.getInstance().searchPosts(query, POST_SEARCH_LIMIT, ids ->
+                postRepository.getPostsByIds(ids, new PostRepository.OnPostsListFetchedListener() {
+                    @Override
+                    public void onSuccess(List<Post> posts) {
+                        reactionRepository.loadReactionState(currentUserId, posts, loaded -> {
+                            if (!isDestroyed() && query.equals(etSearch.getText().toString().trim())) {
+                                showPosts(loaded);
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void onFailure(String error) {
+                        showPosts(new ArrayList<>());
+                    }
+                }));
+    }
+
+    private void showUsers(List<User> users) {
+        progressBar.setVisibility(View.GONE);
+        userList.clear();
+
+        // Remove current user from results
+        for (User user : users) {
+            if (!currentUserId.equals(user.getUserId())) {
+                userList.add(user);
+            }
+        }
+
+        userAdapter.updateUsers(userList);
+        showEmptyState(userList.isEmpty() && postList.isEmpty());
+    }
+
+    private void showPosts(List<Post> posts) {
+        postList.clear();
+        postList.addAll(posts);
+        postAdapter.updatePosts(postList);
+        showEmptyState(userList.isEmpty() && postList.isEmpty());
+    }
+
     private void showEmptyState(boolean show) {
         if (show) {
             emptyState.setVisibility(View.VISIBLE);
             rvUsers.setVisibility(View.GONE);
+            tvPostsHeader.setVisibility(View.GONE);
+            rvPosts.setVisibility(View.GONE);
         } else {
             emptyState.setVisibility(View.GONE);
             rvUsers.setVisibility(View.VISIBLE);
+            tvPostsHeader.setVisibility(postList.isEmpty() ? View.GONE : View.VISIBLE);
+            rvPosts.setVisibility(postList.isEmpty() ? View.GONE : View.VISIBLE);
         }
     }
 }
@@ -9,30 +9,48 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
-import com.google.firebase.firestore.FirebaseFirestore;
 import com.nexuspulse.app.R;
 import com.nexuspulse.app.models.Comment;
+import com.nexuspulse.app.models.User;
+import com.nexuspulse.app.repository.UserRepository;
 import com.nexuspulse.app.utils.DateUtil;
 
+import java.util.ArrayList;
 import java.util.List;
 
-public class CommentAdapter extends RecyclerView.Adapter<CommentAdapter.CommentViewHolder> {
+public class CommentAdapter extends ListAdapter<Comment, CommentAdapter.CommentViewHolder> {
 
     private static final String TAG = "CommentAdapter";
 
     private Context context;
-    private List<Comment> commentList;
     private String currentUserId;
-    private FirebaseFirestore db;
+    private UserRepository userRepository;
+    private final StableIds stableIds = new StableIds();
 
     public CommentAdapter(Context context, List<Comment> commentList, String currentUserId) {
+        super(DIFF_CALLBACK);
         this.context = context;
-        this.commentList = commentList;
         this.currentUserId = currentUserId;
-        this.db = FirebaseFirestore.getInstance();
+        this.userRepository = new UserRepository();
+        setHasStableIds(true);
+        submitList(new ArrayList<>(commentList));
+    }
+
+    /**
+     * Show newComments, diffed against the current list in the background
+     */
+    public void updateComments(List<Comment> newComments) {
+        submitList(new ArrayList<>(newComments));
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return stableIds.idFor(getItem(position).getCommentId());
     }
 
     @NonNull
@@ -44,7 +62,7 @@ public class CommentAdapter extends RecyclerView.Adapter<CommentAdapter.CommentV
 
     @Override
     public void onBindViewHolder(@NonNull CommentViewHolder holder, int position) {
-        Comment comment = commentList.get(position);
+        Comment comment = getItem(position);
 
         // Set comment text
         // Set comment text
@@ -61,44 +79,40 @@ public class CommentAdapter extends RecyclerView.Adapter<CommentAdapter.CommentV
     }
 
     private void loadUserInfo(CommentViewHolder holder, String userId) {
-        db.collection("users")
-                .document(userId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        String displayName = documentSnapshot.getString("displayName");
-                        String username = documentSnapshot.getString("username");
-                        String profileImageUrl = documentSnapshot.getString("profileImageUrl");
-
-                        // Set display name
-                        holder.tvDisplayName.setText(displayName != null ? displayName : "Unknown User");
-
-                        // Set username
-                        holder.tvUsername.setText(username != null ? "@" + username : "@unknown");
-
-                        // Load profile image
-                        if (profileImageUrl != null && !profileImageUrl.isEmpty()) {
-                            Glide.with(context)
-                                    .load(profileImageUrl)
-                                    .placeholder(R.drawable.ic_profile)
-                                    .error(R.drawable.ic_profile)
-                                    .circleCrop()
-                                    .into(holder.ivProfileImage);
-                        } else {
-                            holder.ivProfileImage.setImageResource(R.drawable.ic_profile);
-                        }
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error loading user info", e);
-                    holder.tvDisplayName.setText("Unknown User");
-                    holder.tvUsername.setText("@unknown");
-                });
-    }
-
-    @Override
-    public int getItemCount() {
-        return commentList.size();
+        // Authors repeat a lot within a thread; UserProfileCache serves repeats without a read
+        userRepository.getUserById(userId, new UserRepository.OnUserFetchedListener() {
+            @Override
+            public void onSuccess(User user) {
+                String displayName = user.getDisplayName();
+                String username = user.getUsername();
+                String profileImageUrl = user.getProfileImageUrl();
+
+                // Set display name
+                holder.tvDisplayName.setText(displayName != null ? displayName : "Unknown User");
+
+                // Set username
+                holder.tvUsername.setText(username != null ? "@" + username : "@unknown");
+
+                // Load profile image
+                if (profileImageUrl != null && !profileImageUrl.isEmpty()) {
+                    Glide.with(context)
+                            .load(profileImageUrl)
+                            .placeholder(R.drawable.ic_profile)
+                            .error(R.drawable.ic_profile)
+                            .circleCrop()
+                            .into(holder.ivProfileImage);
+                } else {
+                    holder.ivProfileImage.setImageResource(R.drawable.ic_profile);
+                }
+            }
+
+            @Override
+            public void onFailure(String error) {
+                Log.e(TAG, "Error loading user info: " + error);
+                holder.tvDisplayName.setText("Unknown User");
+                holder.tvUsername.setText("@unknown");
+            }
+        });
     }
 
     static class CommentViewHolder extends RecyclerView.ViewHolder {
@@ -117,4 +131,23 @@ public class CommentAdapter extends RecyclerView.Adapter<CommentAdapter.CommentV
             tvCommentTime = itemView.findViewById(R.id.tvCommentTime);
         }
     }
+
+    static final DiffUtil.ItemCallback<Comment> DIFF_CALLBACK = new DiffUtil.ItemCallback<Comment>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Comment oldComment, @NonNull Comment newComment) {
+            return oldComment.getCommentId() != null && oldComment.getCommentId().equals(newComment.getCommentId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Comment oldComment, @NonNull Comment newComment) {
+            return equal(oldComment.getContent(), newComment.getContent())
+                    && equal(oldComment.getUserId(), newComment.getUserId())
+                    && equal(oldComment.getCreatedAt(), newComment.getCreatedAt())
+                    && oldComment.getLikesCount() == newComment.getLikesCount();
+        }
+    };
+
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
 }
@@ -0,0 +1,59 @@
+package com.nexuspulse.app.adapters;
+
+import android.graphics.drawable.Drawable;
+import android.view.View;
+
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.RequestManager;
+import com.bumptech.glide.load.DecodeFormat;
+import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.nexuspulse.app.R;
+import com.nexuspulse.app.utils.ImageUrls;
+
+/**
+ * Glide requests for images in feed rows, sized to the view they fill:
+ * the URL asks the server for a rendition of about that size
+ * ({@link ImageUrls}) and override() decodes to exactly that size, so no
+ * row holds a bitmap larger than it shows. Post images decode as RGB_565,
+ * half the bytes of ARGB_8888 and no visible loss for photos; avatars keep
+ * their alpha for the circle crop. If the sized rendition cannot be
+ * fetched (e.g. transformations disabled on the project), the original is
+ * loaded instead.
+ */
+final class FeedImages {
+
+    private FeedImages() {}
+
+    static RequestBuilder<Drawable> postImage(RequestManager glide, String url, int widthPx, int heightPx) {
+        return glide.load(ImageUrls.sized(url, widthPx, heightPx))
+                .format(DecodeFormat.PREFER_RGB_565)
+                .override(widthPx, heightPx)
+                .centerCrop()
+                .diskCacheStrategy(DiskCacheStrategy.AUTOMATIC)
+                .placeholder(android.R.drawable.ic_menu_gallery)
+                .error(glide.load(url)
+                        .format(DecodeFormat.PREFER_RGB_565)
+                        .override(widthPx, heightPx)
+                        .centerCrop()
+                        .error(android.R.drawable.ic_menu_report_image));
+    }
+
+    static RequestBuilder<Drawable> avatar(RequestManager glide, String url, int sizePx) {
+        return glide.load(ImageUrls.sized(url, sizePx, sizePx))
+                .override(sizePx)
+                .circleCrop()
+                .diskCacheStrategy(DiskCacheStrategy.AUTOMATIC)
+                .placeholder(R.drawable.ic_profile)
+                .error(glide.load(url)
+                        .override(sizePx)
+                        .circleCrop()
+                        .error(R.drawable.ic_profile));
+    }
+
+    /**
+     * view's laid-out width, or fallbackPx before its first layout
+     */
+    static int widthOf(View view, int fallbackPx) {
+        return view.getWidth() > 0 ? view.getWidth() : fallbackPx;
+    }
+}
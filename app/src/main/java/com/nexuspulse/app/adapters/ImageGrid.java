@@ -0,0 +1,48 @@
+package com.nexuspulse.app.adapters;
+
+/**
+ * Where the images of a multi-image post go in view_image_grid's 2x2 grid and
+ * how big each cell is. One image fills the grid, two split it down the
+ * middle, three put the first in a full-height cell on the left with two
+ * stacked on the right, and four fill all the cells.
+ */
+public final class ImageGrid {
+    public static final int TOP_START = 0;
+    public static final int TOP_END = 1;
+    public static final int BOTTOM_START = 2;
+    public static final int BOTTOM_END = 3;
+    public static final int SLOTS = 4;
+
+    private ImageGrid() {}
+
+    /**
+     * Cell of each of count images, in image order
+     */
+    public static int[] slots(int count) {
+        switch (count) {
+            case 0:
+                return new int[0];
+            case 1:
+                return new int[]{TOP_START};
+            case 2:
+                return new int[]{TOP_START, TOP_END};
+            case 3:
+                return new int[]{TOP_START, TOP_END, BOTTOM_END};
+            default:
+                return new int[]{TOP_START, TOP_END, BOTTOM_START, BOTTOM_END};
+        }
+    }
+
+    /**
+     * {width, height} of slot when count images share a widthPx x heightPx
+     * grid with gapPx between cells
+     */
+    public static int[] cellSize(int count, int slot, int widthPx, int heightPx, int gapPx) {
+        int width = count == 1 ? widthPx : (widthPx - gapPx) / 2;
+        boolean stacked = slot == BOTTOM_START || slot == BOTTOM_END
+                || (slot == TOP_START && count >= 4)
+                || (slot == TOP_END && count >= 3);
+        int height = stacked ? (heightPx - gapPx) / 2 : heightPx;
+        return new int[]{width, height};
+    }
+}
@@ -10,44 +10,81 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
 import com.google.android.material.imageview.ShapeableImageView;
-import com.google.firebase.firestore.FirebaseFirestore;
 import com.nexuspulse.app.FullScreenImageActivity;
 import com.nexuspulse.app.R;
 import com.nexuspulse.app.models.Post;
 import com.nexuspulse.app.models.User;
+import com.nexuspulse.app.repository.UserRepository;
 import com.nexuspulse.app.utils.DateUtil;
 
+import java.util.ArrayList;
 import java.util.List;
 
-public class MediaAdapter extends RecyclerView.Adapter<MediaAdapter.MediaViewHolder> {
+public class MediaAdapter extends ListAdapter<Post, MediaAdapter.MediaViewHolder> {
 
     private static final String TAG = "MediaAdapter";
     private final Context context;
-    private final List<Post> mediaList;
-    private final FirebaseFirestore db;
+    private final UserRepository userRepository;
+    private final StableIds stableIds = new StableIds();
+
+    // Image sizes in px, from the dimens item_media is laid out with
+    private final int avatarSizePx;
+    private final int imageHeightPx;
+    private final int imageInsetPx;
+    private int rowWidthPx;
 
     public MediaAdapter(Context context, List<Post> mediaList) {
+        super(PostAdapter.DIFF_CALLBACK);
         this.context = context;
-        this.mediaList = mediaList;
-        this.db = FirebaseFirestore.getInstance();
+        this.userRepository = new UserRepository();
+        this.avatarSizePx = context.getResources().getDimensionPixelSize(R.dimen.media_avatar_size);
+        this.imageHeightPx = context.getResources().getDimensionPixelSize(R.dimen.media_image_height);
+        this.imageInsetPx = context.getResources().getDimensionPixelSize(R.dimen.media_image_inset);
+        this.rowWidthPx = context.getResources().getDisplayMetrics().widthPixels;
+        setHasStableIds(true);
+        submitList(new ArrayList<>(mediaList));
         Log.d(TAG, "MediaAdapter created with " + mediaList.size() + " items");
     }
 
+    /**
+     * Show newMedia, diffed against the current list in the background
+     */
+    public void updateMedia(List<Post> newMedia) {
+        submitList(new ArrayList<>(newMedia));
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return stableIds.idFor(getItem(position).getPostId());
+    }
+
+    /**
+     * Typed by layout, see {@link PostAdapter#getItemViewType(int)}
+     */
+    @Override
+    public int getItemViewType(int position) {
+        return R.layout.item_media;
+    }
+
     @NonNull
     @Override
     public MediaViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         Log.d(TAG, "onCreateViewHolder called");
+        if (parent.getWidth() > 0) {
+            rowWidthPx = parent.getWidth();
+        }
         View view = LayoutInflater.from(context).inflate(R.layout.item_media, parent, false);
         return new MediaViewHolder(view);
     }
 
     @Override
     public void onBindViewHolder(@NonNull MediaViewHolder holder, int position) {
-        Post post = mediaList.get(position);
+        Post post = getItem(position);
 
         Log.d(TAG, "=== onBindViewHolder CALLED ===");
         Log.d(TAG, "Binding media at position " + position);
@@ -59,10 +96,8 @@ public class MediaAdapter extends RecyclerView.Adapter<MediaAdapter.MediaViewHol
             holder.ivPostImage.setVisibility(View.VISIBLE);
             Log.d(TAG, "Loading image with Glide: " + post.getImageUrl());
 
-            Glide.with(context)
-                    .load(post.getImageUrl())
-                    .placeholder(android.R.drawable.ic_menu_gallery)
-                    .error(android.R.drawable.ic_menu_gallery)
+            int widthPx = FeedImages.widthOf(holder.ivPostImage, rowWidthPx - imageInsetPx);
+            FeedImages.postImage(Glide.with(context), post.getImageUrl(), widthPx, imageHeightPx)
                     .into(holder.ivPostImage);
 
             // ✅ ADD CLICK LISTENER TO OPEN FULLSCREEN IMAGE
@@ -88,39 +123,27 @@ public class MediaAdapter extends RecyclerView.Adapter<MediaAdapter.MediaViewHol
 
     private void loadUserData(String userId, MediaViewHolder holder) {
         Log.d(TAG, "Loading user data for userId: " + userId);
-        db.collection("users")
-                .document(userId)
-                .get()
-                .addOnSuccessListener(documentSnapshot -> {
-                    if (documentSnapshot.exists()) {
-                        User user = documentSnapshot.toObject(User.class);
-                        if (user != null) {
-                            holder.tvUsername.setText(user.getUsername());
-                            holder.tvUserHandle.setText("@" + user.getUsername());
-                            Log.d(TAG, "User data loaded: " + user.getUsername());
-
-                            // Load profile image
-                            if (user.getProfileImageUrl() != null && !user.getProfileImageUrl().isEmpty()) {
-                                Glide.with(context)
-                                        .load(user.getProfileImageUrl())
-                                        .placeholder(R.drawable.ic_profile)
-                                        .error(R.drawable.ic_profile)
-                                        .into(holder.ivProfileImage);
-                            }
-                        }
-                    }
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error loading user data", e);
-                    holder.tvUsername.setText("Unknown User");
-                    holder.tvUserHandle.setText("@unknown");
-                });
-    }
-
-    @Override
-    public int getItemCount() {
-        Log.d(TAG, "getItemCount called, returning: " + mediaList.size());
-        return mediaList.size();
+        userRepository.getUserById(userId, new UserRepository.OnUserFetchedListener() {
+            @Override
+            public void onSuccess(User user) {
+                holder.tvUsername.setText(user.getUsername());
+                holder.tvUserHandle.setText("@" + user.getUsername());
+                Log.d(TAG, "User data loaded: " + user.getUsername());
+
+                // Load profile image
+                if (user.getProfileImageUrl() != null && !user.getProfileImageUrl().isEmpty()) {
+                    FeedImages.avatar(Glide.with(context), user.getProfileImageUrl(), avatarSizePx)
+                            .into(holder.ivProfileImage);
+                }
+            }
+
+            @Override
+            public void onFailure(String error) {
+                Log.e(TAG, "Error loading user data: " + error);
+                holder.tvUsername.setText("Unknown User");
+                holder.tvUserHandle.setText("@unknown");
+            }
+        });
     }
 
     static class MediaViewHolder extends RecyclerView.ViewHolder {
@@ -1,4 +1,125 @@
 package com.nexuspulse.app.adapters;
 
-public class NotificationAdapter {
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.bumptech.glide.Glide;
+import com.nexuspulse.app.R;
+import com.nexuspulse.app.models.Notification;
+import com.nexuspulse.app.repository.NotificationGroups;
+import com.nexuspulse.app.utils.DateUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Grouped notifications ("@alice and 12 others liked your post"), unread
+ * ones in full white
+ */
+public class NotificationAdapter extends ListAdapter<Notification, NotificationAdapter.NotificationViewHolder> {
+
+    private static final float READ_ALPHA = 0.6f;
+
+    private final Context context;
+    private final OnNotificationClickListener listener;
+    private final StableIds stableIds = new StableIds();
+
+    public interface OnNotificationClickListener {
+        void onNotificationClick(Notification notification);
+    }
+
+    public NotificationAdapter(Context context, OnNotificationClickListener listener) {
+        super(DIFF_CALLBACK);
+        this.context = context;
+        this.listener = listener;
+        setHasStableIds(true);
+    }
+
+    /**
+     * Show notifications, diffed against the current list in the background
+     */
+    public void updateNotifications(List<Notification> notifications) {
+        submitList(new ArrayList<>(notifications));
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return stableIds.idFor(getItem(position).getNotificationId());
+    }
+
+    @NonNull
+    @Override
+    public NotificationViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(context).inflate(R.layout.item_notification, parent, false);
+        return new NotificationViewHolder(view);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull NotificationViewHolder holder, int position) {
+        Notification notification = getItem(position);
+
+        holder.tvMessage.setText(NotificationGroups.summary(notification));
+        holder.tvMessage.setAlpha(notification.isRead() ? READ_ALPHA : 1f);
+        holder.tvTimestamp.setText(notification.getCreatedAt() != null
+                ? DateUtil.getTimeAgo(notification.getCreatedAt()) : "");
+
+        if (notification.getFromUserImage() != null && !notification.getFromUserImage().isEmpty()) {
+            Glide.with(context)
+                    .load(notification.getFromUserImage())
+                    .placeholder(R.drawable.ic_profile)
+                    .error(R.drawable.ic_profile)
+                    .circleCrop()
+                    .into(holder.imgUser);
+        } else {
+            holder.imgUser.setImageResource(R.drawable.ic_profile);
+        }
+
+        holder.itemView.setOnClickListener(v -> {
+            if (listener != null) {
+                listener.onNotificationClick(notification);
+            }
+        });
+    }
+
+    static class NotificationViewHolder extends RecyclerView.ViewHolder {
+        ImageView imgUser;
+        TextView tvMessage;
+        TextView tvTimestamp;
+
+        public NotificationViewHolder(@NonNull View itemView) {
+            super(itemView);
+            imgUser = itemView.findViewById(R.id.imgUser);
+            tvMessage = itemView.findViewById(R.id.tvMessage);
+            tvTimestamp = itemView.findViewById(R.id.tvTimestamp);
+        }
+    }
+
+    private static final DiffUtil.ItemCallback<Notification> DIFF_CALLBACK = new DiffUtil.ItemCallback<Notification>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Notification oldItem, @NonNull Notification newItem) {
+            return oldItem.getNotificationId() != null && oldItem.getNotificationId().equals(newItem.getNotificationId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Notification oldItem, @NonNull Notification newItem) {
+            return oldItem.getCount() == newItem.getCount()
+                    && oldItem.isRead() == newItem.isRead()
+                    && equal(oldItem.getFromUserId(), newItem.getFromUserId())
+                    && equal(oldItem.getFromUserImage(), newItem.getFromUserImage())
+                    && equal(oldItem.getCreatedAt(), newItem.getCreatedAt());
+        }
+    };
+
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
 }
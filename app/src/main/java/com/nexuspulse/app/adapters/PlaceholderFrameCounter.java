@@ -0,0 +1,56 @@
+package com.nexuspulse.app.adapters;
+
+import android.util.Log;
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Measures how well feed images keep up with a fling: from the moment the
+ * list starts settling until it stops, counts the frames in which any
+ * on-screen row still shows an image placeholder, and logs the totals.
+ * A scripted fling is recyclerView.fling(0, velocity). Debug builds only;
+ * it does work on every frame of a fling.
+ */
+public class PlaceholderFrameCounter extends RecyclerView.OnScrollListener implements Choreographer.FrameCallback {
+    private static final String TAG = "PlaceholderFrameCounter";
+
+    private final PostAdapter adapter;
+    private RecyclerView flinging;
+    private int frames;
+    private int placeholderFrames;
+
+    public PlaceholderFrameCounter(PostAdapter adapter) {
+        this.adapter = adapter;
+    }
+
+    @Override
+    public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+        if (newState == RecyclerView.SCROLL_STATE_SETTLING && flinging == null) {
+            flinging = recyclerView;
+            frames = 0;
+            placeholderFrames = 0;
+            Choreographer.getInstance().postFrameCallback(this);
+        } else if (newState == RecyclerView.SCROLL_STATE_IDLE && flinging != null) {
+            Choreographer.getInstance().removeFrameCallback(this);
+            flinging = null;
+            Log.d(TAG, "Fling: " + placeholderFrames + " of " + frames + " frames showed a placeholder");
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (flinging == null) {
+            return;
+        }
+        frames++;
+        for (int i = 0; i < flinging.getChildCount(); i++) {
+            if (adapter.isShowingPlaceholder(flinging.getChildViewHolder(flinging.getChildAt(i)))) {
+                placeholderFrames++;
+                break;
+            }
+        }
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+}
@@ -2,6 +2,7 @@ package com.nexuspulse.app.adapters;
 
 import android.content.Context;
 import android.content.Intent;
+import android.graphics.drawable.Drawable;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -19,46 +20,135 @@ import com.nexuspulse.app.utils.DateUtil;  // For your DateUtil.getTimeAgo(Date)
 
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.cardview.widget.CardView;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
-import com.bumptech.glide.load.engine.DiskCacheStrategy;
+import com.bumptech.glide.ListPreloader;
+import com.bumptech.glide.RequestBuilder;
+import com.bumptech.glide.integration.recyclerview.RecyclerViewPreloader;
+import com.bumptech.glide.load.DataSource;
+import com.bumptech.glide.load.engine.GlideException;
 import com.bumptech.glide.load.resource.drawable.DrawableTransitionOptions;
+import com.bumptech.glide.request.RequestListener;
+import com.bumptech.glide.request.target.Target;
 import com.google.android.material.imageview.ShapeableImageView;
 import com.nexuspulse.app.CommentsActivity;
 import com.nexuspulse.app.FullScreenImageActivity;
 import com.nexuspulse.app.R;
+import com.nexuspulse.app.database.OutboxEntity;
+import com.nexuspulse.app.feed.EngagementTracker;
 import com.nexuspulse.app.models.Post;
+import com.nexuspulse.app.repository.PendingReactions;
 import com.nexuspulse.app.repository.PostRepository;
+import com.nexuspulse.app.utils.Constants;
 import com.nexuspulse.app.utils.DateUtil;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
-public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder> {
+/**
+ * Feed rows. Lists are diffed off the main thread by {@link ListAdapter};
+ * rows are keyed on postId, and changes that only touch counters or the
+ * user's own reaction rebind just those views through payloads instead of
+ * the whole row (and its Glide loads).
+ */
+public class PostAdapter extends ListAdapter<Post, PostAdapter.PostViewHolder> {
+
+    public static final String PAYLOAD_LIKE_CHANGED = "LIKE_CHANGED";
+    public static final String PAYLOAD_RETWEET_CHANGED = "RETWEET_CHANGED";
+    public static final String PAYLOAD_ENGAGEMENT_CHANGED = "ENGAGEMENT_CHANGED";
+
+    // Rows ahead of the scroll whose images imagePreloader() starts loading
+    private static final int PRELOAD_ROWS = 6;
 
     private Context context;
-    private List<Post> postList;
     private String currentUserId;
     private PostRepository postRepository;
+    private final PendingReactions pendingReactions = PendingReactions.getInstance();
+    private final PendingReactions.OnRolledBackListener rollbackListener = this::onRolledBack;
+    private OnPostDeletedListener onPostDeletedListener;
+    private final StableIds stableIds = new StableIds();
+
+    // Feed image sizes in px, from the dimens item_post is laid out with
+    private final int avatarSizePx;
+    private final int postImageHeightPx;
+    private final int postImageInsetPx;
+    private final int imageGridGapPx;
+    private int rowWidthPx;
+    private int measuredPostImageWidthPx;
+
+    public interface OnPostDeletedListener {
+        void onPostDeleted(Post post);
+    }
 
     public PostAdapter(Context context, List<Post> postList, String currentUserId) {
+        super(DIFF_CALLBACK);
         this.context = context;
-        this.postList = postList;
         this.currentUserId = currentUserId;
         this.postRepository = new PostRepository();
+        this.avatarSizePx = context.getResources().getDimensionPixelSize(R.dimen.avatar_medium);
+        this.postImageHeightPx = context.getResources().getDimensionPixelSize(R.dimen.post_image_height);
+        this.postImageInsetPx = context.getResources().getDimensionPixelSize(R.dimen.post_image_inset);
+        this.imageGridGapPx = context.getResources().getDimensionPixelSize(R.dimen.image_grid_gap);
+        this.rowWidthPx = context.getResources().getDisplayMetrics().widthPixels;
+        setHasStableIds(true);
+        submitList(new ArrayList<>(postList));
+    }
+
+    public void setOnPostDeletedListener(OnPostDeletedListener listener) {
+        this.onPostDeletedListener = listener;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return stableIds.idFor(getItem(position).getPostId());
+    }
+
+    /**
+     * Rows are typed by layout so a {@link RecyclerView.RecycledViewPool}
+     * shared with other adapters never hands one of them a post row.
+     */
+    @Override
+    public int getItemViewType(int position) {
+        return R.layout.item_post;
     }
 
     @NonNull
     @Override
     public PostViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        if (parent.getWidth() > 0) {
+            rowWidthPx = parent.getWidth();
+        }
         View view = LayoutInflater.from(context).inflate(R.layout.item_post, parent, false);
         return new PostViewHolder(view);
     }
 
+    @Override
+    public void onBindViewHolder(@NonNull PostViewHolder holder, int position, @NonNull List<Object> payloads) {
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+            return;
+        }
+        Post post = getItem(position);
+        for (Object payload : payloads) {
+            if (PAYLOAD_LIKE_CHANGED.equals(payload)) {
+                bindLike(holder, post);
+            } else if (PAYLOAD_RETWEET_CHANGED.equals(payload)) {
+                bindRetweet(holder, post);
+            } else if (PAYLOAD_ENGAGEMENT_CHANGED.equals(payload)) {
+                bindEngagement(holder, post);
+            }
+        }
+    }
+
     @Override
     public void onBindViewHolder(@NonNull PostViewHolder holder, int position) {
-        Post post = postList.get(position);
+        Post post = getItem(position);
 
         // Set text data
         holder.usernameText.setText(post.getUsername());
@@ -84,40 +174,11 @@ public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder
 
 
 
-        // Show/hide like count
-        int likesCount = post.getLikesCount();
-        if (likesCount > 0) {
-            holder.likeCount.setVisibility(View.VISIBLE);
-            holder.likeCount.setText(String.valueOf(likesCount));
-        } else {
-            holder.likeCount.setVisibility(View.GONE);
-        }
-
-        // Show/hide retweet count
-        int retweetsCount = post.getRetweetsCount();
-        if (retweetsCount > 0) {
-            holder.retweetCount.setVisibility(View.VISIBLE);
-            holder.retweetCount.setText(String.valueOf(retweetsCount));
-        } else {
-            holder.retweetCount.setVisibility(View.GONE);
-        }
-
-        // Show/hide reply count
-        int commentsCount = post.getCommentsCount();
-        if (commentsCount > 0) {
-            holder.replyCount.setVisibility(View.VISIBLE);
-            holder.replyCount.setText(String.valueOf(commentsCount));
-        } else {
-            holder.replyCount.setVisibility(View.GONE);
-        }
+        bindEngagement(holder, post);
 
         // Load profile image
-        Glide.with(context)
-                .load(post.getUserProfileImage())
-                .placeholder(R.drawable.ic_profile)
-                .error(R.drawable.ic_profile)
-                .circleCrop()
-                .diskCacheStrategy(DiskCacheStrategy.ALL)
+        holder.pendingImages = 0;
+        track(avatarRequest(post), holder)
                 .transition(DrawableTransitionOptions.withCrossFade())
                 .into(holder.userProfileImage);
 
@@ -134,49 +195,24 @@ public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder
         holder.usernameText.setOnClickListener(profileClickListener);
         holder.handleText.setOnClickListener(profileClickListener);
 
-        // Load post image if exists
-        if (post.getImageUrl() != null && !post.getImageUrl().isEmpty()) {
+        // Load post images if any
+        List<String> images = post.getImages();
+        if (!images.isEmpty()) {
             holder.imageContainer.setVisibility(View.VISIBLE);
-            Glide.with(context)
-                    .load(post.getImageUrl())
-                    .placeholder(android.R.drawable.ic_menu_gallery)
-                    .error(android.R.drawable.ic_menu_report_image)
-                    .centerCrop()
-                    .diskCacheStrategy(DiskCacheStrategy.ALL)
-                    .transition(DrawableTransitionOptions.withCrossFade())
-                    .into(holder.postImage);
-            holder.postImage.setOnClickListener(v -> {
-                Intent intent = new Intent(context, FullScreenImageActivity.class);
-                intent.putExtra("IMAGE_URL", post.getImageUrl());
-                context.startActivity(intent);
-            });
+            if (holder.imageGrid.getWidth() > 0) {
+                measuredPostImageWidthPx = holder.imageGrid.getWidth();
+            }
+            bindImageGrid(holder, images);
         } else {
             holder.imageContainer.setVisibility(View.GONE);
+            bindImageGrid(holder, Collections.emptyList());
         }
 
-        // Set initial UI states for likes and retweets from post
-        updateLikeUI(holder, post.isLikedByUser(currentUserId));
-        updateRetweetUI(holder, post.isRetweetedByUser(currentUserId));
-
         // Like button click
-        holder.likeButton.setOnClickListener(v -> {
-            boolean currentlyLiked = post.isLikedByUser(currentUserId);
-            if (currentlyLiked) {
-                unlikePost(post, holder);
-            } else {
-                likePost(post, holder);
-            }
-        });
+        holder.likeButton.setOnClickListener(v -> toggleLike(post, holder));
 
         // Retweet button click
-        holder.retweetButton.setOnClickListener(v -> {
-            boolean currentlyRetweeted = post.isRetweetedByUser(currentUserId);
-            if (currentlyRetweeted) {
-                undoRetweet(post, holder);
-            } else {
-                retweetPost(post, holder);
-            }
-        });
+        holder.retweetButton.setOnClickListener(v -> toggleRetweet(post));
 
         // Reply/Comments button click
         holder.replyButton.setOnClickListener(v -> {
@@ -203,8 +239,12 @@ public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder
                             postRepository.deletePost(post.getPostId(), post.getUserId(), new PostRepository.OnUpdateListener() {
                                 @Override
                                 public void onSuccess() {
-                                    postList.remove(adapterPosition);
-                                    notifyItemRemoved(adapterPosition);
+                                    List<Post> remaining = new ArrayList<>(getCurrentList());
+                                    remaining.remove(post);
+                                    submitList(remaining);
+                                    if (onPostDeletedListener != null) {
+                                        onPostDeletedListener.onPostDeleted(post);
+                                    }
                                     Toast.makeText(context, "Post deleted.", Toast.LENGTH_SHORT).show();
                                 }
                                 @Override
@@ -219,6 +259,46 @@ public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder
         });
     }
 
+    /**
+     * Counters plus the user's own like and retweet state
+     */
+    private void bindEngagement(PostViewHolder holder, Post post) {
+        updateLikeUI(holder, post.isLikedByMe());
+        updateRetweetUI(holder, post.isRetweetedByMe());
+        showCount(holder.likeCount, post.getLikesCount());
+        showCount(holder.retweetCount, post.getRetweetsCount());
+        showCount(holder.replyCount, post.getCommentsCount());
+    }
+
+    private void bindLike(PostViewHolder holder, Post post) {
+        updateLikeUI(holder, post.isLikedByMe());
+        showCount(holder.likeCount, post.getLikesCount());
+    }
+
+    private void bindRetweet(PostViewHolder holder, Post post) {
+        updateRetweetUI(holder, post.isRetweetedByMe());
+        showCount(holder.retweetCount, post.getRetweetsCount());
+    }
+
+    private static void showCount(TextView view, int count) {
+        if (count > 0) {
+            view.setVisibility(View.VISIBLE);
+            view.setText(String.valueOf(count));
+        } else {
+            view.setVisibility(View.GONE);
+        }
+    }
+
+    /**
+     * Rebind one aspect of a post's row, wherever it currently is
+     */
+    private void notifyPostChanged(Post post, String payload) {
+        int position = getCurrentList().indexOf(post);
+        if (position != RecyclerView.NO_POSITION) {
+            notifyItemChanged(position, payload);
+        }
+    }
+
     private void updateLikeUI(PostViewHolder holder, boolean isLiked) {
         if (isLiked) {
             holder.likeIcon.setImageResource(R.drawable.ic_like_filled);
@@ -237,117 +317,198 @@ public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder
         }
     }
 
-    private void likePost(Post post, PostViewHolder holder) {
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        pendingReactions.addListener(rollbackListener);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        pendingReactions.removeListener(rollbackListener);
+    }
+
+    /**
+     * Undo a like or retweet the outbox gave up on, on whichever post object
+     * the list holds for it now
+     */
+    private void onRolledBack(String type, String postId, boolean restored, String error) {
+        Post post = findPost(postId);
+        if (post == null) {
+            return;
+        }
+        if (OutboxEntity.TYPE_LIKE.equals(type)) {
+            post.setLikedByMe(restored);
+            post.setLikesCount(post.getLikesCount() + (restored ? 1 : -1));
+            notifyPostChanged(post, PAYLOAD_LIKE_CHANGED);
+        } else {
+            post.setRetweetedByMe(restored);
+            post.setRetweetsCount(post.getRetweetsCount() + (restored ? 1 : -1));
+            notifyPostChanged(post, PAYLOAD_RETWEET_CHANGED);
+        }
+        Toast.makeText(context, "Error: " + error, Toast.LENGTH_SHORT).show();
+    }
+
+    private Post findPost(String postId) {
+        for (Post post : getCurrentList()) {
+            if (postId.equals(post.getPostId())) {
+                return post;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Show the new like state and count right away; the write goes to the
+     * outbox, and one it gives up on is undone by onRolledBack
+     */
+    private void toggleLike(Post post, PostViewHolder holder) {
+        boolean liked = pendingReactions.toggleLike(post.getPostId(), currentUserId, post.isLikedByMe());
+        post.setLikedByMe(liked);
+        post.setLikesCount(post.getLikesCount() + (liked ? 1 : -1));
+        bindLike(holder, post);
+        if (liked) {
+            EngagementTracker.getInstance().recordReaction(post, EngagementTracker.WEIGHT_LIKE);
+        }
+
+        holder.likeIcon.setScaleX(0.7f);
+        holder.likeIcon.setScaleY(0.7f);
         holder.likeIcon.animate()
-                .scaleX(0.7f)
-                .scaleY(0.7f)
+                .scaleX(1f)
+                .scaleY(1f)
                 .setDuration(150)
-                .withEndAction(() -> postRepository.likePost(post.getPostId(), currentUserId, new PostRepository.OnUpdateListener() {
-                    @Override
-                    public void onSuccess() {
-                        post.getLikedBy().add(currentUserId);
-                        post.setLikesCount(post.getLikesCount() + 1);
-                        updateLikeUI(holder, true);
-                        holder.likeCount.setText(String.valueOf(post.getLikesCount()));
-                        holder.likeCount.setVisibility(View.VISIBLE);
-                        holder.likeIcon.animate()
-                                .scaleX(1f)
-                                .scaleY(1f)
-                                .setDuration(150)
-                                .start();
-                    }
-                    @Override
-                    public void onFailure(String error) {
-                        Toast.makeText(context, "Error: " + error, Toast.LENGTH_SHORT).show();
-                        holder.likeIcon.animate()
-                                .scaleX(1f)
-                                .scaleY(1f)
-                                .setDuration(150)
-                                .start();
-                    }
-                }))
                 .start();
     }
 
-    private void unlikePost(Post post, PostViewHolder holder) {
-        holder.likeIcon.animate()
-                .scaleX(0.7f)
-                .scaleY(0.7f)
-                .setDuration(150)
-                .withEndAction(() -> postRepository.unlikePost(post.getPostId(), currentUserId, new PostRepository.OnUpdateListener() {
+    private void toggleRetweet(Post post) {
+        boolean retweeted = pendingReactions.toggleRetweet(post.getPostId(), currentUserId, post.isRetweetedByMe());
+        post.setRetweetedByMe(retweeted);
+        post.setRetweetsCount(post.getRetweetsCount() + (retweeted ? 1 : -1));
+        notifyPostChanged(post, PAYLOAD_RETWEET_CHANGED);
+        if (retweeted) {
+            EngagementTracker.getInstance().recordReaction(post, EngagementTracker.WEIGHT_RETWEET);
+        }
+        Toast.makeText(context, retweeted ? "Retweeted!" : "Retweet removed", Toast.LENGTH_SHORT).show();
+    }
+
+    /**
+     * Scroll listener that starts the avatar and post image loads of the
+     * next {@link #PRELOAD_ROWS} rows in the scroll direction. The requests
+     * are the ones onBindViewHolder makes, same URL and size, so the
+     * decoded images are in Glide's memory cache when those rows bind.
+     */
+    public RecyclerView.OnScrollListener imagePreloader() {
+        ListPreloader.PreloadModelProvider<RequestBuilder<Drawable>> models =
+                new ListPreloader.PreloadModelProvider<RequestBuilder<Drawable>>() {
+                    @NonNull
                     @Override
-                    public void onSuccess() {
-                        post.getLikedBy().remove(currentUserId);
-                        post.setLikesCount(post.getLikesCount() - 1);
-                        updateLikeUI(holder, false);
-                        if (post.getLikesCount() > 0) {
-                            holder.likeCount.setText(String.valueOf(post.getLikesCount()));
-                        } else {
-                            holder.likeCount.setVisibility(View.GONE);
+                    public List<RequestBuilder<Drawable>> getPreloadItems(int position) {
+                        // The preloader can run ahead of a list that just shrank
+                        if (position < 0 || position >= getItemCount()) {
+                            return Collections.emptyList();
+                        }
+                        Post post = getItem(position);
+                        List<String> images = post.getImages();
+                        int count = Math.min(images.size(), Constants.MAX_POST_IMAGES);
+                        int[] slots = ImageGrid.slots(count);
+                        List<RequestBuilder<Drawable>> requests = new ArrayList<>(1 + count);
+                        requests.add(avatarRequest(post));
+                        for (int i = 0; i < count; i++) {
+                            requests.add(postImageRequest(images.get(i), count, slots[i]));
                         }
-                        holder.likeIcon.animate()
-                                .scaleX(1f)
-                                .scaleY(1f)
-                                .setDuration(150)
-                                .start();
+                        return requests;
                     }
+
+                    @Nullable
                     @Override
-                    public void onFailure(String error) {
-                        Toast.makeText(context, "Error: " + error, Toast.LENGTH_SHORT).show();
-                        holder.likeIcon.animate()
-                                .scaleX(1f)
-                                .scaleY(1f)
-                                .setDuration(150)
-                                .start();
+                    public RequestBuilder<?> getPreloadRequestBuilder(@NonNull RequestBuilder<Drawable> request) {
+                        return request;
                     }
-                }))
-                .start();
+                };
+        // Both requests carry an override(), which wins over this size
+        ListPreloader.PreloadSizeProvider<RequestBuilder<Drawable>> sizes =
+                (request, adapterPosition, perItemPosition) -> new int[]{avatarSizePx, avatarSizePx};
+        return new RecyclerViewPreloader<>(Glide.with(context), models, sizes, PRELOAD_ROWS);
     }
 
-    private void retweetPost(Post post, PostViewHolder holder) {
-        postRepository.retweetPost(post.getPostId(), currentUserId, new PostRepository.OnUpdateListener() {
-            @Override
-            public void onSuccess() {
-                post.getRetweetedBy().add(currentUserId);
-                post.setRetweetsCount(post.getRetweetsCount() + 1);
-                updateRetweetUI(holder, true);
-                holder.retweetCount.setText(String.valueOf(post.getRetweetsCount()));
-                holder.retweetCount.setVisibility(View.VISIBLE);
-                Toast.makeText(context, "Retweeted!", Toast.LENGTH_SHORT).show();
-            }
-            @Override
-            public void onFailure(String error) {
-                Toast.makeText(context, "Error: " + error, Toast.LENGTH_SHORT).show();
+    /**
+     * Whether holder's row is still showing a placeholder for its avatar or
+     * post image, for {@link PlaceholderFrameCounter}.
+     */
+    public boolean isShowingPlaceholder(RecyclerView.ViewHolder holder) {
+        return holder instanceof PostViewHolder && ((PostViewHolder) holder).pendingImages > 0;
+    }
+
+    private RequestBuilder<Drawable> avatarRequest(Post post) {
+        return FeedImages.avatar(Glide.with(context), post.getUserProfileImage(), avatarSizePx);
+    }
+
+    /**
+     * Sized to its cell of the image grid as last laid out, or as the
+     * dimens predict before the first row is, so preloads and binds share
+     * a cache key.
+     */
+    private RequestBuilder<Drawable> postImageRequest(String url, int count, int slot) {
+        int widthPx = measuredPostImageWidthPx > 0 ? measuredPostImageWidthPx : rowWidthPx - postImageInsetPx;
+        int[] size = ImageGrid.cellSize(count, slot, widthPx, postImageHeightPx, imageGridGapPx);
+        return FeedImages.postImage(Glide.with(context), url, size[0], size[1]);
+    }
+
+    /**
+     * Put up to {@link Constants#MAX_POST_IMAGES} images in their grid
+     * cells; cells left empty are cleared so their old loads stop.
+     */
+    private void bindImageGrid(PostViewHolder holder, List<String> images) {
+        int count = Math.min(images.size(), Constants.MAX_POST_IMAGES);
+        int[] slots = ImageGrid.slots(count);
+        boolean[] used = new boolean[ImageGrid.SLOTS];
+        for (int i = 0; i < count; i++) {
+            String url = images.get(i);
+            ImageView cell = holder.gridImages[slots[i]];
+            used[slots[i]] = true;
+            cell.setVisibility(View.VISIBLE);
+            track(postImageRequest(url, count, slots[i]), holder)
+                    .transition(DrawableTransitionOptions.withCrossFade())
+                    .into(cell);
+            cell.setOnClickListener(v -> {
+                Intent intent = new Intent(context, FullScreenImageActivity.class);
+                intent.putExtra("IMAGE_URL", url);
+                context.startActivity(intent);
+            });
+        }
+        for (int slot = 0; slot < ImageGrid.SLOTS; slot++) {
+            if (!used[slot]) {
+                Glide.with(context).clear(holder.gridImages[slot]);
+                holder.gridImages[slot].setVisibility(slot == ImageGrid.TOP_START ? View.VISIBLE : View.GONE);
             }
-        });
+        }
+        holder.imageColumnEnd.setVisibility(count >= 2 ? View.VISIBLE : View.GONE);
     }
 
-    private void undoRetweet(Post post, PostViewHolder holder) {
-        postRepository.undoRetweet(post.getPostId(), currentUserId, new PostRepository.OnUpdateListener() {
+    /**
+     * request, counted in holder's pending images until it loads or fails
+     */
+    private RequestBuilder<Drawable> track(RequestBuilder<Drawable> request, PostViewHolder holder) {
+        holder.pendingImages++;
+        return request.addListener(new RequestListener<Drawable>() {
             @Override
-            public void onSuccess() {
-                post.getRetweetedBy().remove(currentUserId);
-                post.setRetweetsCount(post.getRetweetsCount() - 1);
-                updateRetweetUI(holder, false);
-                if (post.getRetweetsCount() > 0) {
-                    holder.retweetCount.setText(String.valueOf(post.getRetweetsCount()));
-                } else {
-                    holder.retweetCount.setVisibility(View.GONE);
-                }
-                Toast.makeText(context, "Retweet removed", Toast.LENGTH_SHORT).show();
+            public boolean onLoadFailed(@Nullable GlideException e, Object model,
+                                        @NonNull Target<Drawable> target, boolean isFirstResource) {
+                holder.pendingImages = Math.max(0, holder.pendingImages - 1);
+                return false;
             }
+
             @Override
-            public void onFailure(String error) {
-                Toast.makeText(context, "Error: " + error, Toast.LENGTH_SHORT).show();
+            public boolean onResourceReady(@NonNull Drawable resource, @NonNull Object model,
+                                           Target<Drawable> target, @NonNull DataSource dataSource,
+                                           boolean isFirstResource) {
+                holder.pendingImages = Math.max(0, holder.pendingImages - 1);
+                return false;
             }
         });
     }
 
-    @Override
-    public int getItemCount() {
-        return postList.size();
-    }
-
     static class PostViewHolder extends RecyclerView.ViewHolder {
         ShapeableImageView userProfileImage;
         TextView usernameText, handleText, tweetContent, timeText;
@@ -356,9 +517,12 @@ public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder
         ImageView likeIcon, retweetIcon;
         ImageButton deleteButton;
         CardView imageContainer;
-        ImageView postImage;
+        LinearLayout imageGrid, imageColumnEnd;
+        // Grid cells indexed by ImageGrid slot
+        ImageView[] gridImages;
         ImageView ivVerifiedBadge;
-
+        // Image loads started by the last bind that have not finished yet
+        int pendingImages;
 
         public PostViewHolder(@NonNull View itemView) {
             super(itemView);
@@ -383,12 +547,60 @@ public class PostAdapter extends RecyclerView.Adapter<PostAdapter.PostViewHolder
             retweetIcon = itemView.findViewById(R.id.retweetIcon);
 
             imageContainer = itemView.findViewById(R.id.imageContainer);
-            postImage = itemView.findViewById(R.id.postImage);
+            imageGrid = itemView.findViewById(R.id.imageGrid);
+            imageColumnEnd = itemView.findViewById(R.id.imageColumnEnd);
+            gridImages = new ImageView[]{
+                    itemView.findViewById(R.id.postImage),
+                    itemView.findViewById(R.id.postImage2),
+                    itemView.findViewById(R.id.postImage3),
+                    itemView.findViewById(R.id.postImage4)
+            };
         }
     }
 
+    /**
+     * Show newPosts; the diff against the current list runs in the background.
+     * The list is copied, so callers may keep appending to theirs.
+     */
     public void updatePosts(List<Post> newPosts) {
-        this.postList = newPosts;
-        notifyDataSetChanged();
+        submitList(new ArrayList<>(newPosts));
+    }
+
+    static final DiffUtil.ItemCallback<Post> DIFF_CALLBACK = new DiffUtil.ItemCallback<Post>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Post oldPost, @NonNull Post newPost) {
+            return oldPost.getPostId() != null && oldPost.getPostId().equals(newPost.getPostId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Post oldPost, @NonNull Post newPost) {
+            return sameEngagement(oldPost, newPost) && sameBody(oldPost, newPost);
+        }
+
+        @Override
+        public Object getChangePayload(@NonNull Post oldPost, @NonNull Post newPost) {
+            // Only counters or reactions moved: skip the full rebind and its image loads
+            return sameBody(oldPost, newPost) ? PAYLOAD_ENGAGEMENT_CHANGED : null;
+        }
+    };
+
+    private static boolean sameEngagement(Post a, Post b) {
+        return a.isLikedByMe() == b.isLikedByMe()
+                && a.isRetweetedByMe() == b.isRetweetedByMe()
+                && a.getLikesCount() == b.getLikesCount()
+                && a.getRetweetsCount() == b.getRetweetsCount()
+                && a.getCommentsCount() == b.getCommentsCount();
+    }
+
+    private static boolean sameBody(Post a, Post b) {
+        return a.isUserVerified() == b.isUserVerified()
+                && equal(a.getContent(), b.getContent())
+                && equal(a.getImages(), b.getImages())
+                && equal(a.getUsername(), b.getUsername())
+                && equal(a.getUserProfileImage(), b.getUserProfileImage());
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
     }
 }
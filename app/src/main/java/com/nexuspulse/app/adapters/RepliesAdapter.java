@@ -13,18 +13,42 @@ import com.nexuspulse.app.R;
 import com.nexuspulse.app.models.Comment;
 import com.nexuspulse.app.utils.DateUtil;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
-public class RepliesAdapter extends RecyclerView.Adapter<RepliesAdapter.ReplyViewHolder> {
+public class RepliesAdapter extends ListAdapter<Comment, RepliesAdapter.ReplyViewHolder> {
     private final Context context;
-    private final List<Comment> replyList;
+    private final StableIds stableIds = new StableIds();
 
     public RepliesAdapter(Context context, List<Comment> replyList) {
+        super(CommentAdapter.DIFF_CALLBACK);
         this.context = context;
-        this.replyList = replyList;
+        setHasStableIds(true);
+        submitList(new ArrayList<>(replyList));
+    }
+
+    /**
+     * Show newReplies, diffed against the current list in the background
+     */
+    public void updateReplies(List<Comment> newReplies) {
+        submitList(new ArrayList<>(newReplies));
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return stableIds.idFor(getItem(position).getCommentId());
+    }
+
+    /**
+     * Typed by layout, see {@link PostAdapter#getItemViewType(int)}
+     */
+    @Override
+    public int getItemViewType(int position) {
+        return R.layout.item_reply;
     }
 
     @NonNull
@@ -36,7 +60,7 @@ public class RepliesAdapter extends RecyclerView.Adapter<RepliesAdapter.ReplyVie
 
     @Override
     public void onBindViewHolder(@NonNull ReplyViewHolder holder, int position) {
-        Comment reply = replyList.get(position);
+        Comment reply = getItem(position);
 
         String username = reply.getUsername();
 
@@ -67,11 +91,6 @@ public class RepliesAdapter extends RecyclerView.Adapter<RepliesAdapter.ReplyVie
         }
     }
 
-    @Override
-    public int getItemCount() {
-        return replyList.size();
-    }
-
     static class ReplyViewHolder extends RecyclerView.ViewHolder {
         ShapeableImageView ivProfileImage;
         TextView tvDisplayName, tvUsername, tvTime, tvReplyContent;
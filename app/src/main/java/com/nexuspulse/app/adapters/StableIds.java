@@ -0,0 +1,29 @@
+package com.nexuspulse.app.adapters;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hands out the long ids RecyclerView's stable-id mode needs for string keys
+ * (postId, commentId, userId). Ids are assigned in first-seen order, so
+ * unlike hashCode() two keys never share an id. Rows without a key get
+ * {@link RecyclerView#NO_ID}.
+ */
+class StableIds {
+    private final Map<String, Long> ids = new HashMap<>();
+    private long nextId;
+
+    long idFor(String key) {
+        if (key == null) {
+            return RecyclerView.NO_ID;
+        }
+        Long id = ids.get(key);
+        if (id == null) {
+            id = nextId++;
+            ids.put(key, id);
+        }
+        return id;
+    }
+}
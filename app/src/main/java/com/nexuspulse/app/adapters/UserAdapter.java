@@ -8,28 +8,45 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
 import com.nexuspulse.app.R;
 import com.nexuspulse.app.models.User;
 
+import java.util.ArrayList;
 import java.util.List;
 
-public class UserAdapter extends RecyclerView.Adapter<UserAdapter.UserViewHolder> {
+public class UserAdapter extends ListAdapter<User, UserAdapter.UserViewHolder> {
 
     private Context context;
-    private List<User> userList;
     private OnUserClickListener listener;
+    private final StableIds stableIds = new StableIds();
 
     public interface OnUserClickListener {
         void onUserClick(String userId);
     }
 
     public UserAdapter(Context context, List<User> userList, OnUserClickListener listener) {
+        super(DIFF_CALLBACK);
         this.context = context;
-        this.userList = userList;
         this.listener = listener;
+        setHasStableIds(true);
+        submitList(new ArrayList<>(userList));
+    }
+
+    /**
+     * Show newUsers, diffed against the current list in the background
+     */
+    public void updateUsers(List<User> newUsers) {
+        submitList(new ArrayList<>(newUsers));
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return stableIds.idFor(getItem(position).getUserId());
     }
 
     @NonNull
@@ -41,7 +58,7 @@ public class UserAdapter extends RecyclerView.Adapter<UserAdapter.UserViewHolder
 
     @Override
     public void onBindViewHolder(@NonNull UserViewHolder holder, int position) {
-        User user = userList.get(position);
+        User user = getItem(position);
 
         // Set text data
         holder.tvDisplayName.setText(user.getDisplayName());
@@ -68,11 +85,6 @@ public class UserAdapter extends RecyclerView.Adapter<UserAdapter.UserViewHolder
         });
     }
 
-    @Override
-    public int getItemCount() {
-        return userList.size();
-    }
-
     static class UserViewHolder extends RecyclerView.ViewHolder {
         ImageView ivProfileImage;
         TextView tvDisplayName;
@@ -87,4 +99,23 @@ public class UserAdapter extends RecyclerView.Adapter<UserAdapter.UserViewHolder
             tvFollowers = itemView.findViewById(R.id.tvFollowers);
         }
     }
+
+    private static final DiffUtil.ItemCallback<User> DIFF_CALLBACK = new DiffUtil.ItemCallback<User>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull User oldUser, @NonNull User newUser) {
+            return oldUser.getUserId() != null && oldUser.getUserId().equals(newUser.getUserId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull User oldUser, @NonNull User newUser) {
+            return equal(oldUser.getDisplayName(), newUser.getDisplayName())
+                    && equal(oldUser.getUsername(), newUser.getUsername())
+                    && equal(oldUser.getProfileImageUrl(), newUser.getProfileImageUrl())
+                    && oldUser.getFollowersCount() == newUser.getFollowersCount();
+        }
+    };
+
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
 }
@@ -0,0 +1,49 @@
+package com.nexuspulse.app.database;
+
+import android.content.Context;
+
+import androidx.room.Database;
+import androidx.room.Room;
+import androidx.room.RoomDatabase;
+import androidx.room.TypeConverters;
+
+/**
+ * On-device copy of what the app last showed, so screens can paint before
+ * Firestore answers. Everything here can be rebuilt from the server, so
+ * schema changes simply drop the old tables.
+ */
+@Database(entities = {
+        PostEntity.class,
+        FeedEntryEntity.class,
+        UserEntity.class,
+        CommentEntity.class,
+        NotificationEntity.class
+}, version = 3, exportSchema = false)
+@TypeConverters(Converters.class)
+public abstract class AppDatabase extends RoomDatabase {
+    private static final String DATABASE_NAME = "nexuspulse.db";
+
+    private static volatile AppDatabase instance;
+
+    public abstract PostDao postDao();
+
+    public abstract UserDao userDao();
+
+    public abstract CommentDao commentDao();
+
+    public abstract NotificationDao notificationDao();
+
+    public static AppDatabase getInstance(Context context) {
+        if (instance == null) {
+            synchronized (AppDatabase.class) {
+                if (instance == null) {
+                    instance = Room.databaseBuilder(context.getApplicationContext(),
+                                    AppDatabase.class, DATABASE_NAME)
+                            .fallbackToDestructiveMigration()
+                            .build();
+                }
+            }
+        }
+        return instance;
+    }
+}
@@ -0,0 +1,31 @@
+package com.nexuspulse.app.database;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import java.util.List;
+
+@Dao
+public abstract class CommentDao {
+
+    @Query("SELECT * FROM comments WHERE postId = :postId ORDER BY createdAt ASC")
+    public abstract List<CommentEntity> getForPost(String postId);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    public abstract void upsertAll(List<CommentEntity> comments);
+
+    @Query("DELETE FROM comments WHERE postId = :postId")
+    public abstract void deleteForPost(String postId);
+
+    /**
+     * Replace the cached comments of one post
+     */
+    @Transaction
+    public void replaceForPost(String postId, List<CommentEntity> comments) {
+        deleteForPost(postId);
+        upsertAll(comments);
+    }
+}
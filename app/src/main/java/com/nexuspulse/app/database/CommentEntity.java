@@ -0,0 +1,44 @@
+package com.nexuspulse.app.database;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import com.nexuspulse.app.models.Comment;
+
+import java.util.Date;
+
+@Entity(tableName = "comments", indices = {@Index("postId")})
+public class CommentEntity {
+    @PrimaryKey
+    @NonNull
+    public String commentId = "";
+    public String postId;
+    public String userId;
+    public String username;
+    public String userProfileImage;
+    public String content;
+    public int likesCount;
+    public Date createdAt;
+
+    public static CommentEntity fromModel(Comment comment) {
+        CommentEntity entity = new CommentEntity();
+        entity.commentId = comment.getCommentId();
+        entity.postId = comment.getPostId();
+        entity.userId = comment.getUserId();
+        entity.username = comment.getUsername();
+        entity.userProfileImage = comment.getUserProfileImage();
+        entity.content = comment.getContent();
+        entity.likesCount = comment.getLikesCount();
+        entity.createdAt = comment.getCreatedAt();
+        return entity;
+    }
+
+    public Comment toModel() {
+        Comment comment = new Comment(commentId, postId, userId, username, userProfileImage, content);
+        comment.setLikesCount(likesCount);
+        comment.setCreatedAt(createdAt);
+        return comment;
+    }
+}
@@ -0,0 +1,48 @@
+package com.nexuspulse.app.database;
+
+import androidx.room.TypeConverter;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Column types Room can't store natively
+ */
+public class Converters {
+
+    @TypeConverter
+    public static Long fromDate(Date date) {
+        return date != null ? date.getTime() : null;
+    }
+
+    @TypeConverter
+    public static Date toDate(Long millis) {
+        return millis != null ? new Date(millis) : null;
+    }
+
+    @TypeConverter
+    public static String fromStringList(List<String> values) {
+        return values != null ? new JSONArray(values).toString() : null;
+    }
+
+    @TypeConverter
+    public static List<String> toStringList(String json) {
+        List<String> values = new ArrayList<>();
+        if (json == null) {
+            return values;
+        }
+        try {
+            JSONArray array = new JSONArray(json);
+            for (int i = 0; i < array.length(); i++) {
+                values.add(array.getString(i));
+            }
+        } catch (JSONException e) {
+            // Unreadable rows come back empty and are overwritten on the next sync
+        }
+        return values;
+    }
+}
@@ -0,0 +1,29 @@
+package com.nexuspulse.app.database;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+
+/**
+ * Position of a post within one cached feed ("forYou", "following",
+ * "user:{userId}"); the post itself lives in the posts table
+ */
+@Entity(tableName = "feed_entries",
+        primaryKeys = {"feedKey", "position"},
+        indices = {@Index("postId")})
+public class FeedEntryEntity {
+    @NonNull
+    public String feedKey = "";
+    public int position;
+    @NonNull
+    public String postId = "";
+
+    public FeedEntryEntity() {
+    }
+
+    public FeedEntryEntity(@NonNull String feedKey, int position, @NonNull String postId) {
+        this.feedKey = feedKey;
+        this.position = position;
+        this.postId = postId;
+    }
+}
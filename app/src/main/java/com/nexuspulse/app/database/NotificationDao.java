@@ -0,0 +1,31 @@
+package com.nexuspulse.app.database;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import java.util.List;
+
+@Dao
+public abstract class NotificationDao {
+
+    @Query("SELECT * FROM notifications WHERE ownerId = :ownerId ORDER BY createdAt DESC")
+    public abstract List<NotificationEntity> getForUser(String ownerId);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    public abstract void upsertAll(List<NotificationEntity> notifications);
+
+    @Query("DELETE FROM notifications WHERE ownerId = :ownerId")
+    public abstract void deleteForUser(String ownerId);
+
+    /**
+     * Replace the cached notifications of one user
+     */
+    @Transaction
+    public void replaceForUser(String ownerId, List<NotificationEntity> notifications) {
+        deleteForUser(ownerId);
+        upsertAll(notifications);
+    }
+}
@@ -0,0 +1,54 @@
+package com.nexuspulse.app.database;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import com.nexuspulse.app.models.Notification;
+
+import java.util.Date;
+
+@Entity(tableName = "notifications", indices = {@Index("ownerId")})
+public class NotificationEntity {
+    @PrimaryKey
+    @NonNull
+    public String notificationId = "";
+    // User the notification was delivered to
+    public String ownerId;
+    public String type;
+    public String fromUserId;
+    public String fromUsername;
+    public String fromUserImage;
+    public String postId;
+    public String message;
+    public boolean read;
+    public long count;
+    public Date createdAt;
+
+    public static NotificationEntity fromModel(String ownerId, Notification notification) {
+        NotificationEntity entity = new NotificationEntity();
+        entity.notificationId = notification.getNotificationId();
+        entity.ownerId = ownerId;
+        entity.type = notification.getType();
+        entity.fromUserId = notification.getFromUserId();
+        entity.fromUsername = notification.getFromUsername();
+        entity.fromUserImage = notification.getFromUserImage();
+        entity.postId = notification.getPostId();
+        entity.message = notification.getMessage();
+        entity.read = notification.isRead();
+        entity.count = notification.getCount();
+        entity.createdAt = notification.getCreatedAt();
+        return entity;
+    }
+
+    public Notification toModel() {
+        Notification notification = new Notification(notificationId, type, fromUserId,
+                fromUsername, fromUserImage, message);
+        notification.setPostId(postId);
+        notification.setRead(read);
+        notification.setCount(Math.max(1, count));
+        notification.setCreatedAt(createdAt);
+        return notification;
+    }
+}
@@ -0,0 +1,30 @@
+package com.nexuspulse.app.database;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+import androidx.room.Update;
+
+import java.util.List;
+
+@Dao
+public abstract class OutboxDao {
+
+    @Insert
+    public abstract long insert(OutboxEntity entity);
+
+    @Update
+    public abstract void update(OutboxEntity entity);
+
+    @Query("SELECT * FROM outbox ORDER BY id ASC")
+    public abstract List<OutboxEntity> getPending();
+
+    @Query("SELECT COUNT(*) FROM outbox")
+    public abstract int countPending();
+
+    @Query("DELETE FROM outbox WHERE id IN (:ids)")
+    public abstract void delete(List<Long> ids);
+
+    @Query("UPDATE outbox SET attempts = attempts + 1 WHERE id IN (:ids)")
+    public abstract void recordFailure(List<Long> ids);
+}
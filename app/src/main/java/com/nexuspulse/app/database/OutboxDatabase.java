@@ -0,0 +1,35 @@
+package com.nexuspulse.app.database;
+
+import android.content.Context;
+
+import androidx.room.Database;
+import androidx.room.Room;
+import androidx.room.RoomDatabase;
+
+/**
+ * Writes the user made that the server has not confirmed yet. Kept apart
+ * from {@link AppDatabase}, whose tables are dropped on any schema change:
+ * losing this file would silently lose posts and likes, so schema changes
+ * here need a real Migration.
+ */
+@Database(entities = {OutboxEntity.class}, version = 1, exportSchema = false)
+public abstract class OutboxDatabase extends RoomDatabase {
+    private static final String DATABASE_NAME = "nexuspulse_outbox.db";
+
+    private static volatile OutboxDatabase instance;
+
+    public abstract OutboxDao outboxDao();
+
+    public static OutboxDatabase getInstance(Context context) {
+        if (instance == null) {
+            synchronized (OutboxDatabase.class) {
+                if (instance == null) {
+                    instance = Room.databaseBuilder(context.getApplicationContext(),
+                                    OutboxDatabase.class, DATABASE_NAME)
+                            .build();
+                }
+            }
+        }
+        return instance;
+    }
+}
@@ -0,0 +1,57 @@
+package com.nexuspulse.app.database;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+/**
+ * One queued write. Toggles (likes, retweets, follows) carry their target in
+ * userId/targetId and share a coalesceKey with every other toggle of the
+ * same thing; creates and profile edits carry their document in payload.
+ */
+@Entity(tableName = "outbox", indices = {@Index("coalesceKey")})
+public class OutboxEntity {
+    public static final String TYPE_CREATE_POST = "createPost";
+    public static final String TYPE_CREATE_COMMENT = "createComment";
+    public static final String TYPE_LIKE = "like";
+    public static final String TYPE_RETWEET = "retweet";
+    public static final String TYPE_FOLLOW = "follow";
+    public static final String TYPE_UPDATE_PROFILE = "updateProfile";
+
+    @PrimaryKey(autoGenerate = true)
+    public long id;
+    @NonNull
+    public String type = "";
+    public String userId;
+    public String targetId;
+    // Null for writes that never replace each other
+    public String coalesceKey;
+    // Final state of a toggle: liked, retweeted, following
+    public boolean enabled;
+    // JSON of the document to write, for creates and profile edits
+    public String payload;
+    public long createdAt;
+    public int attempts;
+
+    public static OutboxEntity toggle(String type, String userId, String targetId, boolean enabled) {
+        OutboxEntity entity = new OutboxEntity();
+        entity.type = type;
+        entity.userId = userId;
+        entity.targetId = targetId;
+        entity.coalesceKey = type + ":" + userId + ":" + targetId;
+        entity.enabled = enabled;
+        entity.createdAt = System.currentTimeMillis();
+        return entity;
+    }
+
+    public static OutboxEntity write(String type, String userId, String targetId, String payload) {
+        OutboxEntity entity = new OutboxEntity();
+        entity.type = type;
+        entity.userId = userId;
+        entity.targetId = targetId;
+        entity.payload = payload;
+        entity.createdAt = System.currentTimeMillis();
+        return entity;
+    }
+}
@@ -0,0 +1,58 @@
+package com.nexuspulse.app.database;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Dao
+public abstract class PostDao {
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    public abstract void upsertAll(List<PostEntity> posts);
+
+    @Query("SELECT posts.* FROM posts INNER JOIN feed_entries ON posts.postId = feed_entries.postId "
+            + "WHERE feed_entries.feedKey = :feedKey ORDER BY feed_entries.position")
+    public abstract List<PostEntity> getFeed(String feedKey);
+
+    @Query("DELETE FROM feed_entries WHERE feedKey = :feedKey")
+    public abstract void clearFeed(String feedKey);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    public abstract void insertFeedEntries(List<FeedEntryEntity> entries);
+
+    @Query("DELETE FROM feed_entries WHERE postId = :postId")
+    public abstract void deleteFeedEntries(String postId);
+
+    @Query("DELETE FROM posts WHERE postId = :postId")
+    public abstract void deletePostRow(String postId);
+
+    // Posts no feed points at any more
+    @Query("DELETE FROM posts WHERE postId NOT IN (SELECT postId FROM feed_entries)")
+    public abstract void deleteOrphans();
+
+    /**
+     * Replace a feed's contents with the given posts, in order
+     */
+    @Transaction
+    public void replaceFeed(String feedKey, List<PostEntity> posts) {
+        upsertAll(posts);
+        clearFeed(feedKey);
+        List<FeedEntryEntity> entries = new ArrayList<>();
+        for (int i = 0; i < posts.size(); i++) {
+            entries.add(new FeedEntryEntity(feedKey, i, posts.get(i).postId));
+        }
+        insertFeedEntries(entries);
+        deleteOrphans();
+    }
+
+    @Transaction
+    public void deletePost(String postId) {
+        deleteFeedEntries(postId);
+        deletePostRow(postId);
+    }
+}
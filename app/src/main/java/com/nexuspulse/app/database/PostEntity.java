@@ -0,0 +1,65 @@
+package com.nexuspulse.app.database;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+import com.nexuspulse.app.models.Post;
+
+import java.util.Date;
+import java.util.List;
+
+@Entity(tableName = "posts")
+public class PostEntity {
+    @PrimaryKey
+    @NonNull
+    public String postId = "";
+    public String userId;
+    public String username;
+    public String userProfileImage;
+    public boolean userVerified;
+    public String content;
+    public String imageUrl;
+    public List<String> imageUrls;
+    public List<String> hashtags;
+    public Date createdAt;
+    public int likesCount;
+    public int retweetsCount;
+    public int commentsCount;
+
+    public static PostEntity fromModel(Post post) {
+        PostEntity entity = new PostEntity();
+        entity.postId = post.getPostId();
+        entity.userId = post.getUserId();
+        entity.username = post.getUsername();
+        entity.userProfileImage = post.getUserProfileImage();
+        entity.userVerified = post.isUserVerified();
+        entity.content = post.getContent();
+        entity.imageUrl = post.getImageUrl();
+        entity.imageUrls = post.getImageUrls();
+        entity.hashtags = post.getHashtags();
+        entity.createdAt = post.getCreatedAt();
+        entity.likesCount = post.getLikesCount();
+        entity.retweetsCount = post.getRetweetsCount();
+        entity.commentsCount = post.getCommentsCount();
+        return entity;
+    }
+
+    public Post toModel() {
+        Post post = new Post();
+        post.setPostId(postId);
+        post.setUserId(userId);
+        post.setUsername(username);
+        post.setUserProfileImage(userProfileImage);
+        post.setUserVerified(userVerified);
+        post.setContent(content);
+        post.setImageUrl(imageUrl);
+        post.setImageUrls(imageUrls);
+        post.setHashtags(hashtags);
+        post.setCreatedAt(createdAt);
+        post.setLikesCount(likesCount);
+        post.setRetweetsCount(retweetsCount);
+        post.setCommentsCount(commentsCount);
+        return post;
+    }
+}
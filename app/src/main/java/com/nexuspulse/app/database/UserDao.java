@@ -0,0 +1,24 @@
+package com.nexuspulse.app.database;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+@Dao
+public interface UserDao {
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsert(UserEntity user);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsertAll(List<UserEntity> users);
+
+    @Query("SELECT * FROM users WHERE userId = :userId")
+    UserEntity getById(String userId);
+
+    @Query("SELECT * FROM users WHERE userId IN (:userIds)")
+    List<UserEntity> getByIds(List<String> userIds);
+}
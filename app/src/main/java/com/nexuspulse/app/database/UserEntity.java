@@ -0,0 +1,60 @@
+package com.nexuspulse.app.database;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+import com.nexuspulse.app.models.User;
+
+import java.util.Date;
+
+@Entity(tableName = "users")
+public class UserEntity {
+    @PrimaryKey
+    @NonNull
+    public String userId = "";
+    public String username;
+    public String email;
+    public String displayName;
+    public String bio;
+    public String profileImageUrl;
+    public String coverImageUrl;
+    public int followersCount;
+    public int followingCount;
+    public int postsCount;
+    public boolean verified;
+    public boolean admin;
+    public Date createdAt;
+
+    public static UserEntity fromModel(User user) {
+        UserEntity entity = new UserEntity();
+        entity.userId = user.getUserId();
+        entity.username = user.getUsername();
+        entity.email = user.getEmail();
+        entity.displayName = user.getDisplayName();
+        entity.bio = user.getBio();
+        entity.profileImageUrl = user.getProfileImageUrl();
+        entity.coverImageUrl = user.getCoverImageUrl();
+        entity.followersCount = user.getFollowersCount();
+        entity.followingCount = user.getFollowingCount();
+        entity.postsCount = user.getPostsCount();
+        entity.verified = user.isVerified();
+        entity.admin = user.isAdmin();
+        entity.createdAt = user.getCreatedAt();
+        return entity;
+    }
+
+    public User toModel() {
+        User user = new User(userId, username, email, displayName);
+        user.setBio(bio);
+        user.setProfileImageUrl(profileImageUrl);
+        user.setCoverImageUrl(coverImageUrl);
+        user.setFollowersCount(followersCount);
+        user.setFollowingCount(followingCount);
+        user.setPostsCount(postsCount);
+        user.setVerified(verified);
+        user.setAdmin(admin);
+        user.setCreatedAt(createdAt);
+        return user;
+    }
+}
@@ -0,0 +1,56 @@
+package com.nexuspulse.app.feed;
+
+import com.nexuspulse.app.models.Post;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A post that may go into the For You feed, with the fields ranking reads
+ * copied out when it is created, so ranking can run on a background thread
+ * while the UI keeps updating the post.
+ */
+public class Candidate {
+    // Where a candidate came from; one post can come from several
+    public static final int SOURCE_RECENT = 1;
+    public static final int SOURCE_FOLLOWED = 1 << 1;
+    public static final int SOURCE_HASHTAG = 1 << 2;
+
+    final Post post;
+    final String postId;
+    final String authorId;
+    final String content;
+    final List<String> hashtags;
+    // Posts not yet stamped by the server count as brand new
+    final long createdAtMillis;
+    final int likes;
+    final int retweets;
+    final int comments;
+    int sources;
+    double score;
+
+    public Candidate(Post post, int source) {
+        this.post = post;
+        this.postId = post.getPostId();
+        this.authorId = post.getUserId();
+        this.content = post.getContent();
+        this.hashtags = post.getHashtags() != null ? post.getHashtags() : Collections.<String>emptyList();
+        this.createdAtMillis = post.getCreatedAt() != null ? post.getCreatedAt().getTime() : Long.MAX_VALUE;
+        this.likes = post.getLikesCount();
+        this.retweets = post.getRetweetsCount();
+        this.comments = post.getCommentsCount();
+        this.sources = source;
+    }
+
+    public Post getPost() {
+        return post;
+    }
+
+    public double getScore() {
+        return score;
+    }
+
+    boolean from(int source) {
+        return (sources & source) != 0;
+    }
+}
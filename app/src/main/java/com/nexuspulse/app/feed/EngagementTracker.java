@@ -0,0 +1,199 @@
+package com.nexuspulse.app.feed;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.nexuspulse.app.models.Post;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The reader's taste, learned on this device: a weight per author and per
+ * hashtag that grows when the reader likes, retweets or posts, and halves
+ * every {@link #HALF_LIFE_MILLIS}. Feeds For You ranking
+ * ({@link #signals}) and its hashtag candidates ({@link #topTags}).
+ *
+ * Kept in SharedPreferences once {@link #init(Context)} has run; until
+ * then (e.g. in JVM tests) in memory only.
+ */
+public class EngagementTracker {
+    private static final String TAG = "EngagementTracker";
+    private static final String PREFS_NAME = "feed_engagement";
+    private static final String KEY_AUTHORS = "authors";
+    private static final String KEY_TAGS = "tags";
+
+    static final long HALF_LIFE_MILLIS = TimeUnit.DAYS.toMillis(14);
+    static final int MAX_ENTRIES = 200;
+
+    public static final double WEIGHT_LIKE = 1;
+    public static final double WEIGHT_RETWEET = 2;
+    public static final double WEIGHT_OWN_POST = 1;
+
+    private static EngagementTracker instance;
+
+    private final SharedPreferences prefs;
+    // key -> {weight, time the weight was last decayed to}
+    private final Map<String, double[]> authors = new HashMap<>();
+    private final Map<String, double[]> tags = new HashMap<>();
+
+    public static synchronized void init(Context context) {
+        if (instance == null || instance.prefs == null) {
+            instance = new EngagementTracker(context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE));
+        }
+    }
+
+    public static synchronized EngagementTracker getInstance() {
+        if (instance == null) {
+            instance = new EngagementTracker(null);
+        }
+        return instance;
+    }
+
+    private EngagementTracker(SharedPreferences prefs) {
+        this.prefs = prefs;
+        if (prefs != null) {
+            read(prefs.getString(KEY_AUTHORS, null), authors);
+            read(prefs.getString(KEY_TAGS, null), tags);
+        }
+    }
+
+    /**
+     * The reader liked or retweeted post
+     */
+    public synchronized void recordReaction(Post post, double weight) {
+        long now = System.currentTimeMillis();
+        if (post.getUserId() != null) {
+            add(authors, post.getUserId(), weight, now);
+        }
+        for (String tag : post.getHashtags()) {
+            add(tags, tag, weight, now);
+        }
+        save();
+    }
+
+    /**
+     * The reader posted with hashtags
+     */
+    public synchronized void recordOwnPost(List<String> hashtags) {
+        long now = System.currentTimeMillis();
+        for (String tag : hashtags) {
+            add(tags, tag, WEIGHT_OWN_POST, now);
+        }
+        save();
+    }
+
+    public synchronized FeedSignals signals(String userId) {
+        long now = System.currentTimeMillis();
+        return new FeedSignals(userId, current(authors, now), current(tags, now));
+    }
+
+    /**
+     * Up to limit hashtags the reader engaged with most, heaviest first
+     */
+    public synchronized List<String> topTags(int limit) {
+        Map<String, Double> weights = current(tags, System.currentTimeMillis());
+        List<String> top = new ArrayList<>(weights.keySet());
+        Collections.sort(top, (a, b) -> Double.compare(weights.get(b), weights.get(a)));
+        return top.size() > limit ? new ArrayList<>(top.subList(0, limit)) : top;
+    }
+
+    /**
+     * Forget the reader's taste, on sign-out
+     */
+    public synchronized void clear() {
+        authors.clear();
+        tags.clear();
+        if (prefs != null) {
+            prefs.edit().clear().apply();
+        }
+    }
+
+    private static void add(Map<String, double[]> weights, String key, double weight, long now) {
+        double[] entry = weights.get(key);
+        if (entry == null) {
+            if (weights.size() >= MAX_ENTRIES) {
+                evictLightest(weights, now);
+            }
+            weights.put(key, new double[]{weight, now});
+        } else {
+            entry[0] = decayed(entry, now) + weight;
+            entry[1] = now;
+        }
+    }
+
+    private static void evictLightest(Map<String, double[]> weights, long now) {
+        String lightest = null;
+        double lightestWeight = Double.MAX_VALUE;
+        for (Map.Entry<String, double[]> entry : weights.entrySet()) {
+            double weight = decayed(entry.getValue(), now);
+            if (weight < lightestWeight) {
+                lightest = entry.getKey();
+                lightestWeight = weight;
+            }
+        }
+        weights.remove(lightest);
+    }
+
+    private static Map<String, Double> current(Map<String, double[]> weights, long now) {
+        Map<String, Double> current = new HashMap<>();
+        for (Map.Entry<String, double[]> entry : weights.entrySet()) {
+            current.put(entry.getKey(), decayed(entry.getValue(), now));
+        }
+        return current;
+    }
+
+    private static double decayed(double[] entry, long now) {
+        return entry[0] * Math.pow(0.5, Math.max(0, now - entry[1]) / (double) HALF_LIFE_MILLIS);
+    }
+
+    private void save() {
+        if (prefs == null) {
+            return;
+        }
+        try {
+            prefs.edit()
+                    .putString(KEY_AUTHORS, write(authors))
+                    .putString(KEY_TAGS, write(tags))
+                    .apply();
+        } catch (JSONException e) {
+            Log.e(TAG, "Error saving engagement", e);
+        }
+    }
+
+    private static String write(Map<String, double[]> weights) throws JSONException {
+        JSONObject object = new JSONObject();
+        for (Map.Entry<String, double[]> entry : weights.entrySet()) {
+            object.put(entry.getKey(), new JSONArray().put(entry.getValue()[0]).put(entry.getValue()[1]));
+        }
+        return object.toString();
+    }
+
+    private static void read(String json, Map<String, double[]> weights) {
+        if (json == null) {
+            return;
+        }
+        try {
+            JSONObject object = new JSONObject(json);
+            Iterator<String> keys = object.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                JSONArray entry = object.getJSONArray(key);
+                weights.put(key, new double[]{entry.getDouble(0), entry.getDouble(1)});
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, "Discarding unreadable engagement", e);
+            weights.clear();
+        }
+    }
+}
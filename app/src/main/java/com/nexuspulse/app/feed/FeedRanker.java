@@ -0,0 +1,214 @@
+package com.nexuspulse.app.feed;
+
+import com.nexuspulse.app.models.Post;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Orders For You candidates: score, dedup, then diversity re-ranking.
+ *
+ * Candidates for the same post are merged first. Scoring is done by a
+ * pluggable {@link Scorer}. Dedup drops posts repeating the text of a
+ * better one by the same author. Diversity re-ranking then picks the best
+ * post over and over while every earlier pick by the same author (or with
+ * the same first hashtag) scales a post's score down, so one busy account
+ * cannot fill the top of the feed.
+ *
+ * Scoring and re-ranking each have a time budget. Past it, scoring
+ * finishes with {@link Scorer#quickScore} and re-ranking appends the rest
+ * in score order, so a slow device still gets a feed on time.
+ */
+public class FeedRanker {
+    public static final long DEFAULT_SCORE_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    public static final long DEFAULT_DIVERSIFY_BUDGET_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    static final double AUTHOR_REPEAT_PENALTY = 0.6;
+    static final double TAG_REPEAT_PENALTY = 0.85;
+    // Budgets are checked every this many candidates
+    private static final int BUDGET_CHECK_INTERVAL = 64;
+
+    private final Scorer scorer;
+    private final long scoreBudgetNanos;
+    private final long diversifyBudgetNanos;
+    private final Ticker ticker;
+
+    public FeedRanker(Scorer scorer) {
+        this(scorer, DEFAULT_SCORE_BUDGET_NANOS, DEFAULT_DIVERSIFY_BUDGET_NANOS, System::nanoTime);
+    }
+
+    FeedRanker(Scorer scorer, long scoreBudgetNanos, long diversifyBudgetNanos, Ticker ticker) {
+        this.scorer = scorer;
+        this.scoreBudgetNanos = scoreBudgetNanos;
+        this.diversifyBudgetNanos = diversifyBudgetNanos;
+        this.ticker = ticker;
+    }
+
+    public Result rank(List<Candidate> candidates, FeedSignals signals, long nowMillis) {
+        Result result = new Result();
+        long start = ticker.nanoTime();
+
+        // Merge candidates for the same post; authors seen in the followed source are followed
+        Map<String, Candidate> byId = new LinkedHashMap<>();
+        Set<String> followed = new HashSet<>();
+        for (Candidate candidate : candidates) {
+            if (candidate.postId == null) {
+                continue;
+            }
+            Candidate known = byId.get(candidate.postId);
+            if (known == null) {
+                byId.put(candidate.postId, candidate);
+            } else {
+                known.sources |= candidate.sources;
+            }
+            if (candidate.from(Candidate.SOURCE_FOLLOWED) && candidate.authorId != null) {
+                followed.add(candidate.authorId);
+            }
+        }
+        List<Candidate> unique = new ArrayList<>(byId.values());
+        result.candidates = unique.size();
+
+        // Score
+        long scoreStart = ticker.nanoTime();
+        int i = 0;
+        for (; i < unique.size(); i++) {
+            if (i % BUDGET_CHECK_INTERVAL == 0 && ticker.nanoTime() - scoreStart > scoreBudgetNanos) {
+                break;
+            }
+            Candidate candidate = unique.get(i);
+            candidate.score = scorer.score(candidate, signals, followed, nowMillis);
+        }
+        result.fullyScored = i;
+        for (; i < unique.size(); i++) {
+            Candidate candidate = unique.get(i);
+            candidate.score = scorer.quickScore(candidate, nowMillis);
+        }
+        long dedupStart = ticker.nanoTime();
+        result.scoreNanos = dedupStart - scoreStart;
+
+        // Dedup
+        Collections.sort(unique, (a, b) -> Double.compare(b.score, a.score));
+        Set<String> texts = new HashSet<>();
+        List<Candidate> deduped = new ArrayList<>(unique.size());
+        for (Candidate candidate : unique) {
+            if (candidate.content == null
+                    || texts.add(candidate.authorId + '\n' + candidate.content.trim().toLowerCase(Locale.ROOT))) {
+                deduped.add(candidate);
+            }
+        }
+        long diversifyStart = ticker.nanoTime();
+        result.dedupNanos = diversifyStart - dedupStart;
+
+        // Diversify
+        result.posts = diversify(deduped, diversifyStart, result);
+        long end = ticker.nanoTime();
+        result.diversifyNanos = end - diversifyStart;
+        result.totalNanos = end - start;
+        return result;
+    }
+
+    /**
+     * Greedy re-rank. Penalties only grow as posts are picked, so a queue
+     * entry whose penalty is stale is recomputed and pushed back instead of
+     * rescoring everything after each pick.
+     */
+    private List<Post> diversify(List<Candidate> sorted, long stageStart, Result result) {
+        PriorityQueue<Pick> queue = new PriorityQueue<>(Math.max(1, sorted.size()),
+                (a, b) -> Double.compare(b.adjusted, a.adjusted));
+        for (Candidate candidate : sorted) {
+            queue.add(new Pick(candidate));
+        }
+        Map<String, Integer> authorCounts = new HashMap<>();
+        Map<String, Integer> tagCounts = new HashMap<>();
+        List<Post> posts = new ArrayList<>(sorted.size());
+        while (!queue.isEmpty()) {
+            if (posts.size() % BUDGET_CHECK_INTERVAL == 0 && ticker.nanoTime() - stageStart > diversifyBudgetNanos) {
+                List<Candidate> rest = new ArrayList<>();
+                for (Pick pick : queue) {
+                    rest.add(pick.candidate);
+                }
+                Collections.sort(rest, (a, b) -> Double.compare(b.score, a.score));
+                for (Candidate candidate : rest) {
+                    posts.add(candidate.post);
+                }
+                result.diversified = false;
+                break;
+            }
+            Pick pick = queue.poll();
+            int authorCount = count(authorCounts, pick.candidate.authorId);
+            int tagCount = count(tagCounts, pick.tag);
+            if (authorCount != pick.authorCount || tagCount != pick.tagCount) {
+                pick.authorCount = authorCount;
+                pick.tagCount = tagCount;
+                pick.adjusted = pick.candidate.score * Math.pow(AUTHOR_REPEAT_PENALTY, authorCount)
+                        * Math.pow(TAG_REPEAT_PENALTY, tagCount);
+                queue.add(pick);
+                continue;
+            }
+            posts.add(pick.candidate.post);
+            if (pick.candidate.authorId != null) {
+                authorCounts.put(pick.candidate.authorId, authorCount + 1);
+            }
+            if (pick.tag != null) {
+                tagCounts.put(pick.tag, tagCount + 1);
+            }
+        }
+        return posts;
+    }
+
+    private static int count(Map<String, Integer> counts, String key) {
+        Integer count = key != null ? counts.get(key) : null;
+        return count != null ? count : 0;
+    }
+
+    private static class Pick {
+        final Candidate candidate;
+        final String tag;
+        double adjusted;
+        int authorCount;
+        int tagCount;
+
+        Pick(Candidate candidate) {
+            this.candidate = candidate;
+            this.tag = candidate.hashtags.isEmpty() ? null : candidate.hashtags.get(0);
+            this.adjusted = candidate.score;
+        }
+    }
+
+    public static class Result {
+        public List<Post> posts = new ArrayList<>();
+        public int candidates;
+        // Candidates scored in full before the budget ran out
+        public int fullyScored;
+        public boolean diversified = true;
+        public long scoreNanos;
+        public long dedupNanos;
+        public long diversifyNanos;
+        public long totalNanos;
+    }
+
+    public interface Scorer {
+        /**
+         * Score of candidate for the reader; followed holds the authors the
+         * reader follows
+         */
+        double score(Candidate candidate, FeedSignals signals, Set<String> followed, long nowMillis);
+
+        /**
+         * Cheap stand-in used once the scoring budget is spent
+         */
+        double quickScore(Candidate candidate, long nowMillis);
+    }
+
+    interface Ticker {
+        long nanoTime();
+    }
+}
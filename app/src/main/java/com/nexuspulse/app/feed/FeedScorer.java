@@ -0,0 +1,66 @@
+package com.nexuspulse.app.feed;
+
+import java.util.Set;
+
+/**
+ * Default For You score:
+ *
+ *   recency * (1 + engagement + affinity)
+ *
+ * Recency halves every {@link #RECENCY_HALF_LIFE_HOURS}. Engagement is the
+ * log of interactions per hour of age (comments count most, then
+ * retweets, then likes), so a post gathering likes quickly beats an older
+ * one with more likes in total. Affinity adds weight for followed
+ * authors, authors the reader engaged with, and hashtags the reader
+ * engaged with. The reader's own posts get no affinity.
+ */
+public class FeedScorer implements FeedRanker.Scorer {
+    static final double RECENCY_HALF_LIFE_HOURS = 12;
+    static final double ENGAGEMENT_WEIGHT = 0.6;
+    static final double FOLLOWED_WEIGHT = 1.0;
+    static final double AUTHOR_AFFINITY_WEIGHT = 1.5;
+    static final double TAG_AFFINITY_WEIGHT = 0.8;
+    // Added to a post's age before dividing by it, so one like on a minute-old post is no burst
+    static final double VELOCITY_AGE_OFFSET_HOURS = 2;
+
+    private static final double MILLIS_PER_HOUR = 3_600_000.0;
+    private static final double DECAY_PER_HOUR = Math.log(2) / RECENCY_HALF_LIFE_HOURS;
+
+    @Override
+    public double score(Candidate candidate, FeedSignals signals, Set<String> followed, long nowMillis) {
+        double ageHours = ageHours(candidate, nowMillis);
+        double interactions = candidate.likes + 2.0 * candidate.retweets + 3.0 * candidate.comments;
+        double engagement = Math.log1p(interactions / (ageHours + VELOCITY_AGE_OFFSET_HOURS));
+
+        double affinity = 0;
+        String authorId = candidate.authorId;
+        if (authorId != null && !authorId.equals(signals.userId)) {
+            if (followed.contains(authorId)) {
+                affinity += FOLLOWED_WEIGHT;
+            }
+            affinity += AUTHOR_AFFINITY_WEIGHT * saturate(signals.authorAffinity.get(authorId));
+            double tags = 0;
+            for (int i = 0; i < candidate.hashtags.size(); i++) {
+                tags += saturate(signals.tagAffinity.get(candidate.hashtags.get(i)));
+            }
+            affinity += TAG_AFFINITY_WEIGHT * Math.min(1, tags);
+        }
+        return Math.exp(-DECAY_PER_HOUR * ageHours) * (1 + ENGAGEMENT_WEIGHT * engagement + affinity);
+    }
+
+    @Override
+    public double quickScore(Candidate candidate, long nowMillis) {
+        return Math.exp(-DECAY_PER_HOUR * ageHours(candidate, nowMillis));
+    }
+
+    private static double ageHours(Candidate candidate, long nowMillis) {
+        return candidate.createdAtMillis >= nowMillis ? 0 : (nowMillis - candidate.createdAtMillis) / MILLIS_PER_HOUR;
+    }
+
+    /**
+     * Map a weight in [0, inf) to [0, 1)
+     */
+    private static double saturate(Double weight) {
+        return weight == null || weight <= 0 ? 0 : weight / (weight + 1);
+    }
+}
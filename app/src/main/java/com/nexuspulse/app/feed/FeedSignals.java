@@ -0,0 +1,21 @@
+package com.nexuspulse.app.feed;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * What ranking knows about the reader: how much they engaged with each
+ * author and hashtag (decayed weights, see {@link EngagementTracker}).
+ * Followed accounts are taken from the followed-accounts candidates.
+ */
+public class FeedSignals {
+    final String userId;
+    final Map<String, Double> authorAffinity;
+    final Map<String, Double> tagAffinity;
+
+    public FeedSignals(String userId, Map<String, Double> authorAffinity, Map<String, Double> tagAffinity) {
+        this.userId = userId;
+        this.authorAffinity = authorAffinity != null ? authorAffinity : Collections.<String, Double>emptyMap();
+        this.tagAffinity = tagAffinity != null ? tagAffinity : Collections.<String, Double>emptyMap();
+    }
+}
@@ -0,0 +1,188 @@
+package com.nexuspulse.app.feed;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.nexuspulse.app.models.Post;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The ranked For You feed.
+ *
+ * A refresh asks every candidate source at once (recent posts, followed
+ * accounts, engaged hashtags; see {@link #addSource}). It waits at most
+ * {@link #CANDIDATE_BUDGET_MILLIS} for them, and past that it ranks with
+ * whatever has arrived, so one slow source cannot hold up the feed. If
+ * nothing has arrived by then, it ranks on the first answer. Ranking runs
+ * on a background thread with its own budgets (see {@link FeedRanker}),
+ * and the result is delivered on the main thread.
+ *
+ * Main thread only, apart from ranking.
+ */
+public class ForYouFeed {
+    private static final String TAG = "ForYouFeed";
+
+    public static final long CANDIDATE_BUDGET_MILLIS = 2500;
+
+    // Shared by every Home screen; ranking is short and one at a time is plenty
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private final FeedRanker ranker;
+    private final List<Source> sources = new ArrayList<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private List<Post> ranked = new ArrayList<>();
+    private int generation;
+
+    public ForYouFeed(FeedRanker ranker) {
+        this.ranker = ranker;
+    }
+
+    /**
+     * Take up to limit candidates from candidates on every refresh, tagged
+     * with source (a Candidate.SOURCE_ flag)
+     */
+    public ForYouFeed addSource(int source, int limit, CandidateSource candidates) {
+        sources.add(new Source(source, limit, candidates));
+        return this;
+    }
+
+    /**
+     * Gather and rank again; a refresh still running is abandoned
+     */
+    public void refresh(FeedSignals signals, OnRankedListener listener) {
+        new Round(++generation, signals, listener).start();
+    }
+
+    /**
+     * Drop any refresh in flight; call from onDestroy
+     */
+    public void cancel() {
+        generation++;
+    }
+
+    /**
+     * The last ranking, best first
+     */
+    public List<Post> getRanked() {
+        return ranked;
+    }
+
+    private class Round {
+        private final int roundGeneration;
+        private final FeedSignals signals;
+        private final OnRankedListener listener;
+        private final List<Candidate> candidates = new ArrayList<>();
+        private final long startUptime = SystemClock.uptimeMillis();
+        private final Runnable budgetSpent = this::onBudgetSpent;
+        private int pending = sources.size();
+        private boolean overBudget;
+        private boolean ranking;
+        private String lastError;
+
+        Round(int roundGeneration, FeedSignals signals, OnRankedListener listener) {
+            this.roundGeneration = roundGeneration;
+            this.signals = signals;
+            this.listener = listener;
+        }
+
+        void start() {
+            mainHandler.postDelayed(budgetSpent, CANDIDATE_BUDGET_MILLIS);
+            for (Source source : sources) {
+                source.candidates.load(source.limit, new OnCandidatesListener() {
+                    @Override
+                    public void onSuccess(List<Post> posts) {
+                        for (Post post : posts) {
+                            if (post != null && post.getPostId() != null) {
+                                candidates.add(new Candidate(post, source.flag));
+                            }
+                        }
+                        onAnswered();
+                    }
+
+                    @Override
+                    public void onFailure(String error) {
+                        Log.e(TAG, "Candidate source " + source.flag + " failed: " + error);
+                        lastError = error;
+                        onAnswered();
+                    }
+                });
+            }
+        }
+
+        private void onAnswered() {
+            pending--;
+            if (pending == 0 || (overBudget && !candidates.isEmpty())) {
+                rank();
+            }
+        }
+
+        private void onBudgetSpent() {
+            overBudget = true;
+            if (!candidates.isEmpty()) {
+                Log.d(TAG, "Candidate budget spent, ranking without " + pending + " source(s)");
+                rank();
+            }
+        }
+
+        private void rank() {
+            if (ranking || roundGeneration != generation) {
+                return;
+            }
+            ranking = true;
+            mainHandler.removeCallbacks(budgetSpent);
+            if (candidates.isEmpty() && lastError != null) {
+                listener.onFailure(lastError);
+                return;
+            }
+            long gatherMillis = SystemClock.uptimeMillis() - startUptime;
+            List<Candidate> gathered = new ArrayList<>(candidates);
+            executor.execute(() -> {
+                FeedRanker.Result result = ranker.rank(gathered, signals, System.currentTimeMillis());
+                Log.d(TAG, "Ranked " + result.candidates + " candidates: gather " + gatherMillis + "ms, score "
+                        + result.scoreNanos / 1000 + "us (" + result.fullyScored + " in full), dedup "
+                        + result.dedupNanos / 1000 + "us, diversify " + result.diversifyNanos / 1000 + "us"
+                        + (result.diversified ? "" : " (cut short)"));
+                mainHandler.post(() -> {
+                    if (roundGeneration == generation) {
+                        ranked = result.posts;
+                        listener.onRanked(result.posts);
+                    }
+                });
+            });
+        }
+    }
+
+    private static class Source {
+        final int flag;
+        final int limit;
+        final CandidateSource candidates;
+
+        Source(int flag, int limit, CandidateSource candidates) {
+            this.flag = flag;
+            this.limit = limit;
+            this.candidates = candidates;
+        }
+    }
+
+    public interface CandidateSource {
+        void load(int limit, OnCandidatesListener listener);
+    }
+
+    // Callback Interfaces
+    public interface OnCandidatesListener {
+        void onSuccess(List<Post> posts);
+        void onFailure(String error);
+    }
+
+    public interface OnRankedListener {
+        void onRanked(List<Post> posts);
+        void onFailure(String error);
+    }
+}
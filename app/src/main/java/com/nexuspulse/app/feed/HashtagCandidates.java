@@ -0,0 +1,65 @@
+package com.nexuspulse.app.feed;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.nexuspulse.app.models.Post;
+import com.nexuspulse.app.repository.PostRepository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Candidates from the hashtags the reader engages with most: the newest
+ * posts of each of the top {@link #MAX_TAGS} tags, sharing the limit.
+ * Fails only if every tag's query failed.
+ */
+public class HashtagCandidates implements ForYouFeed.CandidateSource {
+    static final int MAX_TAGS = 3;
+
+    private final PostRepository postRepository;
+    private final EngagementTracker engagementTracker;
+
+    public HashtagCandidates(PostRepository postRepository, EngagementTracker engagementTracker) {
+        this.postRepository = postRepository;
+        this.engagementTracker = engagementTracker;
+    }
+
+    @Override
+    public void load(int limit, ForYouFeed.OnCandidatesListener listener) {
+        List<String> tags = engagementTracker.topTags(MAX_TAGS);
+        if (tags.isEmpty()) {
+            listener.onSuccess(Collections.<Post>emptyList());
+            return;
+        }
+        int perTag = Math.max(1, limit / tags.size());
+        List<Post> posts = new ArrayList<>();
+        int[] pending = {tags.size()};
+        int[] failures = {0};
+        for (String tag : tags) {
+            postRepository.getHashtagFeedPage(tag, null, perTag, new PostRepository.OnPostsPageFetchedListener() {
+                @Override
+                public void onSuccess(List<Post> page, DocumentSnapshot lastSnapshot, boolean hasMore) {
+                    posts.addAll(page);
+                    onAnswered(null);
+                }
+
+                @Override
+                public void onFailure(String error) {
+                    failures[0]++;
+                    onAnswered(error);
+                }
+
+                private void onAnswered(String error) {
+                    if (--pending[0] > 0) {
+                        return;
+                    }
+                    if (failures[0] == tags.size()) {
+                        listener.onFailure(error);
+                    } else {
+                        listener.onSuccess(posts);
+                    }
+                }
+            });
+        }
+    }
+}
@@ -11,6 +11,10 @@ public class Comment {
     private String userProfileImage;
     private String content;
     private int likesCount;
+    // Reserved for reply threads; every comment is top-level (null/0) for now
+    private String parentCommentId;
+    private int depth;
+    private String path;
 
     @ServerTimestamp
     private Date createdAt;
@@ -41,6 +45,9 @@ public class Comment {
     public String getContent() { return content; }
     public int getLikesCount() { return likesCount; }
     public Date getCreatedAt() { return createdAt; }
+    public String getParentCommentId() { return parentCommentId; }
+    public int getDepth() { return depth; }
+    public String getPath() { return path; }
 
     // Setters
     public void setCommentId(String commentId) { this.commentId = commentId; }
@@ -57,4 +64,7 @@ public class Comment {
     public void setContent(String content) { this.content = content; }
     public void setLikesCount(int likesCount) { this.likesCount = likesCount; }
     public void setCreatedAt(Date createdAt) { this.createdAt = createdAt; }
+    public void setParentCommentId(String parentCommentId) { this.parentCommentId = parentCommentId; }
+    public void setDepth(int depth) { this.depth = depth; }
+    public void setPath(String path) { this.path = path; }
 }
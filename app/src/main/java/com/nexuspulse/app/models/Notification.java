@@ -1,5 +1,6 @@
 package com.nexuspulse.app.models;
 
+import com.google.firebase.firestore.PropertyName;
 import com.google.firebase.firestore.ServerTimestamp;
 import java.util.Date;
 
@@ -12,13 +13,16 @@ public class Notification {
     private String postId; // null for follow notifications
     private String message;
     private boolean isRead;
+    private long count; // distinct users folded into this notification, see NotificationGroups
 
+    // Time of the latest event
     @ServerTimestamp
     private Date createdAt;
 
     // Default Constructor
     public Notification() {
         this.isRead = false;
+        this.count = 1;
     }
 
     // Constructor with parameters
@@ -41,7 +45,9 @@ public class Notification {
     public String getFromUserImage() { return fromUserImage; }
     public String getPostId() { return postId; }
     public String getMessage() { return message; }
+    @PropertyName("isRead")
     public boolean isRead() { return isRead; }
+    public long getCount() { return count; }
     public Date getCreatedAt() { return createdAt; }
 
     // Setters
@@ -52,6 +58,8 @@ public class Notification {
     public void setFromUserImage(String fromUserImage) { this.fromUserImage = fromUserImage; }
     public void setPostId(String postId) { this.postId = postId; }
     public void setMessage(String message) { this.message = message; }
+    @PropertyName("isRead")
     public void setRead(boolean read) { isRead = read; }
+    public void setCount(long count) { this.count = count; }
     public void setCreatedAt(Date createdAt) { this.createdAt = createdAt; }
 }
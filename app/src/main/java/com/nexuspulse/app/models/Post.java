@@ -1,5 +1,6 @@
 package com.nexuspulse.app.models;
 
+import com.google.firebase.firestore.Exclude;
 import com.google.firebase.firestore.ServerTimestamp;
 
 import java.util.ArrayList;
@@ -16,14 +17,19 @@ public class Post {
     private String imageUrl;
     private List<String> imageUrls;
     private List<String> hashtags;
+    private List<String> mentions;
 
     @ServerTimestamp
     private Date createdAt;
     private int likesCount;
     private int retweetsCount;
     private int commentsCount;
+    // Legacy reaction arrays; new reactions live under reactions/{postId}
     private List<String> likedBy;
     private List<String> retweetedBy;
+    // The signed-in user's own reactions, filled in by ReactionRepository; not stored
+    private boolean likedByMe;
+    private boolean retweetedByMe;
 
     // Empty constructor (required for Firebase)
     public Post() {
@@ -31,6 +37,7 @@ public class Post {
         this.retweetedBy = new ArrayList<>();
         this.imageUrls = new ArrayList<>();
         this.hashtags = new ArrayList<>();
+        this.mentions = new ArrayList<>();
     }
 
     // Getters and Setters
@@ -94,6 +101,33 @@ public class Post {
         this.imageUrl = imageUrl;
     }
 
+    public List<String> getImageUrls() {
+        if (imageUrls == null) {
+            imageUrls = new ArrayList<>();
+        }
+        return imageUrls;
+    }
+
+    public void setImageUrls(List<String> imageUrls) {
+        this.imageUrls = imageUrls;
+    }
+
+    /**
+     * Every image of the post in order: imageUrls, or imageUrl alone for
+     * posts made before posts could have several
+     */
+    @Exclude
+    public List<String> getImages() {
+        if (imageUrls != null && !imageUrls.isEmpty()) {
+            return imageUrls;
+        }
+        List<String> images = new ArrayList<>();
+        if (imageUrl != null && !imageUrl.isEmpty()) {
+            images.add(imageUrl);
+        }
+        return images;
+    }
+
 
 
     public List<String> getHashtags() {
@@ -107,6 +141,17 @@ public class Post {
         this.hashtags = hashtags;
     }
 
+    public List<String> getMentions() {
+        if (mentions == null) {
+            mentions = new ArrayList<>();
+        }
+        return mentions;
+    }
+
+    public void setMentions(List<String> mentions) {
+        this.mentions = mentions;
+    }
+
     public Date getCreatedAt() {
         return createdAt;
     }
@@ -169,6 +214,26 @@ public class Post {
         this.retweetedBy = retweetedBy;
     }
 
+    @Exclude
+    public boolean isLikedByMe() {
+        return likedByMe;
+    }
+
+    @Exclude
+    public void setLikedByMe(boolean likedByMe) {
+        this.likedByMe = likedByMe;
+    }
+
+    @Exclude
+    public boolean isRetweetedByMe() {
+        return retweetedByMe;
+    }
+
+    @Exclude
+    public void setRetweetedByMe(boolean retweetedByMe) {
+        this.retweetedByMe = retweetedByMe;
+    }
+
     public boolean isLikedByUser(String userId) {
         return getLikedBy().contains(userId);
     }
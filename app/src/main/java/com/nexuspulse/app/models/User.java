@@ -1,9 +1,7 @@
 package com.nexuspulse.app.models;
 
 import com.google.firebase.firestore.ServerTimestamp;
-import java.util.ArrayList;
 import java.util.Date;
-import java.util.List;
 
 public class User {
     private String userId;
@@ -13,8 +11,6 @@ public class User {
     private String bio;
     private String profileImageUrl;
     private String coverImageUrl;
-    private List<String> followers;
-    private List<String> following;
     private int followersCount;
     private int followingCount;
     private int postsCount;
@@ -26,8 +22,6 @@ public class User {
 
     // Default Constructor (Required for Firebase)
     public User() {
-        this.followers = new ArrayList<>();
-        this.following = new ArrayList<>();
         this.followersCount = 0;
         this.followingCount = 0;
         this.postsCount = 0;
@@ -47,6 +41,23 @@ public class User {
         this.displayName = displayName;
     }
 
+    // Copy constructor, for caches that must not share instances with screens
+    public User(User other) {
+        this.userId = other.userId;
+        this.username = other.username;
+        this.email = other.email;
+        this.displayName = other.displayName;
+        this.bio = other.bio;
+        this.profileImageUrl = other.profileImageUrl;
+        this.coverImageUrl = other.coverImageUrl;
+        this.followersCount = other.followersCount;
+        this.followingCount = other.followingCount;
+        this.postsCount = other.postsCount;
+        this.isVerified = other.isVerified;
+        this.isAdmin = other.isAdmin;
+        this.createdAt = other.createdAt != null ? new Date(other.createdAt.getTime()) : null;
+    }
+
     // Getters
     public String getUserId() { return userId; }
     public String getUsername() { return username; }
@@ -55,8 +66,6 @@ public class User {
     public String getBio() { return bio; }
     public String getProfileImageUrl() { return profileImageUrl; }
     public String getCoverImageUrl() { return coverImageUrl; }
-    public List<String> getFollowers() { return followers; }
-    public List<String> getFollowing() { return following; }
     public int getFollowersCount() { return followersCount; }
     public int getFollowingCount() { return followingCount; }
     public int getPostsCount() { return postsCount; }
@@ -72,8 +81,6 @@ public class User {
     public void setBio(String bio) { this.bio = bio; }
     public void setProfileImageUrl(String profileImageUrl) { this.profileImageUrl = profileImageUrl; }
     public void setCoverImageUrl(String coverImageUrl) { this.coverImageUrl = coverImageUrl; }
-    public void setFollowers(List<String> followers) { this.followers = followers; }
-    public void setFollowing(List<String> following) { this.following = following; }
     public void setFollowersCount(int followersCount) { this.followersCount = followersCount; }
     public void setFollowingCount(int followingCount) { this.followingCount = followingCount; }
     public void setPostsCount(int postsCount) { this.postsCount = postsCount; }
@@ -0,0 +1,126 @@
+package com.nexuspulse.app.repository;
+
+import android.util.Log;
+
+import com.nexuspulse.app.models.Post;
+import com.nexuspulse.app.models.User;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Resolves author data (verification badge) for a page of posts with as few
+ * user reads as possible: distinct author ids are collected once, those
+ * fresh in {@link UserProfileCache} are taken from it, the rest are fetched
+ * in chunks of {@link #MAX_IDS_PER_QUERY}, and the listener fires exactly
+ * once after every chunk has answered.
+ */
+public class AuthorResolver {
+    private static final String TAG = "AuthorResolver";
+
+    // Firestore allows at most 10 values in a whereIn on documentId()
+    public static final int MAX_IDS_PER_QUERY = 10;
+
+    private final AuthorSource source;
+    private final UserProfileCache cache;
+
+    public AuthorResolver() {
+        this(new UserRepository()::getUsersByIds, UserProfileCache.getInstance());
+    }
+
+    AuthorResolver(AuthorSource source, UserProfileCache cache) {
+        this.source = source;
+        this.cache = cache;
+    }
+
+    /**
+     * Fill in author fields for every post in the page, then notify once
+     */
+    public void resolve(List<Post> posts, OnPostsResolvedListener listener) {
+        Set<String> distinctIds = new LinkedHashSet<>();
+        for (Post post : posts) {
+            if (post.getUserId() != null && !post.getUserId().isEmpty()) {
+                distinctIds.add(post.getUserId());
+            }
+        }
+
+        Map<String, User> authors = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String id : distinctIds) {
+            User cached = cache.peek(id);
+            if (cached != null) {
+                authors.put(id, cached);
+            } else {
+                missing.add(id);
+            }
+        }
+
+        if (missing.isEmpty()) {
+            merge(posts, authors);
+            listener.onResolved(posts);
+            return;
+        }
+
+        List<List<String>> chunks = chunk(missing, MAX_IDS_PER_QUERY);
+        AtomicInteger pending = new AtomicInteger(chunks.size());
+
+        for (List<String> ids : chunks) {
+            source.fetchUsers(ids, new UserRepository.OnUsersListFetchedListener() {
+                @Override
+                public void onSuccess(List<User> users) {
+                    synchronized (authors) {
+                        for (User user : users) {
+                            authors.put(user.getUserId(), user);
+                        }
+                    }
+                    finishChunk();
+                }
+
+                @Override
+                public void onFailure(String error) {
+                    // Leave these authors unresolved rather than failing the whole page
+                    Log.e(TAG, "Error resolving authors: " + error);
+                    finishChunk();
+                }
+
+                private void finishChunk() {
+                    if (pending.decrementAndGet() == 0) {
+                        merge(posts, authors);
+                        listener.onResolved(posts);
+                    }
+                }
+            });
+        }
+    }
+
+    private static void merge(List<Post> posts, Map<String, User> authors) {
+        for (Post post : posts) {
+            User author = authors.get(post.getUserId());
+            if (author != null) {
+                post.setUserVerified(author.isVerified());
+            }
+        }
+    }
+
+    static List<List<String>> chunk(List<String> ids, int size) {
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += size) {
+            chunks.add(new ArrayList<>(ids.subList(i, Math.min(i + size, ids.size()))));
+        }
+        return chunks;
+    }
+
+    // Callback Interfaces
+    public interface AuthorSource {
+        void fetchUsers(List<String> userIds, UserRepository.OnUsersListFetchedListener listener);
+    }
+
+    public interface OnPostsResolvedListener {
+        void onResolved(List<Post> posts);
+    }
+}
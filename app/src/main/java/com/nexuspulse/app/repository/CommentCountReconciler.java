@@ -0,0 +1,42 @@
+package com.nexuspulse.app.repository;
+
+/**
+ * Puts a post's commentsCount back in line with its comments.
+ *
+ * Creating and deleting a comment change the count in the same batch, so
+ * it only drifts through writes that bypassed that path (older app
+ * versions, partial failures, console edits). The counter is read, the
+ * comments counted, and the counter read again; a comment written in
+ * between moves both, so the result is trusted only if the counter did
+ * not change, and otherwise left for the next run. The fix is applied as
+ * an increment, so writes landing after the check still add up.
+ */
+class CommentCountReconciler {
+    private final Store store;
+
+    CommentCountReconciler(Store store) {
+        this.store = store;
+    }
+
+    /**
+     * Check one post and correct its counter; returns the correction
+     * applied (0 if the count was right or changed while counting)
+     */
+    long reconcile(String postId) throws Exception {
+        long before = store.storedCount(postId);
+        long counted = store.countComments(postId);
+        long after = store.storedCount(postId);
+        if (before != after || counted == after) {
+            return 0;
+        }
+        long correction = counted - after;
+        store.addToCount(postId, correction);
+        return correction;
+    }
+
+    interface Store {
+        long storedCount(String postId) throws Exception;
+        long countComments(String postId) throws Exception;
+        void addToCount(String postId, long delta) throws Exception;
+    }
+}
@@ -0,0 +1,130 @@
+package com.nexuspulse.app.repository;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Source;
+import com.nexuspulse.app.utils.Constants;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Once a day, recounts the comments on the signed-in user's newest posts
+ * with count() aggregation queries and corrects any commentsCount that
+ * drifted (see {@link CommentCountReconciler}). A post costs two document
+ * reads plus one read per 1,000 comments counted.
+ */
+public class CommentCountWorker extends Worker {
+    private static final String TAG = "CommentCountWorker";
+    private static final String WORK_NAME = "comment-count-reconcile";
+
+    // Newest posts of the user checked per run
+    static final int POSTS_PER_RUN = 20;
+
+    private final FirebaseFirestore db;
+    private final CommentRepository commentRepository;
+
+    public CommentCountWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+        this.db = FirebaseFirestore.getInstance();
+        this.commentRepository = new CommentRepository();
+    }
+
+    /**
+     * Schedule the daily run unless it is already scheduled
+     */
+    public static void schedule(Context context) {
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(
+                CommentCountWorker.class, 1, TimeUnit.DAYS)
+                .setConstraints(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .setRequiresBatteryNotLow(true)
+                        .build())
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null) {
+            return Result.success();
+        }
+
+        CommentCountReconciler reconciler = new CommentCountReconciler(new FirestoreStore());
+        try {
+            QuerySnapshot posts = Tasks.await(db.collection(Constants.COLLECTION_POSTS)
+                    .whereEqualTo("userId", user.getUid())
+                    .orderBy("createdAt", Query.Direction.DESCENDING)
+                    .limit(POSTS_PER_RUN)
+                    .get(Source.SERVER));
+            for (DocumentSnapshot post : posts.getDocuments()) {
+                long correction = reconciler.reconcile(post.getId());
+                if (correction != 0) {
+                    Log.d(TAG, "Corrected commentsCount of " + post.getId() + " by " + correction);
+                }
+            }
+            return Result.success();
+        } catch (Exception e) {
+            Log.e(TAG, "Error reconciling comment counts", e);
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            return Result.retry();
+        }
+    }
+
+    private class FirestoreStore implements CommentCountReconciler.Store {
+        @Override
+        public long storedCount(String postId) throws Exception {
+            Long count = Tasks.await(postRef(postId).get(Source.SERVER)).getLong("commentsCount");
+            return count != null ? count : 0;
+        }
+
+        @Override
+        public long countComments(String postId) throws Exception {
+            // Comments not moved out of the legacy collection still count
+            long current = Tasks.await(commentRepository.commentsOf(postId)
+                    .count().get(AggregateSource.SERVER)).getCount();
+            long legacy = Tasks.await(db.collection(Constants.COLLECTION_COMMENTS)
+                    .whereEqualTo("postId", postId)
+                    .count().get(AggregateSource.SERVER)).getCount();
+            return current + legacy;
+        }
+
+        @Override
+        public void addToCount(String postId, long delta) throws Exception {
+            Map<String, Object> count = new HashMap<>();
+            count.put("commentsCount", FieldValue.increment(delta));
+            Tasks.await(postRef(postId).set(count, SetOptions.merge()));
+        }
+
+        private DocumentReference postRef(String postId) {
+            return db.collection(Constants.COLLECTION_POSTS).document(postId);
+        }
+    }
+}
@@ -2,85 +2,345 @@ package com.nexuspulse.app.repository;
 
 import android.util.Log;
 
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
 import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+import com.nexuspulse.app.database.OutboxEntity;
 import com.nexuspulse.app.models.Comment;
+import com.nexuspulse.app.utils.CommentPath;
 import com.nexuspulse.app.utils.Constants;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Comments live under their post, posts/{postId}/comments, so a thread is
+ * read from its own collection with the automatic createdAt index and goes
+ * away with the post. Each comment carries a {@link CommentPath} sort key
+ * and depth 0 with no parentCommentId; there are no replies yet. One
+ * user's comments across all posts are a collection group query.
+ *
+ * Comments written before this layout sit in the top-level comments
+ * collection until an admin migration moves them; clients never move or
+ * delete other users' comments. Until then a thread's pages continue into
+ * the legacy comments once the post's own run out: nothing writes there any
+ * more, so they are all older than the post's own comments.
+ */
 public class CommentRepository {
     private static final String TAG = "CommentRepository";
+
     private final FirebaseFirestore db;
+    private final LocalStore localStore;
 
     public CommentRepository() {
         this.db = FirebaseFirestore.getInstance();
+        this.localStore = LocalStore.getInstance();
     }
 
     /**
-     * Create a new comment
+     * Create a new top-level comment. The listener fires once the comment is
+     * queued in the {@link Outbox}; it is written together with the post's
+     * commentsCount once the device is online.
      */
     public void createComment(Comment comment, OnCommentCreatedListener listener) {
-        String commentId = db.collection(Constants.COLLECTION_COMMENTS).document().getId();
+        String commentId = commentsOf(comment.getPostId()).document().getId();
         comment.setCommentId(commentId);
+        long createdAt = comment.getCreatedAt() != null
+                ? comment.getCreatedAt().getTime() : System.currentTimeMillis();
+        comment.setParentCommentId(null);
+        comment.setDepth(0);
+        comment.setPath(CommentPath.root(createdAt, commentId));
 
-        db.collection(Constants.COLLECTION_COMMENTS)
-                .document(commentId)
-                .set(comment)
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Comment created successfully");
-                    // Increment post's comment count
-                    db.collection(Constants.COLLECTION_POSTS)
-                            .document(comment.getPostId())
-                            .update("commentsCount", FieldValue.increment(1));
-                    listener.onSuccess(commentId);
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error creating comment", e);
-                    listener.onFailure(e.getMessage());
+        Map<String, Object> commentMap = new HashMap<>();
+        commentMap.put("commentId", commentId);
+        commentMap.put("postId", comment.getPostId());
+        commentMap.put("userId", comment.getUserId());
+        commentMap.put("username", comment.getUsername());
+        commentMap.put("userProfileImage", comment.getUserProfileImage());
+        commentMap.put("content", comment.getContent());
+        commentMap.put("likesCount", comment.getLikesCount());
+        commentMap.put("parentCommentId", comment.getParentCommentId());
+        commentMap.put("depth", comment.getDepth());
+        commentMap.put("path", comment.getPath());
+
+        Outbox.getInstance().enqueue(
+                () -> OutboxEntity.write(OutboxEntity.TYPE_CREATE_COMMENT, comment.getUserId(), commentId,
+                        Outbox.toJson(commentMap)),
+                new Outbox.OnQueuedListener() {
+                    @Override
+                    public void onQueued() {
+                        Log.d(TAG, "Comment queued: " + commentId);
+                        listener.onSuccess(commentId);
+                    }
+
+                    @Override
+                    public void onFailure(String error) {
+                        Log.e(TAG, "Error creating comment: " + error);
+                        listener.onFailure(error);
+                    }
                 });
     }
 
+    /**
+     * Writes that create a queued comment and count it on its post
+     */
+    void addCreateComment(WriteBatch batch, String commentId, Map<String, Object> commentMap) {
+        Map<String, Object> data = new HashMap<>(commentMap);
+        data.put("createdAt", FieldValue.serverTimestamp());
+        if (data.get("path") == null) {
+            // Queued before comments had paths
+            data.put("path", CommentPath.root(System.currentTimeMillis(), commentId));
+            data.put("depth", 0);
+        }
+        String postId = (String) commentMap.get("postId");
+        batch.set(commentRef(postId, commentId), data);
+
+        Map<String, Object> count = new HashMap<>();
+        count.put("commentsCount", FieldValue.increment(1));
+        batch.set(db.collection(Constants.COLLECTION_POSTS).document(postId), count, SetOptions.merge());
+    }
+
+    DocumentReference commentRef(String postId, String commentId) {
+        return commentsOf(postId).document(commentId);
+    }
+
+    CollectionReference commentsOf(String postId) {
+        return db.collection(Constants.COLLECTION_POSTS).document(postId)
+                .collection(Constants.SUBCOLLECTION_COMMENTS);
+    }
+
     /**
      * Get comments for a specific post
      */
     public void getCommentsByPostId(String postId, OnCommentsListFetchedListener listener) {
-        db.collection(Constants.COLLECTION_COMMENTS)
-                .whereEqualTo("postId", postId)
+        latestQuery(postId).get()
+                .continueWithTask(task -> legacyQuery(postId).get().continueWith(legacy -> {
+                    List<DocumentSnapshot> docs = new ArrayList<>(task.getResult().getDocuments());
+                    docs.addAll(legacy.getResult().getDocuments());
+                    return docs;
+                }))
+                .addOnSuccessListener(docs -> listener.onSuccess(toComments(docs)))
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error fetching comments", e);
+                    listener.onFailure(e.getMessage());
+                });
+    }
+
+    /**
+     * A user's newest comments across all posts. The collection group also
+     * matches the legacy top-level collection, so comments not migrated yet
+     * are included.
+     */
+    public void getCommentsByUser(String userId, int limit, OnCommentsListFetchedListener listener) {
+        Query query = db.collectionGroup(Constants.SUBCOLLECTION_COMMENTS)
+                .whereEqualTo("userId", userId)
                 .orderBy("createdAt", Query.Direction.DESCENDING)
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    List<Comment> comments = new ArrayList<>();
-                    for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
-                        Comment comment = doc.toObject(Comment.class);
-                        if (comment != null) {
-                            comments.add(comment);
+                .limit(limit);
+        fetch(query, "Error fetching user comments", listener);
+    }
+
+    private void fetch(Query query, String errorMessage, OnCommentsListFetchedListener listener) {
+        query.get()
+                .addOnSuccessListener(querySnapshot -> listener.onSuccess(toComments(querySnapshot.getDocuments())))
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, errorMessage, e);
+                    listener.onFailure(e.getMessage());
+                });
+    }
+
+    /**
+     * Listen to the newest pageSize comments of a post. The first snapshot is
+     * delivered as a page, newest first; after that only what changed in the
+     * window is reported, so a new comment costs one read instead of the
+     * whole thread. A first page that is not full is topped up with legacy
+     * comments. Remove the returned registration when done.
+     */
+    public ListenerRegistration listenToLatestComments(String postId, int pageSize,
+                                                       OnLatestCommentsListener listener) {
+        boolean[] delivered = {false};
+        int[] firstPageRequests = {0};
+        return latestQuery(postId)
+                .limit(pageSize)
+                .addSnapshotListener((snapshot, error) -> {
+                    if (error != null) {
+                        Log.e(TAG, "Comment listener failed", error);
+                        listener.onFailure(error.getMessage());
+                        return;
+                    }
+                    if (snapshot == null) {
+                        return;
+                    }
+
+                    if (!delivered[0]) {
+                        // Snapshots that arrive while the legacy lookup runs replace it, so
+                        // changes after the first page are relative to what it showed
+                        int request = ++firstPageRequests[0];
+                        List<DocumentSnapshot> docs = snapshot.getDocuments();
+                        withLegacy(postId, docs, pageSize).addOnCompleteListener(task -> {
+                            if (delivered[0] || request != firstPageRequests[0]) {
+                                return;
+                            }
+                            delivered[0] = true;
+                            List<DocumentSnapshot> page = docs;
+                            if (task.isSuccessful()) {
+                                page = task.getResult();
+                            } else {
+                                Log.e(TAG, "Error fetching legacy comments", task.getException());
+                            }
+                            DocumentSnapshot last = page.isEmpty() ? null : page.get(page.size() - 1);
+                            listener.onFirstPage(toComments(page), last, page.size() == pageSize);
+                        });
+                        return;
+                    }
+
+                    List<CommentThread.Change> changes = new ArrayList<>();
+                    for (DocumentChange change : snapshot.getDocumentChanges()) {
+                        Comment comment = toComment(change.getDocument());
+                        if (comment == null) {
+                            continue;
                         }
+                        switch (change.getType()) {
+                            case ADDED:
+                                changes.add(new CommentThread.Change(FeedChange.Type.ADDED, comment));
+                                break;
+                            case MODIFIED:
+                                changes.add(new CommentThread.Change(FeedChange.Type.MODIFIED, comment));
+                                break;
+                            case REMOVED:
+                                changes.add(new CommentThread.Change(FeedChange.Type.REMOVED, comment));
+                                break;
+                        }
+                    }
+                    if (changes.isEmpty()) {
+                        return;
                     }
-                    listener.onSuccess(comments);
+
+                    List<DocumentSnapshot> docs = snapshot.getDocuments();
+                    Comment oldestInWindow = docs.size() == pageSize ? toComment(docs.get(docs.size() - 1)) : null;
+                    listener.onChanges(changes, oldestInWindow);
+                });
+    }
+
+    /**
+     * The pageSize comments before cursor, newest first, continuing into the
+     * legacy comments once the post's own run out
+     */
+    public void getOlderComments(String postId, DocumentSnapshot cursor, int pageSize,
+                                 CommentThread.OnPageLoadedListener<DocumentSnapshot> listener) {
+        // A top-level collection has no parent document
+        boolean legacyCursor = cursor.getReference().getParent().getParent() == null;
+        (legacyCursor ? legacyQuery(postId) : latestQuery(postId))
+                .startAfter(cursor)
+                .limit(pageSize)
+                .get()
+                .continueWithTask(task -> {
+                    List<DocumentSnapshot> docs = task.getResult().getDocuments();
+                    return legacyCursor ? Tasks.forResult(docs) : withLegacy(postId, docs, pageSize);
+                })
+                .addOnSuccessListener(docs -> {
+                    DocumentSnapshot last = docs.isEmpty() ? null : docs.get(docs.size() - 1);
+                    listener.onSuccess(toComments(docs), last, docs.size() == pageSize);
                 })
                 .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error fetching comments", e);
+                    Log.e(TAG, "Error fetching older comments", e);
                     listener.onFailure(e.getMessage());
                 });
     }
 
+    private Query latestQuery(String postId) {
+        return commentsOf(postId).orderBy("createdAt", Query.Direction.DESCENDING);
+    }
+
+    /**
+     * The post's comments still in the top-level collection, newest first
+     */
+    private Query legacyQuery(String postId) {
+        return db.collection(Constants.COLLECTION_COMMENTS)
+                .whereEqualTo("postId", postId)
+                .orderBy("createdAt", Query.Direction.DESCENDING);
+    }
+
     /**
-     * Delete a comment
+     * docs followed by the newest legacy comments, up to pageSize in all
+     */
+    private Task<List<DocumentSnapshot>> withLegacy(String postId, List<DocumentSnapshot> docs, int pageSize) {
+        if (docs.size() >= pageSize) {
+            return Tasks.forResult(docs);
+        }
+        return legacyQuery(postId)
+                .limit(pageSize - docs.size())
+                .get()
+                .continueWith(task -> {
+                    List<DocumentSnapshot> page = new ArrayList<>(docs);
+                    page.addAll(task.getResult().getDocuments());
+                    return page;
+                });
+    }
+
+    private static List<Comment> toComments(List<DocumentSnapshot> docs) {
+        List<Comment> comments = new ArrayList<>();
+        for (DocumentSnapshot doc : docs) {
+            Comment comment = toComment(doc);
+            if (comment != null) {
+                comments.add(comment);
+            }
+        }
+        return comments;
+    }
+
+    private static Comment toComment(DocumentSnapshot doc) {
+        Comment comment = doc.toObject(Comment.class);
+        if (comment != null) {
+            comment.setCommentId(doc.getId());
+        }
+        return comment;
+    }
+
+    /**
+     * Comments of a post as last saved on this device, oldest first
+     */
+    public void getCachedComments(String postId, OnCommentsListFetchedListener listener) {
+        localStore.loadComments(postId, listener::onSuccess);
+    }
+
+    /**
+     * Replace the comments saved on this device for a post
+     */
+    public void cacheComments(String postId, List<Comment> comments) {
+        localStore.saveComments(postId, comments);
+    }
+
+    /**
+     * Delete a comment and uncount it on its post in one transaction. The
+     * count only moves if the comment still exists, so a double tap or a
+     * retry after a lost ack cannot uncount it twice.
      */
     public void deleteComment(String commentId, String postId, OnUpdateListener listener) {
-        db.collection(Constants.COLLECTION_COMMENTS)
-                .document(commentId)
-                .delete()
+        DocumentReference commentRef = commentRef(postId, commentId);
+        db.runTransaction(transaction -> {
+                    if (!transaction.get(commentRef).exists()) {
+                        return null;
+                    }
+                    transaction.delete(commentRef);
+                    Map<String, Object> count = new HashMap<>();
+                    count.put("commentsCount", FieldValue.increment(-1));
+                    transaction.set(db.collection(Constants.COLLECTION_POSTS).document(postId), count,
+                            SetOptions.merge());
+                    return null;
+                })
                 .addOnSuccessListener(aVoid -> {
                     Log.d(TAG, "Comment deleted successfully");
-                    // Decrement post's comment count
-                    db.collection(Constants.COLLECTION_POSTS)
-                            .document(postId)
-                            .update("commentsCount", FieldValue.increment(-1));
                     listener.onSuccess();
                 })
                 .addOnFailureListener(e -> {
@@ -100,6 +360,12 @@ public class CommentRepository {
         void onFailure(String error);
     }
 
+    public interface OnLatestCommentsListener {
+        void onFirstPage(List<Comment> newestFirst, DocumentSnapshot oldestDoc, boolean hasOlder);
+        void onChanges(List<CommentThread.Change> changes, Comment oldestInWindow);
+        void onFailure(String error);
+    }
+
     public interface OnUpdateListener {
         void onSuccess();
         void onFailure(String error);
@@ -0,0 +1,258 @@
+package com.nexuspulse.app.repository;
+
+import com.nexuspulse.app.models.Comment;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A comment thread loaded a window at a time, oldest first.
+ *
+ * The newest page comes from a live listener ({@link #showLatest}) whose
+ * later changes are merged in place ({@link #applyChanges}); older pages
+ * are fetched one at a time as the user scrolls up and prepended. Only
+ * what has been scrolled through is held in memory, and a new comment
+ * touches one row instead of the whole thread.
+ *
+ * @param <C> cursor type understood by the {@link PageSource}
+ */
+public class CommentThread<C> {
+    public static final int DEFAULT_PAGE_SIZE = 30;
+    public static final int DEFAULT_PREFETCH_DISTANCE = 5;
+
+    private final PageSource<C> olderSource;
+    private final int pageSize;
+    private final int prefetchDistance;
+    private final Listener listener;
+
+    private List<Comment> items = new ArrayList<>();
+    private Set<String> seenIds = new HashSet<>();
+    private C olderCursor;
+    private boolean hasOlder;
+    private boolean loadingOlder;
+    private int generation;
+
+    public CommentThread(PageSource<C> olderSource, Listener listener) {
+        this(olderSource, DEFAULT_PAGE_SIZE, DEFAULT_PREFETCH_DISTANCE, listener);
+    }
+
+    public CommentThread(PageSource<C> olderSource, int pageSize, int prefetchDistance, Listener listener) {
+        this.olderSource = olderSource;
+        this.pageSize = pageSize;
+        this.prefetchDistance = prefetchDistance;
+        this.listener = listener;
+    }
+
+    /**
+     * Start over from the newest page, given newest first. oldestCursor
+     * points at its last comment for the next older page.
+     */
+    public void showLatest(List<Comment> newestFirst, C oldestCursor, boolean hasOlder) {
+        generation++;
+        items = new ArrayList<>();
+        seenIds = new HashSet<>();
+        loadingOlder = false;
+        olderCursor = oldestCursor;
+        this.hasOlder = hasOlder && oldestCursor != null;
+        for (Comment comment : newestFirst) {
+            if (comment.getCommentId() == null || seenIds.add(comment.getCommentId())) {
+                items.add(comment);
+            }
+        }
+        Collections.reverse(items);
+        listener.onLatestLoaded(items);
+    }
+
+    /**
+     * Call from a scroll listener; starts the next older page once the first
+     * visible row is within the prefetch distance of the top
+     */
+    public void onScrolled(int firstVisiblePosition) {
+        if (!items.isEmpty() && firstVisiblePosition <= prefetchDistance) {
+            loadOlder();
+        }
+    }
+
+    /**
+     * Load the page before the oldest comment held, unless one is already
+     * loading or the start of the thread was reached
+     */
+    public void loadOlder() {
+        if (loadingOlder || !hasOlder) {
+            return;
+        }
+        loadingOlder = true;
+        final int requestGeneration = generation;
+
+        olderSource.loadPage(olderCursor, pageSize, new OnPageLoadedListener<C>() {
+            @Override
+            public void onSuccess(List<Comment> newestFirst, C nextCursor, boolean more) {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                loadingOlder = false;
+                hasOlder = more && nextCursor != null;
+                if (nextCursor != null) {
+                    olderCursor = nextCursor;
+                }
+
+                List<Comment> older = new ArrayList<>();
+                for (Comment comment : newestFirst) {
+                    if (comment.getCommentId() == null || seenIds.add(comment.getCommentId())) {
+                        older.add(comment);
+                    }
+                }
+                Collections.reverse(older);
+                items.addAll(0, older);
+                listener.onOlderLoaded(items, older.size());
+            }
+
+            @Override
+            public void onFailure(String error) {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                loadingOlder = false;
+                listener.onError(error);
+            }
+        });
+    }
+
+    /**
+     * Merge changes from the live listener on the newest page. New comments
+     * are placed by createdAt (almost always at the end). A comment that
+     * left a full window because newer ones pushed it out (it is no newer
+     * than oldestInWindow) stays; any other removal was a deletion.
+     *
+     * @param oldestInWindow oldest comment in the listener's window after
+     *                       the changes, or null if the window is not full
+     */
+    public void applyChanges(List<Change> changes, Comment oldestInWindow) {
+        int appended = 0;
+        boolean changed = false;
+        for (Change change : changes) {
+            String commentId = change.comment.getCommentId();
+            int index = indexOf(commentId);
+            switch (change.type) {
+                case ADDED:
+                    if (index >= 0) {
+                        items.set(index, change.comment);
+                    } else {
+                        seenIds.add(commentId);
+                        int position = insertionPoint(change.comment);
+                        items.add(position, change.comment);
+                        if (position == items.size() - 1) {
+                            appended++;
+                        }
+                    }
+                    changed = true;
+                    break;
+                case MODIFIED:
+                    if (index >= 0) {
+                        items.set(index, change.comment);
+                        changed = true;
+                    }
+                    break;
+                case REMOVED:
+                    if (index >= 0 && !pushedOut(items.get(index), oldestInWindow)) {
+                        items.remove(index);
+                        changed = true;
+                    }
+                    break;
+            }
+        }
+        if (changed) {
+            listener.onTailChanged(items, appended);
+        }
+    }
+
+    /**
+     * Drop a comment the user deleted; it stays seen so a page still
+     * carrying it does not bring it back
+     */
+    public void remove(String commentId) {
+        int index = indexOf(commentId);
+        if (index >= 0) {
+            items.remove(index);
+        }
+    }
+
+    private int insertionPoint(Comment comment) {
+        if (comment.getCreatedAt() == null) {
+            return items.size();
+        }
+        int position = items.size();
+        while (position > 0) {
+            Comment before = items.get(position - 1);
+            if (before.getCreatedAt() == null || !before.getCreatedAt().after(comment.getCreatedAt())) {
+                break;
+            }
+            position--;
+        }
+        return position;
+    }
+
+    private static boolean pushedOut(Comment comment, Comment oldestInWindow) {
+        return oldestInWindow != null
+                && comment.getCreatedAt() != null
+                && oldestInWindow.getCreatedAt() != null
+                && !comment.getCreatedAt().after(oldestInWindow.getCreatedAt());
+    }
+
+    private int indexOf(String commentId) {
+        for (int i = items.size() - 1; i >= 0; i--) {
+            if (commentId.equals(items.get(i).getCommentId())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Comments held, oldest first; changed in place, so hand the adapter a copy
+     */
+    public List<Comment> getItems() {
+        return items;
+    }
+
+    public boolean hasOlder() {
+        return hasOlder;
+    }
+
+    public boolean isLoadingOlder() {
+        return loadingOlder;
+    }
+
+    /**
+     * One change to the newest page, as reported by its snapshot listener
+     */
+    public static class Change {
+        public final FeedChange.Type type;
+        public final Comment comment;
+
+        public Change(FeedChange.Type type, Comment comment) {
+            this.type = type;
+            this.comment = comment;
+        }
+    }
+
+    // Callback Interfaces
+    public interface PageSource<C> {
+        void loadPage(C cursor, int pageSize, OnPageLoadedListener<C> listener);
+    }
+
+    public interface OnPageLoadedListener<C> {
+        void onSuccess(List<Comment> newestFirst, C nextCursor, boolean hasMore);
+        void onFailure(String error);
+    }
+
+    public interface Listener {
+        void onLatestLoaded(List<Comment> items);
+        void onOlderLoaded(List<Comment> items, int prependedCount);
+        void onTailChanged(List<Comment> items, int appendedCount);
+        void onError(String error);
+    }
+}
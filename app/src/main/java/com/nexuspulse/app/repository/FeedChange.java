@@ -0,0 +1,22 @@
+package com.nexuspulse.app.repository;
+
+import com.nexuspulse.app.models.Post;
+
+/**
+ * One change to the live head of a feed, as reported by a snapshot
+ * listener. newIndex is the post's position in the listener's window after
+ * the change (-1 for REMOVED).
+ */
+public class FeedChange {
+    public enum Type { ADDED, MODIFIED, REMOVED }
+
+    public final Type type;
+    public final Post post;
+    public final int newIndex;
+
+    public FeedChange(Type type, Post post, int newIndex) {
+        this.type = type;
+        this.post = post;
+        this.newIndex = newIndex;
+    }
+}
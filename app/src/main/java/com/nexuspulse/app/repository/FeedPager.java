@@ -0,0 +1,241 @@
+package com.nexuspulse.app.repository;
+
+import com.nexuspulse.app.models.Post;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Stitches cursor-based pages of posts into one list.
+ *
+ * Pages are requested one at a time; posts already seen (e.g. shifted into
+ * the next page by a new post at the top of the feed) are dropped, and
+ * results from a load that was superseded by {@link #refresh()} are ignored.
+ * When the first page comes from a snapshot listener, its later changes
+ * are merged in place with {@link #applyChanges}.
+ *
+ * @param <C> cursor type understood by the {@link PageSource}
+ */
+public class FeedPager<C> {
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int DEFAULT_PREFETCH_DISTANCE = 5;
+
+    private final PageSource<C> source;
+    private final int pageSize;
+    private final int prefetchDistance;
+    private final Listener listener;
+
+    private List<Post> items = new ArrayList<>();
+    private Set<String> seenIds = new HashSet<>();
+    private C cursor;
+    private boolean loading;
+    private boolean endReached;
+    private int generation;
+
+    public FeedPager(PageSource<C> source, Listener listener) {
+        this(source, DEFAULT_PAGE_SIZE, DEFAULT_PREFETCH_DISTANCE, listener);
+    }
+
+    public FeedPager(PageSource<C> source, int pageSize, int prefetchDistance, Listener listener) {
+        this.source = source;
+        this.pageSize = pageSize;
+        this.prefetchDistance = prefetchDistance;
+        this.listener = listener;
+    }
+
+    /**
+     * Drop everything and load the first page again
+     */
+    public void refresh() {
+        reset();
+        loadNextPage();
+    }
+
+    /**
+     * Drop everything without loading; the next refresh starts from scratch
+     */
+    public void reset() {
+        generation++;
+        items = new ArrayList<>();
+        seenIds = new HashSet<>();
+        cursor = null;
+        loading = false;
+        endReached = false;
+    }
+
+    /**
+     * Load the next page unless one is already loading or the feed is exhausted
+     */
+    public void loadNextPage() {
+        if (loading || endReached) {
+            return;
+        }
+        loading = true;
+        final int requestGeneration = generation;
+        final boolean firstPage = cursor == null;
+
+        source.loadPage(cursor, pageSize, new OnPageLoadedListener<C>() {
+            @Override
+            public void onSuccess(List<Post> posts, C nextCursor, boolean hasMore) {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                loading = false;
+                endReached = !hasMore || nextCursor == null;
+                if (nextCursor != null) {
+                    cursor = nextCursor;
+                }
+
+                int insertedFrom = items.size();
+                for (Post post : posts) {
+                    if (post.getPostId() == null || seenIds.add(post.getPostId())) {
+                        items.add(post);
+                    }
+                }
+                listener.onPageLoaded(items, insertedFrom, items.size() - insertedFrom, firstPage);
+            }
+
+            @Override
+            public void onFailure(String error) {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                loading = false;
+                listener.onError(error);
+            }
+        });
+    }
+
+    /**
+     * Call from a scroll listener; starts the next page once the last visible
+     * row is within the prefetch distance of the end of the list
+     */
+    public void onScrolled(int lastVisiblePosition) {
+        if (!items.isEmpty() && lastVisiblePosition >= items.size() - 1 - prefetchDistance) {
+            loadNextPage();
+        }
+    }
+
+    /**
+     * Drop a post the user deleted. Its id stays seen, so a later page that
+     * still carries it does not bring it back.
+     */
+    public void remove(String postId) {
+        int index = indexOf(postId);
+        if (index >= 0) {
+            items.remove(index);
+        }
+    }
+
+    /**
+     * Merge changes from a live listener on the head of the feed. Posts are
+     * matched by id, so a post that is already loaded is replaced where it
+     * is. A post that left a full window because newer posts pushed it past
+     * the end (it is no newer than oldestInWindow) stays, as it is simply
+     * further down the feed now; any other removal was a deletion.
+     *
+     * @param oldestInWindow last post of the listener's window after the
+     *                       changes, or null if the window is not full
+     */
+    public void applyChanges(List<FeedChange> changes, Post oldestInWindow) {
+        merge(changes, oldestInWindow, true);
+    }
+
+    /**
+     * Like {@link #applyChanges}, for a feed in an order of its own (e.g.
+     * ranked) that a live listener's positions mean nothing to: loaded posts
+     * are updated or removed in place and new posts are left out.
+     */
+    public void updateInPlace(List<FeedChange> changes, Post oldestInWindow) {
+        merge(changes, oldestInWindow, false);
+    }
+
+    private void merge(List<FeedChange> changes, Post oldestInWindow, boolean insertNew) {
+        boolean changed = false;
+        for (FeedChange change : changes) {
+            String postId = change.post.getPostId();
+            int index = indexOf(postId);
+            switch (change.type) {
+                case ADDED:
+                    if (index >= 0) {
+                        items.set(index, change.post);
+                        changed = true;
+                    } else if (insertNew) {
+                        seenIds.add(postId);
+                        items.add(Math.max(0, Math.min(change.newIndex, items.size())), change.post);
+                        changed = true;
+                    }
+                    break;
+                case MODIFIED:
+                    if (index >= 0) {
+                        items.set(index, change.post);
+                        changed = true;
+                    }
+                    break;
+                case REMOVED:
+                    if (index >= 0 && !pushedOut(items.get(index), oldestInWindow)) {
+                        items.remove(index);
+                        changed = true;
+                    }
+                    break;
+            }
+        }
+        if (changed) {
+            listener.onItemsChanged(items);
+        }
+    }
+
+    private static boolean pushedOut(Post post, Post oldestInWindow) {
+        return oldestInWindow != null
+                && post.getCreatedAt() != null
+                && oldestInWindow.getCreatedAt() != null
+                && !post.getCreatedAt().after(oldestInWindow.getCreatedAt());
+    }
+
+    private int indexOf(String postId) {
+        for (int i = 0; i < items.size(); i++) {
+            if (postId.equals(items.get(i).getPostId())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Posts loaded so far; appended to in place between refreshes, so hand
+     * the adapter a copy
+     */
+    public List<Post> getItems() {
+        return items;
+    }
+
+    public boolean isLoading() {
+        return loading;
+    }
+
+    public boolean isEndReached() {
+        return endReached;
+    }
+
+    public boolean hasLoaded() {
+        return cursor != null || endReached;
+    }
+
+    // Callback Interfaces
+    public interface PageSource<C> {
+        void loadPage(C cursor, int pageSize, OnPageLoadedListener<C> listener);
+    }
+
+    public interface OnPageLoadedListener<C> {
+        void onSuccess(List<Post> posts, C nextCursor, boolean hasMore);
+        void onFailure(String error);
+    }
+
+    public interface Listener {
+        void onPageLoaded(List<Post> items, int insertedFrom, int insertedCount, boolean firstPage);
+        void onItemsChanged(List<Post> items);
+        void onError(String error);
+    }
+}
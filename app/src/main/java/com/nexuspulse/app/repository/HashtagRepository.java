@@ -0,0 +1,131 @@
+package com.nexuspulse.app.repository;
+
+import android.util.Log;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+import com.nexuspulse.app.utils.Constants;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashtag usage counters and trending.
+ *
+ * hashtags/{tag} holds a tag's total post count; hashtags/{tag}/hours/{hour}
+ * counts the posts that used it in each hour (hours since the epoch, by
+ * the posting device's clock). Trending reads the hour buckets of every
+ * tag for the last {@link #TRENDING_WINDOW_HOURS} plus
+ * {@link #BASELINE_HOURS} with one collection group query and ranks them
+ * with {@link TrendingTags}. Buckets carry an expireAt for a Firestore TTL
+ * policy, so old ones are deleted server-side.
+ */
+public class HashtagRepository {
+    private static final String TAG = "HashtagRepository";
+
+    public static final int TRENDING_WINDOW_HOURS = 6;
+    public static final int BASELINE_HOURS = 24;
+    // Most hour buckets one trending query reads
+    static final int MAX_BUCKETS_READ = 2000;
+    private static final long BUCKET_TTL_HOURS = 2 * (TRENDING_WINDOW_HOURS + BASELINE_HOURS);
+
+    private final FirebaseFirestore db;
+
+    public HashtagRepository() {
+        this.db = FirebaseFirestore.getInstance();
+    }
+
+    public static long hourOf(long timeMillis) {
+        return TimeUnit.MILLISECONDS.toHours(timeMillis);
+    }
+
+    /**
+     * Count a post that used hashtags (stored form, see PostTokenizer) at
+     * createdAtMillis. Best effort: a lost count only skews trending.
+     */
+    public void recordPost(List<String> hashtags, long createdAtMillis, OnUpdateListener listener) {
+        if (hashtags == null || hashtags.isEmpty()) {
+            listener.onSuccess();
+            return;
+        }
+        long hour = hourOf(createdAtMillis);
+        Timestamp expireAt = new Timestamp(new Date(TimeUnit.HOURS.toMillis(hour + BUCKET_TTL_HOURS)));
+
+        WriteBatch batch = db.batch();
+        for (String tag : hashtags) {
+            DocumentReference tagRef = db.collection(Constants.COLLECTION_HASHTAGS).document(tag);
+
+            Map<String, Object> total = new HashMap<>();
+            total.put("tag", tag);
+            total.put("postsCount", FieldValue.increment(1));
+            total.put("lastUsedAt", FieldValue.serverTimestamp());
+            batch.set(tagRef, total, SetOptions.merge());
+
+            Map<String, Object> bucket = new HashMap<>();
+            bucket.put("tag", tag);
+            bucket.put("hour", hour);
+            bucket.put("count", FieldValue.increment(1));
+            bucket.put("expireAt", expireAt);
+            batch.set(tagRef.collection(Constants.SUBCOLLECTION_HASHTAG_HOURS).document(String.valueOf(hour)),
+                    bucket, SetOptions.merge());
+        }
+        batch.commit()
+                .addOnSuccessListener(aVoid -> listener.onSuccess())
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error counting hashtags", e);
+                    listener.onFailure(e.getMessage());
+                });
+    }
+
+    /**
+     * Tags trending now, best first. Buckets are read newest first, so if
+     * the read is capped it is the oldest baseline hours that are left out.
+     */
+    public void getTrending(int limit, OnTrendingListener listener) {
+        long nowHour = hourOf(System.currentTimeMillis());
+        TrendingTags trending = new TrendingTags(TRENDING_WINDOW_HOURS, BASELINE_HOURS);
+        db.collectionGroup(Constants.SUBCOLLECTION_HASHTAG_HOURS)
+                .whereGreaterThanOrEqualTo("hour", trending.firstHour(nowHour))
+                .orderBy("hour", Query.Direction.DESCENDING)
+                .limit(MAX_BUCKETS_READ)
+                .get()
+                .addOnSuccessListener(querySnapshot -> {
+                    for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
+                        String tag = doc.getString("tag");
+                        Long hour = doc.getLong("hour");
+                        Long count = doc.getLong("count");
+                        if (tag != null && hour != null && count != null) {
+                            trending.add(tag, hour, count, nowHour);
+                        }
+                    }
+                    if (querySnapshot.size() == MAX_BUCKETS_READ) {
+                        Log.w(TAG, "Trending read capped at " + MAX_BUCKETS_READ + " buckets");
+                    }
+                    listener.onSuccess(trending.top(limit));
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error fetching trending hashtags", e);
+                    listener.onFailure(e.getMessage());
+                });
+    }
+
+    // Callback Interfaces
+    public interface OnTrendingListener {
+        void onSuccess(List<TrendingTags.Trend> trends);
+        void onFailure(String error);
+    }
+
+    public interface OnUpdateListener {
+        void onSuccess();
+        void onFailure(String error);
+    }
+}
@@ -0,0 +1,122 @@
+package com.nexuspulse.app.repository;
+
+import com.nexuspulse.app.models.Post;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process-wide record of which posts the signed-in user has liked or
+ * retweeted, filled from reactions/{postId}/likes|retweets/{userId} lookups
+ * and kept current by the user's own reactions.
+ *
+ * Answers are tri-state: {@code null} means the post has not been looked up
+ * yet. State belongs to a single user; recording a reaction for a different
+ * user drops everything first. Least-recently-used posts are evicted once
+ * {@code maxEntries} is reached.
+ */
+public class LikedPostsCache {
+    private static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    private static LikedPostsCache instance;
+
+    private final int maxEntries;
+    private final LinkedHashMap<String, Boolean> liked;
+    private final LinkedHashMap<String, Boolean> retweeted;
+    private String ownerId;
+
+    public static synchronized LikedPostsCache getInstance() {
+        if (instance == null) {
+            instance = new LikedPostsCache(DEFAULT_MAX_ENTRIES);
+        }
+        return instance;
+    }
+
+    LikedPostsCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.liked = lruMap();
+        this.retweeted = lruMap();
+    }
+
+    private LinkedHashMap<String, Boolean> lruMap() {
+        return new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Whether userId liked postId, or null if not known yet
+     */
+    public synchronized Boolean isLiked(String userId, String postId) {
+        return isOwner(userId) ? liked.get(postId) : null;
+    }
+
+    /**
+     * Whether userId retweeted postId, or null if not known yet
+     */
+    public synchronized Boolean isRetweeted(String userId, String postId) {
+        return isOwner(userId) ? retweeted.get(postId) : null;
+    }
+
+    public synchronized void setLiked(String userId, String postId, boolean value) {
+        claim(userId);
+        liked.put(postId, value);
+    }
+
+    public synchronized void setRetweeted(String userId, String postId, boolean value) {
+        claim(userId);
+        retweeted.put(postId, value);
+    }
+
+    /**
+     * Copy userId's reactions onto posts for the adapter to show. Posts not
+     * looked up yet fall back to the legacy likedBy/retweetedBy arrays.
+     */
+    public synchronized void applyTo(String userId, List<Post> posts) {
+        for (Post post : posts) {
+            Boolean liked = isLiked(userId, post.getPostId());
+            Boolean retweeted = isRetweeted(userId, post.getPostId());
+            post.setLikedByMe(liked != null ? liked : post.isLikedByUser(userId));
+            post.setRetweetedByMe(retweeted != null ? retweeted : post.isRetweetedByUser(userId));
+        }
+    }
+
+    /**
+     * Ids from postIds whose like or retweet state is not known for userId
+     */
+    public synchronized List<String> unknownPostIds(String userId, List<String> postIds) {
+        List<String> unknown = new ArrayList<>();
+        for (String postId : postIds) {
+            if (!isOwner(userId) || !liked.containsKey(postId) || !retweeted.containsKey(postId)) {
+                unknown.add(postId);
+            }
+        }
+        return unknown;
+    }
+
+    public synchronized void clear() {
+        liked.clear();
+        retweeted.clear();
+        ownerId = null;
+    }
+
+    public synchronized int size() {
+        return liked.size();
+    }
+
+    private boolean isOwner(String userId) {
+        return userId != null && userId.equals(ownerId);
+    }
+
+    private void claim(String userId) {
+        if (!isOwner(userId)) {
+            clear();
+            ownerId = userId;
+        }
+    }
+}
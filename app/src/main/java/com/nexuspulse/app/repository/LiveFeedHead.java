@@ -0,0 +1,198 @@
+package com.nexuspulse.app.repository;
+
+import android.util.Log;
+
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.nexuspulse.app.models.Post;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The newest page of a feed, kept current by one snapshot listener.
+ *
+ * The listener's first snapshot is handed out as the first page; after
+ * that every snapshot is reported as {@link FeedChange}s built from
+ * getDocumentChanges(), so only posts that actually changed are rebound.
+ *
+ * {@link #pause()} detaches the listener (call from onStop) and
+ * {@link #resume()} attaches it again. Firestore resumes a query listened
+ * to within the last 30 minutes from its resume token and only bills the
+ * documents that changed, so coming back to an unchanged feed reads
+ * nothing. A reattached listener reports its whole window as added; posts
+ * that disappeared while paused are reported as removed here.
+ *
+ * Asking for the same page again while listening answers from the current
+ * window instead of registering a new listener, so a pull-to-refresh reads
+ * nothing the listener has not already delivered.
+ */
+public class LiveFeedHead {
+    private static final String TAG = "LiveFeedHead";
+
+    private final Query query;
+    private final OnChangesListener changesListener;
+
+    private ListenerRegistration registration;
+    private PostRepository.OnPostsPageFetchedListener firstPageListener;
+    private int pageSize;
+    private boolean paused;
+    private boolean awaitingFirstSnapshot;
+    // Last snapshot's posts by id, in window order
+    private Map<String, Post> window = new LinkedHashMap<>();
+    private DocumentSnapshot lastDoc;
+
+    LiveFeedHead(Query query, OnChangesListener changesListener) {
+        this.query = query;
+        this.changesListener = changesListener;
+    }
+
+    /**
+     * Start listening to the newest pageSize posts; the first snapshot goes
+     * to listener like a fetched page. If already listening to that many,
+     * listener gets the current window right away.
+     */
+    public void start(int pageSize, PostRepository.OnPostsPageFetchedListener listener) {
+        if (registration != null && pageSize == this.pageSize && !awaitingFirstSnapshot) {
+            listener.onSuccess(new ArrayList<>(window.values()), lastDoc, window.size() == pageSize);
+            return;
+        }
+        stop();
+        this.pageSize = pageSize;
+        this.firstPageListener = listener;
+        this.window = new LinkedHashMap<>();
+        if (!paused) {
+            register();
+        }
+    }
+
+    public void pause() {
+        paused = true;
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+    }
+
+    public void resume() {
+        paused = false;
+        if (registration == null && pageSize > 0) {
+            register();
+        }
+    }
+
+    /**
+     * Detach for good; start() begins again from scratch
+     */
+    public void stop() {
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+        firstPageListener = null;
+        pageSize = 0;
+    }
+
+    private void register() {
+        awaitingFirstSnapshot = true;
+        registration = query.limit(pageSize).addSnapshotListener((snapshot, error) -> {
+            if (error != null) {
+                Log.e(TAG, "Feed listener failed", error);
+                if (firstPageListener != null) {
+                    firstPageListener.onFailure(error.getMessage());
+                    firstPageListener = null;
+                }
+                return;
+            }
+            if (snapshot != null) {
+                onSnapshot(snapshot);
+            }
+        });
+    }
+
+    private void onSnapshot(QuerySnapshot snapshot) {
+        List<DocumentSnapshot> docs = snapshot.getDocuments();
+        Map<String, Post> newWindow = new LinkedHashMap<>();
+        for (DocumentSnapshot doc : docs) {
+            Post post = toPost(doc);
+            if (post != null) {
+                newWindow.put(post.getPostId(), post);
+            }
+        }
+        boolean firstOfRegistration = awaitingFirstSnapshot;
+        awaitingFirstSnapshot = false;
+
+        if (firstPageListener != null) {
+            PostRepository.OnPostsPageFetchedListener listener = firstPageListener;
+            firstPageListener = null;
+            window = newWindow;
+            lastDoc = docs.isEmpty() ? null : docs.get(docs.size() - 1);
+            listener.onSuccess(new ArrayList<>(newWindow.values()), lastDoc, docs.size() == pageSize);
+            return;
+        }
+
+        List<FeedChange> changes = new ArrayList<>();
+        if (firstOfRegistration) {
+            // A reattached listener only reports what is there now
+            for (Map.Entry<String, Post> entry : window.entrySet()) {
+                if (!newWindow.containsKey(entry.getKey())) {
+                    changes.add(new FeedChange(FeedChange.Type.REMOVED, entry.getValue(), -1));
+                }
+            }
+        }
+        for (DocumentChange change : snapshot.getDocumentChanges()) {
+            Post post = newWindow.get(change.getDocument().getId());
+            switch (change.getType()) {
+                case ADDED:
+                    if (post != null) {
+                        changes.add(new FeedChange(FeedChange.Type.ADDED, post, change.getNewIndex()));
+                    }
+                    break;
+                case MODIFIED:
+                    if (post != null) {
+                        changes.add(new FeedChange(FeedChange.Type.MODIFIED, post, change.getNewIndex()));
+                    }
+                    break;
+                case REMOVED:
+                    Post removed = window.get(change.getDocument().getId());
+                    if (removed != null) {
+                        changes.add(new FeedChange(FeedChange.Type.REMOVED, removed, -1));
+                    }
+                    break;
+            }
+        }
+        window = newWindow;
+        lastDoc = docs.isEmpty() ? null : docs.get(docs.size() - 1);
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        Post oldestInWindow = null;
+        if (newWindow.size() == pageSize) {
+            for (Post post : newWindow.values()) {
+                oldestInWindow = post;
+            }
+        }
+        Log.d(TAG, "Feed head changed: " + changes.size() + " posts"
+                + (snapshot.getMetadata().isFromCache() ? " (from cache)" : ""));
+        changesListener.onChanges(changes, oldestInWindow);
+    }
+
+    private static Post toPost(DocumentSnapshot doc) {
+        Post post = doc.toObject(Post.class);
+        if (post != null) {
+            post.setPostId(doc.getId());
+        }
+        return post;
+    }
+
+    // Callback Interfaces
+    public interface OnChangesListener {
+        void onChanges(List<FeedChange> changes, Post oldestInWindow);
+    }
+}
@@ -0,0 +1,236 @@
+package com.nexuspulse.app.repository;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.nexuspulse.app.database.AppDatabase;
+import com.nexuspulse.app.database.CommentEntity;
+import com.nexuspulse.app.database.NotificationEntity;
+import com.nexuspulse.app.database.PostEntity;
+import com.nexuspulse.app.database.UserEntity;
+import com.nexuspulse.app.models.Comment;
+import com.nexuspulse.app.models.Notification;
+import com.nexuspulse.app.models.Post;
+import com.nexuspulse.app.models.User;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Disk side of the repositories: the last posts, users, comments and
+ * notifications the app received, kept in Room.
+ *
+ * Reads run on a single background thread and answer on the main thread;
+ * writes are fire-and-forget. Models are converted to entities on the
+ * calling thread, so callers may keep mutating their lists afterwards.
+ * Until {@link #init(Context)} has run (e.g. in JVM tests) every read
+ * answers empty and every write is dropped.
+ */
+public class LocalStore {
+    private static final String TAG = "LocalStore";
+
+    public static final String FEED_FOR_YOU = "forYou";
+    public static final String FEED_FOLLOWING = "following";
+    // Rows kept per feed; enough to fill the first screens on a cold start
+    static final int MAX_CACHED_FEED_POSTS = 100;
+
+    private static LocalStore instance;
+
+    private final AppDatabase database;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public static synchronized void init(Context context) {
+        if (instance == null || instance.database == null) {
+            instance = new LocalStore(AppDatabase.getInstance(context));
+        }
+    }
+
+    public static synchronized LocalStore getInstance() {
+        if (instance == null) {
+            instance = new LocalStore(null);
+        }
+        return instance;
+    }
+
+    private LocalStore(AppDatabase database) {
+        this.database = database;
+    }
+
+    public static String userFeedKey(String userId) {
+        return "user:" + userId;
+    }
+
+    // Posts
+
+    public void loadFeed(String feedKey, OnLoadedListener<List<Post>> listener) {
+        read(() -> {
+            List<Post> posts = new ArrayList<>();
+            for (PostEntity entity : database.postDao().getFeed(feedKey)) {
+                posts.add(entity.toModel());
+            }
+            return posts;
+        }, new ArrayList<>(), listener);
+    }
+
+    public void saveFeed(String feedKey, List<Post> posts) {
+        List<PostEntity> entities = new ArrayList<>();
+        for (Post post : posts) {
+            if (entities.size() == MAX_CACHED_FEED_POSTS) {
+                break;
+            }
+            if (post.getPostId() != null) {
+                entities.add(PostEntity.fromModel(post));
+            }
+        }
+        write(() -> database.postDao().replaceFeed(feedKey, entities));
+    }
+
+    public void deletePost(String postId) {
+        write(() -> database.postDao().deletePost(postId));
+    }
+
+    // Users
+
+    public void loadUser(String userId, OnLoadedListener<User> listener) {
+        read(() -> {
+            UserEntity entity = database.userDao().getById(userId);
+            return entity != null ? entity.toModel() : null;
+        }, null, listener);
+    }
+
+    /**
+     * Users saved on this device, in the order of userIds; missing ones are
+     * left out
+     */
+    public void loadUsers(List<String> userIds, OnLoadedListener<List<User>> listener) {
+        read(() -> {
+            Map<String, User> byId = new HashMap<>();
+            for (UserEntity entity : database.userDao().getByIds(userIds)) {
+                byId.put(entity.userId, entity.toModel());
+            }
+            List<User> users = new ArrayList<>();
+            for (String userId : userIds) {
+                if (byId.containsKey(userId)) {
+                    users.add(byId.get(userId));
+                }
+            }
+            return users;
+        }, new ArrayList<>(), listener);
+    }
+
+    public void saveUser(User user) {
+        if (user == null || user.getUserId() == null) {
+            return;
+        }
+        UserEntity entity = UserEntity.fromModel(user);
+        write(() -> database.userDao().upsert(entity));
+    }
+
+    public void saveUsers(List<User> users) {
+        List<UserEntity> entities = new ArrayList<>();
+        for (User user : users) {
+            if (user.getUserId() != null) {
+                entities.add(UserEntity.fromModel(user));
+            }
+        }
+        write(() -> database.userDao().upsertAll(entities));
+    }
+
+    // Comments
+
+    public void loadComments(String postId, OnLoadedListener<List<Comment>> listener) {
+        read(() -> {
+            List<Comment> comments = new ArrayList<>();
+            for (CommentEntity entity : database.commentDao().getForPost(postId)) {
+                comments.add(entity.toModel());
+            }
+            return comments;
+        }, new ArrayList<>(), listener);
+    }
+
+    public void saveComments(String postId, List<Comment> comments) {
+        List<CommentEntity> entities = new ArrayList<>();
+        for (Comment comment : comments) {
+            if (comment.getCommentId() != null) {
+                entities.add(CommentEntity.fromModel(comment));
+            }
+        }
+        write(() -> database.commentDao().replaceForPost(postId, entities));
+    }
+
+    // Notifications
+
+    public void loadNotifications(String userId, OnLoadedListener<List<Notification>> listener) {
+        read(() -> {
+            List<Notification> notifications = new ArrayList<>();
+            for (NotificationEntity entity : database.notificationDao().getForUser(userId)) {
+                notifications.add(entity.toModel());
+            }
+            return notifications;
+        }, new ArrayList<>(), listener);
+    }
+
+    public void saveNotifications(String userId, List<Notification> notifications) {
+        List<NotificationEntity> entities = new ArrayList<>();
+        for (Notification notification : notifications) {
+            if (notification.getNotificationId() != null) {
+                entities.add(NotificationEntity.fromModel(userId, notification));
+            }
+        }
+        write(() -> database.notificationDao().replaceForUser(userId, entities));
+    }
+
+    /**
+     * Drop everything cached for the signed-in user, on sign-out
+     */
+    public void clear() {
+        write(database::clearAllTables);
+    }
+
+    private <T> void read(Query<T> query, T empty, OnLoadedListener<T> listener) {
+        if (database == null) {
+            listener.onLoaded(empty);
+            return;
+        }
+        executor.execute(() -> {
+            T result;
+            try {
+                result = query.run();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error reading local store", e);
+                result = empty;
+            }
+            T finalResult = result;
+            mainHandler.post(() -> listener.onLoaded(finalResult));
+        });
+    }
+
+    private void write(Runnable op) {
+        if (database == null) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                op.run();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error writing local store", e);
+            }
+        });
+    }
+
+    private interface Query<T> {
+        T run();
+    }
+
+    // Callback Interfaces
+    public interface OnLoadedListener<T> {
+        void onLoaded(T value);
+    }
+}
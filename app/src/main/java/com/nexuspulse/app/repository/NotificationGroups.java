@@ -0,0 +1,149 @@
+package com.nexuspulse.app.repository;
+
+import com.nexuspulse.app.models.Notification;
+
+import java.text.NumberFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fan-in of notification events: every like (or retweet, comment, follow)
+ * of the same kind on the same post within one {@link #BUCKET_MILLIS}
+ * bucket lands in one group document, shown as "alice and 9,999 others
+ * liked your post".
+ *
+ * A group carries the latest actor, how many distinct actors it holds,
+ * and whether it is unread. The owner also keeps a lastReadAt watermark:
+ * "mark all read" only moves the watermark, and every group whose latest
+ * event is not after it counts as read ({@link #isUnread}). The owner's
+ * unread counter counts unread groups, so it only moves when a group
+ * turns unread or is read.
+ * {@link #onEvent} and {@link #onRead} are the whole state machine;
+ * {@link NotificationRepository} runs them inside Firestore transactions on
+ * the group document, which retry on conflict, so concurrent events
+ * neither lose counts nor double the badge.
+ */
+public class NotificationGroups {
+    public static final long BUCKET_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * Id of the group an event of type on postId (null for follows) at
+     * eventMillis belongs to
+     */
+    public static String groupId(String type, String postId, long eventMillis) {
+        return type + "_" + (postId != null ? postId : "") + "_" + Math.floorDiv(eventMillis, BUCKET_MILLIS);
+    }
+
+    /**
+     * Whether group is unread under the owner's lastReadAt watermark (null
+     * if never set)
+     */
+    public static boolean isUnread(Notification group, Date lastReadAt) {
+        return group != null && !group.isRead() && !covered(group, lastReadAt);
+    }
+
+    /**
+     * Show the groups lastReadAt covers as read
+     */
+    public static void applyWatermark(List<Notification> groups, Date lastReadAt) {
+        for (Notification group : groups) {
+            if (covered(group, lastReadAt)) {
+                group.setRead(true);
+            }
+        }
+    }
+
+    /**
+     * Fold event into group (null if this is its first event).
+     * repeatActor is true when event's actor is already counted in the
+     * group, e.g. an unlike and like again: the group then moves to the top
+     * under that actor, without counting them twice, ringing the badge
+     * again or turning a read group unread.
+     */
+    public static Change onEvent(Notification group, Notification event, String groupId, boolean repeatActor,
+                                 Date lastReadAt) {
+        boolean wasUnread = isUnread(group, lastReadAt);
+        Notification updated = new Notification(groupId, event.getType(), event.getFromUserId(),
+                event.getFromUsername(), event.getFromUserImage(), event.getMessage());
+        updated.setPostId(event.getPostId());
+        // Null for a live event, which Firestore fills with the server time
+        updated.setCreatedAt(event.getCreatedAt());
+        if (group != null && repeatActor) {
+            updated.setCount(group.getCount());
+            // The new time would put a read group past the watermark
+            updated.setRead(!wasUnread);
+            return new Change(updated, 0, true);
+        }
+        updated.setCount(group != null ? group.getCount() + 1 : 1);
+        updated.setRead(false);
+        return new Change(updated, wasUnread ? 0 : 1, true);
+    }
+
+    /**
+     * Read group as the reader saw it at seenAt, its time when last shown:
+     * a group that gained events after that stays unread. A null seenAt
+     * reads the group as it is now. group is updated in place.
+     */
+    public static Change onRead(Notification group, Date seenAt, Date lastReadAt) {
+        if (!isUnread(group, lastReadAt) || !seenAt(group, seenAt)) {
+            return new Change(group, 0, false);
+        }
+        group.setRead(true);
+        return new Change(group, -1, true);
+    }
+
+    private static boolean seenAt(Notification group, Date seenAt) {
+        return seenAt == null || group.getCreatedAt() == null || !group.getCreatedAt().after(seenAt);
+    }
+
+    private static boolean covered(Notification group, Date lastReadAt) {
+        return lastReadAt != null && group.getCreatedAt() != null && !group.getCreatedAt().after(lastReadAt);
+    }
+
+    /**
+     * "alice and 9,999 others liked your post"
+     */
+    public static String summary(Notification group) {
+        String actor = group.getFromUsername() != null ? "@" + group.getFromUsername() : "Someone";
+        long others = group.getCount() - 1;
+        if (others == 1) {
+            actor += " and 1 other";
+        } else if (others > 1) {
+            actor += " and " + NumberFormat.getIntegerInstance(Locale.US).format(others) + " others";
+        }
+        return actor + " " + verb(group.getType());
+    }
+
+    private static String verb(String type) {
+        if ("like".equals(type)) {
+            return "liked your post";
+        } else if ("retweet".equals(type)) {
+            return "retweeted your post";
+        } else if ("comment".equals(type)) {
+            return "commented on your post";
+        } else if ("follow".equals(type)) {
+            return "followed you";
+        } else if ("new_post".equals(type)) {
+            return "posted";
+        }
+        return "interacted with you";
+    }
+
+    /**
+     * What to write back: the group, how much the unread counter moves, and
+     * whether anything changed at all
+     */
+    public static class Change {
+        public final Notification group;
+        public final int unreadDelta;
+        public final boolean changed;
+
+        Change(Notification group, int unreadDelta, boolean changed) {
+            this.group = group;
+            this.unreadDelta = unreadDelta;
+            this.changed = changed;
+        }
+    }
+}
@@ -2,41 +2,124 @@ package com.nexuspulse.app.repository;
 
 import android.util.Log;
 
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
 import com.nexuspulse.app.models.Notification;
 import com.nexuspulse.app.utils.Constants;
 
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Notifications are stored grouped (see {@link NotificationGroups}): one
+ * document per type, post and day under
+ * notifications/{uid}/userNotifications, with the distinct actors under
+ * its actors subcollection. notifications/{uid} holds unreadCount, the
+ * number of unread groups, so the badge is a single small read, and
+ * lastReadAt, the watermark {@link #markAllRead} moves.
+ *
+ * New events never touch notifications/{uid} inside their transaction,
+ * which only reads and writes the group and its actor: lastReadAt is read
+ * just before it, and the badge moves by a blind increment after it
+ * commits. A markAllRead landing in between can leave the badge one off
+ * until the next markAllRead. Marking a single group read is rare enough
+ * to keep reading notifications/{uid} in its transaction, so it retries
+ * if the watermark moves under it.
+ */
 public class NotificationRepository {
     private static final String TAG = "NotificationRepository";
+    private static final String FIELD_UNREAD_COUNT = "unreadCount";
+    private static final String FIELD_LAST_READ_AT = "lastReadAt";
+
+    public static final int PAGE_SIZE = 50;
+
     private final FirebaseFirestore db;
+    private final LocalStore localStore;
 
     public NotificationRepository() {
         this.db = FirebaseFirestore.getInstance();
+        this.localStore = LocalStore.getInstance();
+    }
+
+    private DocumentReference owner(String userId) {
+        return db.collection(Constants.COLLECTION_NOTIFICATIONS).document(userId);
+    }
+
+    private CollectionReference groups(String userId) {
+        return owner(userId).collection(Constants.SUBCOLLECTION_USER_NOTIFICATIONS);
+    }
+
+    private static Map<String, Object> unreadDelta(long delta) {
+        Map<String, Object> data = new HashMap<>();
+        data.put(FIELD_UNREAD_COUNT, FieldValue.increment(delta));
+        return data;
     }
 
     /**
-     * Create a new notification
+     * Notify targetUserId of notification, folded into the group of its
+     * type, post and day. A user acting again on the same post (unlike, then
+     * like) only moves the group up; the group turning unread adds one to
+     * the badge.
      */
     public void createNotification(String targetUserId, Notification notification, OnNotificationCreatedListener listener) {
-        String notificationId = db.collection(Constants.COLLECTION_NOTIFICATIONS)
-                .document(targetUserId)
-                .collection("userNotifications")
-                .document().getId();
-
-        notification.setNotificationId(notificationId);
-
-        db.collection(Constants.COLLECTION_NOTIFICATIONS)
-                .document(targetUserId)
-                .collection("userNotifications")
-                .document(notificationId)
-                .set(notification)
+        if (targetUserId.equals(notification.getFromUserId())) {
+            listener.onSuccess();
+            return;
+        }
+        long eventMillis = notification.getCreatedAt() != null
+                ? notification.getCreatedAt().getTime() : System.currentTimeMillis();
+        String groupId = NotificationGroups.groupId(notification.getType(), notification.getPostId(), eventMillis);
+        DocumentReference groupRef = groups(targetUserId).document(groupId);
+        DocumentReference actorRef = notification.getFromUserId() != null
+                ? groupRef.collection(Constants.SUBCOLLECTION_NOTIFICATION_ACTORS).document(notification.getFromUserId())
+                : null;
+
+        // The owner document stays out of the transaction: every event on a
+        // busy post would otherwise read it and, on a new unread group, write
+        // it, so it would be as hot as the group itself
+        owner(targetUserId).get()
+                .continueWithTask(ownerRead -> {
+                    Date lastReadAt = ownerRead.getResult().getDate(FIELD_LAST_READ_AT);
+                    return db.runTransaction(transaction -> {
+                        DocumentSnapshot groupDoc = transaction.get(groupRef);
+                        boolean repeatActor = actorRef != null && transaction.get(actorRef).exists();
+                        Notification group = groupDoc.exists() ? groupDoc.toObject(Notification.class) : null;
+
+                        NotificationGroups.Change change = NotificationGroups.onEvent(group, notification, groupId,
+                                repeatActor, lastReadAt);
+                        if (!change.changed) {
+                            return 0;
+                        }
+                        transaction.set(groupRef, change.group);
+                        if (actorRef != null && !repeatActor) {
+                            Map<String, Object> actor = new HashMap<>();
+                            actor.put("userId", notification.getFromUserId());
+                            actor.put("createdAt", FieldValue.serverTimestamp());
+                            transaction.set(actorRef, actor);
+                        }
+                        return change.unreadDelta;
+                    });
+                })
+                .continueWithTask(committed -> {
+                    int delta = committed.getResult();
+                    if (delta == 0) {
+                        return Tasks.<Void>forResult(null);
+                    }
+                    return owner(targetUserId).set(unreadDelta(delta), SetOptions.merge());
+                })
                 .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Notification created successfully");
+                    Log.d(TAG, "Notification " + groupId + " updated");
                     listener.onSuccess();
                 })
                 .addOnFailureListener(e -> {
@@ -46,23 +129,75 @@ public class NotificationRepository {
     }
 
     /**
-     * Get notifications for a user
+     * Tell the author of postId that actorId liked, retweeted or commented
+     * on it (type is the notification type). Runs in the background; a
+     * failure is only logged.
+     */
+    public void notifyPostAuthor(String type, String postId, String actorId) {
+        Task<DocumentSnapshot> post = db.collection(Constants.COLLECTION_POSTS).document(postId).get();
+        Task<DocumentSnapshot> actor = db.collection(Constants.COLLECTION_USERS).document(actorId).get();
+        Tasks.whenAllSuccess(post, actor)
+                .addOnSuccessListener(results -> {
+                    String authorId = post.getResult().getString("userId");
+                    if (authorId != null) {
+                        createNotification(authorId, event(type, postId, actorId, actor.getResult()), logOnly(type));
+                    }
+                })
+                .addOnFailureListener(e -> Log.e(TAG, "Error notifying author of " + postId, e));
+    }
+
+    /**
+     * Tell followeeId that actorId followed them; in the background, like
+     * {@link #notifyPostAuthor}
+     */
+    public void notifyFollowed(String followeeId, String actorId) {
+        db.collection(Constants.COLLECTION_USERS).document(actorId).get()
+                .addOnSuccessListener(actor ->
+                        createNotification(followeeId, event("follow", null, actorId, actor), logOnly("follow")))
+                .addOnFailureListener(e -> Log.e(TAG, "Error notifying " + followeeId + " of follow", e));
+    }
+
+    private static Notification event(String type, String postId, String actorId, DocumentSnapshot actor) {
+        Notification event = new Notification(null, type, actorId, actor.getString("username"),
+                actor.getString("profileImageUrl"), null);
+        event.setPostId(postId);
+        return event;
+    }
+
+    private static OnNotificationCreatedListener logOnly(String type) {
+        return new OnNotificationCreatedListener() {
+            @Override
+            public void onSuccess() {}
+
+            @Override
+            public void onFailure(String error) {
+                Log.e(TAG, "Error creating " + type + " notification: " + error);
+            }
+        };
+    }
+
+    /**
+     * Get the latest notification groups for a user
      */
     public void getUserNotifications(String userId, OnNotificationsListFetchedListener listener) {
-        db.collection(Constants.COLLECTION_NOTIFICATIONS)
-                .document(userId)
-                .collection("userNotifications")
+        Task<DocumentSnapshot> ownerRead = owner(userId).get();
+        Task<QuerySnapshot> latest = groups(userId)
                 .orderBy("createdAt", Query.Direction.DESCENDING)
-                .limit(50)
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
+                .limit(PAGE_SIZE)
+                .get();
+        Tasks.whenAllSuccess(ownerRead, latest)
+                .addOnSuccessListener(results -> {
                     List<Notification> notifications = new ArrayList<>();
-                    for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
+                    for (DocumentSnapshot doc : latest.getResult().getDocuments()) {
                         Notification notification = doc.toObject(Notification.class);
                         if (notification != null) {
+                            notification.setNotificationId(doc.getId());
                             notifications.add(notification);
                         }
                     }
+                    NotificationGroups.applyWatermark(notifications,
+                            ownerRead.getResult().getDate(FIELD_LAST_READ_AT));
+                    localStore.saveNotifications(userId, notifications);
                     listener.onSuccess(notifications);
                 })
                 .addOnFailureListener(e -> {
@@ -71,21 +206,68 @@ public class NotificationRepository {
                 });
     }
 
+    /**
+     * Notifications as last saved on this device, newest first
+     */
+    public void getCachedNotifications(String userId, OnNotificationsListFetchedListener listener) {
+        localStore.loadNotifications(userId, listener::onSuccess);
+    }
+
+    /**
+     * Number of unread notification groups, for the badge
+     */
+    public void getUnreadCount(String userId, OnUnreadCountListener listener) {
+        owner(userId).get()
+                .addOnSuccessListener(doc -> {
+                    Long unread = doc.getLong(FIELD_UNREAD_COUNT);
+                    listener.onSuccess(unread != null ? Math.max(0, unread) : 0);
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error fetching unread count", e);
+                    listener.onFailure(e.getMessage());
+                });
+    }
+
     /**
      * Mark notification as read
      */
     public void markAsRead(String userId, String notificationId, OnUpdateListener listener) {
-        db.collection(Constants.COLLECTION_NOTIFICATIONS)
-                .document(userId)
-                .collection("userNotifications")
-                .document(notificationId)
-                .update("isRead", true)
+        DocumentReference groupRef = groups(userId).document(notificationId);
+        db.runTransaction(transaction -> {
+                    Date lastReadAt = transaction.get(owner(userId)).getDate(FIELD_LAST_READ_AT);
+                    DocumentSnapshot doc = transaction.get(groupRef);
+                    Notification group = doc.exists() ? doc.toObject(Notification.class) : null;
+                    NotificationGroups.Change change = NotificationGroups.onRead(group, null, lastReadAt);
+                    if (change.changed) {
+                        transaction.update(groupRef, "isRead", true);
+                        transaction.set(owner(userId), unreadDelta(change.unreadDelta), SetOptions.merge());
+                    }
+                    return null;
+                })
+                .addOnSuccessListener(aVoid -> listener.onSuccess())
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error marking notification as read", e);
+                    listener.onFailure(e.getMessage());
+                });
+    }
+
+    /**
+     * Mark every notification delivered so far as read: one write that moves
+     * the owner's lastReadAt watermark to the server's commit time and zeroes
+     * the badge, however many groups are unread. Events committed after it
+     * count as unread again.
+     */
+    public void markAllRead(String userId, OnUpdateListener listener) {
+        Map<String, Object> data = new HashMap<>();
+        data.put(FIELD_LAST_READ_AT, FieldValue.serverTimestamp());
+        data.put(FIELD_UNREAD_COUNT, 0);
+        owner(userId).set(data, SetOptions.merge())
                 .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Notification marked as read");
+                    Log.d(TAG, "Marked all notifications as read");
                     listener.onSuccess();
                 })
                 .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error marking notification as read", e);
+                    Log.e(TAG, "Error marking all notifications as read", e);
                     listener.onFailure(e.getMessage());
                 });
     }
@@ -101,6 +283,11 @@ public class NotificationRepository {
         void onFailure(String error);
     }
 
+    public interface OnUnreadCountListener {
+        void onSuccess(long unreadCount);
+        void onFailure(String error);
+    }
+
     public interface OnUpdateListener {
         void onSuccess();
         void onFailure(String error);
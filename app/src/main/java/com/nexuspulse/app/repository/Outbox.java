@@ -0,0 +1,269 @@
+package com.nexuspulse.app.repository;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.WorkRequest;
+
+import com.nexuspulse.app.database.OutboxDao;
+import com.nexuspulse.app.database.OutboxDatabase;
+import com.nexuspulse.app.database.OutboxEntity;
+import com.nexuspulse.app.utils.Constants;
+import com.nexuspulse.app.utils.ParallelBatch;
+import com.nexuspulse.app.utils.SupabaseClient;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Durable queue for the user's own writes: posts, comments, likes,
+ * retweets, follows and profile edits.
+ *
+ * A write is stored in Room and the caller is answered as soon as the row
+ * is on disk; {@link OutboxWorker} then sends everything queued once the
+ * device is online, retrying with backoff and surviving process death.
+ * Picked images are staged into app storage at enqueue time, because the
+ * picker's URI grant does not outlive the screen. The images of one post
+ * are staged, and later uploaded, side by side on a small bounded pool.
+ */
+public class Outbox {
+    private static final String TAG = "Outbox";
+    private static final String WORK_NAME = "outbox-flush";
+    private static final String STAGING_DIR = "outbox";
+
+    // Payload keys holding staged image files rather than document fields
+    static final String KEY_IMAGE_FILE = "imageFile";
+    static final String KEY_IMAGE_FILES = "imageFiles";
+    static final String KEY_PROFILE_IMAGE_FILE = "profileImageFile";
+    static final String KEY_COVER_IMAGE_FILE = "coverImageFile";
+
+    private static Outbox instance;
+
+    private final Context context;
+    private final OutboxDao dao;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    // Encodes and uploads; one thread per image a post can hold
+    private final ExecutorService imageExecutor = Executors.newFixedThreadPool(Constants.MAX_POST_IMAGES);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    public static synchronized void init(Context context) {
+        if (instance == null) {
+            instance = new Outbox(context.getApplicationContext());
+            // Pick up whatever an earlier process left behind
+            instance.scheduleFlush();
+        }
+    }
+
+    public static synchronized Outbox getInstance() {
+        if (instance == null) {
+            throw new IllegalStateException("Outbox.init() has not been called");
+        }
+        return instance;
+    }
+
+    private Outbox(Context context) {
+        this.context = context;
+        this.dao = OutboxDatabase.getInstance(context).outboxDao();
+    }
+
+    OutboxDao dao() {
+        return dao;
+    }
+
+    ExecutorService imageExecutor() {
+        return imageExecutor;
+    }
+
+    /**
+     * Build a row on the outbox thread (staging images as needed), store it
+     * and schedule a flush. The listener answers on the main thread.
+     */
+    public void enqueue(RowBuilder builder, OnQueuedListener listener) {
+        executor.execute(() -> {
+            try {
+                OutboxEntity row = builder.build();
+                row.id = dao.insert(row);
+                Log.d(TAG, "Queued " + row.type + " #" + row.id);
+                scheduleFlush();
+                mainHandler.post(listener::onQueued);
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Error queuing write", e);
+                mainHandler.post(() -> listener.onFailure(e.getMessage()));
+            }
+        });
+    }
+
+    /**
+     * Drop everything userId queued that has not been sent, with its staged
+     * images, so nothing goes out under the next account after sign-out
+     */
+    public void discard(String userId) {
+        executor.execute(() -> {
+            List<Long> ids = new ArrayList<>();
+            for (OutboxEntity row : dao.getPending()) {
+                if (userId != null && userId.equals(row.userId)) {
+                    deleteStagedFiles(row);
+                    ids.add(row.id);
+                }
+            }
+            if (!ids.isEmpty()) {
+                dao.delete(ids);
+                Log.d(TAG, "Discarded " + ids.size() + " unsent writes of " + userId);
+            }
+        });
+    }
+
+    /**
+     * Copy a picked image into outbox storage, re-encoded for its bucket
+     */
+    File stageImage(Uri imageUri, String bucketName) throws IOException {
+        return SupabaseClient.stageImage(context, imageUri, bucketName, new File(context.getFilesDir(), STAGING_DIR));
+    }
+
+    /**
+     * Stage several images at once, in order. If any cannot be read the
+     * ones already staged are deleted and nothing is queued.
+     */
+    List<String> stageImages(List<Uri> imageUris, String bucketName) throws IOException {
+        List<File> files;
+        try {
+            files = ParallelBatch.run(imageExecutor, imageUris, 1, uri -> stageImage(uri, bucketName));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while staging images");
+        }
+        List<String> paths = new ArrayList<>();
+        for (File file : files) {
+            if (file != null) {
+                paths.add(file.getAbsolutePath());
+            }
+        }
+        if (paths.size() < imageUris.size()) {
+            for (String path : paths) {
+                new File(path).delete();
+            }
+            throw new IOException("Could not read " + (imageUris.size() - paths.size()) + " of the images");
+        }
+        return paths;
+    }
+
+    /**
+     * Ask WorkManager for a flush unless one is already waiting to start.
+     * A flush that is already running re-reads the table before it stops,
+     * but a row queued after that last read needs a run of its own.
+     */
+    private void scheduleFlush() {
+        if (!flushScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(OutboxWorker.class)
+                .setConstraints(new Constraints.Builder()
+                        .setRequiredNetworkType(NetworkType.CONNECTED)
+                        .build())
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL,
+                        WorkRequest.MIN_BACKOFF_MILLIS, TimeUnit.MILLISECONDS)
+                .build();
+        WorkManager.getInstance(context)
+                .enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.APPEND_OR_REPLACE, request);
+    }
+
+    void onFlushStarted() {
+        flushScheduled.set(false);
+    }
+
+    /**
+     * Delete the staged images named in a row's payload
+     */
+    static void deleteStagedFiles(Map<String, Object> payload) {
+        if (payload == null) {
+            return;
+        }
+        for (String key : new String[]{Outbox.KEY_IMAGE_FILE, Outbox.KEY_PROFILE_IMAGE_FILE,
+                Outbox.KEY_COVER_IMAGE_FILE}) {
+            Object path = payload.get(key);
+            if (path != null) {
+                new File((String) path).delete();
+            }
+        }
+        Object paths = payload.get(Outbox.KEY_IMAGE_FILES);
+        if (paths instanceof List) {
+            for (Object path : (List<?>) paths) {
+                new File((String) path).delete();
+            }
+        }
+    }
+
+    static void deleteStagedFiles(OutboxEntity row) {
+        if (row.payload == null) {
+            return;
+        }
+        try {
+            deleteStagedFiles(fromJson(row.payload));
+        } catch (JSONException e) {
+            Log.e(TAG, "Unreadable payload in #" + row.id, e);
+        }
+    }
+
+    static String toJson(Map<String, Object> data) {
+        return new JSONObject(data).toString();
+    }
+
+    static Map<String, Object> fromJson(String json) throws JSONException {
+        JSONObject object = new JSONObject(json);
+        Map<String, Object> data = new HashMap<>();
+        Iterator<String> keys = object.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            data.put(key, unwrap(object.get(key)));
+        }
+        return data;
+    }
+
+    private static Object unwrap(Object value) throws JSONException {
+        if (value == JSONObject.NULL) {
+            return null;
+        }
+        if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            List<Object> list = new ArrayList<>();
+            for (int i = 0; i < array.length(); i++) {
+                list.add(unwrap(array.get(i)));
+            }
+            return list;
+        }
+        return value;
+    }
+
+    public interface RowBuilder {
+        OutboxEntity build() throws IOException;
+    }
+
+    // Callback Interfaces
+    public interface OnQueuedListener {
+        void onQueued();
+        void onFailure(String error);
+    }
+}
@@ -0,0 +1,82 @@
+package com.nexuspulse.app.repository;
+
+import com.nexuspulse.app.database.OutboxEntity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decides what one outbox flush sends. Toggles of the same thing collapse
+ * to the last one queued (like, unlike, like is a single like), and the
+ * rest is cut into WriteBatch-sized groups in queue order, so a comment
+ * never commits ahead of the post it belongs to.
+ */
+class OutboxPlanner {
+
+    static class Plan {
+        // Rows made redundant by a later toggle of the same thing
+        final List<OutboxEntity> superseded = new ArrayList<>();
+        final List<List<OutboxEntity>> batches = new ArrayList<>();
+
+        int writeCount() {
+            int writes = 0;
+            for (List<OutboxEntity> batch : batches) {
+                for (OutboxEntity row : batch) {
+                    writes += writesFor(row);
+                }
+            }
+            return writes;
+        }
+    }
+
+    /**
+     * Plan a flush of pending (in queue order) with at most
+     * maxWritesPerBatch document writes per batch
+     */
+    static Plan plan(List<OutboxEntity> pending, int maxWritesPerBatch) {
+        Map<String, Long> latest = new HashMap<>();
+        for (OutboxEntity row : pending) {
+            if (row.coalesceKey != null) {
+                latest.put(row.coalesceKey, row.id);
+            }
+        }
+
+        Plan plan = new Plan();
+        List<OutboxEntity> batch = new ArrayList<>();
+        int writes = 0;
+        for (OutboxEntity row : pending) {
+            if (row.coalesceKey != null && latest.get(row.coalesceKey) != row.id) {
+                plan.superseded.add(row);
+                continue;
+            }
+            int rowWrites = writesFor(row);
+            if (!batch.isEmpty() && writes + rowWrites > maxWritesPerBatch) {
+                plan.batches.add(batch);
+                batch = new ArrayList<>();
+                writes = 0;
+            }
+            batch.add(row);
+            writes += rowWrites;
+        }
+        if (!batch.isEmpty()) {
+            plan.batches.add(batch);
+        }
+        return plan;
+    }
+
+    /**
+     * Most documents a row writes: the document itself plus its counters
+     */
+    static int writesFor(OutboxEntity row) {
+        switch (row.type) {
+            case OutboxEntity.TYPE_FOLLOW:
+                return 3;
+            case OutboxEntity.TYPE_UPDATE_PROFILE:
+                return 1;
+            default:
+                return 2;
+        }
+    }
+}
@@ -0,0 +1,567 @@
+package com.nexuspulse.app.repository;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+import com.google.firebase.firestore.Source;
+import com.google.firebase.firestore.WriteBatch;
+import com.nexuspulse.app.database.OutboxDao;
+import com.nexuspulse.app.database.OutboxEntity;
+import com.nexuspulse.app.utils.Constants;
+import com.nexuspulse.app.utils.ParallelBatch;
+import com.nexuspulse.app.utils.SupabaseClient;
+import com.nexuspulse.app.utils.UploadRejectedException;
+
+import org.json.JSONException;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Sends everything in the {@link Outbox}. Each planned batch is prepared
+ * (staged images uploaded), checked against the server and committed as
+ * one WriteBatch; its rows are deleted only after the commit succeeds.
+ * The images of a post upload in parallel, and a post is only written
+ * once all of them are up; those that made it are remembered, so the
+ * next attempt uploads just the ones that failed.
+ *
+ * Failures are kept to the row that caused them: a row that cannot be
+ * prepared or checked is left out of its batch, and a batch the server
+ * refuses is bisected down to the refused row. Only that row's attempts
+ * go up; rows that were refused for good are dropped at once. When the
+ * device is offline nothing is counted and the flush just stops.
+ *
+ * Unsent rows are retried by WorkManager with backoff, so a row can be
+ * sent twice when a commit succeeded but the process died before its row
+ * was deleted. The guard read makes that harmless: a create whose
+ * document exists, or a toggle already in its final state, is skipped, so
+ * counters never move twice.
+ */
+public class OutboxWorker extends Worker {
+    private static final String TAG = "OutboxWorker";
+
+    // Failed flushes a row survives before it is dropped
+    static final int MAX_ATTEMPTS = 10;
+    // Tries per image within one flush before the row waits for the next
+    static final int IMAGE_UPLOAD_ATTEMPTS = 3;
+
+    private final FirebaseFirestore db;
+    private final PostRepository postRepository;
+    private final CommentRepository commentRepository;
+    private final ReactionRepository reactionRepository;
+    private final UserRepository userRepository;
+    private final NotificationRepository notificationRepository;
+
+    public OutboxWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+        this.db = FirebaseFirestore.getInstance();
+        this.postRepository = new PostRepository();
+        this.commentRepository = new CommentRepository();
+        this.reactionRepository = new ReactionRepository();
+        this.userRepository = new UserRepository();
+        this.notificationRepository = new NotificationRepository();
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Outbox outbox = Outbox.getInstance();
+        OutboxDao dao = outbox.dao();
+        outbox.onFlushStarted();
+
+        while (true) {
+            FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+            if (user == null) {
+                // Signed out; the rows wait for their owner or are discarded at sign-out
+                return Result.success();
+            }
+            List<OutboxEntity> pending = ownRows(dao, user.getUid());
+            if (pending.isEmpty()) {
+                return Result.success();
+            }
+
+            OutboxPlanner.Plan plan = OutboxPlanner.plan(pending, Constants.MAX_BATCH_WRITES);
+            if (!plan.superseded.isEmpty()) {
+                Log.d(TAG, "Dropping " + plan.superseded.size() + " superseded toggles");
+                dao.delete(ids(plan.superseded));
+            }
+            Log.d(TAG, "Flushing " + pending.size() + " queued writes in " + plan.batches.size() + " batches");
+
+            // Targets of rows that failed this flush; rows that build on them wait
+            Set<String> failedTargets = new HashSet<>();
+            boolean complete = true;
+            try {
+                for (List<OutboxEntity> batch : plan.batches) {
+                    complete &= send(dao, batch, failedTargets);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Result.retry();
+            } catch (Exception e) {
+                // Offline: nothing is counted against the rows
+                Log.e(TAG, "Error flushing outbox", e);
+                return Result.retry();
+            }
+            if (!complete) {
+                return Result.retry();
+            }
+        }
+    }
+
+    /**
+     * Pending rows queued by userId. Rows of any other account are dropped,
+     * so a write is never sent with the wrong user's credentials.
+     */
+    private static List<OutboxEntity> ownRows(OutboxDao dao, String userId) {
+        List<OutboxEntity> own = new ArrayList<>();
+        List<Long> foreign = new ArrayList<>();
+        for (OutboxEntity row : dao.getPending()) {
+            if (userId.equals(row.userId)) {
+                own.add(row);
+            } else {
+                Log.e(TAG, "Dropping " + row.type + " #" + row.id + " queued by another account");
+                Outbox.deleteStagedFiles(row);
+                foreign.add(row.id);
+            }
+        }
+        if (!foreign.isEmpty()) {
+            dao.delete(foreign);
+        }
+        return own;
+    }
+
+    /**
+     * Send one planned batch. Rows are prepared and checked one at a time,
+     * and a row that fails is left out instead of failing its neighbours.
+     * Rows that depend on one that failed, such as a comment on a post that
+     * did not go out, wait for the next flush.
+     *
+     * @return whether every row was either sent or dropped for good
+     * @throws Exception only when the device is offline or the flush was interrupted
+     */
+    private boolean send(OutboxDao dao, List<OutboxEntity> batch, Set<String> failedTargets) throws Exception {
+        boolean complete = true;
+        List<OutboxEntity> rows = new ArrayList<>();
+        List<Map<String, Object>> payloads = new ArrayList<>();
+        for (OutboxEntity row : batch) {
+            try {
+                Map<String, Object> payload = row.payload != null ? Outbox.fromJson(row.payload) : null;
+                if (dependsOnFailed(row, payload, failedTargets)) {
+                    complete = false;
+                    continue;
+                }
+                prepare(dao, row, payload);
+                rows.add(row);
+                payloads.add(payload);
+            } catch (InterruptedException e) {
+                throw e;
+            } catch (Exception e) {
+                rethrowIfOffline(e);
+                fail(dao, row, e, failedTargets);
+                complete = false;
+            }
+        }
+
+        List<Task<DocumentSnapshot>> guards = new ArrayList<>();
+        List<Task<DocumentSnapshot>> reads = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            DocumentReference guard = guardRef(rows.get(i), payloads.get(i));
+            Task<DocumentSnapshot> read = guard != null ? guard.get(Source.SERVER) : null;
+            guards.add(read);
+            if (read != null) {
+                reads.add(read);
+            }
+        }
+        Tasks.await(Tasks.whenAllComplete(reads));
+
+        List<OutboxEntity> toWrite = new ArrayList<>();
+        List<Map<String, Object>> toWritePayloads = new ArrayList<>();
+        List<OutboxEntity> alreadySent = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            OutboxEntity row = rows.get(i);
+            Task<DocumentSnapshot> guard = guards.get(i);
+            if (guard != null && !guard.isSuccessful()) {
+                rethrowIfOffline(guard.getException());
+                fail(dao, row, guard.getException(), failedTargets);
+                complete = false;
+            } else if (guard != null && alreadyApplied(row, guard.getResult().exists())) {
+                Log.d(TAG, "Skipping " + row.type + " #" + row.id + ", already on the server");
+                if (isReaction(row)) {
+                    reactionRepository.onReactionApplied(row.type, row.targetId, row.userId, row.enabled);
+                }
+                Outbox.deleteStagedFiles(payloads.get(i));
+                alreadySent.add(row);
+            } else {
+                toWrite.add(row);
+                toWritePayloads.add(payloads.get(i));
+            }
+        }
+        if (!alreadySent.isEmpty()) {
+            dao.delete(ids(alreadySent));
+        }
+        return commit(dao, toWrite, toWritePayloads, failedTargets) && complete;
+    }
+
+    /**
+     * Commit rows as one WriteBatch. When the server refuses it, the rows
+     * are split in halves and committed again until the refused row is
+     * found, so only that row is counted or dropped.
+     */
+    private boolean commit(OutboxDao dao, List<OutboxEntity> rows, List<Map<String, Object>> payloads,
+                           Set<String> failedTargets) throws Exception {
+        if (rows.isEmpty()) {
+            return true;
+        }
+        WriteBatch batch = db.batch();
+        for (int i = 0; i < rows.size(); i++) {
+            addWrites(batch, rows.get(i), payloads.get(i));
+        }
+        try {
+            Tasks.await(batch.commit());
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            rethrowIfOffline(e);
+            if (rows.size() == 1) {
+                fail(dao, rows.get(0), e, failedTargets);
+                return false;
+            }
+            int half = rows.size() / 2;
+            boolean complete = commit(dao, rows.subList(0, half), payloads.subList(0, half), failedTargets);
+            List<OutboxEntity> rest = new ArrayList<>();
+            List<Map<String, Object>> restPayloads = new ArrayList<>();
+            for (int i = half; i < rows.size(); i++) {
+                if (dependsOnFailed(rows.get(i), payloads.get(i), failedTargets)) {
+                    complete = false;
+                } else {
+                    rest.add(rows.get(i));
+                    restPayloads.add(payloads.get(i));
+                }
+            }
+            return commit(dao, rest, restPayloads, failedTargets) && complete;
+        }
+
+        for (int i = 0; i < rows.size(); i++) {
+            onApplied(rows.get(i), payloads.get(i));
+            Outbox.deleteStagedFiles(payloads.get(i));
+        }
+        dao.delete(ids(rows));
+        return true;
+    }
+
+    /**
+     * Upload a row's staged images. The URLs are saved back to the row so a
+     * retry does not upload again.
+     */
+    private void prepare(OutboxDao dao, OutboxEntity row, Map<String, Object> payload)
+            throws IOException, JSONException, InterruptedException {
+        if (payload == null) {
+            return;
+        }
+        int missing = uploadStagedList(payload, Outbox.KEY_IMAGE_FILES, "imageUrls", row.userId,
+                SupabaseClient.BUCKET_POST);
+        if (missing > 0) {
+            // Keep the images that did upload for the retry
+            row.payload = Outbox.toJson(payload);
+            dao.update(row);
+            throw new IOException(missing + " post images failed to upload");
+        }
+        boolean uploaded = missing == 0;
+        uploaded |= uploadStaged(payload, Outbox.KEY_IMAGE_FILE, "imageUrl",
+                row.userId, SupabaseClient.BUCKET_POST);
+        uploaded |= uploadStaged(payload, Outbox.KEY_PROFILE_IMAGE_FILE, "profileImageUrl",
+                row.userId, SupabaseClient.BUCKET_PROFILE);
+        uploaded |= uploadStaged(payload, Outbox.KEY_COVER_IMAGE_FILE, "coverImageUrl",
+                row.userId, SupabaseClient.BUCKET_COVER);
+        if (uploaded) {
+            row.payload = Outbox.toJson(payload);
+            dao.update(row);
+        }
+    }
+
+    private boolean uploadStaged(Map<String, Object> payload, String fileKey, String urlField,
+                                 String userId, String bucketName) throws IOException {
+        Object path = payload.get(fileKey);
+        // A URL next to the file means an earlier attempt already uploaded it
+        if (path == null || payload.get(urlField) != null) {
+            return false;
+        }
+        File file = new File((String) path);
+        if (!file.exists()) {
+            throw new FileNotFoundException("Staged image is gone: " + file);
+        }
+        String url = SupabaseClient.uploadStagedImage(file, userId, bucketName);
+        if (url == null) {
+            throw new IOException("Upload of " + file.getName() + " failed");
+        }
+        payload.put(urlField, url);
+        return true;
+    }
+
+    /**
+     * Upload the staged files listed under fileKey that have no URL yet at
+     * the same index of urlField, in parallel. The first URL also goes to
+     * imageUrl for readers that only know single-image posts.
+     *
+     * @return how many are still missing, or -1 if there was nothing to upload
+     */
+    private int uploadStagedList(Map<String, Object> payload, String fileKey, String urlField,
+                                 String userId, String bucketName) throws IOException, InterruptedException {
+        Object value = payload.get(fileKey);
+        if (!(value instanceof List)) {
+            return -1;
+        }
+        List<?> paths = (List<?>) value;
+        List<Object> urls = new ArrayList<>();
+        if (payload.get(urlField) instanceof List) {
+            urls.addAll((List<?>) payload.get(urlField));
+        }
+        while (urls.size() < paths.size()) {
+            urls.add(null);
+        }
+
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < paths.size(); i++) {
+            if (urls.get(i) == null) {
+                File file = new File((String) paths.get(i));
+                if (!file.exists()) {
+                    throw new FileNotFoundException("Staged image is gone: " + file);
+                }
+                pending.add(i);
+            }
+        }
+        if (pending.isEmpty()) {
+            return -1;
+        }
+
+        List<String> results = ParallelBatch.run(Outbox.getInstance().imageExecutor(), pending,
+                IMAGE_UPLOAD_ATTEMPTS, i -> SupabaseClient.uploadStagedImage(new File((String) paths.get(i)),
+                        userId, bucketName));
+
+        int missing = 0;
+        for (int j = 0; j < pending.size(); j++) {
+            urls.set(pending.get(j), results.get(j));
+            if (results.get(j) == null) {
+                missing++;
+            }
+        }
+        payload.put(urlField, urls);
+        if (urls.get(0) != null) {
+            payload.put("imageUrl", urls.get(0));
+        }
+        Log.d(TAG, "Uploaded " + (pending.size() - missing) + " of " + pending.size() + " images");
+        return missing;
+    }
+
+    /**
+     * Document whose existence tells whether the row already reached the server
+     */
+    private DocumentReference guardRef(OutboxEntity row, Map<String, Object> payload) {
+        switch (row.type) {
+            case OutboxEntity.TYPE_CREATE_POST:
+                return db.collection(Constants.COLLECTION_POSTS).document(row.targetId);
+            case OutboxEntity.TYPE_CREATE_COMMENT:
+                return commentRepository.commentRef((String) payload.get("postId"), row.targetId);
+            case OutboxEntity.TYPE_LIKE:
+            case OutboxEntity.TYPE_RETWEET:
+                return reactionRepository.reactionRef(row.type, row.targetId, row.userId);
+            case OutboxEntity.TYPE_FOLLOW:
+                return userRepository.followEdgeRef(row.userId, row.targetId);
+            default:
+                // Profile edits are a plain merge and safe to repeat
+                return null;
+        }
+    }
+
+    private static boolean alreadyApplied(OutboxEntity row, boolean guardExists) {
+        if (OutboxEntity.TYPE_CREATE_POST.equals(row.type) || OutboxEntity.TYPE_CREATE_COMMENT.equals(row.type)) {
+            return guardExists;
+        }
+        return guardExists == row.enabled;
+    }
+
+    private void addWrites(WriteBatch batch, OutboxEntity row, Map<String, Object> payload) {
+        switch (row.type) {
+            case OutboxEntity.TYPE_CREATE_POST:
+                Map<String, Object> post = new HashMap<>(payload);
+                post.remove(Outbox.KEY_IMAGE_FILE);
+                post.remove(Outbox.KEY_IMAGE_FILES);
+                postRepository.addCreatePost(batch, row.targetId, row.userId, post);
+                break;
+            case OutboxEntity.TYPE_CREATE_COMMENT:
+                commentRepository.addCreateComment(batch, row.targetId, payload);
+                break;
+            case OutboxEntity.TYPE_LIKE:
+            case OutboxEntity.TYPE_RETWEET:
+                reactionRepository.addReaction(batch, row.type, row.targetId, row.userId, row.enabled);
+                break;
+            case OutboxEntity.TYPE_FOLLOW:
+                userRepository.addFollow(batch, row.userId, row.targetId, row.enabled);
+                break;
+            case OutboxEntity.TYPE_UPDATE_PROFILE:
+                Map<String, Object> updates = new HashMap<>(payload);
+                updates.remove(Outbox.KEY_PROFILE_IMAGE_FILE);
+                updates.remove(Outbox.KEY_COVER_IMAGE_FILE);
+                userRepository.addUpdateProfile(batch, row.userId, updates);
+                break;
+            default:
+                Log.e(TAG, "Unknown outbox row type: " + row.type);
+                break;
+        }
+    }
+
+    /**
+     * Follow-up work for a committed row, including the notification its
+     * target's owner gets
+     */
+    private void onApplied(OutboxEntity row, Map<String, Object> payload) {
+        switch (row.type) {
+            case OutboxEntity.TYPE_CREATE_POST:
+                postRepository.onPostCreated(row.targetId, row.userId, payload.get("hashtags"), row.createdAt);
+                break;
+            case OutboxEntity.TYPE_CREATE_COMMENT:
+                notificationRepository.notifyPostAuthor("comment", (String) payload.get("postId"), row.userId);
+                break;
+            case OutboxEntity.TYPE_LIKE:
+            case OutboxEntity.TYPE_RETWEET:
+                reactionRepository.onReactionApplied(row.type, row.targetId, row.userId, row.enabled);
+                if (row.enabled) {
+                    notificationRepository.notifyPostAuthor(row.type, row.targetId, row.userId);
+                }
+                break;
+            case OutboxEntity.TYPE_FOLLOW:
+                userRepository.onFollowApplied(row.userId, row.targetId, row.enabled);
+                if (row.enabled) {
+                    notificationRepository.notifyFollowed(row.targetId, row.userId);
+                }
+                break;
+            case OutboxEntity.TYPE_UPDATE_PROFILE:
+                userRepository.onProfileUpdated(row.userId);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Count a failure against row alone. Rows the server or their own data
+     * will never accept are dropped at once, and the rest after
+     * {@link #MAX_ATTEMPTS} failures, so one bad write cannot block the
+     * queue forever.
+     */
+    private void fail(OutboxDao dao, OutboxEntity row, Exception e, Set<String> failedTargets) {
+        Log.e(TAG, "Error sending " + row.type + " #" + row.id, e);
+        if (row.targetId != null) {
+            failedTargets.add(row.targetId);
+        }
+        if (isPermanent(e)) {
+            giveUp(dao, row, "rejected");
+            return;
+        }
+        dao.recordFailure(Collections.singletonList(row.id));
+        if (row.attempts + 1 >= MAX_ATTEMPTS) {
+            giveUp(dao, row, "failed " + MAX_ATTEMPTS + " times");
+        }
+    }
+
+    private void giveUp(OutboxDao dao, OutboxEntity row, String reason) {
+        Log.e(TAG, "Giving up on " + row.type + " #" + row.id + ", " + reason);
+        Outbox.deleteStagedFiles(row);
+        dao.delete(Collections.singletonList(row.id));
+        if (isReaction(row)) {
+            reactionRepository.onReactionDropped(row.type, row.targetId, row.userId, row.enabled, reason);
+        }
+    }
+
+    private static boolean isReaction(OutboxEntity row) {
+        return OutboxEntity.TYPE_LIKE.equals(row.type) || OutboxEntity.TYPE_RETWEET.equals(row.type);
+    }
+
+    /**
+     * Whether row builds on a document whose write failed this flush: a
+     * comment on, or reaction to, a post that did not go out
+     */
+    private static boolean dependsOnFailed(OutboxEntity row, Map<String, Object> payload, Set<String> failedTargets) {
+        if (failedTargets.isEmpty()) {
+            return false;
+        }
+        Object postId = payload != null ? payload.get("postId") : null;
+        return failedTargets.contains(row.targetId) || (postId != null && failedTargets.contains(postId));
+    }
+
+    /**
+     * Failures that retrying cannot fix: a rules denial, a document the
+     * server refuses, a staged image that was deleted or that storage
+     * rejected, an unreadable row
+     */
+    private static boolean isPermanent(Exception e) {
+        Throwable cause = unwrap(e);
+        if (cause instanceof FileNotFoundException || cause instanceof JSONException
+                || cause instanceof UploadRejectedException) {
+            return true;
+        }
+        if (cause instanceof FirebaseFirestoreException) {
+            switch (((FirebaseFirestoreException) cause).getCode()) {
+                case PERMISSION_DENIED:
+                case INVALID_ARGUMENT:
+                case FAILED_PRECONDITION:
+                case NOT_FOUND:
+                    return true;
+                default:
+                    return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stop the flush when the failure is the connection or an overloaded
+     * server rather than a row
+     */
+    private static void rethrowIfOffline(Exception e) throws Exception {
+        Throwable cause = unwrap(e);
+        if (cause instanceof FirebaseFirestoreException) {
+            switch (((FirebaseFirestoreException) cause).getCode()) {
+                case UNAVAILABLE:
+                case DEADLINE_EXCEEDED:
+                case RESOURCE_EXHAUSTED:
+                    throw e;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private static Throwable unwrap(Exception e) {
+        return e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+    }
+
+    private static List<Long> ids(List<OutboxEntity> rows) {
+        List<Long> ids = new ArrayList<>();
+        for (OutboxEntity row : rows) {
+            ids.add(row.id);
+        }
+        return ids;
+    }
+}
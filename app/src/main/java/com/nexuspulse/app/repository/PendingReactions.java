@@ -0,0 +1,236 @@
+package com.nexuspulse.app.repository;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.nexuspulse.app.database.OutboxEntity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Optimistic likes and retweets. A tap flips the reaction in
+ * {@link LikedPostsCache} at once, so the row can redraw in the same frame.
+ * The write is queued in the {@link Outbox} {@link #DEBOUNCE_MILLIS} after
+ * the last tap, for the final state only: a double tap that ends where it
+ * started queues nothing, and like/unlike/like queues one like. Taps that
+ * land after that still collapse in the outbox if it has not sent yet.
+ *
+ * The outbox reports back once the write is on the server
+ * ({@link #onSent}) or has been given up on ({@link #onDropped}). A dropped
+ * write puts the reaction back to the last state the server accepted and
+ * tells the registered listeners, so feeds can undo the row's count.
+ *
+ * Taps run on the main thread; outbox reports may come from any thread and
+ * are handled on the main thread.
+ */
+public class PendingReactions {
+    private static final String TAG = "PendingReactions";
+
+    static final long DEBOUNCE_MILLIS = 400;
+
+    private static PendingReactions instance;
+
+    private final Map<String, Pending> pending = new HashMap<>();
+    private final List<OnRolledBackListener> listeners = new ArrayList<>();
+    private final LikedPostsCache cache;
+    private final Executor mainThread;
+    private final Scheduler scheduler;
+    private final Sender sender;
+
+    public static synchronized PendingReactions getInstance() {
+        if (instance == null) {
+            Handler handler = new Handler(Looper.getMainLooper());
+            ReactionRepository reactionRepository = new ReactionRepository();
+            instance = new PendingReactions(LikedPostsCache.getInstance(), handler::post, new Scheduler() {
+                @Override
+                public void schedule(Runnable task, long delayMillis) {
+                    handler.postDelayed(task, delayMillis);
+                }
+
+                @Override
+                public void cancel(Runnable task) {
+                    handler.removeCallbacks(task);
+                }
+            }, reactionRepository::queueReaction);
+        }
+        return instance;
+    }
+
+    PendingReactions(LikedPostsCache cache, Executor mainThread, Scheduler scheduler, Sender sender) {
+        this.cache = cache;
+        this.mainThread = mainThread;
+        this.scheduler = scheduler;
+        this.sender = sender;
+    }
+
+    public void addListener(OnRolledBackListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(OnRolledBackListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Flip userId's like on postId from liked and return the new state
+     */
+    public boolean toggleLike(String postId, String userId, boolean liked) {
+        return toggle(OutboxEntity.TYPE_LIKE, postId, userId, liked);
+    }
+
+    /**
+     * Flip userId's retweet of postId from retweeted and return the new state
+     */
+    public boolean toggleRetweet(String postId, String userId, boolean retweeted) {
+        return toggle(OutboxEntity.TYPE_RETWEET, postId, userId, retweeted);
+    }
+
+    /**
+     * Whether a write for this reaction has not reached the server yet
+     */
+    boolean isPending(String type, String postId, String userId) {
+        return pending.containsKey(key(type, postId, userId));
+    }
+
+    /**
+     * The outbox committed this reaction in state on
+     */
+    void onSent(String type, String postId, String userId, boolean on) {
+        mainThread.execute(() -> {
+            String key = key(type, postId, userId);
+            Pending entry = pending.get(key);
+            if (entry == null) {
+                return;
+            }
+            entry.confirmed = on;
+            if (entry.intended == on && entry.queued == on) {
+                pending.remove(key);
+            }
+        });
+    }
+
+    /**
+     * The outbox gave up on writing this reaction in state on
+     */
+    void onDropped(String type, String postId, String userId, boolean on, String error) {
+        mainThread.execute(() -> rollBack(type, postId, userId, !on, error));
+    }
+
+    private boolean toggle(String type, String postId, String userId, boolean current) {
+        String key = key(type, postId, userId);
+        Pending entry = pending.get(key);
+        if (entry == null) {
+            entry = new Pending(key, type, postId, userId, current);
+            pending.put(key, entry);
+        }
+        entry.intended = !current;
+        setCached(type, postId, userId, entry.intended);
+
+        scheduler.cancel(entry.flush);
+        scheduler.schedule(entry.flush, DEBOUNCE_MILLIS);
+        return entry.intended;
+    }
+
+    private void flush(Pending entry) {
+        if (entry.intended == entry.queued) {
+            // The taps cancelled out; done unless an earlier write is still out
+            if (entry.queued == entry.confirmed && pending.get(entry.key) == entry) {
+                pending.remove(entry.key);
+            }
+            return;
+        }
+        boolean sending = entry.intended;
+        entry.queued = sending;
+        sender.send(entry.type, entry.postId, entry.userId, sending, new ReactionRepository.OnUpdateListener() {
+            @Override
+            public void onSuccess() {
+                // Queued; the outbox reports the outcome through onSent/onDropped
+            }
+
+            @Override
+            public void onFailure(String error) {
+                rollBack(entry.type, entry.postId, entry.userId, !sending, error);
+            }
+        });
+    }
+
+    /**
+     * Put the reaction back to the last state the server accepted, which is
+     * fallback when nothing was pending for it (a write queued before the
+     * process restarted)
+     */
+    private void rollBack(String type, String postId, String userId, boolean fallback, String error) {
+        Pending entry = pending.remove(key(type, postId, userId));
+        if (entry != null) {
+            scheduler.cancel(entry.flush);
+        }
+        boolean shown = entry != null ? entry.intended : !fallback;
+        boolean restored = entry != null ? entry.confirmed : fallback;
+        Log.e(TAG, "Reverting " + type + " on " + postId + ": " + error);
+        setCached(type, postId, userId, restored);
+        if (shown != restored) {
+            for (OnRolledBackListener listener : new ArrayList<>(listeners)) {
+                listener.onRolledBack(type, postId, restored, error);
+            }
+        }
+    }
+
+    private void setCached(String type, String postId, String userId, boolean on) {
+        if (OutboxEntity.TYPE_LIKE.equals(type)) {
+            cache.setLiked(userId, postId, on);
+        } else {
+            cache.setRetweeted(userId, postId, on);
+        }
+    }
+
+    private static String key(String type, String postId, String userId) {
+        return type + ":" + userId + ":" + postId;
+    }
+
+    private class Pending {
+        final String key;
+        final String type;
+        final String postId;
+        final String userId;
+        final Runnable flush = () -> flush(this);
+        // Last state the server accepted (or held before the first tap)
+        boolean confirmed;
+        // Last state handed to the outbox
+        boolean queued;
+        // State the user asked for last
+        boolean intended;
+
+        Pending(String key, String type, String postId, String userId, boolean confirmed) {
+            this.key = key;
+            this.type = type;
+            this.postId = postId;
+            this.userId = userId;
+            this.confirmed = confirmed;
+            this.queued = confirmed;
+            this.intended = confirmed;
+        }
+    }
+
+    interface Scheduler {
+        void schedule(Runnable task, long delayMillis);
+        void cancel(Runnable task);
+    }
+
+    interface Sender {
+        void send(String type, String postId, String userId, boolean on, ReactionRepository.OnUpdateListener listener);
+    }
+
+    // Callback Interfaces
+    public interface OnRolledBackListener {
+        /**
+         * A like or retweet (type is an {@link OutboxEntity} type) did not go
+         * through and is back to restoredState
+         */
+        void onRolledBack(String type, String postId, boolean restoredState, String error);
+    }
+}
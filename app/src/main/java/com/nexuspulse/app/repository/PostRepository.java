@@ -1,13 +1,20 @@
 package com.nexuspulse.app.repository;
 
+import android.net.Uri;
 import android.util.Log;
 
 import com.google.firebase.firestore.DocumentSnapshot;
 import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+import com.nexuspulse.app.database.OutboxEntity;
 import com.nexuspulse.app.models.Post;
+import com.nexuspulse.app.search.SearchEngine;
 import com.nexuspulse.app.utils.Constants;
+import com.nexuspulse.app.utils.PostTokenizer;
+import com.nexuspulse.app.utils.SupabaseClient;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -17,21 +24,40 @@ import java.util.Map;
 public class PostRepository {
     private static final String TAG = "PostRepository";
     private final FirebaseFirestore db;
+    private final TimelineRepository timelineRepository;
+    private final ReactionRepository reactionRepository;
+    private final HashtagRepository hashtagRepository;
+    private final LocalStore localStore;
 
     public PostRepository() {
         this.db = FirebaseFirestore.getInstance();
+        this.timelineRepository = new TimelineRepository();
+        this.reactionRepository = new ReactionRepository();
+        this.hashtagRepository = new HashtagRepository();
+        this.localStore = LocalStore.getInstance();
     }
 
     /**
      * Create a new post
      */
     public void createPost(Post post, OnPostCreatedListener listener) {
+        createPost(post, new ArrayList<>(), listener);
+    }
+
+    /**
+     * Create a new post with imageUris (up to {@link Constants#MAX_POST_IMAGES})
+     * uploaded as its images. The listener fires once the post is queued in
+     * the {@link Outbox}; it reaches the server, images included, once the
+     * device is online and every image is up.
+     */
+    public void createPost(Post post, List<Uri> imageUris, OnPostCreatedListener listener) {
+        if (imageUris.size() > Constants.MAX_POST_IMAGES) {
+            listener.onFailure("A post can have at most " + Constants.MAX_POST_IMAGES + " images");
+            return;
+        }
         String postId = db.collection(Constants.COLLECTION_POSTS).document().getId();
         post.setPostId(postId);
 
-        Log.d(TAG, "Creating post with createdAt: " + post.getCreatedAt());
-
-        // Construct a map to explicitly set server timestamp for createdAt
         Map<String, Object> postMap = new HashMap<>();
         postMap.put("postId", postId);
         postMap.put("userId", post.getUserId());
@@ -41,28 +67,74 @@ public class PostRepository {
         postMap.put("content", post.getContent());
         postMap.put("imageUrl", post.getImageUrl());
         postMap.put("hashtags", post.getHashtags());
+        postMap.put("mentions", post.getMentions());
         postMap.put("likesCount", post.getLikesCount());
         postMap.put("retweetsCount", post.getRetweetsCount());
         postMap.put("commentsCount", post.getCommentsCount());
-        postMap.put("likedBy", post.getLikedBy());
-        postMap.put("retweetedBy", post.getRetweetedBy());
-        postMap.put("createdAt", FieldValue.serverTimestamp());  // Set server timestamp here
 
-        db.collection(Constants.COLLECTION_POSTS)
-                .document(postId)
-                .set(postMap)
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Post created successfully");
-                    // Increment user's post count
-                    db.collection(Constants.COLLECTION_USERS)
-                            .document(post.getUserId())
-                            .update("postsCount", FieldValue.increment(1));
-                    listener.onSuccess(postId);
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error creating post", e);
-                    listener.onFailure(e.getMessage());
-                });
+        Outbox outbox = Outbox.getInstance();
+        outbox.enqueue(() -> {
+            Map<String, Object> payload = new HashMap<>(postMap);
+            if (!imageUris.isEmpty()) {
+                payload.put(Outbox.KEY_IMAGE_FILES, outbox.stageImages(imageUris, SupabaseClient.BUCKET_POST));
+            }
+            return OutboxEntity.write(OutboxEntity.TYPE_CREATE_POST, post.getUserId(), postId,
+                    Outbox.toJson(payload));
+        }, new Outbox.OnQueuedListener() {
+            @Override
+            public void onQueued() {
+                Log.d(TAG, "Post queued: " + postId);
+                listener.onSuccess(postId);
+            }
+
+            @Override
+            public void onFailure(String error) {
+                Log.e(TAG, "Error creating post: " + error);
+                listener.onFailure(error);
+            }
+        });
+    }
+
+    /**
+     * Writes that create a queued post and count it on its author
+     */
+    void addCreatePost(WriteBatch batch, String postId, String userId, Map<String, Object> postMap) {
+        Map<String, Object> data = new HashMap<>(postMap);
+        data.put("createdAt", FieldValue.serverTimestamp());  // Set server timestamp here
+        batch.set(db.collection(Constants.COLLECTION_POSTS).document(postId), data);
+
+        Map<String, Object> count = new HashMap<>();
+        count.put("postsCount", FieldValue.increment(1));
+        batch.set(db.collection(Constants.COLLECTION_USERS).document(userId), count, SetOptions.merge());
+    }
+
+    /**
+     * Follow-up once a queued post committed
+     */
+    void onPostCreated(String postId, String userId, Object hashtags, long createdAtMillis) {
+        Log.d(TAG, "Post created successfully");
+        // Push the post into followers' Following timelines
+        timelineRepository.fanOutPost(postId, userId, logOnly("fan out post"));
+
+        List<String> tags = new ArrayList<>();
+        if (hashtags instanceof List) {
+            for (Object tag : (List<?>) hashtags) {
+                if (tag instanceof String) {
+                    tags.add((String) tag);
+                }
+            }
+        }
+        hashtagRepository.recordPost(tags, createdAtMillis, new HashtagRepository.OnUpdateListener() {
+            @Override
+            public void onSuccess() {
+                Log.d(TAG, "Hashtags counted for " + postId);
+            }
+
+            @Override
+            public void onFailure(String error) {
+                Log.e(TAG, "Hashtags not counted for " + postId + ": " + error);
+            }
+        });
     }
 
     /**
@@ -86,6 +158,13 @@ public class PostRepository {
                 });
     }
 
+    /**
+     * Get posts by id, in the given order; deleted posts are left out
+     */
+    public void getPostsByIds(List<String> postIds, OnPostsListFetchedListener listener) {
+        timelineRepository.hydrate(postIds, listener);
+    }
+
     /**
      * Get all posts (timeline feed)
      */
@@ -110,6 +189,69 @@ public class PostRepository {
                 });
     }
 
+    /**
+     * Get one page of the timeline feed, newest first. Pass the lastSnapshot
+     * of the previous page as cursor, or null for the first page.
+     */
+    public void getFeedPage(DocumentSnapshot cursor, int pageSize, OnPostsPageFetchedListener listener) {
+        Query query = db.collection(Constants.COLLECTION_POSTS)
+                .orderBy("createdAt", Query.Direction.DESCENDING);
+        fetchPage(query, cursor, pageSize, listener);
+    }
+
+    /**
+     * Get one page of the posts tagged with tag (as typed, e.g. "#Launch"),
+     * newest first. Needs a composite index on hashtags (array) and
+     * createdAt (descending).
+     */
+    public void getHashtagFeedPage(String tag, DocumentSnapshot cursor, int pageSize,
+                                   OnPostsPageFetchedListener listener) {
+        String normalized = PostTokenizer.normalizeTag(tag);
+        if (normalized == null) {
+            listener.onSuccess(new ArrayList<>(), null, false);
+            return;
+        }
+        Query query = db.collection(Constants.COLLECTION_POSTS)
+                .whereArrayContains("hashtags", normalized)
+                .orderBy("createdAt", Query.Direction.DESCENDING);
+        fetchPage(query, cursor, pageSize, listener);
+    }
+
+    /**
+     * Live head of the timeline feed; its first snapshot is the first page
+     * of {@link #getFeedPage}'s order, so later pages continue from it
+     */
+    public LiveFeedHead liveFeedHead(LiveFeedHead.OnChangesListener listener) {
+        return new LiveFeedHead(db.collection(Constants.COLLECTION_POSTS)
+                .orderBy("createdAt", Query.Direction.DESCENDING), listener);
+    }
+
+    private void fetchPage(Query query, DocumentSnapshot cursor, int pageSize,
+                           OnPostsPageFetchedListener listener) {
+        if (cursor != null) {
+            query = query.startAfter(cursor);
+        }
+        query.limit(pageSize)
+                .get()
+                .addOnSuccessListener(querySnapshot -> {
+                    List<Post> posts = new ArrayList<>();
+                    for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
+                        Post post = doc.toObject(Post.class);
+                        if (post != null) {
+                            post.setPostId(doc.getId());
+                            posts.add(post);
+                        }
+                    }
+                    List<DocumentSnapshot> docs = querySnapshot.getDocuments();
+                    DocumentSnapshot lastSnapshot = docs.isEmpty() ? null : docs.get(docs.size() - 1);
+                    listener.onSuccess(posts, lastSnapshot, docs.size() == pageSize);
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error fetching feed page", e);
+                    listener.onFailure(e.getMessage());
+                });
+    }
+
     /**
      * Get posts by specific user
      */
@@ -134,76 +276,63 @@ public class PostRepository {
                 });
     }
 
+    /**
+     * Posts of a feed as last saved on this device, for painting before the
+     * network answers. Empty if nothing was saved yet.
+     */
+    public void getCachedFeed(String feedKey, OnPostsListFetchedListener listener) {
+        localStore.loadFeed(feedKey, listener::onSuccess);
+    }
+
+    /**
+     * Save the head of a feed so the next launch can paint it from disk,
+     * and make its posts searchable
+     */
+    public void cacheFeed(String feedKey, List<Post> posts) {
+        localStore.saveFeed(feedKey, posts);
+        SearchEngine.getInstance().indexPosts(posts);
+    }
+
     /**
      * Like a post
      */
     public void likePost(String postId, String userId, OnUpdateListener listener) {
-        db.collection(Constants.COLLECTION_POSTS)
-                .document(postId)
-                .update("likedBy", FieldValue.arrayUnion(userId),
-                        "likesCount", FieldValue.increment(1))
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Post liked successfully");
-                    listener.onSuccess();
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error liking post", e);
-                    listener.onFailure(e.getMessage());
-                });
+        reactionRepository.like(postId, userId, reactionListener(listener));
     }
 
     /**
      * Unlike a post
      */
     public void unlikePost(String postId, String userId, OnUpdateListener listener) {
-        db.collection(Constants.COLLECTION_POSTS)
-                .document(postId)
-                .update("likedBy", FieldValue.arrayRemove(userId),
-                        "likesCount", FieldValue.increment(-1))
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Post unliked successfully");
-                    listener.onSuccess();
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error unliking post", e);
-                    listener.onFailure(e.getMessage());
-                });
+        reactionRepository.unlike(postId, userId, reactionListener(listener));
     }
 
     /**
      * Retweet a post
      */
     public void retweetPost(String postId, String userId, OnUpdateListener listener) {
-        db.collection(Constants.COLLECTION_POSTS)
-                .document(postId)
-                .update("retweetedBy", FieldValue.arrayUnion(userId),
-                        "retweetsCount", FieldValue.increment(1))
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Post retweeted successfully");
-                    listener.onSuccess();
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error retweeting post", e);
-                    listener.onFailure(e.getMessage());
-                });
+        reactionRepository.retweet(postId, userId, reactionListener(listener));
     }
 
     /**
      * Undo retweet
      */
     public void undoRetweet(String postId, String userId, OnUpdateListener listener) {
-        db.collection(Constants.COLLECTION_POSTS)
-                .document(postId)
-                .update("retweetedBy", FieldValue.arrayRemove(userId),
-                        "retweetsCount", FieldValue.increment(-1))
-                .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Retweet undone successfully");
-                    listener.onSuccess();
-                })
-                .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error undoing retweet", e);
-                    listener.onFailure(e.getMessage());
-                });
+        reactionRepository.undoRetweet(postId, userId, reactionListener(listener));
+    }
+
+    private static ReactionRepository.OnUpdateListener reactionListener(OnUpdateListener listener) {
+        return new ReactionRepository.OnUpdateListener() {
+            @Override
+            public void onSuccess() {
+                listener.onSuccess();
+            }
+
+            @Override
+            public void onFailure(String error) {
+                listener.onFailure(error);
+            }
+        };
     }
 
     /**
@@ -219,6 +348,9 @@ public class PostRepository {
                     db.collection(Constants.COLLECTION_USERS)
                             .document(userId)
                             .update("postsCount", FieldValue.increment(-1));
+                    timelineRepository.removePost(postId, logOnly("remove post from timelines"));
+                    localStore.deletePost(postId);
+                    SearchEngine.getInstance().removePost(postId);
                     listener.onSuccess();
                 })
                 .addOnFailureListener(e -> {
@@ -227,6 +359,20 @@ public class PostRepository {
                 });
     }
 
+    private static TimelineRepository.OnUpdateListener logOnly(String action) {
+        return new TimelineRepository.OnUpdateListener() {
+            @Override
+            public void onSuccess() {
+                Log.d(TAG, "Timeline update done: " + action);
+            }
+
+            @Override
+            public void onFailure(String error) {
+                Log.e(TAG, "Timeline update failed (" + action + "): " + error);
+            }
+        };
+    }
+
     // Callback Interfaces
     public interface OnPostCreatedListener {
         void onSuccess(String postId);
@@ -245,6 +391,11 @@ public class PostRepository {
         void onFailure(String error);
     }
 
+    public interface OnPostsPageFetchedListener {
+        void onSuccess(List<Post> posts, DocumentSnapshot lastSnapshot, boolean hasMore);
+        void onFailure(String error);
+    }
+
     public interface OnUpdateListener {
         void onSuccess();
         void onFailure(String error);
@@ -0,0 +1,405 @@
+package com.nexuspulse.app.repository;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+import com.nexuspulse.app.database.OutboxEntity;
+import com.nexuspulse.app.models.Post;
+import com.nexuspulse.app.utils.Constants;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Likes and retweets stored outside the post document.
+ *
+ * Who reacted lives in reactions/{postId}/likes|retweets/{userId}, one
+ * document per user. How many reacted is a distributed counter: each
+ * reaction increments one of {@link #NUM_SHARDS} randomly chosen documents
+ * in reactions/{postId}/shards, so a hot post spreads its writes instead of
+ * queueing on a single document. The shard sums are rolled up into the
+ * post's likesCount/retweetsCount at most once per
+ * {@link #ROLLUP_INTERVAL_MILLIS}, which keeps feed reads to the post
+ * document alone. Reactions are sent through the {@link Outbox}; the local
+ * liked-set cache changes as soon as one is queued.
+ *
+ * Posts written before this change still carry likedBy/retweetedBy arrays.
+ * A post's true count is always the shard sum plus the legacy array size;
+ * {@link #migrateOwnLegacyReactions} moves the signed-in user's own array
+ * entries into membership documents and shard 0 in the same transaction,
+ * so the sum never changes. A client never moves other users' entries.
+ */
+public class ReactionRepository {
+    private static final String TAG = "ReactionRepository";
+
+    static final int NUM_SHARDS = 10;
+    static final long ROLLUP_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(10);
+    // Posts whose last roll-up time is remembered; the server-side rolledUpAt
+    // check still holds back a forgotten one
+    private static final int MAX_TRACKED_ROLLUPS = 256;
+
+    private static final Map<String, Long> lastRollUp =
+            new LinkedHashMap<String, Long>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                    return size() > MAX_TRACKED_ROLLUPS;
+                }
+            };
+    private static final Set<String> pendingRollUps = new HashSet<>();
+    private static final Set<String> migrating = new HashSet<>();
+
+    private final FirebaseFirestore db;
+    private final LikedPostsCache cache;
+    private final Handler handler;
+
+    public ReactionRepository() {
+        this.db = FirebaseFirestore.getInstance();
+        this.cache = LikedPostsCache.getInstance();
+        this.handler = new Handler(Looper.getMainLooper());
+    }
+
+    private DocumentReference reactions(String postId) {
+        return db.collection(Constants.COLLECTION_REACTIONS).document(postId);
+    }
+
+    private DocumentReference membership(String postId, String kind, String userId) {
+        return reactions(postId).collection(kind).document(userId);
+    }
+
+    private DocumentReference shard(String postId, int index) {
+        return reactions(postId).collection(Constants.SUBCOLLECTION_COUNTER_SHARDS).document(String.valueOf(index));
+    }
+
+    private static Map<String, Object> membershipData(String postId, String userId) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("postId", postId);
+        data.put("userId", userId);
+        data.put("createdAt", FieldValue.serverTimestamp());
+        return data;
+    }
+
+    private static Map<String, Object> increment(String counterField, long delta) {
+        Map<String, Object> data = new HashMap<>();
+        data.put(counterField, FieldValue.increment(delta));
+        return data;
+    }
+
+    public void like(String postId, String userId, OnUpdateListener listener) {
+        queueReaction(OutboxEntity.TYPE_LIKE, postId, userId, true, listener);
+    }
+
+    public void unlike(String postId, String userId, OnUpdateListener listener) {
+        queueReaction(OutboxEntity.TYPE_LIKE, postId, userId, false, listener);
+    }
+
+    public void retweet(String postId, String userId, OnUpdateListener listener) {
+        queueReaction(OutboxEntity.TYPE_RETWEET, postId, userId, true, listener);
+    }
+
+    public void undoRetweet(String postId, String userId, OnUpdateListener listener) {
+        queueReaction(OutboxEntity.TYPE_RETWEET, postId, userId, false, listener);
+    }
+
+    /**
+     * Record the reaction locally right away and queue it for the server.
+     * Toggling the same post again before the outbox flushes replaces the
+     * queued write instead of adding another.
+     */
+    void queueReaction(String type, String postId, String userId, boolean on, OnUpdateListener listener) {
+        if (OutboxEntity.TYPE_LIKE.equals(type)) {
+            cache.setLiked(userId, postId, on);
+        } else {
+            cache.setRetweeted(userId, postId, on);
+        }
+        Outbox.getInstance().enqueue(() -> OutboxEntity.toggle(type, userId, postId, on),
+                new Outbox.OnQueuedListener() {
+                    @Override
+                    public void onQueued() {
+                        listener.onSuccess();
+                    }
+
+                    @Override
+                    public void onFailure(String error) {
+                        listener.onFailure(error);
+                    }
+                });
+    }
+
+    /**
+     * Membership document whose existence says whether userId has this reaction
+     */
+    DocumentReference reactionRef(String type, String postId, String userId) {
+        return membership(postId, kindOf(type), userId);
+    }
+
+    /**
+     * Writes that switch a reaction on or off: the membership document plus
+     * one random shard moved by one. Only valid while the reaction is in the
+     * opposite state, which the outbox checks first.
+     */
+    void addReaction(WriteBatch batch, String type, String postId, String userId, boolean on) {
+        String kind = kindOf(type);
+        String counterField = Constants.SUBCOLLECTION_LIKES.equals(kind) ? "likesCount" : "retweetsCount";
+        DocumentReference member = membership(postId, kind, userId);
+        if (on) {
+            batch.set(member, membershipData(postId, userId));
+        } else {
+            batch.delete(member);
+        }
+        batch.set(shard(postId, ThreadLocalRandom.current().nextInt(NUM_SHARDS)),
+                increment(counterField, on ? 1 : -1), SetOptions.merge());
+    }
+
+    /**
+     * Follow-up once a reaction write committed (or was found on the server)
+     */
+    void onReactionApplied(String type, String postId, String userId, boolean on) {
+        PendingReactions.getInstance().onSent(type, postId, userId, on);
+        rollUp(postId);
+    }
+
+    /**
+     * The outbox gave up on a reaction write; undo it on screen
+     */
+    void onReactionDropped(String type, String postId, String userId, boolean on, String reason) {
+        PendingReactions.getInstance().onDropped(type, postId, userId, on, reason);
+    }
+
+    private static String kindOf(String type) {
+        return OutboxEntity.TYPE_LIKE.equals(type)
+                ? Constants.SUBCOLLECTION_LIKES
+                : Constants.SUBCOLLECTION_RETWEETS;
+    }
+
+    /**
+     * Fill the liked-set cache for a page of posts: one collection-group
+     * query per {@link AuthorResolver#MAX_IDS_PER_QUERY} posts not yet known,
+     * for likes and retweets each, then set each post's likedByMe and
+     * retweetedByMe from it. Lookups that fail leave those posts unknown;
+     * the listener fires once either way.
+     */
+    public void loadReactionState(String userId, List<Post> posts, AuthorResolver.OnPostsResolvedListener listener) {
+        Map<String, Post> byId = new HashMap<>();
+        for (Post post : posts) {
+            if (post.getPostId() == null) {
+                continue;
+            }
+            byId.put(post.getPostId(), post);
+            if (userId != null && (post.getLikedBy().contains(userId) || post.getRetweetedBy().contains(userId))) {
+                migrateOwnLegacyReactions(post.getPostId(), userId);
+            }
+        }
+
+        List<String> unknown = cache.unknownPostIds(userId, new ArrayList<>(byId.keySet()));
+        if (userId == null || unknown.isEmpty()) {
+            cache.applyTo(userId, posts);
+            listener.onResolved(posts);
+            return;
+        }
+
+        List<List<String>> chunks = AuthorResolver.chunk(unknown, AuthorResolver.MAX_IDS_PER_QUERY);
+        List<Task<QuerySnapshot>> likes = new ArrayList<>();
+        List<Task<QuerySnapshot>> retweets = new ArrayList<>();
+        for (List<String> chunk : chunks) {
+            likes.add(membershipQuery(Constants.SUBCOLLECTION_LIKES, userId, chunk));
+            retweets.add(membershipQuery(Constants.SUBCOLLECTION_RETWEETS, userId, chunk));
+        }
+
+        List<Task<QuerySnapshot>> all = new ArrayList<>(likes);
+        all.addAll(retweets);
+        Tasks.whenAllComplete(all).addOnCompleteListener(done -> {
+            for (int i = 0; i < chunks.size(); i++) {
+                Set<String> liked = reactedPostIds(likes.get(i));
+                Set<String> retweeted = reactedPostIds(retweets.get(i));
+                for (String postId : chunks.get(i)) {
+                    Post post = byId.get(postId);
+                    if (liked != null) {
+                        cache.setLiked(userId, postId,
+                                liked.contains(postId) || post.getLikedBy().contains(userId));
+                    }
+                    if (retweeted != null) {
+                        cache.setRetweeted(userId, postId,
+                                retweeted.contains(postId) || post.getRetweetedBy().contains(userId));
+                    }
+                }
+            }
+            cache.applyTo(userId, posts);
+            listener.onResolved(posts);
+        });
+    }
+
+    private Task<QuerySnapshot> membershipQuery(String kind, String userId, List<String> postIds) {
+        return db.collectionGroup(kind)
+                .whereEqualTo("userId", userId)
+                .whereIn("postId", postIds)
+                .get();
+    }
+
+    private static Set<String> reactedPostIds(Task<QuerySnapshot> task) {
+        if (!task.isSuccessful()) {
+            Log.e(TAG, "Error loading reaction state", task.getException());
+            return null;
+        }
+        Set<String> postIds = new HashSet<>();
+        for (DocumentSnapshot doc : task.getResult().getDocuments()) {
+            postIds.add(doc.getString("postId"));
+        }
+        return postIds;
+    }
+
+    /**
+     * Copy the shard sums into the post document unless this device or
+     * another one did so within the last interval; in that case try again
+     * once the interval is over so the last reaction isn't left out.
+     */
+    private void rollUp(String postId) {
+        long now = System.currentTimeMillis();
+        synchronized (lastRollUp) {
+            Long last = lastRollUp.get(postId);
+            if (last != null && now - last < ROLLUP_INTERVAL_MILLIS) {
+                scheduleRollUp(postId, last + ROLLUP_INTERVAL_MILLIS - now);
+                return;
+            }
+            lastRollUp.put(postId, now);
+        }
+
+        DocumentReference stateRef = reactions(postId);
+        DocumentReference postRef = db.collection(Constants.COLLECTION_POSTS).document(postId);
+        db.runTransaction(transaction -> {
+                    Date rolledUpAt = transaction.get(stateRef).getDate("rolledUpAt");
+                    if (rolledUpAt != null && now - rolledUpAt.getTime() < ROLLUP_INTERVAL_MILLIS) {
+                        return rolledUpAt.getTime() + ROLLUP_INTERVAL_MILLIS - now;
+                    }
+                    DocumentSnapshot post = transaction.get(postRef);
+                    if (!post.exists()) {
+                        return 0L;
+                    }
+                    long likesCount = legacySize(post, "likedBy");
+                    long retweetsCount = legacySize(post, "retweetedBy");
+                    for (int i = 0; i < NUM_SHARDS; i++) {
+                        DocumentSnapshot counter = transaction.get(shard(postId, i));
+                        likesCount += valueOrZero(counter, "likesCount");
+                        retweetsCount += valueOrZero(counter, "retweetsCount");
+                    }
+
+                    transaction.update(postRef, "likesCount", Math.max(0, likesCount),
+                            "retweetsCount", Math.max(0, retweetsCount));
+                    Map<String, Object> state = new HashMap<>();
+                    state.put("rolledUpAt", new Date(now));
+                    transaction.set(stateRef, state, SetOptions.merge());
+                    return 0L;
+                })
+                .addOnSuccessListener(retryInMillis -> {
+                    if (retryInMillis > 0) {
+                        scheduleRollUp(postId, retryInMillis);
+                    }
+                })
+                .addOnFailureListener(e -> Log.e(TAG, "Error rolling up counters for " + postId, e));
+    }
+
+    private void scheduleRollUp(String postId, long delayMillis) {
+        synchronized (pendingRollUps) {
+            if (!pendingRollUps.add(postId)) {
+                return;
+            }
+        }
+        handler.postDelayed(() -> {
+            synchronized (pendingRollUps) {
+                pendingRollUps.remove(postId);
+            }
+            rollUp(postId);
+        }, delayMillis);
+    }
+
+    /**
+     * Move userId's entries in the post's legacy arrays into membership
+     * documents and shard 0
+     */
+    private void migrateOwnLegacyReactions(String postId, String userId) {
+        String key = postId + "/" + userId;
+        synchronized (migrating) {
+            if (!migrating.add(key)) {
+                return;
+            }
+        }
+
+        DocumentReference postRef = db.collection(Constants.COLLECTION_POSTS).document(postId);
+        DocumentReference like = membership(postId, Constants.SUBCOLLECTION_LIKES, userId);
+        DocumentReference retweet = membership(postId, Constants.SUBCOLLECTION_RETWEETS, userId);
+        db.runTransaction(transaction -> {
+                    DocumentSnapshot post = transaction.get(postRef);
+                    boolean liked = legacyIds(post, "likedBy").contains(userId);
+                    boolean retweeted = legacyIds(post, "retweetedBy").contains(userId);
+                    // All reads must happen before the first write
+                    boolean newLike = liked && !transaction.get(like).exists();
+                    boolean newRetweet = retweeted && !transaction.get(retweet).exists();
+                    if (!liked && !retweeted) {
+                        return null;
+                    }
+
+                    if (newLike) {
+                        transaction.set(like, membershipData(postId, userId));
+                    }
+                    if (newRetweet) {
+                        transaction.set(retweet, membershipData(postId, userId));
+                    }
+                    transaction.update(postRef, "likedBy", FieldValue.arrayRemove(userId),
+                            "retweetedBy", FieldValue.arrayRemove(userId));
+                    Map<String, Object> counts = increment("likesCount", newLike ? 1 : 0);
+                    counts.putAll(increment("retweetsCount", newRetweet ? 1 : 0));
+                    transaction.set(shard(postId, 0), counts, SetOptions.merge());
+                    return null;
+                })
+                .addOnSuccessListener(unused -> {
+                    synchronized (migrating) {
+                        migrating.remove(key);
+                    }
+                    Log.d(TAG, "Migrated legacy reactions of " + userId + " on post " + postId);
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error migrating legacy reactions for " + postId, e);
+                    synchronized (migrating) {
+                        migrating.remove(key);
+                    }
+                });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> legacyIds(DocumentSnapshot post, String field) {
+        Object value = post.get(field);
+        return value instanceof List ? (List<String>) value : new ArrayList<>();
+    }
+
+    private static long legacySize(DocumentSnapshot post, String field) {
+        return legacyIds(post, field).size();
+    }
+
+    private static long valueOrZero(DocumentSnapshot doc, String field) {
+        Long value = doc.getLong(field);
+        return value != null ? value : 0;
+    }
+
+    // Callback Interfaces
+    public interface OnUpdateListener {
+        void onSuccess();
+        void onFailure(String error);
+    }
+}
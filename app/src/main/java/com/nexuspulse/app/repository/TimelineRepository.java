@@ -0,0 +1,315 @@
+package com.nexuspulse.app.repository;
+
+import android.util.Log;
+
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.WriteBatch;
+import com.nexuspulse.app.models.Post;
+import com.nexuspulse.app.utils.Constants;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Materialized "Following" timelines under timelines/{userId}/entries.
+ *
+ * A new post is fanned out to every follower's timeline at write time, so
+ * reading the Following feed is one ordered range read on the reader's own
+ * timeline no matter how many accounts they follow. Entries only carry
+ * postId, author and createdAt; a page is hydrated from posts/ by id so
+ * counters stay live.
+ */
+public class TimelineRepository {
+    private static final String TAG = "TimelineRepository";
+    private static final int BACKFILL_POSTS_PER_AUTHOR = 20;
+
+    private final FirebaseFirestore db;
+
+    public TimelineRepository() {
+        this.db = FirebaseFirestore.getInstance();
+    }
+
+    private CollectionReference entries(String userId) {
+        return db.collection(Constants.COLLECTION_TIMELINES)
+                .document(userId)
+                .collection(Constants.SUBCOLLECTION_TIMELINE_ENTRIES);
+    }
+
+    private static Map<String, Object> entry(String postId, String authorId, Object createdAt) {
+        Map<String, Object> entry = new HashMap<>();
+        entry.put("postId", postId);
+        entry.put("userId", authorId);
+        entry.put("createdAt", createdAt);
+        return entry;
+    }
+
+    /**
+     * Write the new post into every follower's timeline, walking the
+     * author's follows/ edges one page at a time
+     */
+    public void fanOutPost(String postId, String authorId, OnUpdateListener listener) {
+        fanOutPage(postId, authorId, null, 0, listener);
+    }
+
+    private void fanOutPage(String postId, String authorId, DocumentSnapshot cursor, int delivered,
+                            OnUpdateListener listener) {
+        Query query = db.collection(Constants.COLLECTION_FOLLOWS)
+                .whereEqualTo("followeeId", authorId)
+                .orderBy("createdAt", Query.Direction.DESCENDING);
+        if (cursor != null) {
+            query = query.startAfter(cursor);
+        }
+        query.limit(Constants.MAX_BATCH_WRITES)
+                .get()
+                .addOnSuccessListener(querySnapshot -> {
+                    List<DocumentSnapshot> edges = querySnapshot.getDocuments();
+                    if (edges.isEmpty()) {
+                        Log.d(TAG, "Fanned out post " + postId + " to " + delivered + " timelines");
+                        listener.onSuccess();
+                        return;
+                    }
+
+                    Map<String, Object> entry = entry(postId, authorId, FieldValue.serverTimestamp());
+                    WriteBatch batch = db.batch();
+                    for (DocumentSnapshot edge : edges) {
+                        batch.set(entries(edge.getString("followerId")).document(postId), entry);
+                    }
+                    DocumentSnapshot last = edges.get(edges.size() - 1);
+                    boolean hasMore = edges.size() == Constants.MAX_BATCH_WRITES;
+                    batch.commit()
+                            .addOnSuccessListener(aVoid -> {
+                                if (hasMore) {
+                                    fanOutPage(postId, authorId, last, delivered + edges.size(), listener);
+                                } else {
+                                    Log.d(TAG, "Fanned out post " + postId + " to "
+                                            + (delivered + edges.size()) + " timelines");
+                                    listener.onSuccess();
+                                }
+                            })
+                            .addOnFailureListener(e -> {
+                                Log.e(TAG, "Error committing fan-out batch", e);
+                                listener.onFailure(e.getMessage());
+                            });
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error loading followers for fan-out", e);
+                    listener.onFailure(e.getMessage());
+                });
+    }
+
+    /**
+     * Remove a deleted post from every timeline it was fanned out to
+     */
+    public void removePost(String postId, OnUpdateListener listener) {
+        db.collectionGroup(Constants.SUBCOLLECTION_TIMELINE_ENTRIES)
+                .whereEqualTo("postId", postId)
+                .get()
+                .addOnSuccessListener(querySnapshot ->
+                        deleteAll(querySnapshot, listener))
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error finding timeline entries for post", e);
+                    listener.onFailure(e.getMessage());
+                });
+    }
+
+    /**
+     * Copy recent posts of each followed account into the user's timeline.
+     * Used to seed timelines for follow edges that existed before fan-out.
+     */
+    public void backfillTimeline(String userId, List<String> followingIds, OnUpdateListener listener) {
+        if (followingIds == null || followingIds.isEmpty()) {
+            listener.onSuccess();
+            return;
+        }
+
+        List<Task<QuerySnapshot>> queries = new ArrayList<>();
+        for (String authorId : followingIds) {
+            queries.add(recentPostsQuery(authorId).get());
+        }
+
+        Tasks.whenAllSuccess(queries)
+                .addOnSuccessListener(results -> {
+                    List<DocumentReference> refs = new ArrayList<>();
+                    List<Map<String, Object>> data = new ArrayList<>();
+                    for (Object result : results) {
+                        for (DocumentSnapshot doc : ((QuerySnapshot) result).getDocuments()) {
+                            refs.add(entries(userId).document(doc.getId()));
+                            data.add(entry(doc.getId(), doc.getString("userId"), doc.getDate("createdAt")));
+                        }
+                    }
+                    Log.d(TAG, "Backfilling " + refs.size() + " entries for " + userId);
+                    commitInBatches(refs.size(), (batch, i) -> batch.set(refs.get(i), data.get(i)), listener);
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error backfilling timeline", e);
+                    listener.onFailure(e.getMessage());
+                });
+    }
+
+    /**
+     * Seed the timeline with one newly followed account's recent posts
+     */
+    public void addAuthor(String userId, String authorId, OnUpdateListener listener) {
+        List<String> authors = new ArrayList<>();
+        authors.add(authorId);
+        backfillTimeline(userId, authors, listener);
+    }
+
+    /**
+     * Drop an unfollowed account's posts from the user's timeline
+     */
+    public void removeAuthor(String userId, String authorId, OnUpdateListener listener) {
+        entries(userId)
+                .whereEqualTo("userId", authorId)
+                .get()
+                .addOnSuccessListener(querySnapshot -> deleteAll(querySnapshot, listener))
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error finding timeline entries for author", e);
+                    listener.onFailure(e.getMessage());
+                });
+    }
+
+    /**
+     * Get one page of the user's Following timeline, newest first
+     */
+    public void getTimelinePage(String userId, DocumentSnapshot cursor, int pageSize,
+                                PostRepository.OnPostsPageFetchedListener listener) {
+        Query query = entries(userId).orderBy("createdAt", Query.Direction.DESCENDING);
+        if (cursor != null) {
+            query = query.startAfter(cursor);
+        }
+        query.limit(pageSize)
+                .get()
+                .addOnSuccessListener(querySnapshot -> {
+                    List<DocumentSnapshot> docs = querySnapshot.getDocuments();
+                    DocumentSnapshot lastSnapshot = docs.isEmpty() ? null : docs.get(docs.size() - 1);
+                    boolean hasMore = docs.size() == pageSize;
+
+                    List<String> postIds = new ArrayList<>();
+                    for (DocumentSnapshot doc : docs) {
+                        postIds.add(doc.getId());
+                    }
+                    hydrate(postIds, new PostRepository.OnPostsListFetchedListener() {
+                        @Override
+                        public void onSuccess(List<Post> posts) {
+                            listener.onSuccess(posts, lastSnapshot, hasMore);
+                        }
+
+                        @Override
+                        public void onFailure(String error) {
+                            listener.onFailure(error);
+                        }
+                    });
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error fetching timeline page", e);
+                    listener.onFailure(e.getMessage());
+                });
+    }
+
+    /**
+     * Load posts by id in whereIn-sized chunks and return them in the given order
+     */
+    void hydrate(List<String> postIds, PostRepository.OnPostsListFetchedListener listener) {
+        if (postIds.isEmpty()) {
+            listener.onSuccess(new ArrayList<>());
+            return;
+        }
+
+        List<Task<QuerySnapshot>> queries = new ArrayList<>();
+        for (List<String> chunk : AuthorResolver.chunk(postIds, AuthorResolver.MAX_IDS_PER_QUERY)) {
+            queries.add(db.collection(Constants.COLLECTION_POSTS)
+                    .whereIn(FieldPath.documentId(), chunk)
+                    .get());
+        }
+
+        Tasks.whenAllSuccess(queries)
+                .addOnSuccessListener(results -> {
+                    Map<String, Post> byId = new HashMap<>();
+                    for (Object result : results) {
+                        for (DocumentSnapshot doc : ((QuerySnapshot) result).getDocuments()) {
+                            Post post = doc.toObject(Post.class);
+                            if (post != null) {
+                                post.setPostId(doc.getId());
+                                byId.put(doc.getId(), post);
+                            }
+                        }
+                    }
+                    // Entries whose post was deleted are skipped
+                    List<Post> posts = new ArrayList<>();
+                    for (String postId : postIds) {
+                        Post post = byId.get(postId);
+                        if (post != null) {
+                            posts.add(post);
+                        }
+                    }
+                    listener.onSuccess(posts);
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error hydrating timeline posts", e);
+                    listener.onFailure(e.getMessage());
+                });
+    }
+
+    private Query recentPostsQuery(String authorId) {
+        return db.collection(Constants.COLLECTION_POSTS)
+                .whereEqualTo("userId", authorId)
+                .orderBy("createdAt", Query.Direction.DESCENDING)
+                .limit(BACKFILL_POSTS_PER_AUTHOR);
+    }
+
+    private void deleteAll(QuerySnapshot querySnapshot, OnUpdateListener listener) {
+        List<DocumentReference> refs = new ArrayList<>();
+        for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
+            refs.add(doc.getReference());
+        }
+        commitInBatches(refs.size(), (batch, i) -> batch.delete(refs.get(i)), listener);
+    }
+
+    /**
+     * Apply op for indexes [0, count), committing at most MAX_BATCH_WRITES writes per batch
+     */
+    private void commitInBatches(int count, BatchOp op, OnUpdateListener listener) {
+        if (count == 0) {
+            listener.onSuccess();
+            return;
+        }
+
+        List<Task<Void>> commits = new ArrayList<>();
+        for (int start = 0; start < count; start += Constants.MAX_BATCH_WRITES) {
+            WriteBatch batch = db.batch();
+            for (int i = start; i < Math.min(start + Constants.MAX_BATCH_WRITES, count); i++) {
+                op.apply(batch, i);
+            }
+            commits.add(batch.commit());
+        }
+
+        Tasks.whenAll(commits)
+                .addOnSuccessListener(aVoid -> listener.onSuccess())
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error committing timeline batch", e);
+                    listener.onFailure(e.getMessage());
+                });
+    }
+
+    private interface BatchOp {
+        void apply(WriteBatch batch, int index);
+    }
+
+    // Callback Interfaces
+    public interface OnUpdateListener {
+        void onSuccess();
+        void onFailure(String error);
+    }
+}
@@ -0,0 +1,93 @@
+package com.nexuspulse.app.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ranks hashtags by how far their use in the last windowHours runs above
+ * their own usual rate, taken from the baselineHours before that.
+ *
+ * Each tag's recent count is compared with the count its baseline predicts
+ * for a window of that length; the score is the excess over the square
+ * root of the expectation, so a burst on a quiet tag stands out while a
+ * tag that is always busy does not trend just for being busy. Tags used
+ * fewer than {@link #MIN_RECENT_POSTS} times in the window never trend.
+ */
+public class TrendingTags {
+    public static final int MIN_RECENT_POSTS = 3;
+
+    private final int windowHours;
+    private final int baselineHours;
+    // tag -> {recent count, baseline count}
+    private final Map<String, long[]> counts = new HashMap<>();
+
+    public TrendingTags(int windowHours, int baselineHours) {
+        this.windowHours = windowHours;
+        this.baselineHours = baselineHours;
+    }
+
+    /**
+     * First hour bucket the ranking at nowHour reads
+     */
+    public long firstHour(long nowHour) {
+        return nowHour - windowHours - baselineHours + 1;
+    }
+
+    /**
+     * Count posts in tag's bucket for hour; buckets outside the window and
+     * baseline are ignored, and ones ahead of nowHour (clock skew) count as
+     * now
+     */
+    public void add(String tag, long hour, long posts, long nowHour) {
+        long age = Math.max(0, nowHour - hour);
+        if (age >= windowHours + baselineHours) {
+            return;
+        }
+        long[] tagCounts = counts.get(tag);
+        if (tagCounts == null) {
+            tagCounts = new long[2];
+            counts.put(tag, tagCounts);
+        }
+        tagCounts[age < windowHours ? 0 : 1] += posts;
+    }
+
+    /**
+     * Up to limit trending tags, highest score first
+     */
+    public List<Trend> top(int limit) {
+        List<Trend> trends = new ArrayList<>();
+        for (Map.Entry<String, long[]> entry : counts.entrySet()) {
+            long recent = entry.getValue()[0];
+            double expected = entry.getValue()[1] * (double) windowHours / baselineHours;
+            double score = (recent - expected) / Math.sqrt(expected + 1);
+            if (recent >= MIN_RECENT_POSTS && score > 0) {
+                trends.add(new Trend(entry.getKey(), recent, score));
+            }
+        }
+        Collections.sort(trends, (a, b) -> {
+            int byScore = Double.compare(b.score, a.score);
+            if (byScore != 0) {
+                return byScore;
+            }
+            int byPosts = Long.compare(b.recentPosts, a.recentPosts);
+            return byPosts != 0 ? byPosts : a.tag.compareTo(b.tag);
+        });
+        return trends.size() > limit ? new ArrayList<>(trends.subList(0, limit)) : trends;
+    }
+
+    public static class Trend {
+        public final String tag;
+        // Posts using the tag in the window
+        public final long recentPosts;
+        public final double score;
+
+        Trend(String tag, long recentPosts, double score) {
+            this.tag = tag;
+            this.recentPosts = recentPosts;
+            this.score = score;
+        }
+    }
+}
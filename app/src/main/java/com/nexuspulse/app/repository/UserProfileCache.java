@@ -0,0 +1,190 @@
+package com.nexuspulse.app.repository;
+
+import com.nexuspulse.app.models.User;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Process-wide in-memory cache of users/{id} documents.
+ *
+ * Entries are evicted least-recently-used once {@code maxEntries} is reached
+ * and expire {@code ttlMillis} after they were fetched. Concurrent requests
+ * for an id that is already being read join the in-flight read instead of
+ * issuing their own. A read that was started before {@link #invalidate} or
+ * {@link #clear} still answers its callers but is not cached.
+ *
+ * Callers always get their own copy of a user, so a screen that edits what
+ * it was given (a follower count after a follow) cannot change what every
+ * other screen is served.
+ */
+public class UserProfileCache {
+    private static final int DEFAULT_MAX_ENTRIES = 200;
+    private static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private static UserProfileCache instance;
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final Clock clock;
+
+    private final LinkedHashMap<String, Entry> entries;
+    private final Map<String, Flight> inFlight = new HashMap<>();
+
+    private long hitCount;
+    private long missCount;
+
+    public static synchronized UserProfileCache getInstance() {
+        if (instance == null) {
+            instance = new UserProfileCache(DEFAULT_MAX_ENTRIES, DEFAULT_TTL_MILLIS, System::currentTimeMillis);
+        }
+        return instance;
+    }
+
+    UserProfileCache(int maxEntries, long ttlMillis, Clock clock) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > UserProfileCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Return the cached user if fresh, otherwise load it (sharing any read
+     * already in flight for the same id)
+     */
+    public void get(String userId, Loader loader, UserRepository.OnUserFetchedListener listener) {
+        User cached;
+        Flight flight = null;
+        synchronized (this) {
+            cached = peekLocked(userId);
+            if (cached == null) {
+                Flight joined = inFlight.get(userId);
+                if (joined != null) {
+                    hitCount++;
+                    joined.waiters.add(listener);
+                    return;
+                }
+                missCount++;
+                flight = new Flight();
+                flight.waiters.add(listener);
+                inFlight.put(userId, flight);
+            } else {
+                hitCount++;
+            }
+        }
+
+        if (cached != null) {
+            listener.onSuccess(new User(cached));
+            return;
+        }
+
+        Flight started = flight;
+        loader.load(userId, new UserRepository.OnUserFetchedListener() {
+            @Override
+            public void onSuccess(User user) {
+                synchronized (UserProfileCache.this) {
+                    // Invalidated or cleared while loading: answer, but do not cache
+                    if (inFlight.get(userId) == started) {
+                        inFlight.remove(userId);
+                        entries.put(userId, new Entry(new User(user), clock.now()));
+                    }
+                }
+                for (UserRepository.OnUserFetchedListener waiter : started.waiters) {
+                    waiter.onSuccess(new User(user));
+                }
+            }
+
+            @Override
+            public void onFailure(String error) {
+                synchronized (UserProfileCache.this) {
+                    if (inFlight.get(userId) == started) {
+                        inFlight.remove(userId);
+                    }
+                }
+                for (UserRepository.OnUserFetchedListener waiter : started.waiters) {
+                    waiter.onFailure(error);
+                }
+            }
+        });
+    }
+
+    /**
+     * Return the cached user if present and not expired, without loading
+     */
+    public synchronized User peek(String userId) {
+        User cached = peekLocked(userId);
+        return cached != null ? new User(cached) : null;
+    }
+
+    public synchronized void put(User user) {
+        if (user != null && user.getUserId() != null) {
+            entries.put(user.getUserId(), new Entry(new User(user), clock.now()));
+        }
+    }
+
+    public synchronized void invalidate(String userId) {
+        entries.remove(userId);
+        inFlight.remove(userId);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        inFlight.clear();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private User peekLocked(String userId) {
+        Entry entry = entries.get(userId);
+        if (entry == null) {
+            return null;
+        }
+        if (clock.now() - entry.fetchedAt >= ttlMillis) {
+            entries.remove(userId);
+            return null;
+        }
+        return entry.user;
+    }
+
+    private static class Entry {
+        final User user;
+        final long fetchedAt;
+
+        Entry(User user, long fetchedAt) {
+            this.user = user;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+
+    /** A read in progress and the callers waiting on it */
+    private static class Flight {
+        final List<UserRepository.OnUserFetchedListener> waiters = new ArrayList<>();
+    }
+
+    public interface Loader {
+        void load(String userId, UserRepository.OnUserFetchedListener listener);
+    }
+
+    interface Clock {
+        long now();
+    }
+}
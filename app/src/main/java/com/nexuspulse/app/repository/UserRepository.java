@@ -1,22 +1,48 @@
 package com.nexuspulse.app.repository;
 
+import android.net.Uri;
 import android.util.Log;
 
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
 import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+import com.nexuspulse.app.database.OutboxEntity;
 import com.nexuspulse.app.models.User;
+import com.nexuspulse.app.search.SearchEngine;
 import com.nexuspulse.app.utils.Constants;
+import com.nexuspulse.app.utils.SupabaseClient;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class UserRepository {
     private static final String TAG = "UserRepository";
+
+    // Most users searchUsers returns
+    public static final int SEARCH_LIMIT = 20;
+
     private final FirebaseFirestore db;
+    private final UserProfileCache cache;
+    private final TimelineRepository timelineRepository;
+    private final LocalStore localStore;
 
     public UserRepository() {
         this.db = FirebaseFirestore.getInstance();
+        this.cache = UserProfileCache.getInstance();
+        this.timelineRepository = new TimelineRepository();
+        this.localStore = LocalStore.getInstance();
     }
 
     /**
@@ -28,6 +54,7 @@ public class UserRepository {
                 .set(user)
                 .addOnSuccessListener(aVoid -> {
                     Log.d(TAG, "User created successfully");
+                    cache.invalidate(user.getUserId());
                     listener.onSuccess();
                 })
                 .addOnFailureListener(e -> {
@@ -37,15 +64,22 @@ public class UserRepository {
     }
 
     /**
-     * Get user by ID
+     * Get user by ID, served from UserProfileCache when fresh
      */
     public void getUserById(String userId, OnUserFetchedListener listener) {
+        cache.get(userId, this::fetchUserById, listener);
+    }
+
+    private void fetchUserById(String userId, OnUserFetchedListener listener) {
         db.collection(Constants.COLLECTION_USERS)
                 .document(userId)
                 .get()
                 .addOnSuccessListener(documentSnapshot -> {
                     if (documentSnapshot.exists()) {
                         User user = documentSnapshot.toObject(User.class);
+                        user.setUserId(documentSnapshot.getId());
+                        localStore.saveUser(user);
+                        SearchEngine.getInstance().indexUsers(Collections.singletonList(user));
                         listener.onSuccess(user);
                     } else {
                         listener.onFailure("User not found");
@@ -57,6 +91,56 @@ public class UserRepository {
                 });
     }
 
+    /**
+     * Get the copy of a user saved on this device, or fail if there is none.
+     * Use to paint before {@link #getUserById} answers.
+     */
+    public void getCachedUser(String userId, OnUserFetchedListener listener) {
+        localStore.loadUser(userId, user -> {
+            if (user != null) {
+                listener.onSuccess(user);
+            } else {
+                listener.onFailure("User not cached");
+            }
+        });
+    }
+
+    /**
+     * Get the copies of users saved on this device, in the order of userIds;
+     * users not saved are left out
+     */
+    public void getCachedUsers(List<String> userIds, OnUsersListFetchedListener listener) {
+        localStore.loadUsers(userIds, listener::onSuccess);
+    }
+
+    /**
+     * Get several users in one query. Callers must keep userIds within the
+     * whereIn limit (see AuthorResolver.MAX_IDS_PER_QUERY).
+     */
+    public void getUsersByIds(List<String> userIds, OnUsersListFetchedListener listener) {
+        db.collection(Constants.COLLECTION_USERS)
+                .whereIn(FieldPath.documentId(), userIds)
+                .get()
+                .addOnSuccessListener(querySnapshot -> {
+                    List<User> users = new ArrayList<>();
+                    for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
+                        User user = doc.toObject(User.class);
+                        if (user != null) {
+                            user.setUserId(doc.getId());
+                            cache.put(user);
+                            users.add(user);
+                        }
+                    }
+                    localStore.saveUsers(users);
+                    SearchEngine.getInstance().indexUsers(users);
+                    listener.onSuccess(users);
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error fetching users by ids", e);
+                    listener.onFailure(e.getMessage());
+                });
+    }
+
     /**
      * Get user by username
      */
@@ -88,6 +172,7 @@ public class UserRepository {
                 .update(updates)
                 .addOnSuccessListener(aVoid -> {
                     Log.d(TAG, "User updated successfully");
+                    cache.invalidate(userId);
                     listener.onSuccess();
                 })
                 .addOnFailureListener(e -> {
@@ -96,65 +181,267 @@ public class UserRepository {
                 });
     }
 
+    private DocumentReference followEdge(String followerId, String followeeId) {
+        return db.collection(Constants.COLLECTION_FOLLOWS).document(followerId + "_" + followeeId);
+    }
+
+    private static Map<String, Object> followEdgeData(String followerId, String followeeId) {
+        Map<String, Object> edge = new HashMap<>();
+        edge.put("followerId", followerId);
+        edge.put("followeeId", followeeId);
+        edge.put("createdAt", FieldValue.serverTimestamp());
+        return edge;
+    }
+
     /**
-     * Follow a user
+     * Follow a user. Queued in the {@link Outbox}; the follows/{a}_{b} edge
+     * and both counters are written together once the device is online.
+     * Following twice is a no-op.
      */
     public void followUser(String currentUserId, String targetUserId, OnUpdateListener listener) {
-        // Update current user's following list
-        db.collection(Constants.COLLECTION_USERS)
-                .document(currentUserId)
-                .update("following", FieldValue.arrayUnion(targetUserId),
-                        "followingCount", FieldValue.increment(1))
-                .addOnSuccessListener(aVoid -> {
+        queueFollow(currentUserId, targetUserId, true, listener);
+    }
 
-                    // Update target user's followers list
-                    db.collection(Constants.COLLECTION_USERS)
-                            .document(targetUserId)
-                            .update("followers", FieldValue.arrayUnion(currentUserId),
-                                    "followersCount", FieldValue.increment(1))
-                            .addOnSuccessListener(aVoid2 -> {
-                                Log.d(TAG, "User followed successfully");
-                                listener.onSuccess();
-                            })
+    /**
+     * Unfollow a user: the edge is deleted and both counters decremented
+     * together once the queued write is sent
+     */
+    public void unfollowUser(String currentUserId, String targetUserId, OnUpdateListener listener) {
+        queueFollow(currentUserId, targetUserId, false, listener);
+    }
 
-                            .addOnFailureListener(e -> {
-                                Log.e(TAG, "Error updating followers", e);
-                                listener.onFailure(e.getMessage());
-                            });
-                })
+    private void queueFollow(String currentUserId, String targetUserId, boolean follow, OnUpdateListener listener) {
+        Outbox.getInstance().enqueue(
+                () -> OutboxEntity.toggle(OutboxEntity.TYPE_FOLLOW, currentUserId, targetUserId, follow),
+                new Outbox.OnQueuedListener() {
+                    @Override
+                    public void onQueued() {
+                        Log.d(TAG, (follow ? "Follow" : "Unfollow") + " queued for " + targetUserId);
+                        listener.onSuccess();
+                    }
+
+                    @Override
+                    public void onFailure(String error) {
+                        Log.e(TAG, "Error queuing follow change: " + error);
+                        listener.onFailure(error);
+                    }
+                });
+    }
+
+    DocumentReference followEdgeRef(String followerId, String followeeId) {
+        return followEdge(followerId, followeeId);
+    }
+
+    /**
+     * Writes that create or remove a follow edge and move both counters.
+     * Only valid while the edge is in the opposite state, which the outbox
+     * checks first.
+     */
+    void addFollow(WriteBatch batch, String followerId, String followeeId, boolean follow) {
+        DocumentReference edge = followEdge(followerId, followeeId);
+        if (follow) {
+            batch.set(edge, followEdgeData(followerId, followeeId));
+        } else {
+            batch.delete(edge);
+        }
+        long delta = follow ? 1 : -1;
+        Map<String, Object> following = new HashMap<>();
+        following.put("followingCount", FieldValue.increment(delta));
+        batch.set(db.collection(Constants.COLLECTION_USERS).document(followerId), following, SetOptions.merge());
+        Map<String, Object> followers = new HashMap<>();
+        followers.put("followersCount", FieldValue.increment(delta));
+        batch.set(db.collection(Constants.COLLECTION_USERS).document(followeeId), followers, SetOptions.merge());
+    }
+
+    /**
+     * Follow-up once a follow change committed
+     */
+    void onFollowApplied(String followerId, String followeeId, boolean follow) {
+        cache.invalidate(followerId);
+        cache.invalidate(followeeId);
+        if (follow) {
+            timelineRepository.addAuthor(followerId, followeeId, logOnly("add author"));
+        } else {
+            timelineRepository.removeAuthor(followerId, followeeId, logOnly("remove author"));
+        }
+    }
+
+    /**
+     * Update the profile, uploading profileImageUri/coverImageUri (either
+     * may be null) as the new profile and cover images. Queued in the
+     * {@link Outbox}: the listener fires once the edit is stored and the
+     * upload and write happen once the device is online.
+     */
+    public void updateProfile(String userId, Map<String, Object> updates, Uri profileImageUri, Uri coverImageUri,
+                              OnUpdateListener listener) {
+        Outbox outbox = Outbox.getInstance();
+        outbox.enqueue(() -> {
+            Map<String, Object> payload = new HashMap<>(updates);
+            if (profileImageUri != null) {
+                payload.put(Outbox.KEY_PROFILE_IMAGE_FILE,
+                        outbox.stageImage(profileImageUri, SupabaseClient.BUCKET_PROFILE).getAbsolutePath());
+            }
+            if (coverImageUri != null) {
+                payload.put(Outbox.KEY_COVER_IMAGE_FILE,
+                        outbox.stageImage(coverImageUri, SupabaseClient.BUCKET_COVER).getAbsolutePath());
+            }
+            return OutboxEntity.write(OutboxEntity.TYPE_UPDATE_PROFILE, userId, userId, Outbox.toJson(payload));
+        }, new Outbox.OnQueuedListener() {
+            @Override
+            public void onQueued() {
+                Log.d(TAG, "Profile update queued");
+                listener.onSuccess();
+            }
+
+            @Override
+            public void onFailure(String error) {
+                Log.e(TAG, "Error queuing profile update: " + error);
+                listener.onFailure(error);
+            }
+        });
+    }
+
+    void addUpdateProfile(WriteBatch batch, String userId, Map<String, Object> updates) {
+        batch.set(db.collection(Constants.COLLECTION_USERS).document(userId), updates, SetOptions.merge());
+    }
 
+    /**
+     * Follow-up once a queued profile update committed
+     */
+    void onProfileUpdated(String userId) {
+        Log.d(TAG, "User updated successfully");
+        cache.invalidate(userId);
+    }
+
+    /**
+     * Check whether followerId follows followeeId with a single document read
+     */
+    public void isFollowing(String followerId, String followeeId, OnFollowCheckListener listener) {
+        followEdge(followerId, followeeId)
+                .get()
+                .addOnSuccessListener(documentSnapshot -> listener.onResult(documentSnapshot.exists()))
                 .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error updating following", e);
+                    Log.e(TAG, "Error checking follow state", e);
+                    listener.onResult(false);
+                });
+    }
+
+    /**
+     * Get one page of the ids of users following userId, newest first
+     */
+    public void getFollowers(String userId, DocumentSnapshot cursor, int pageSize,
+                             OnUserIdsPageFetchedListener listener) {
+        fetchEdgePage("followeeId", userId, "followerId", cursor, pageSize, listener);
+    }
+
+    /**
+     * Get one page of the ids of users that userId follows, newest first
+     */
+    public void getFollowing(String userId, DocumentSnapshot cursor, int pageSize,
+                             OnUserIdsPageFetchedListener listener) {
+        fetchEdgePage("followerId", userId, "followeeId", cursor, pageSize, listener);
+    }
+
+    private void fetchEdgePage(String matchField, String userId, String resultField,
+                               DocumentSnapshot cursor, int pageSize, OnUserIdsPageFetchedListener listener) {
+        Query query = db.collection(Constants.COLLECTION_FOLLOWS)
+                .whereEqualTo(matchField, userId)
+                .orderBy("createdAt", Query.Direction.DESCENDING);
+        if (cursor != null) {
+            query = query.startAfter(cursor);
+        }
+        query.limit(pageSize)
+                .get()
+                .addOnSuccessListener(querySnapshot -> {
+                    List<DocumentSnapshot> docs = querySnapshot.getDocuments();
+                    List<String> userIds = new ArrayList<>();
+                    for (DocumentSnapshot doc : docs) {
+                        String id = doc.getString(resultField);
+                        if (id != null) {
+                            userIds.add(id);
+                        }
+                    }
+                    DocumentSnapshot lastSnapshot = docs.isEmpty() ? null : docs.get(docs.size() - 1);
+                    listener.onSuccess(userIds, lastSnapshot, docs.size() == pageSize);
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error fetching follow edges", e);
                     listener.onFailure(e.getMessage());
                 });
     }
 
     /**
-     * Unfollow a user
+     * One-time migration from the old followers/following arrays on the user
+     * document to follows/ edges. Only the edges where userId is the follower
+     * are written, so the client never creates edges on someone else's
+     * behalf; the followers array mirrors other users' following arrays,
+     * which they migrate themselves. Existing edges are found with one query
+     * and left alone, so re-running after a partial failure is safe and keeps
+     * their original createdAt; the arrays are removed once every edge is
+     * written. Counters are left as they are.
      */
-    public void unfollowUser(String currentUserId, String targetUserId, OnUpdateListener listener) {
-        // Update current user's following list
-        db.collection(Constants.COLLECTION_USERS)
-                .document(currentUserId)
-                .update("following", FieldValue.arrayRemove(targetUserId),
-                        "followingCount", FieldValue.increment(-1))
-                .addOnSuccessListener(aVoid -> {
-                    // Update target user's followers list
-                    db.collection(Constants.COLLECTION_USERS)
-                            .document(targetUserId)
-                            .update("followers", FieldValue.arrayRemove(currentUserId),
-                                    "followersCount", FieldValue.increment(-1))
-                            .addOnSuccessListener(aVoid2 -> {
-                                Log.d(TAG, "User unfollowed successfully");
+    public void migrateFollowArrays(String userId, OnUpdateListener listener) {
+        DocumentReference userRef = db.collection(Constants.COLLECTION_USERS).document(userId);
+        userRef.get()
+                .addOnSuccessListener(documentSnapshot -> {
+                    List<String> followers = (List<String>) documentSnapshot.get("followers");
+                    List<String> following = (List<String>) documentSnapshot.get("following");
+                    if (followers == null && following == null) {
+                        listener.onSuccess();
+                        return;
+                    }
+                    List<String> followeeIds = following != null ? following : new ArrayList<>();
+
+                    db.collection(Constants.COLLECTION_FOLLOWS)
+                            .whereEqualTo("followerId", userId)
+                            .get()
+                            .continueWithTask(task -> {
+                                if (!task.isSuccessful()) {
+                                    throw task.getException();
+                                }
+                                Set<String> existing = new HashSet<>();
+                                for (DocumentSnapshot edge : task.getResult().getDocuments()) {
+                                    existing.add(edge.getString("followeeId"));
+                                }
+                                // Only edges that do not exist yet are written, so a re-run
+                                // never moves an existing edge's createdAt and reorders the lists
+                                List<String> missing = new ArrayList<>();
+                                for (String followeeId : followeeIds) {
+                                    if (!existing.contains(followeeId)) {
+                                        missing.add(followeeId);
+                                    }
+                                }
+                                List<Task<Void>> commits = new ArrayList<>();
+                                for (int start = 0; start < missing.size(); start += Constants.MAX_BATCH_WRITES) {
+                                    WriteBatch batch = db.batch();
+                                    for (int i = start; i < Math.min(start + Constants.MAX_BATCH_WRITES, missing.size()); i++) {
+                                        String followeeId = missing.get(i);
+                                        batch.set(followEdge(userId, followeeId), followEdgeData(userId, followeeId),
+                                                SetOptions.merge());
+                                    }
+                                    commits.add(batch.commit());
+                                }
+                                return Tasks.whenAll(commits);
+                            })
+                            .continueWithTask(task -> {
+                                if (!task.isSuccessful()) {
+                                    throw task.getException();
+                                }
+                                return userRef.update("followers", FieldValue.delete(),
+                                        "following", FieldValue.delete());
+                            })
+                            .addOnSuccessListener(aVoid -> {
+                                Log.d(TAG, "Migrated " + followeeIds.size() + " follow edges for " + userId);
+                                cache.invalidate(userId);
                                 listener.onSuccess();
                             })
                             .addOnFailureListener(e -> {
-                                Log.e(TAG, "Error updating followers", e);
+                                Log.e(TAG, "Error migrating follow arrays", e);
                                 listener.onFailure(e.getMessage());
                             });
                 })
                 .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error updating following", e);
+                    Log.e(TAG, "Error loading user for follow migration", e);
                     listener.onFailure(e.getMessage());
                 });
     }
@@ -177,23 +464,26 @@ public class UserRepository {
     }
 
     /**
-     * Search users by username
+     * Search users by username prefix (case-sensitive), at most SEARCH_LIMIT
      */
     public void searchUsers(String query, OnUsersListFetchedListener listener) {
         db.collection(Constants.COLLECTION_USERS)
                 .orderBy("username")
                 .startAt(query)
                 .endAt(query + "\uf8ff")
-                .limit(20)
+                .limit(SEARCH_LIMIT)
                 .get()
                 .addOnSuccessListener(querySnapshot -> {
-                    java.util.List<User> users = new java.util.ArrayList<>();
+                    List<User> users = new ArrayList<>();
                     for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
                         User user = doc.toObject(User.class);
                         if (user != null) {
+                            user.setUserId(doc.getId());
                             users.add(user);
                         }
                     }
+                    localStore.saveUsers(users);
+                    SearchEngine.getInstance().indexUsers(users);
                     listener.onSuccess(users);
                 })
                 .addOnFailureListener(e -> {
@@ -202,6 +492,20 @@ public class UserRepository {
                 });
     }
 
+    private static TimelineRepository.OnUpdateListener logOnly(String action) {
+        return new TimelineRepository.OnUpdateListener() {
+            @Override
+            public void onSuccess() {
+                Log.d(TAG, "Timeline update done: " + action);
+            }
+
+            @Override
+            public void onFailure(String error) {
+                Log.e(TAG, "Timeline update failed (" + action + "): " + error);
+            }
+        };
+    }
+
     // Callback Interfaces
     public interface OnUserCreatedListener {
         void onSuccess();
@@ -222,8 +526,17 @@ public class UserRepository {
         void onResult(boolean exists);
     }
 
+    public interface OnFollowCheckListener {
+        void onResult(boolean isFollowing);
+    }
+
+    public interface OnUserIdsPageFetchedListener {
+        void onSuccess(List<String> userIds, DocumentSnapshot lastSnapshot, boolean hasMore);
+        void onFailure(String error);
+    }
+
     public interface OnUsersListFetchedListener {
-        void onSuccess(java.util.List<User> users);
+        void onSuccess(List<User> users);
         void onFailure(String error);
     }
 }
\ No newline at end of file
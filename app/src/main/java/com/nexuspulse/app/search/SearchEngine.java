@@ -0,0 +1,238 @@
+package com.nexuspulse.app.search;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.nexuspulse.app.models.Post;
+import com.nexuspulse.app.models.User;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * On-device search over the posts and users the app has seen.
+ *
+ * The repositories feed it as posts and users arrive; queries answer with
+ * ids, best first, on the main thread. Both indexes live on one background
+ * thread and are saved to disk {@link #SAVE_DELAY_SECONDS} after a change,
+ * and loaded from there by {@link #init(Context)}. Until init has run
+ * (e.g. in JVM tests) the indexes are kept in memory only.
+ */
+public class SearchEngine {
+    private static final String TAG = "SearchEngine";
+    private static final String DIR = "search";
+    private static final String POSTS_FILE = "posts.idx";
+    private static final String USERS_FILE = "users.idx";
+
+    static final int SAVE_DELAY_SECONDS = 30;
+    // Posts seen longest ago are dropped past this
+    static final int MAX_INDEXED_POSTS = 2000;
+
+    private static SearchEngine instance;
+
+    private final File dir;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Only touched on the executor thread
+    private SearchIndex posts = new SearchIndex();
+    private SearchIndex users = new SearchIndex();
+    private boolean saveScheduled;
+
+    public static synchronized void init(Context context) {
+        if (instance == null || instance.dir == null) {
+            instance = new SearchEngine(new File(context.getFilesDir(), DIR));
+            instance.executor.execute(instance::load);
+        }
+    }
+
+    public static synchronized SearchEngine getInstance() {
+        if (instance == null) {
+            instance = new SearchEngine(null);
+        }
+        return instance;
+    }
+
+    private SearchEngine(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Add or update posts, keeping the {@link #MAX_INDEXED_POSTS} seen most
+     * recently; their text is read on the calling thread
+     */
+    public void indexPosts(List<Post> newPosts) {
+        List<String[]> docs = new ArrayList<>();
+        for (Post post : newPosts) {
+            if (post.getPostId() == null) {
+                continue;
+            }
+            StringBuilder hashtags = new StringBuilder();
+            if (post.getHashtags() != null) {
+                for (String tag : post.getHashtags()) {
+                    hashtags.append(tag.startsWith("#") ? "" : "#").append(tag).append(' ');
+                }
+            }
+            docs.add(new String[]{post.getPostId(), post.getContent(), hashtags.toString(),
+                    post.getUsername()});
+        }
+        update(index -> {
+            for (String[] doc : docs) {
+                index.put(doc[0], doc[1], doc[2], doc[3]);
+            }
+            index.trimTo(MAX_INDEXED_POSTS);
+        }, true);
+    }
+
+    public void removePost(String postId) {
+        update(index -> index.remove(postId), true);
+    }
+
+    /**
+     * Add or update users; their fields are read on the calling thread
+     */
+    public void indexUsers(List<User> newUsers) {
+        List<String[]> docs = new ArrayList<>();
+        for (User user : newUsers) {
+            if (user.getUserId() != null) {
+                docs.add(new String[]{user.getUserId(), user.getUsername(), user.getDisplayName(), user.getBio()});
+            }
+        }
+        update(index -> {
+            for (String[] doc : docs) {
+                index.put(doc[0], doc[1], doc[2], doc[3]);
+            }
+        }, false);
+    }
+
+    public void searchPosts(String query, int limit, OnResultsListener listener) {
+        search(query, limit, true, listener);
+    }
+
+    public void searchUsers(String query, int limit, OnResultsListener listener) {
+        search(query, limit, false, listener);
+    }
+
+    /**
+     * Forget every indexed post and user, in memory and on disk, on sign-out
+     */
+    public void clear() {
+        executor.execute(() -> {
+            posts = new SearchIndex();
+            users = new SearchIndex();
+            if (dir != null) {
+                new File(dir, POSTS_FILE).delete();
+                new File(dir, USERS_FILE).delete();
+            }
+        });
+    }
+
+    private void search(String query, int limit, boolean inPosts, OnResultsListener listener) {
+        executor.execute(() -> {
+            List<String> ids = new ArrayList<>();
+            try {
+                for (SearchIndex.Hit hit : (inPosts ? posts : users).search(query, limit)) {
+                    ids.add(hit.id);
+                }
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error searching for " + query, e);
+            }
+            mainHandler.post(() -> listener.onResults(ids));
+        });
+    }
+
+    private void update(Change change, boolean inPosts) {
+        executor.execute(() -> {
+            try {
+                change.apply(inPosts ? posts : users);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error updating search index", e);
+            }
+            scheduleSave();
+        });
+    }
+
+    private void scheduleSave() {
+        if (dir == null || saveScheduled) {
+            return;
+        }
+        saveScheduled = true;
+        executor.schedule(this::save, SAVE_DELAY_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private void load() {
+        SearchIndex loadedPosts = read(new File(dir, POSTS_FILE));
+        SearchIndex loadedUsers = read(new File(dir, USERS_FILE));
+        if (loadedPosts != null) {
+            posts = loadedPosts;
+        }
+        if (loadedUsers != null) {
+            users = loadedUsers;
+        }
+        Log.d(TAG, "Loaded search index: " + posts.size() + " posts, " + users.size() + " users");
+    }
+
+    private void save() {
+        saveScheduled = false;
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.e(TAG, "Cannot create " + dir);
+            return;
+        }
+        write(posts, new File(dir, POSTS_FILE));
+        write(users, new File(dir, USERS_FILE));
+    }
+
+    private static SearchIndex read(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            return SearchIndex.readFrom(in);
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Discarding unreadable search index " + file.getName(), e);
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Write to a temporary file and rename it, so a crash mid-write leaves
+     * the previous snapshot intact
+     */
+    private static void write(SearchIndex index, File file) {
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            index.writeTo(out);
+        } catch (IOException e) {
+            Log.e(TAG, "Error saving search index " + file.getName(), e);
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            Log.e(TAG, "Error replacing search index " + file.getName());
+            temp.delete();
+        }
+    }
+
+    private interface Change {
+        void apply(SearchIndex index);
+    }
+
+    // Callback Interfaces
+    public interface OnResultsListener {
+        void onResults(List<String> ids);
+    }
+}
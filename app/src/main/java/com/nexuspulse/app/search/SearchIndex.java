@@ -0,0 +1,487 @@
+package com.nexuspulse.app.search;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * In-memory inverted index over short documents (posts or users), ranked
+ * with BM25.
+ *
+ * Every query term must match. The last term also matches as a prefix
+ * while the user is still typing it, and a term that is not in the index
+ * matches terms within one or two typos, found through a trigram index of
+ * the dictionary; both count for less than an exact match. "#tag" only
+ * matches the hashtag.
+ *
+ * Documents are replaced or removed by id, or trimmed oldest first.
+ * Removed documents are skipped and dropped from the postings once they
+ * outnumber live ones. The index is written and read as a binary
+ * snapshot, so loading it does not re-tokenize anything. Not thread-safe;
+ * {@link SearchEngine} confines it to one thread.
+ */
+public class SearchIndex {
+    static final float K1 = 1.2f;
+    static final float B = 0.75f;
+    static final float PREFIX_WEIGHT = 0.8f;
+    static final float FUZZY_WEIGHT = 0.5f;
+    static final int MAX_PREFIX_EXPANSIONS = 64;
+    static final int MAX_FUZZY_EXPANSIONS = 8;
+    private static final int MIN_COMPACT_DEAD_DOCS = 1024;
+    private static final int SNAPSHOT_VERSION = 1;
+
+    // Documents, by internal number; ids[doc] is null once removed
+    private final Map<String, Integer> docNumbers = new HashMap<>();
+    private String[] ids = new String[16];
+    private int[] lengths = new int[16];
+    private int[][] docTerms = new int[16][];
+    private int docCount;
+    private int liveDocs;
+    private long totalLength;
+
+    // Dictionary; term ordinals index terms and postings
+    private final Map<String, Integer> termOrdinals = new HashMap<>();
+    private final List<String> terms = new ArrayList<>();
+    private final List<Postings> postings = new ArrayList<>();
+    private final TreeMap<String, Integer> sortedTerms = new TreeMap<>();
+    private final Map<String, List<Integer>> trigramTerms = new HashMap<>();
+
+    // Per-query scratch, sized to docCount
+    private float[] scores = new float[0];
+    private float[] termBest = new float[0];
+    private int[] matchedTerms = new int[0];
+
+    /**
+     * Index (or re-index) a document from its text fields
+     */
+    public void put(String id, String... fields) {
+        remove(id);
+
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = 0;
+        for (String field : fields) {
+            for (String term : TextAnalyzer.terms(field)) {
+                Integer frequency = frequencies.get(term);
+                frequencies.put(term, frequency == null ? 1 : frequency + 1);
+                length++;
+            }
+        }
+
+        int doc = newDoc(id, length);
+        int[] ordinals = new int[frequencies.size()];
+        int i = 0;
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            int ordinal = ordinal(entry.getKey());
+            postings.get(ordinal).add(doc, entry.getValue());
+            ordinals[i++] = ordinal;
+        }
+        docTerms[doc] = ordinals;
+    }
+
+    public void remove(String id) {
+        Integer doc = docNumbers.remove(id);
+        if (doc == null) {
+            return;
+        }
+        for (int ordinal : docTerms[doc]) {
+            postings.get(ordinal).live--;
+        }
+        ids[doc] = null;
+        docTerms[doc] = null;
+        liveDocs--;
+        totalLength -= lengths[doc];
+
+        int deadDocs = docCount - liveDocs;
+        if (deadDocs >= MIN_COMPACT_DEAD_DOCS && deadDocs > liveDocs) {
+            compact();
+        }
+    }
+
+    /**
+     * Remove the documents put longest ago until at most maxDocs are left.
+     * Re-putting a document counts as putting it now.
+     */
+    public void trimTo(int maxDocs) {
+        // Pick them first; remove() may renumber the documents
+        List<String> oldest = new ArrayList<>();
+        for (int doc = 0; doc < docCount && liveDocs - oldest.size() > maxDocs; doc++) {
+            if (ids[doc] != null) {
+                oldest.add(ids[doc]);
+            }
+        }
+        for (String id : oldest) {
+            remove(id);
+        }
+    }
+
+    public boolean contains(String id) {
+        return docNumbers.containsKey(id);
+    }
+
+    public int size() {
+        return liveDocs;
+    }
+
+    /**
+     * Best limit matches for query, best first. The last term is also
+     * matched as a prefix unless the query ends with a space.
+     */
+    public List<Hit> search(String query, int limit) {
+        List<String> queryTerms = TextAnalyzer.queryTerms(query);
+        if (queryTerms.isEmpty() || liveDocs == 0 || limit <= 0) {
+            return new ArrayList<>();
+        }
+        boolean lastIsPrefix = !Character.isWhitespace(query.charAt(query.length() - 1));
+        ensureScratch();
+
+        float averageLength = totalLength / (float) liveDocs;
+        int[] candidates = new int[16];
+        int candidateCount = 0;
+        int[] touched = new int[16];
+
+        for (int t = 0; t < queryTerms.size(); t++) {
+            String term = queryTerms.get(t);
+            boolean prefix = lastIsPrefix && t == queryTerms.size() - 1;
+            Map<Integer, Float> expansions = expand(term, prefix);
+
+            // Best score of this query term per document, over its expansions
+            int touchedCount = 0;
+            for (Map.Entry<Integer, Float> expansion : expansions.entrySet()) {
+                Postings list = postings.get(expansion.getKey());
+                float idf = (float) Math.log(1 + (liveDocs - list.live + 0.5) / (list.live + 0.5));
+                float weight = expansion.getValue() * idf;
+                for (int k = 0; k < list.size; k++) {
+                    int doc = list.docs[k];
+                    if (ids[doc] == null || matchedTerms[doc] != t) {
+                        continue;
+                    }
+                    int tf = list.freqs[k];
+                    float score = weight * tf * (K1 + 1)
+                            / (tf + K1 * (1 - B + B * lengths[doc] / averageLength));
+                    if (score > termBest[doc]) {
+                        if (termBest[doc] == 0) {
+                            if (touchedCount == touched.length) {
+                                touched = Arrays.copyOf(touched, touchedCount * 2);
+                            }
+                            touched[touchedCount++] = doc;
+                        }
+                        termBest[doc] = score;
+                    }
+                }
+            }
+
+            if (touchedCount == 0) {
+                // Nothing can match every term
+                break;
+            }
+            for (int k = 0; k < touchedCount; k++) {
+                int doc = touched[k];
+                scores[doc] += termBest[doc];
+                matchedTerms[doc] = t + 1;
+                termBest[doc] = 0;
+                if (t == 0) {
+                    if (candidateCount == candidates.length) {
+                        candidates = Arrays.copyOf(candidates, candidateCount * 2);
+                    }
+                    candidates[candidateCount++] = doc;
+                }
+            }
+        }
+
+        PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, Hit.BY_SCORE);
+        for (int k = 0; k < candidateCount; k++) {
+            int doc = candidates[k];
+            if (matchedTerms[doc] == queryTerms.size()) {
+                float score = scores[doc];
+                if (best.size() < limit) {
+                    best.add(new Hit(ids[doc], score));
+                } else if (score > best.peek().score) {
+                    best.poll();
+                    best.add(new Hit(ids[doc], score));
+                }
+            }
+            scores[doc] = 0;
+            matchedTerms[doc] = 0;
+        }
+
+        List<Hit> hits = new ArrayList<>(best);
+        Collections.sort(hits, Collections.reverseOrder(Hit.BY_SCORE));
+        return hits;
+    }
+
+    /**
+     * Dictionary terms a query term stands for, with their weights
+     */
+    private Map<Integer, Float> expand(String term, boolean prefix) {
+        Map<Integer, Float> expansions = new HashMap<>();
+        Integer exact = termOrdinals.get(term);
+        if (exact != null && postings.get(exact).live > 0) {
+            expansions.put(exact, 1f);
+        }
+
+        if (prefix) {
+            int added = 0;
+            for (Integer ordinal : sortedTerms.subMap(term, false, term + Character.MAX_VALUE, true).values()) {
+                if (added == MAX_PREFIX_EXPANSIONS) {
+                    break;
+                }
+                if (postings.get(ordinal).live > 0) {
+                    expansions.put(ordinal, PREFIX_WEIGHT);
+                    added++;
+                }
+            }
+        }
+
+        int maxEdits = TextAnalyzer.maxEdits(term.length());
+        if (expansions.isEmpty() && maxEdits > 0 && term.charAt(0) != '#' && term.charAt(0) != '@') {
+            for (int ordinal : similarTerms(term, maxEdits)) {
+                expansions.put(ordinal, FUZZY_WEIGHT);
+            }
+        }
+        return expansions;
+    }
+
+    /**
+     * Terms within maxEdits of term, closest first. Candidates share
+     * trigrams with term; an edit changes at most three of them.
+     */
+    private List<Integer> similarTerms(String term, int maxEdits) {
+        List<String> trigrams = TextAnalyzer.trigrams(term);
+        Map<Integer, Integer> shared = new HashMap<>();
+        for (String trigram : trigrams) {
+            List<Integer> ordinals = trigramTerms.get(trigram);
+            if (ordinals == null) {
+                continue;
+            }
+            for (int ordinal : ordinals) {
+                Integer count = shared.get(ordinal);
+                shared.put(ordinal, count == null ? 1 : count + 1);
+            }
+        }
+
+        int minShared = Math.max(1, trigrams.size() - 3 * maxEdits);
+        List<int[]> matches = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> entry : shared.entrySet()) {
+            int ordinal = entry.getKey();
+            if (entry.getValue() < minShared || postings.get(ordinal).live == 0) {
+                continue;
+            }
+            int distance = TextAnalyzer.editDistance(term, terms.get(ordinal), maxEdits);
+            if (distance <= maxEdits) {
+                matches.add(new int[]{ordinal, distance});
+            }
+        }
+        Collections.sort(matches, (a, b) -> a[1] != b[1] ? Integer.compare(a[1], b[1]) : Integer.compare(a[0], b[0]));
+
+        List<Integer> similar = new ArrayList<>();
+        for (int i = 0; i < Math.min(MAX_FUZZY_EXPANSIONS, matches.size()); i++) {
+            similar.add(matches.get(i)[0]);
+        }
+        return similar;
+    }
+
+    private int newDoc(String id, int length) {
+        if (docCount == ids.length) {
+            int capacity = docCount * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            docTerms = Arrays.copyOf(docTerms, capacity);
+        }
+        int doc = docCount++;
+        ids[doc] = id;
+        lengths[doc] = length;
+        docNumbers.put(id, doc);
+        liveDocs++;
+        totalLength += length;
+        return doc;
+    }
+
+    private int ordinal(String term) {
+        Integer ordinal = termOrdinals.get(term);
+        if (ordinal != null) {
+            return ordinal;
+        }
+        ordinal = terms.size();
+        terms.add(term);
+        postings.add(new Postings());
+        termOrdinals.put(term, ordinal);
+        sortedTerms.put(term, ordinal);
+        if (term.charAt(0) != '#' && term.charAt(0) != '@') {
+            for (String trigram : TextAnalyzer.trigrams(term)) {
+                List<Integer> ordinals = trigramTerms.get(trigram);
+                if (ordinals == null) {
+                    ordinals = new ArrayList<>();
+                    trigramTerms.put(trigram, ordinals);
+                }
+                ordinals.add(ordinal);
+            }
+        }
+        return ordinal;
+    }
+
+    private void ensureScratch() {
+        if (scores.length < docCount) {
+            int capacity = ids.length;
+            scores = new float[capacity];
+            termBest = new float[capacity];
+            matchedTerms = new int[capacity];
+        }
+    }
+
+    /**
+     * Renumber live documents and drop removed ones from the postings
+     */
+    private void compact() {
+        int[] renumbered = new int[docCount];
+        int next = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            if (ids[doc] != null) {
+                renumbered[doc] = next;
+                ids[next] = ids[doc];
+                lengths[next] = lengths[doc];
+                docTerms[next] = docTerms[doc];
+                docNumbers.put(ids[next], next);
+                next++;
+            } else {
+                renumbered[doc] = -1;
+            }
+        }
+        Arrays.fill(ids, next, docCount, null);
+        Arrays.fill(docTerms, next, docCount, null);
+        docCount = next;
+
+        for (Postings list : postings) {
+            int kept = 0;
+            for (int k = 0; k < list.size; k++) {
+                int doc = renumbered[list.docs[k]];
+                if (doc >= 0) {
+                    list.docs[kept] = doc;
+                    list.freqs[kept] = list.freqs[k];
+                    kept++;
+                }
+            }
+            list.size = kept;
+        }
+    }
+
+    /**
+     * Write the live documents and their postings
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        if (docCount > liveDocs) {
+            compact();
+        }
+        out.writeInt(SNAPSHOT_VERSION);
+        out.writeInt(docCount);
+        for (int doc = 0; doc < docCount; doc++) {
+            out.writeUTF(ids[doc]);
+            out.writeInt(lengths[doc]);
+        }
+
+        int usedTerms = 0;
+        for (Postings list : postings) {
+            if (list.size > 0) {
+                usedTerms++;
+            }
+        }
+        out.writeInt(usedTerms);
+        for (int ordinal = 0; ordinal < terms.size(); ordinal++) {
+            Postings list = postings.get(ordinal);
+            if (list.size == 0) {
+                continue;
+            }
+            out.writeUTF(terms.get(ordinal));
+            out.writeInt(list.size);
+            for (int k = 0; k < list.size; k++) {
+                out.writeInt(list.docs[k]);
+                out.writeInt(list.freqs[k]);
+            }
+        }
+    }
+
+    /**
+     * Read an index written by {@link #writeTo}
+     */
+    public static SearchIndex readFrom(DataInputStream in) throws IOException {
+        int version = in.readInt();
+        if (version != SNAPSHOT_VERSION) {
+            throw new IOException("Unknown search index version " + version);
+        }
+        SearchIndex index = new SearchIndex();
+        int docs = in.readInt();
+        for (int doc = 0; doc < docs; doc++) {
+            String id = in.readUTF();
+            index.newDoc(id, in.readInt());
+        }
+
+        int[] termCounts = new int[docs];
+        int termCount = in.readInt();
+        for (int t = 0; t < termCount; t++) {
+            int ordinal = index.ordinal(in.readUTF());
+            Postings list = index.postings.get(ordinal);
+            int size = in.readInt();
+            for (int k = 0; k < size; k++) {
+                int doc = in.readInt();
+                list.add(doc, in.readInt());
+                termCounts[doc]++;
+            }
+        }
+
+        // Each document's terms, for removing it later
+        for (int doc = 0; doc < docs; doc++) {
+            index.docTerms[doc] = new int[termCounts[doc]];
+            termCounts[doc] = 0;
+        }
+        for (int ordinal = 0; ordinal < index.postings.size(); ordinal++) {
+            Postings list = index.postings.get(ordinal);
+            for (int k = 0; k < list.size; k++) {
+                int doc = list.docs[k];
+                index.docTerms[doc][termCounts[doc]++] = ordinal;
+            }
+        }
+        return index;
+    }
+
+    private static class Postings {
+        int[] docs = new int[4];
+        int[] freqs = new int[4];
+        int size;
+        // Postings whose document is still in the index (document frequency)
+        int live;
+
+        void add(int doc, int freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size] = freq;
+            size++;
+            live++;
+        }
+    }
+
+    /**
+     * A matching document and its score
+     */
+    public static class Hit {
+        static final Comparator<Hit> BY_SCORE = (a, b) -> Float.compare(a.score, b.score);
+
+        public final String id;
+        public final float score;
+
+        Hit(String id, float score) {
+            this.id = id;
+            this.score = score;
+        }
+    }
+}
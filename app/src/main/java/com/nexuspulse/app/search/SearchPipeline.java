@@ -0,0 +1,209 @@
+package com.nexuspulse.app.search;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Search-as-you-type in front of a prefix search backend.
+ *
+ * A query runs {@link #DEBOUNCE_MILLIS} after the last keystroke. Results
+ * are cached per query; a query that extends a cached one whose result was
+ * complete (fewer than pageLimit items) is answered by filtering that
+ * result locally, so narrowing "nex" to "nexuspulse" costs no request.
+ * Responses are only shown while their query is still the one typed, so
+ * a slow answer for an older query never replaces a newer one; it is
+ * still cached. The same query is never in flight twice.
+ *
+ * Main thread only.
+ *
+ * @param <T> result item
+ */
+public class SearchPipeline<T> {
+    private static final String TAG = "SearchPipeline";
+
+    public static final long DEBOUNCE_MILLIS = 300;
+    static final int MAX_CACHED_QUERIES = 32;
+
+    private final Scheduler scheduler;
+    private final Source<T> source;
+    private final Filter<T> filter;
+    private final int pageLimit;
+    private final Listener<T> listener;
+
+    private final Map<String, Entry<T>> cache = new LinkedHashMap<String, Entry<T>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry<T>> eldest) {
+            return size() > MAX_CACHED_QUERIES;
+        }
+    };
+    private final Set<String> inFlight = new HashSet<>();
+    private final Runnable run = this::run;
+    private String query = "";
+    private boolean closed;
+
+    // Counters for logging and tests
+    private int requests;
+    private int cacheAnswers;
+    private int staleResponses;
+
+    public SearchPipeline(Scheduler scheduler, Source<T> source, Filter<T> filter, int pageLimit,
+                          Listener<T> listener) {
+        this.scheduler = scheduler;
+        this.source = source;
+        this.filter = filter;
+        this.pageLimit = pageLimit;
+        this.listener = listener;
+    }
+
+    /**
+     * Call on every text change
+     */
+    public void setQuery(String text) {
+        String next = text == null ? "" : text.trim();
+        if (closed || next.equals(query)) {
+            return;
+        }
+        query = next;
+        scheduler.cancel(run);
+        if (query.isEmpty()) {
+            listener.onCleared();
+            return;
+        }
+        scheduler.schedule(run, DEBOUNCE_MILLIS);
+    }
+
+    /**
+     * Stop for good; pending and in-flight queries are dropped
+     */
+    public void close() {
+        closed = true;
+        scheduler.cancel(run);
+        Log.d(TAG, "Closing: " + requests + " requests, " + cacheAnswers + " answered from cache, "
+                + staleResponses + " stale responses dropped");
+    }
+
+    private void run() {
+        String current = query;
+        List<T> cached = fromCache(current);
+        if (cached != null) {
+            cacheAnswers++;
+            listener.onResults(current, cached);
+            return;
+        }
+        listener.onLoading(current);
+        if (!inFlight.add(current)) {
+            return;
+        }
+
+        requests++;
+        source.search(current, new Callback<T>() {
+            @Override
+            public void onSuccess(List<T> items) {
+                inFlight.remove(current);
+                cache.put(current, new Entry<>(new ArrayList<>(items), items.size() < pageLimit));
+                if (isCurrent(current)) {
+                    listener.onResults(current, items);
+                }
+            }
+
+            @Override
+            public void onFailure(String error) {
+                inFlight.remove(current);
+                if (isCurrent(current)) {
+                    listener.onFailure(current, error);
+                }
+            }
+        });
+    }
+
+    private boolean isCurrent(String answered) {
+        if (!closed && answered.equals(query)) {
+            return true;
+        }
+        staleResponses++;
+        return false;
+    }
+
+    /**
+     * Results for q from the cache: its own entry, or the longest complete
+     * entry for a prefix of q, filtered
+     */
+    private List<T> fromCache(String q) {
+        Entry<T> exact = cache.get(q);
+        if (exact != null) {
+            return exact.items;
+        }
+        for (int length = q.length() - 1; length > 0; length--) {
+            Entry<T> prefix = cache.get(q.substring(0, length));
+            if (prefix != null && prefix.complete) {
+                List<T> narrowed = new ArrayList<>();
+                for (T item : prefix.items) {
+                    if (filter.matches(item, q)) {
+                        narrowed.add(item);
+                    }
+                }
+                cache.put(q, new Entry<>(narrowed, true));
+                return narrowed;
+            }
+        }
+        return null;
+    }
+
+    int getRequests() {
+        return requests;
+    }
+
+    int getCacheAnswers() {
+        return cacheAnswers;
+    }
+
+    int getStaleResponses() {
+        return staleResponses;
+    }
+
+    private static class Entry<T> {
+        final List<T> items;
+        // Holds every match, so longer queries can be filtered from it
+        final boolean complete;
+
+        Entry(List<T> items, boolean complete) {
+            this.items = items;
+            this.complete = complete;
+        }
+    }
+
+    public interface Scheduler {
+        void schedule(Runnable task, long delayMillis);
+        void cancel(Runnable task);
+    }
+
+    /**
+     * Whether item matches query the way the source would
+     */
+    public interface Filter<T> {
+        boolean matches(T item, String query);
+    }
+
+    public interface Source<T> {
+        void search(String query, Callback<T> callback);
+    }
+
+    // Callback Interfaces
+    public interface Callback<T> {
+        void onSuccess(List<T> items);
+        void onFailure(String error);
+    }
+
+    public interface Listener<T> {
+        void onLoading(String query);
+        void onResults(String query, List<T> items);
+        void onFailure(String query, String error);
+        void onCleared();
+    }
+}
@@ -0,0 +1,139 @@
+package com.nexuspulse.app.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Turns text into index terms: case and accents are folded ("Café" and
+ * "cafe" match), words are runs of letters, digits and '_', and a word
+ * written as #tag or @name is also kept with its marker so hashtag and
+ * mention queries can ask for it exactly.
+ */
+public class TextAnalyzer {
+    // Shortest term that is matched with typos
+    static final int MIN_FUZZY_LENGTH = 4;
+
+    /**
+     * Terms to index for text, in order; #tag gives "#tag" and "tag"
+     */
+    public static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        tokenize(text, true, terms);
+        return terms;
+    }
+
+    /**
+     * Terms of a query; #tag stays "#tag" only, so it matches hashtags
+     */
+    public static List<String> queryTerms(String query) {
+        List<String> terms = new ArrayList<>();
+        tokenize(query, false, terms);
+        return terms;
+    }
+
+    /**
+     * Lower-case text and strip accents; ASCII text is only lower-cased
+     */
+    public static String fold(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > 0x7f) {
+                String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+                StringBuilder folded = new StringBuilder(decomposed.length());
+                for (int j = 0; j < decomposed.length(); j++) {
+                    char c = decomposed.charAt(j);
+                    if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                        folded.append(c);
+                    }
+                }
+                return folded.toString().toLowerCase(Locale.ROOT);
+            }
+        }
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    private static void tokenize(String text, boolean expandMarked, List<String> out) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        String folded = fold(text);
+        int length = folded.length();
+        int i = 0;
+        while (i < length) {
+            if (!isWordChar(folded.charAt(i))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < length && isWordChar(folded.charAt(i))) {
+                i++;
+            }
+            String word = folded.substring(start, i);
+            char marker = start > 0 ? folded.charAt(start - 1) : ' ';
+            if (marker == '#' || marker == '@') {
+                out.add(marker + word);
+                if (expandMarked) {
+                    out.add(word);
+                }
+            } else {
+                out.add(word);
+            }
+        }
+    }
+
+    static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    /**
+     * Character trigrams of term padded with spaces, for finding terms
+     * spelled alike
+     */
+    static List<String> trigrams(String term) {
+        String padded = " " + term + " ";
+        List<String> trigrams = new ArrayList<>(padded.length() - 2);
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    /**
+     * Typos allowed when matching a query term of this length
+     */
+    static int maxEdits(int length) {
+        return length < MIN_FUZZY_LENGTH ? 0 : length <= 5 ? 1 : 2;
+    }
+
+    /**
+     * Levenshtein distance between a and b, or max + 1 once it is known to
+     * exceed max
+     */
+    static int editDistance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], max + 1);
+    }
+}
@@ -0,0 +1,27 @@
+package com.nexuspulse.app.utils;
+
+import java.util.Locale;
+
+/**
+ * Sort keys for comments.
+ *
+ * A top-level comment's path is its creation time (fixed-width base 36)
+ * followed by its id, so ordering a post's comments by path lists them in
+ * the order they were written whatever their ids.
+ */
+public class CommentPath {
+    // 36^9 ms is about 3,000 years, so every timestamp fits in 9 digits
+    private static final int TIME_WIDTH = 9;
+
+    /**
+     * Path of a top-level comment
+     */
+    public static String root(long createdAtMillis, String commentId) {
+        String time = Long.toString(Math.max(0, createdAtMillis), 36).toLowerCase(Locale.ROOT);
+        StringBuilder segment = new StringBuilder(TIME_WIDTH + commentId.length());
+        for (int i = time.length(); i < TIME_WIDTH; i++) {
+            segment.append('0');
+        }
+        return segment.append(time).append(commentId).toString();
+    }
+}
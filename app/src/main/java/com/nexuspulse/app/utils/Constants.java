@@ -4,9 +4,22 @@ public class Constants {
     // Firebase Collections
     public static final String COLLECTION_USERS = "users";
     public static final String COLLECTION_POSTS = "posts";
+    // Legacy top-level comments; comments now live under each post
     public static final String COLLECTION_COMMENTS = "comments";
+    public static final String SUBCOLLECTION_COMMENTS = "comments";
     public static final String COLLECTION_NOTIFICATIONS = "notifications";
+    public static final String SUBCOLLECTION_USER_NOTIFICATIONS = "userNotifications";
+    public static final String SUBCOLLECTION_NOTIFICATION_ACTORS = "actors";
     public static final String COLLECTION_MESSAGES = "messages";
+    public static final String COLLECTION_FOLLOWS = "follows";
+    public static final String COLLECTION_TIMELINES = "timelines";
+    public static final String SUBCOLLECTION_TIMELINE_ENTRIES = "entries";
+    public static final String COLLECTION_REACTIONS = "reactions";
+    public static final String SUBCOLLECTION_LIKES = "likes";
+    public static final String SUBCOLLECTION_RETWEETS = "retweets";
+    public static final String SUBCOLLECTION_COUNTER_SHARDS = "shards";
+    public static final String COLLECTION_HASHTAGS = "hashtags";
+    public static final String SUBCOLLECTION_HASHTAG_HOURS = "hours";
 
     // SharedPreferences
     public static final String PREF_NAME = "NexusPulsePrefs";
@@ -14,6 +27,7 @@ public class Constants {
     public static final String KEY_IS_LOGGED_IN = "isLoggedIn";
     public static final String KEY_USERNAME = "username";
     public static final String KEY_EMAIL = "email";  // ← ADD THIS!
+    public static final String KEY_FOLLOW_EDGES_MIGRATED = "followEdgesMigrated_";
 
 
 
@@ -35,4 +49,6 @@ public class Constants {
     public static final int MAX_USERNAME_LENGTH = 20;
     public static final int MIN_USERNAME_LENGTH = 3;
     public static final int MIN_PASSWORD_LENGTH = 6;
+    public static final int MAX_BATCH_WRITES = 500;
+    public static final int MAX_POST_IMAGES = 4;
 }
@@ -0,0 +1,53 @@
+package com.nexuspulse.app.utils;
+
+/**
+ * Glide's cache sizes for one device, from its per-app memory class and
+ * screen size.
+ *
+ * Budgets are counted in full-colour screens. Feed thumbnails decode as
+ * RGB_565, so a screen here holds about two screens of feed images. The
+ * memory cache keeps {@link #MEMORY_CACHE_SCREENS} screens so scrolling
+ * back redraws from memory. The bitmap pool keeps
+ * {@link #BITMAP_POOL_SCREENS}: RGB_565 bitmaps cannot be hardware
+ * bitmaps, so decoding and cropping them reuse pooled ones. Together they
+ * stay under {@link #MAX_HEAP_SHARE} of the memory class
+ * ({@link #LOW_RAM_MAX_HEAP_SHARE} on low-RAM devices); past that, both
+ * shrink in proportion.
+ */
+public class ImageCacheBudget {
+    static final float MEMORY_CACHE_SCREENS = 3;
+    static final float BITMAP_POOL_SCREENS = 2;
+    static final float MAX_HEAP_SHARE = 0.25f;
+    static final float LOW_RAM_MAX_HEAP_SHARE = 0.15f;
+    static final long DISK_CACHE_BYTES = 150L * 1024 * 1024;
+    static final long LOW_RAM_DISK_CACHE_BYTES = 50L * 1024 * 1024;
+
+    private static final int BYTES_PER_PIXEL = 4;
+
+    public final long memoryCacheBytes;
+    public final long bitmapPoolBytes;
+    public final long diskCacheBytes;
+
+    ImageCacheBudget(long memoryCacheBytes, long bitmapPoolBytes, long diskCacheBytes) {
+        this.memoryCacheBytes = memoryCacheBytes;
+        this.bitmapPoolBytes = bitmapPoolBytes;
+        this.diskCacheBytes = diskCacheBytes;
+    }
+
+    /**
+     * Budget for a device whose ActivityManager reports memoryClassMb and
+     * lowRam, with a screen of widthPx x heightPx
+     */
+    public static ImageCacheBudget forDevice(int memoryClassMb, boolean lowRam, int widthPx, int heightPx) {
+        long screenBytes = (long) widthPx * heightPx * BYTES_PER_PIXEL;
+        long memoryCache = (long) (MEMORY_CACHE_SCREENS * screenBytes);
+        long bitmapPool = (long) (BITMAP_POOL_SCREENS * screenBytes);
+        long max = (long) (memoryClassMb * 1024L * 1024L * (lowRam ? LOW_RAM_MAX_HEAP_SHARE : MAX_HEAP_SHARE));
+        if (memoryCache + bitmapPool > max) {
+            double scale = max / (double) (memoryCache + bitmapPool);
+            memoryCache = (long) (memoryCache * scale);
+            bitmapPool = (long) (bitmapPool * scale);
+        }
+        return new ImageCacheBudget(memoryCache, bitmapPool, lowRam ? LOW_RAM_DISK_CACHE_BYTES : DISK_CACHE_BYTES);
+    }
+}
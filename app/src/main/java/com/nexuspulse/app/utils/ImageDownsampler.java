@@ -0,0 +1,156 @@
+package com.nexuspulse.app.utils;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Shrinks a picked image before upload without decoding it at full
+ * resolution: the bounds are read first, the decode is subsampled with
+ * inSampleSize, and the result is scaled, turned upright and re-encoded
+ * into a file.
+ */
+public class ImageDownsampler {
+    private static final String TAG = "ImageDownsampler";
+
+    /**
+     * Encode imageUri per options into file; the file is removed if encoding fails
+     */
+    public static void encodeTo(Context context, Uri imageUri, ImageUploadOptions options, File file)
+            throws IOException {
+        ContentResolver resolver = context.getContentResolver();
+
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream in = open(resolver, imageUri)) {
+            BitmapFactory.decodeStream(in, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            throw new IOException("Not a decodable image: " + imageUri);
+        }
+
+        BitmapFactory.Options decodeOptions = new BitmapFactory.Options();
+        decodeOptions.inSampleSize = calculateInSampleSize(
+                bounds.outWidth, bounds.outHeight, options.getMaxDimension());
+        Bitmap bitmap;
+        try (InputStream in = open(resolver, imageUri)) {
+            bitmap = BitmapFactory.decodeStream(in, null, decodeOptions);
+        }
+        if (bitmap == null) {
+            throw new IOException("Failed to decode " + imageUri);
+        }
+        bitmap = scaleAndRotate(bitmap, options.getMaxDimension(), readOrientation(resolver, imageUri));
+
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            if (!bitmap.compress(options.getFormat().compressFormat(), options.getQuality(), out)) {
+                throw new IOException("Failed to encode " + imageUri);
+            }
+        } catch (IOException e) {
+            file.delete();
+            throw e;
+        } finally {
+            bitmap.recycle();
+        }
+
+        Log.d(TAG, "Encoded " + bounds.outWidth + "x" + bounds.outHeight + " image to "
+                + file.length() + " bytes (inSampleSize " + decodeOptions.inSampleSize + ")");
+    }
+
+    /**
+     * Largest power of two that keeps the decoded image's longest edge at
+     * or above maxDimension, so the final scale never upsamples
+     */
+    static int calculateInSampleSize(int width, int height, int maxDimension) {
+        int longest = Math.max(width, height);
+        int sampleSize = 1;
+        if (maxDimension <= 0) {
+            return sampleSize;
+        }
+        while (longest / (sampleSize * 2) >= maxDimension) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * Size that fits within maxDimension on both edges, keeping the aspect ratio
+     */
+    static int[] targetSize(int width, int height, int maxDimension) {
+        int longest = Math.max(width, height);
+        if (maxDimension <= 0 || longest <= maxDimension) {
+            return new int[]{width, height};
+        }
+        float scale = (float) maxDimension / longest;
+        return new int[]{
+                Math.max(1, Math.round(width * scale)),
+                Math.max(1, Math.round(height * scale))
+        };
+    }
+
+    private static Bitmap scaleAndRotate(Bitmap source, int maxDimension, int orientation) {
+        int[] size = targetSize(source.getWidth(), source.getHeight(), maxDimension);
+        Matrix matrix = new Matrix();
+        matrix.setScale((float) size[0] / source.getWidth(), (float) size[1] / source.getHeight());
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_ROTATE_90:
+                matrix.postRotate(90);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_180:
+                matrix.postRotate(180);
+                break;
+            case ExifInterface.ORIENTATION_ROTATE_270:
+                matrix.postRotate(270);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL:
+                matrix.postScale(-1, 1);
+                break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL:
+                matrix.postScale(1, -1);
+                break;
+            default:
+                break;
+        }
+        if (matrix.isIdentity()) {
+            return source;
+        }
+        Bitmap result = Bitmap.createBitmap(source, 0, 0, source.getWidth(), source.getHeight(), matrix, true);
+        if (result != source) {
+            source.recycle();
+        }
+        return result;
+    }
+
+    /**
+     * Re-encoding drops EXIF, so the orientation has to be applied to the pixels
+     */
+    private static int readOrientation(ContentResolver resolver, Uri imageUri) {
+        try (InputStream in = open(resolver, imageUri)) {
+            return new ExifInterface(in).getAttributeInt(
+                    ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+        } catch (IOException e) {
+            Log.d(TAG, "No EXIF orientation for " + imageUri);
+            return ExifInterface.ORIENTATION_NORMAL;
+        }
+    }
+
+    private static InputStream open(ContentResolver resolver, Uri imageUri) throws IOException {
+        InputStream in = resolver.openInputStream(imageUri);
+        if (in == null) {
+            throw new FileNotFoundException("Cannot open " + imageUri);
+        }
+        return in;
+    }
+}
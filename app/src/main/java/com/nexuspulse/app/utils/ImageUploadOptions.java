@@ -0,0 +1,63 @@
+package com.nexuspulse.app.utils;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+
+/**
+ * How an image is prepared before upload: the longest edge it may keep,
+ * the encoder quality and the output format. {@link #ORIGINAL} uploads the
+ * picked file byte for byte.
+ */
+public class ImageUploadOptions {
+
+    public enum Format {
+        JPEG("image/jpeg", ".jpg"),
+        WEBP("image/webp", ".webp");
+
+        public final String mimeType;
+        public final String extension;
+
+        Format(String mimeType, String extension) {
+            this.mimeType = mimeType;
+            this.extension = extension;
+        }
+
+        @SuppressWarnings("deprecation")
+        Bitmap.CompressFormat compressFormat() {
+            if (this == JPEG) {
+                return Bitmap.CompressFormat.JPEG;
+            }
+            return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                    ? Bitmap.CompressFormat.WEBP_LOSSY
+                    : Bitmap.CompressFormat.WEBP;
+        }
+    }
+
+    public static final ImageUploadOptions ORIGINAL = new ImageUploadOptions(0, 100, null);
+
+    private final int maxDimension;
+    private final int quality;
+    private final Format format;
+
+    public ImageUploadOptions(int maxDimension, int quality, Format format) {
+        this.maxDimension = maxDimension;
+        this.quality = quality;
+        this.format = format;
+    }
+
+    public int getMaxDimension() {
+        return maxDimension;
+    }
+
+    public int getQuality() {
+        return quality;
+    }
+
+    public Format getFormat() {
+        return format;
+    }
+
+    public boolean keepsOriginal() {
+        return format == null;
+    }
+}
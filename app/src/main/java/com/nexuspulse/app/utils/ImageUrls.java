@@ -0,0 +1,58 @@
+package com.nexuspulse.app.utils;
+
+import java.util.Locale;
+
+/**
+ * Size-aware image URLs. Public Supabase Storage objects are asked for
+ * through the image transformation endpoint at roughly the size they are
+ * shown, so a 2048px upload is not downloaded and decoded to fill a
+ * 200dp feed row. Widths round up to {@link #WIDTH_BUCKETS}, so views of
+ * similar size share one rendition in the CDN and in Glide's disk cache.
+ *
+ * Anything else (other hosts, GIFs, which a transform would flatten) is
+ * returned unchanged.
+ */
+public class ImageUrls {
+    static final String OBJECT_PATH = "/storage/v1/object/public/";
+    static final String RENDER_PATH = "/storage/v1/render/image/public/";
+
+    static final int[] WIDTH_BUCKETS = {96, 192, 320, 480, 720, 1080, 1440};
+    static final int THUMBNAIL_QUALITY = 75;
+
+    /**
+     * url rendered to cover widthPx x heightPx, rounded up to a width bucket
+     * with the same aspect ratio
+     */
+    public static String sized(String url, int widthPx, int heightPx) {
+        if (url == null || widthPx <= 0 || heightPx <= 0) {
+            return url;
+        }
+        int objectAt = url.indexOf(OBJECT_PATH);
+        if (objectAt < 0 || isGif(url)) {
+            return url;
+        }
+        int width = bucketWidth(widthPx);
+        int height = (int) Math.round(heightPx * (double) width / widthPx);
+        return url.substring(0, objectAt) + RENDER_PATH + url.substring(objectAt + OBJECT_PATH.length())
+                + (url.indexOf('?') < 0 ? "?" : "&")
+                + "width=" + width + "&height=" + height + "&resize=cover&quality=" + THUMBNAIL_QUALITY;
+    }
+
+    /**
+     * Smallest bucket at least widthPx wide, or the largest bucket
+     */
+    static int bucketWidth(int widthPx) {
+        for (int bucket : WIDTH_BUCKETS) {
+            if (bucket >= widthPx) {
+                return bucket;
+            }
+        }
+        return WIDTH_BUCKETS[WIDTH_BUCKETS.length - 1];
+    }
+
+    private static boolean isGif(String url) {
+        int end = url.indexOf('?');
+        String path = end < 0 ? url : url.substring(0, end);
+        return path.toLowerCase(Locale.ROOT).endsWith(".gif");
+    }
+}
@@ -0,0 +1,98 @@
+package com.nexuspulse.app.utils;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Runs one job per item on a bounded executor and waits for all of them.
+ * Each item retries on its own after a jittered backoff, so one flaky
+ * upload does not send the others again, and the executor's thread count
+ * caps how many images are decoded or on the wire at once. An upload the
+ * server rejects is not retried.
+ */
+public class ParallelBatch {
+    private static final String TAG = "ParallelBatch";
+
+    /**
+     * Results of job for each item, in item order. An item whose job threw
+     * or returned null on every one of maxAttempts tries has a null result.
+     *
+     * @throws UploadRejectedException once every job is done, if any item's
+     *         upload was rejected
+     */
+    public static <T, R> List<R> run(ExecutorService executor, List<T> items, int maxAttempts, Job<T, R> job)
+            throws InterruptedException, UploadRejectedException {
+        return run(executor, items, maxAttempts, job, Thread::sleep);
+    }
+
+    static <T, R> List<R> run(ExecutorService executor, List<T> items, int maxAttempts, Job<T, R> job,
+                              ResumableUploader.Sleeper sleeper)
+            throws InterruptedException, UploadRejectedException {
+        List<Future<R>> futures = new ArrayList<>();
+        for (T item : items) {
+            futures.add(executor.submit(() -> attempt(item, maxAttempts, job, sleeper)));
+        }
+        List<R> results = new ArrayList<>();
+        UploadRejectedException rejected = null;
+        try {
+            for (Future<R> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    // attempt() only lets a rejection or an Error through
+                    if (e.getCause() instanceof UploadRejectedException) {
+                        if (rejected == null) {
+                            rejected = (UploadRejectedException) e.getCause();
+                        }
+                    } else {
+                        Log.e(TAG, "Job crashed", e.getCause());
+                    }
+                    results.add(null);
+                }
+            }
+        } catch (InterruptedException e) {
+            for (Future<R> future : futures) {
+                future.cancel(true);
+            }
+            throw e;
+        }
+        if (rejected != null) {
+            throw rejected;
+        }
+        return results;
+    }
+
+    private static <T, R> R attempt(T item, int maxAttempts, Job<T, R> job, ResumableUploader.Sleeper sleeper)
+            throws InterruptedException, UploadRejectedException {
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                R result = job.run(item);
+                if (result != null) {
+                    return result;
+                }
+                Log.e(TAG, "Attempt " + attempt + "/" + maxAttempts + " failed for " + item);
+            } catch (InterruptedException | UploadRejectedException e) {
+                throw e;
+            } catch (Exception e) {
+                Log.e(TAG, "Attempt " + attempt + "/" + maxAttempts + " failed for " + item + ": " + e.getMessage());
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException();
+            }
+            if (attempt < maxAttempts) {
+                sleeper.sleep(ResumableUploader.backoffMillis(attempt - 1, ThreadLocalRandom.current()));
+            }
+        }
+        return null;
+    }
+
+    public interface Job<T, R> {
+        R run(T item) throws Exception;
+    }
+}
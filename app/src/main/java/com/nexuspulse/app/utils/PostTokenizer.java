@@ -0,0 +1,111 @@
+package com.nexuspulse.app.utils;
+
+import com.nexuspulse.app.search.TextAnalyzer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the #hashtags and @mentions in post text in one left-to-right
+ * pass, without regular expressions.
+ *
+ * A marker only counts at the start of the text or after a character that
+ * cannot be part of a word, so "a#b" and "bob@mail.com" are neither. A
+ * hashtag is a run of letters, digits and '_' holding at least one letter,
+ * stored lower-cased and without accents or '#', so #Café and #cafe are
+ * the same tag. A mention is a username as written (see
+ * {@link ValidationUtil#isValidUsername}). Each is kept once, in order of
+ * first appearance, up to {@link #MAX_PER_POST}.
+ */
+public class PostTokenizer {
+    public static final int MAX_PER_POST = 10;
+    public static final int MAX_TAG_LENGTH = 50;
+    private static final int MIN_MENTION_LENGTH = 3;
+    private static final int MAX_MENTION_LENGTH = 20;
+
+    public static Tokens tokenize(String text) {
+        Tokens tokens = new Tokens();
+        if (text == null) {
+            return tokens;
+        }
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char marker = text.charAt(i);
+            if ((marker != '#' && marker != '@') || (i > 0 && isWordChar(text.charAt(i - 1)))) {
+                i++;
+                continue;
+            }
+            int start = ++i;
+            boolean hasLetter = false;
+            boolean plain = true;
+            while (i < length && isWordChar(text.charAt(i))) {
+                char c = text.charAt(i);
+                hasLetter |= Character.isLetter(c);
+                plain &= c < 0x80;
+                i++;
+            }
+            int tokenLength = i - start;
+            if (marker == '#') {
+                if (hasLetter && tokenLength <= MAX_TAG_LENGTH && tokens.hashtags.size() < MAX_PER_POST) {
+                    addOnce(tokens.hashtags, plain ? lowerAscii(text, start, i) : TextAnalyzer.fold(text.substring(start, i)));
+                }
+            } else if (plain && tokenLength >= MIN_MENTION_LENGTH && tokenLength <= MAX_MENTION_LENGTH
+                    && tokens.mentions.size() < MAX_PER_POST) {
+                addOnce(tokens.mentions, text.substring(start, i));
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * The stored form of a tag typed by a user ("#Launch" is "launch"), or
+     * null if it is not a valid tag
+     */
+    public static String normalizeTag(String tag) {
+        if (tag == null) {
+            return null;
+        }
+        String body = tag.startsWith("#") ? tag.substring(1) : tag;
+        for (int i = 0; i < body.length(); i++) {
+            if (!isWordChar(body.charAt(i))) {
+                return null;
+            }
+        }
+        List<String> hashtags = tokenize("#" + body).hashtags;
+        return hashtags.isEmpty() ? null : hashtags.get(0);
+    }
+
+    private static boolean isWordChar(char c) {
+        return c == '_' || (c < 0x80 ? (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                : Character.isLetterOrDigit(c));
+    }
+
+    private static String lowerAscii(String text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                char[] chars = new char[end - start];
+                text.getChars(start, end, chars, 0);
+                for (int j = i - start; j < chars.length; j++) {
+                    if (chars[j] >= 'A' && chars[j] <= 'Z') {
+                        chars[j] += 'a' - 'A';
+                    }
+                }
+                return new String(chars);
+            }
+        }
+        return text.substring(start, end);
+    }
+
+    private static void addOnce(List<String> list, String value) {
+        if (!list.contains(value)) {
+            list.add(value);
+        }
+    }
+
+    public static class Tokens {
+        public final List<String> hashtags = new ArrayList<>();
+        public final List<String> mentions = new ArrayList<>();
+    }
+}
@@ -0,0 +1,234 @@
+package com.nexuspulse.app.utils;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.Random;
+
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.ByteString;
+
+/**
+ * Resumable uploads through Supabase Storage's TUS endpoint.
+ *
+ * The file goes up in fixed-size PATCH chunks. After a dropped connection
+ * or a server error the upload waits (exponential backoff with full
+ * jitter), asks the server how much it holds with HEAD and continues from
+ * there. The object name is the idempotency key: it is fixed by the caller
+ * and created with x-upsert, so retrying never leaves a second object.
+ */
+public class ResumableUploader {
+    private static final String TAG = "ResumableUploader";
+
+    private static final String TUS_VERSION = "1.0.0";
+    private static final MediaType OFFSET_OCTET_STREAM = MediaType.get("application/offset+octet-stream");
+
+    // Supabase requires every chunk but the last to be exactly 6 MB
+    static final int DEFAULT_CHUNK_SIZE = 6 * 1024 * 1024;
+    // Consecutive failures without progress before giving up
+    static final int MAX_ATTEMPTS = 5;
+    static final long BASE_BACKOFF_MILLIS = 500;
+    static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private final OkHttpClient client;
+    private final String baseUrl;
+    private final String apiKey;
+    private final int chunkSize;
+    private final Random random;
+    private final Sleeper sleeper;
+
+    public ResumableUploader(OkHttpClient client, String baseUrl, String apiKey) {
+        this(client, baseUrl, apiKey, DEFAULT_CHUNK_SIZE, new Random(), Thread::sleep);
+    }
+
+    ResumableUploader(OkHttpClient client, String baseUrl, String apiKey, int chunkSize,
+                      Random random, Sleeper sleeper) {
+        // Retries are ours; OkHttp must not silently replay a half-sent chunk
+        this.client = client.newBuilder().retryOnConnectionFailure(false).build();
+        this.baseUrl = baseUrl;
+        this.apiKey = apiKey;
+        this.chunkSize = chunkSize;
+        this.random = random;
+        this.sleeper = sleeper;
+    }
+
+    /**
+     * Upload body to bucketName/objectName, blocking until the server holds
+     * every byte (true) or the upload kept failing (false). An upload the
+     * server refuses throws {@link UploadRejectedException} instead. The
+     * body's length must be known. Call off the main thread.
+     */
+    public boolean upload(String bucketName, String objectName, StreamingRequestBody body,
+                          OnProgressListener listener) throws InterruptedException, UploadRejectedException {
+        long length = body.contentLength();
+        HttpUrl uploadUrl = null;
+        long offset = 0;
+        int failures = 0;
+
+        while (true) {
+            try {
+                if (uploadUrl == null) {
+                    uploadUrl = create(bucketName, objectName, body.contentType(), length);
+                    offset = 0;
+                } else if (failures > 0) {
+                    offset = serverOffset(uploadUrl);
+                    Log.d(TAG, "Resuming " + objectName + " at " + offset + "/" + length);
+                }
+
+                while (offset < length) {
+                    long chunkLength = Math.min(chunkSize, length - offset);
+                    offset = patch(uploadUrl, offset, body.slice(offset, chunkLength, OFFSET_OCTET_STREAM));
+                    failures = 0;
+                    if (listener != null) {
+                        listener.onProgress(offset, length);
+                    }
+                }
+                Log.d(TAG, "Uploaded " + length + " bytes to " + bucketName + "/" + objectName);
+                return true;
+
+            } catch (HttpStatusException e) {
+                if (e.code == 404 || e.code == 410) {
+                    // The server forgot the upload; start a new one under the same name
+                    uploadUrl = null;
+                } else if (!isRetryable(e.code)) {
+                    Log.e(TAG, "Upload rejected: " + e.getMessage());
+                    throw new UploadRejectedException(e.code, e.getMessage());
+                }
+                failures++;
+                if (!backOff(failures, offset, length, e)) {
+                    return false;
+                }
+            } catch (IOException e) {
+                failures++;
+                if (!backOff(failures, offset, length, e)) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    private boolean backOff(int failures, long offset, long length, IOException e) throws InterruptedException {
+        if (failures >= MAX_ATTEMPTS) {
+            Log.e(TAG, "Giving up after " + failures + " failed attempts at " + offset + "/" + length, e);
+            return false;
+        }
+        long delay = backoffMillis(failures - 1, random);
+        Log.d(TAG, "Upload interrupted at " + offset + "/" + length + ", retrying in " + delay + "ms: "
+                + e.getMessage());
+        sleeper.sleep(delay);
+        return true;
+    }
+
+    /**
+     * Full-jitter backoff: uniform in [0, min(MAX, BASE * 2^attempt)]
+     */
+    static long backoffMillis(int attempt, Random random) {
+        long cap = BASE_BACKOFF_MILLIS << Math.min(attempt, 16);
+        return (long) (random.nextDouble() * Math.min(MAX_BACKOFF_MILLIS, cap));
+    }
+
+    private static boolean isRetryable(int code) {
+        // 409: our offset disagreed with the server's; 423: the upload is locked by a stale request
+        return code >= 500 || code == 409 || code == 423 || code == 429;
+    }
+
+    private HttpUrl create(String bucketName, String objectName, MediaType contentType, long length)
+            throws IOException {
+        String metadata = "bucketName " + base64(bucketName)
+                + ",objectName " + base64(objectName)
+                + ",contentType " + base64(contentType != null ? contentType.toString() : "application/octet-stream")
+                + ",cacheControl " + base64("3600");
+        Request request = authorized(new Request.Builder())
+                .url(baseUrl + "/storage/v1/upload/resumable")
+                .header("Upload-Length", String.valueOf(length))
+                .header("Upload-Metadata", metadata)
+                .header("x-upsert", "true")
+                .post(RequestBody.create(new byte[0], null))
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            check(response);
+            String location = response.header("Location");
+            HttpUrl uploadUrl = location != null ? response.request().url().resolve(location) : null;
+            if (uploadUrl == null) {
+                throw new IOException("Upload created without a usable Location: " + location);
+            }
+            return uploadUrl;
+        }
+    }
+
+    private long patch(HttpUrl uploadUrl, long offset, RequestBody chunk) throws IOException {
+        Request request = authorized(new Request.Builder())
+                .url(uploadUrl)
+                .header("Upload-Offset", String.valueOf(offset))
+                .patch(chunk)
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            check(response);
+            return uploadOffset(response);
+        }
+    }
+
+    private long serverOffset(HttpUrl uploadUrl) throws IOException {
+        Request request = authorized(new Request.Builder())
+                .url(uploadUrl)
+                .head()
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            check(response);
+            return uploadOffset(response);
+        }
+    }
+
+    private Request.Builder authorized(Request.Builder builder) {
+        return builder
+                .header("Authorization", "Bearer " + apiKey)
+                .header("apikey", apiKey)
+                .header("Tus-Resumable", TUS_VERSION);
+    }
+
+    private static void check(Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            String body = response.body() != null ? response.body().string() : "";
+            throw new HttpStatusException(response.code(), body);
+        }
+    }
+
+    private static long uploadOffset(Response response) throws IOException {
+        String header = response.header("Upload-Offset");
+        try {
+            return Long.parseLong(header);
+        } catch (NumberFormatException e) {
+            throw new IOException("Bad Upload-Offset: " + header);
+        }
+    }
+
+    private static String base64(String value) {
+        return ByteString.encodeUtf8(value).base64();
+    }
+
+    private static class HttpStatusException extends IOException {
+        final int code;
+
+        HttpStatusException(int code, String body) {
+            super("HTTP " + code + " " + body);
+            this.code = code;
+        }
+    }
+
+    interface Sleeper {
+        void sleep(long millis) throws InterruptedException;
+    }
+
+    // Callback Interfaces
+    public interface OnProgressListener {
+        void onProgress(long bytesSent, long totalBytes);
+    }
+}
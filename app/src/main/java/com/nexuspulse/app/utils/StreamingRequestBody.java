@@ -0,0 +1,98 @@
+package com.nexuspulse.app.utils;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * Request body that copies its stream into the socket segment by segment,
+ * so an upload never holds the whole file in memory. The stream is opened
+ * again on every write, which lets the request be retried, and
+ * {@link #slice} exposes any byte range of it for chunked uploads.
+ */
+public class StreamingRequestBody extends RequestBody {
+
+    private final MediaType contentType;
+    private final long offset;
+    private final long contentLength;
+    private final StreamOpener opener;
+    private volatile long bytesWritten;
+
+    StreamingRequestBody(MediaType contentType, long contentLength, StreamOpener opener) {
+        this(contentType, 0, contentLength, opener);
+    }
+
+    private StreamingRequestBody(MediaType contentType, long offset, long contentLength, StreamOpener opener) {
+        this.contentType = contentType;
+        this.offset = offset;
+        this.contentLength = contentLength;
+        this.opener = opener;
+    }
+
+    public static StreamingRequestBody fromFile(File file, MediaType contentType) {
+        return new StreamingRequestBody(contentType, file.length(), () -> new FileInputStream(file));
+    }
+
+    /**
+     * Body for length bytes starting at offset of this one
+     */
+    public StreamingRequestBody slice(long offset, long length, MediaType contentType) {
+        return new StreamingRequestBody(contentType, this.offset + offset, length, opener);
+    }
+
+    @Override
+    public MediaType contentType() {
+        return contentType;
+    }
+
+    @Override
+    public long contentLength() {
+        return contentLength;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        InputStream in = opener.open();
+        try (Source source = Okio.source(in)) {
+            skipFully(in, offset);
+            if (contentLength < 0) {
+                bytesWritten = sink.writeAll(source);
+            } else {
+                sink.write(source, contentLength);
+                bytesWritten = contentLength;
+            }
+        }
+    }
+
+    private static void skipFully(InputStream in, long count) throws IOException {
+        while (count > 0) {
+            long skipped = in.skip(count);
+            if (skipped <= 0) {
+                if (in.read() == -1) {
+                    throw new EOFException("Stream ended before offset");
+                }
+                skipped = 1;
+            }
+            count -= skipped;
+        }
+    }
+
+    /**
+     * Bytes sent by the last completed write
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    interface StreamOpener {
+        InputStream open() throws IOException;
+    }
+}
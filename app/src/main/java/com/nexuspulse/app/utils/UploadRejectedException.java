@@ -0,0 +1,16 @@
+package com.nexuspulse.app.utils;
+
+import java.io.IOException;
+
+/**
+ * The storage server refused an upload outright (e.g. 413 for a file that
+ * is too large, or 403), so sending the same bytes again will not help.
+ */
+public class UploadRejectedException extends IOException {
+    public final int code;
+
+    public UploadRejectedException(int code, String message) {
+        super(message);
+        this.code = code;
+    }
+}
@@ -0,0 +1,41 @@
+package com.nexuspulse.app.adapters;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ImageGridTest {
+    private static final int WIDTH = 859;
+    private static final int HEIGHT = 525;
+    private static final int GAP = 5;
+
+    @Test
+    public void imagesFillTheGridInReadingOrder() {
+        assertArrayEquals(new int[0], ImageGrid.slots(0));
+        assertArrayEquals(new int[]{ImageGrid.TOP_START}, ImageGrid.slots(1));
+        assertArrayEquals(new int[]{ImageGrid.TOP_START, ImageGrid.TOP_END}, ImageGrid.slots(2));
+        assertArrayEquals(new int[]{ImageGrid.TOP_START, ImageGrid.TOP_END, ImageGrid.BOTTOM_END},
+                ImageGrid.slots(3));
+        assertArrayEquals(new int[]{ImageGrid.TOP_START, ImageGrid.TOP_END, ImageGrid.BOTTOM_START,
+                ImageGrid.BOTTOM_END}, ImageGrid.slots(4));
+    }
+
+    @Test
+    public void oneImageTakesTheWholeGrid() {
+        assertArrayEquals(new int[]{WIDTH, HEIGHT}, ImageGrid.cellSize(1, ImageGrid.TOP_START, WIDTH, HEIGHT, GAP));
+    }
+
+    @Test
+    public void cellsShareTheGridLessTheGap() {
+        int half = (WIDTH - GAP) / 2;
+        int quarter = (HEIGHT - GAP) / 2;
+        assertArrayEquals(new int[]{half, HEIGHT}, ImageGrid.cellSize(2, ImageGrid.TOP_END, WIDTH, HEIGHT, GAP));
+        // Three: the first keeps the full height, the other two stack
+        assertArrayEquals(new int[]{half, HEIGHT}, ImageGrid.cellSize(3, ImageGrid.TOP_START, WIDTH, HEIGHT, GAP));
+        assertArrayEquals(new int[]{half, quarter}, ImageGrid.cellSize(3, ImageGrid.TOP_END, WIDTH, HEIGHT, GAP));
+        assertArrayEquals(new int[]{half, quarter}, ImageGrid.cellSize(3, ImageGrid.BOTTOM_END, WIDTH, HEIGHT, GAP));
+        for (int slot : ImageGrid.slots(4)) {
+            assertArrayEquals(new int[]{half, quarter}, ImageGrid.cellSize(4, slot, WIDTH, HEIGHT, GAP));
+        }
+    }
+}
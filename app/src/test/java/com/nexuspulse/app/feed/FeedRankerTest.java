@@ -0,0 +1,185 @@
+package com.nexuspulse.app.feed;
+
+import com.nexuspulse.app.models.Post;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FeedRankerTest {
+    private static final long NOW = 1_700_000_000_000L;
+    private static final long HOUR = 3_600_000L;
+
+    private static final FeedSignals NO_SIGNALS = new FeedSignals("me", null, null);
+
+    private static Post post(String id, String author, double hoursAgo, int likes, String... hashtags) {
+        Post post = new Post();
+        post.setPostId(id);
+        post.setUserId(author);
+        post.setContent("post " + id);
+        post.setCreatedAt(new java.util.Date(NOW - (long) (hoursAgo * HOUR)));
+        post.setLikesCount(likes);
+        post.setHashtags(new ArrayList<>(Arrays.asList(hashtags)));
+        return post;
+    }
+
+    private static List<Candidate> recent(Post... posts) {
+        List<Candidate> candidates = new ArrayList<>();
+        for (Post post : posts) {
+            candidates.add(new Candidate(post, Candidate.SOURCE_RECENT));
+        }
+        return candidates;
+    }
+
+    private static List<String> ids(List<Post> posts) {
+        List<String> ids = new ArrayList<>();
+        for (Post post : posts) {
+            ids.add(post.getPostId());
+        }
+        return ids;
+    }
+
+    private static List<String> rank(List<Candidate> candidates, FeedSignals signals) {
+        return ids(new FeedRanker(new FeedScorer()).rank(candidates, signals, NOW).posts);
+    }
+
+    @Test
+    public void newerAndFasterRisingPostsRankFirst() {
+        List<Candidate> candidates = recent(
+                post("old", "a", 30, 0),
+                post("new", "b", 1, 0),
+                post("rising", "c", 3, 40),
+                post("slow", "d", 20, 40));
+
+        assertEquals(Arrays.asList("rising", "new", "slow", "old"), rank(candidates, NO_SIGNALS));
+    }
+
+    @Test
+    public void followedAuthorsAndEngagedTopicsAreBoosted() {
+        List<Candidate> candidates = recent(
+                post("stranger", "x", 1, 0),
+                post("friend", "f", 1, 0),
+                post("topic", "y", 1, 0, "coffee"),
+                post("liked", "z", 1, 0),
+                post("mine", "me", 1, 0));
+        candidates.add(new Candidate(post("friend", "f", 1, 0), Candidate.SOURCE_FOLLOWED));
+
+        Map<String, Double> authors = new HashMap<>();
+        authors.put("z", 4.0);
+        authors.put("me", 100.0);
+        Map<String, Double> tags = Collections.singletonMap("coffee", 3.0);
+        List<String> ranked = rank(candidates, new FeedSignals("me", authors, tags));
+
+        assertEquals(Arrays.asList("liked", "friend", "topic"), ranked.subList(0, 3));
+        assertEquals(5, ranked.size());
+    }
+
+    @Test
+    public void sameTextTwiceBySameAuthorIsShownOnce() {
+        Post first = post("p1", "a", 2, 5);
+        Post repost = post("p2", "a", 1, 0);
+        repost.setContent("  POST p1 ");
+        Post other = post("p3", "b", 1, 0);
+        other.setContent("post p1");
+
+        List<String> ranked = rank(recent(first, repost, other), NO_SIGNALS);
+
+        assertEquals(2, ranked.size());
+        assertTrue(ranked.contains("p3"));
+    }
+
+    @Test
+    public void oneAuthorCannotFillTheTop() {
+        List<Candidate> candidates = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            candidates.add(new Candidate(post("busy" + i, "busy", 1, 20), Candidate.SOURCE_RECENT));
+        }
+        for (int i = 0; i < 10; i++) {
+            candidates.add(new Candidate(post("other" + i, "author" + i, 1, 8), Candidate.SOURCE_RECENT));
+        }
+
+        List<String> ranked = rank(candidates, NO_SIGNALS);
+
+        int busyInTop5 = 0;
+        for (String id : ranked.subList(0, 5)) {
+            busyInTop5 += id.startsWith("busy") ? 1 : 0;
+        }
+        assertEquals("busy0", ranked.get(0));
+        assertTrue("busy posts in top 5: " + busyInTop5, busyInTop5 <= 2);
+        assertEquals(20, ranked.size());
+    }
+
+    @Test
+    public void overBudgetStagesStillReturnEveryPost() {
+        List<Candidate> candidates = syntheticCandidates(new Random(1), 500);
+        long[] clock = {0};
+        FeedRanker ranker = new FeedRanker(new FeedScorer(), 0, 0, () -> clock[0] += 1_000_000);
+
+        FeedRanker.Result result = ranker.rank(candidates, NO_SIGNALS, NOW);
+
+        assertTrue(result.fullyScored < result.candidates);
+        assertFalse(result.diversified);
+        assertEquals(result.candidates, result.posts.size());
+        assertEquals(result.candidates, new java.util.HashSet<>(ids(result.posts)).size());
+    }
+
+    @Test
+    public void ranks1000CandidatesInFull() {
+        Random random = new Random(20);
+        Map<String, Double> authors = new HashMap<>();
+        Map<String, Double> tags = new HashMap<>();
+        for (int i = 0; i < 50; i++) {
+            authors.put("author" + random.nextInt(300), random.nextDouble() * 5);
+            tags.put("tag" + random.nextInt(60), random.nextDouble() * 5);
+        }
+        FeedSignals signals = new FeedSignals("me", authors, tags);
+        FeedRanker ranker = new FeedRanker(new FeedScorer(), Long.MAX_VALUE, Long.MAX_VALUE, System::nanoTime);
+
+        for (int round = 0; round < 30; round++) {
+            ranker.rank(syntheticCandidates(random, 1000), signals, NOW);
+        }
+        int rounds = 50;
+        long[] total = new long[rounds];
+        FeedRanker.Result result = null;
+        for (int round = 0; round < rounds; round++) {
+            result = ranker.rank(syntheticCandidates(random, 1000), signals, NOW);
+            total[round] = result.totalNanos;
+        }
+        Arrays.sort(total);
+
+        assertEquals(result.candidates, result.fullyScored);
+        assertTrue(result.diversified);
+        // A few ms on a laptop; the bound only catches a quadratic slip on a loaded CI machine
+        assertTrue("p50 " + total[rounds / 2] / 1000 + "us", total[rounds / 2] < 200_000_000L);
+    }
+
+    /**
+     * count distinct posts from mixed sources, plus the overlap a real
+     * refresh gathers (a tenth come from a second source too)
+     */
+    private static List<Candidate> syntheticCandidates(Random random, int count) {
+        List<Candidate> candidates = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Post post = post("p" + i, "author" + random.nextInt(300),
+                    random.nextDouble() * 72, random.nextInt(500),
+                    "tag" + random.nextInt(60), "tag" + random.nextInt(60));
+            post.setCommentsCount(random.nextInt(50));
+            post.setRetweetsCount(random.nextInt(50));
+            int source = i % 3 == 0 ? Candidate.SOURCE_FOLLOWED : i % 3 == 1 ? Candidate.SOURCE_RECENT
+                    : Candidate.SOURCE_HASHTAG;
+            candidates.add(new Candidate(post, source));
+            if (i % 10 == 0) {
+                candidates.add(new Candidate(post, Candidate.SOURCE_HASHTAG));
+            }
+        }
+        return candidates;
+    }
+}
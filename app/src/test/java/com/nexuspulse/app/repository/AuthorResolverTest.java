@@ -0,0 +1,101 @@
+package com.nexuspulse.app.repository;
+
+import com.nexuspulse.app.models.Post;
+import com.nexuspulse.app.models.User;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that a page of posts costs ceil(distinctAuthors / 10) user reads
+ * and exactly one listener callback.
+ */
+public class AuthorResolverTest {
+
+    private static class CountingAuthorSource implements AuthorResolver.AuthorSource {
+        int queries;
+        int maxIdsPerQuery;
+
+        @Override
+        public void fetchUsers(List<String> userIds, UserRepository.OnUsersListFetchedListener listener) {
+            queries++;
+            maxIdsPerQuery = Math.max(maxIdsPerQuery, userIds.size());
+            List<User> users = new ArrayList<>();
+            for (String id : userIds) {
+                User user = new User(id, id, id + "@test", id);
+                user.setVerified(id.endsWith("0"));
+                users.add(user);
+            }
+            listener.onSuccess(users);
+        }
+    }
+
+    private static List<Post> page(int size, int distinctAuthors) {
+        List<Post> posts = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Post post = new Post();
+            post.setPostId("post" + i);
+            post.setUserId("user" + (i % distinctAuthors));
+            posts.add(post);
+        }
+        return posts;
+    }
+
+    @Test
+    public void resolve_fetchesDistinctAuthorsInChunks() {
+        CountingAuthorSource source = new CountingAuthorSource();
+        int[] callbacks = {0};
+
+        new AuthorResolver(source, new UserProfileCache(100, 60_000, () -> 0L)).resolve(page(50, 23), resolved -> callbacks[0]++);
+
+        assertEquals(3, source.queries);
+        assertTrue(source.maxIdsPerQuery <= AuthorResolver.MAX_IDS_PER_QUERY);
+        assertEquals(1, callbacks[0]);
+    }
+
+    @Test
+    public void resolve_mergesVerifiedFlagIntoEveryPost() {
+        List<Post> posts = page(30, 12);
+        new AuthorResolver(new CountingAuthorSource(), new UserProfileCache(100, 60_000, () -> 0L)).resolve(posts, resolved -> {
+            for (Post post : resolved) {
+                assertEquals(post.getUserId().endsWith("0"), post.isUserVerified());
+            }
+        });
+    }
+
+    @Test
+    public void resolve_emptyPageSkipsReads() {
+        CountingAuthorSource source = new CountingAuthorSource();
+        int[] callbacks = {0};
+
+        new AuthorResolver(source, new UserProfileCache(100, 60_000, () -> 0L)).resolve(new ArrayList<>(), resolved -> callbacks[0]++);
+
+        assertEquals(0, source.queries);
+        assertEquals(1, callbacks[0]);
+    }
+
+    @Test
+    public void resolve_takesCachedAuthorsWithoutReading() {
+        CountingAuthorSource source = new CountingAuthorSource();
+        UserProfileCache cache = new UserProfileCache(100, 60_000, () -> 0L);
+        for (int i = 0; i < 10; i++) {
+            User user = new User("user" + i, "user" + i, "user" + i + "@test", "user" + i);
+            user.setVerified(true);
+            cache.put(user);
+        }
+        List<Post> posts = page(30, 12);
+
+        new AuthorResolver(source, cache).resolve(posts, resolved -> { });
+
+        // Only user10 and user11 are missing, one chunk
+        assertEquals(1, source.queries);
+        assertEquals(2, source.maxIdsPerQuery);
+        for (Post post : posts) {
+            assertEquals(!post.getUserId().equals("user11"), post.isUserVerified());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.nexuspulse.app.repository;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class CommentCountReconcilerTest {
+    private static final String POST = "p1";
+    private static final int COMMENTERS = 100;
+
+    /** One post: its comments and counter, changed atomically like a WriteBatch */
+    private static class FakeStore implements CommentCountReconciler.Store {
+        private final List<String> comments = new ArrayList<>();
+        private long counter;
+        Runnable duringCount;
+
+        synchronized void createComment(String commentId) {
+            comments.add(commentId);
+            counter++;
+        }
+
+        synchronized void setCounter(long value) {
+            counter = value;
+        }
+
+        @Override
+        public synchronized long storedCount(String postId) {
+            return counter;
+        }
+
+        @Override
+        public long countComments(String postId) {
+            if (duringCount != null) {
+                duringCount.run();
+            }
+            synchronized (this) {
+                return comments.size();
+            }
+        }
+
+        @Override
+        public synchronized void addToCount(String postId, long delta) {
+            counter += delta;
+        }
+    }
+
+    @Test
+    public void parallelCommentsAreCountedExactly() throws Exception {
+        FakeStore store = new FakeStore();
+        CommentCountReconciler reconciler = new CommentCountReconciler(store);
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> writes = new ArrayList<>();
+        for (int i = 0; i < COMMENTERS; i++) {
+            String commentId = "c" + i;
+            writes.add(pool.submit(() -> {
+                start.await();
+                store.createComment(commentId);
+                return null;
+            }));
+        }
+        // The daily job may run while people are commenting
+        Future<Long> reconciling = pool.submit(() -> {
+            start.await();
+            long corrections = 0;
+            for (int i = 0; i < 50; i++) {
+                corrections += Math.abs(reconciler.reconcile(POST));
+            }
+            return corrections;
+        });
+
+        start.countDown();
+        for (Future<?> write : writes) {
+            write.get(10, TimeUnit.SECONDS);
+        }
+        assertEquals(0L, (long) reconciling.get(10, TimeUnit.SECONDS));
+        pool.shutdown();
+
+        assertEquals(COMMENTERS, store.storedCount(POST));
+        assertEquals(COMMENTERS, store.countComments(POST));
+    }
+
+    @Test
+    public void driftedCounterIsCorrected() throws Exception {
+        FakeStore store = new FakeStore();
+        for (int i = 0; i < 12; i++) {
+            store.createComment("c" + i);
+        }
+        store.setCounter(9);
+        CommentCountReconciler reconciler = new CommentCountReconciler(store);
+
+        assertEquals(3, reconciler.reconcile(POST));
+        assertEquals(12, store.storedCount(POST));
+        assertEquals(0, reconciler.reconcile(POST));
+    }
+
+    @Test
+    public void countTakenWhileCommentsLandIsNotTrusted() throws Exception {
+        FakeStore store = new FakeStore();
+        store.createComment("c0");
+        store.setCounter(5);
+        store.duringCount = () -> store.createComment("late");
+        CommentCountReconciler reconciler = new CommentCountReconciler(store);
+
+        assertEquals(0, reconciler.reconcile(POST));
+        assertEquals(6, store.storedCount(POST));
+
+        store.duringCount = null;
+        assertEquals(-4, reconciler.reconcile(POST));
+        assertEquals(2, store.storedCount(POST));
+    }
+}
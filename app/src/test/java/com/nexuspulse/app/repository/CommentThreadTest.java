@@ -0,0 +1,229 @@
+package com.nexuspulse.app.repository;
+
+import com.nexuspulse.app.models.Comment;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CommentThreadTest {
+    private static final int THREAD_SIZE = 10_000;
+    private static final int PAGE_SIZE = 30;
+
+    /** Older pages served from a synthetic thread, newest first, by offset */
+    private static class FakeSource implements CommentThread.PageSource<Integer> {
+        final List<Comment> newestFirst;
+        final List<Runnable> pending = new ArrayList<>();
+        boolean deferred;
+
+        FakeSource(List<Comment> newestFirst) {
+            this.newestFirst = newestFirst;
+        }
+
+        @Override
+        public void loadPage(Integer cursor, int pageSize, CommentThread.OnPageLoadedListener<Integer> listener) {
+            Runnable load = () -> {
+                int end = Math.min(cursor + pageSize, newestFirst.size());
+                listener.onSuccess(new ArrayList<>(newestFirst.subList(cursor, end)), end, end < newestFirst.size());
+            };
+            if (deferred) {
+                pending.add(load);
+            } else {
+                load.run();
+            }
+        }
+    }
+
+    private static class RecordingListener implements CommentThread.Listener {
+        int latestLoads;
+        int olderLoads;
+        int lastPrepended;
+        int lastAppended;
+        int tailChanges;
+
+        @Override
+        public void onLatestLoaded(List<Comment> items) {
+            latestLoads++;
+        }
+
+        @Override
+        public void onOlderLoaded(List<Comment> items, int prependedCount) {
+            olderLoads++;
+            lastPrepended = prependedCount;
+        }
+
+        @Override
+        public void onTailChanged(List<Comment> items, int appendedCount) {
+            tailChanges++;
+            lastAppended = appendedCount;
+        }
+
+        @Override
+        public void onError(String error) {
+        }
+    }
+
+    private List<Comment> newestFirst;
+    private FakeSource source;
+    private RecordingListener listener;
+    private CommentThread<Integer> thread;
+
+    private static Comment comment(int i) {
+        Comment comment = new Comment();
+        comment.setCommentId("c" + i);
+        comment.setContent("Comment " + i);
+        comment.setCreatedAt(new Date(1_000_000L + i * 1000L));
+        return comment;
+    }
+
+    @Before
+    public void setUp() {
+        newestFirst = new ArrayList<>();
+        for (int i = THREAD_SIZE - 1; i >= 0; i--) {
+            newestFirst.add(comment(i));
+        }
+        source = new FakeSource(newestFirst);
+        listener = new RecordingListener();
+        thread = new CommentThread<>(source, PAGE_SIZE, 5, listener);
+        thread.showLatest(new ArrayList<>(newestFirst.subList(0, PAGE_SIZE)), PAGE_SIZE, true);
+    }
+
+    @Test
+    public void opensOnTheNewestPageOldestFirst() {
+        List<Comment> items = thread.getItems();
+        assertEquals(PAGE_SIZE, items.size());
+        assertEquals("c" + (THREAD_SIZE - PAGE_SIZE), items.get(0).getCommentId());
+        assertEquals("c" + (THREAD_SIZE - 1), items.get(PAGE_SIZE - 1).getCommentId());
+        assertTrue(thread.hasOlder());
+    }
+
+    @Test
+    public void scrollingUpPrependsOlderPagesOnce() {
+        source.deferred = true;
+        thread.onScrolled(10);
+        assertTrue(source.pending.isEmpty());
+
+        thread.onScrolled(2);
+        thread.onScrolled(0);
+        assertEquals(1, source.pending.size());
+
+        source.pending.get(0).run();
+        assertEquals(1, listener.olderLoads);
+        assertEquals(PAGE_SIZE, listener.lastPrepended);
+        List<Comment> items = thread.getItems();
+        assertEquals(2 * PAGE_SIZE, items.size());
+        assertEquals("c" + (THREAD_SIZE - 2 * PAGE_SIZE), items.get(0).getCommentId());
+        for (int i = 1; i < items.size(); i++) {
+            assertTrue(items.get(i).getCreatedAt().after(items.get(i - 1).getCreatedAt()));
+        }
+    }
+
+    @Test
+    public void stopsAtTheStartOfTheThread() {
+        List<Comment> small = new ArrayList<>(newestFirst.subList(THREAD_SIZE - 45, THREAD_SIZE));
+        FakeSource smallSource = new FakeSource(small);
+        thread = new CommentThread<>(smallSource, PAGE_SIZE, 5, listener);
+        thread.showLatest(new ArrayList<>(small.subList(0, PAGE_SIZE)), PAGE_SIZE, true);
+
+        thread.loadOlder();
+        assertEquals(45, thread.getItems().size());
+        assertFalse(thread.hasOlder());
+
+        thread.loadOlder();
+        assertEquals(1, listener.olderLoads);
+    }
+
+    @Test
+    public void pageFromBeforeARestartIsDropped() {
+        source.deferred = true;
+        thread.loadOlder();
+        thread.showLatest(new ArrayList<>(newestFirst.subList(0, PAGE_SIZE)), PAGE_SIZE, true);
+
+        source.pending.get(0).run();
+        assertEquals(0, listener.olderLoads);
+        assertEquals(PAGE_SIZE, thread.getItems().size());
+    }
+
+    @Test
+    public void newCommentIsAppendedWithoutTouchingTheRest() {
+        Comment fresh = comment(THREAD_SIZE);
+        List<Comment> before = new ArrayList<>(thread.getItems());
+
+        thread.applyChanges(Collections.singletonList(
+                new CommentThread.Change(FeedChange.Type.ADDED, fresh)), null);
+
+        assertEquals(1, listener.lastAppended);
+        List<Comment> items = thread.getItems();
+        assertEquals(before, items.subList(0, before.size()));
+        assertSame(fresh, items.get(items.size() - 1));
+    }
+
+    @Test
+    public void lateArrivalIsPlacedByCreatedAt() {
+        Comment late = comment(THREAD_SIZE - 2);
+        late.setCommentId("late");
+        thread.applyChanges(Collections.singletonList(
+                new CommentThread.Change(FeedChange.Type.ADDED, late)), null);
+
+        List<Comment> items = thread.getItems();
+        assertEquals(0, listener.lastAppended);
+        assertEquals("late", items.get(items.size() - 2).getCommentId());
+    }
+
+    @Test
+    public void pushedOutCommentStaysAndDeletedOneGoes() {
+        Comment fresh = comment(THREAD_SIZE);
+        Comment pushedOut = thread.getItems().get(0);
+        Comment deleted = thread.getItems().get(10);
+        Comment oldestInWindow = thread.getItems().get(1);
+
+        List<CommentThread.Change> changes = new ArrayList<>();
+        changes.add(new CommentThread.Change(FeedChange.Type.ADDED, fresh));
+        changes.add(new CommentThread.Change(FeedChange.Type.REMOVED, pushedOut));
+        thread.applyChanges(changes, oldestInWindow);
+        assertSame(pushedOut, thread.getItems().get(0));
+
+        thread.applyChanges(Collections.singletonList(
+                new CommentThread.Change(FeedChange.Type.REMOVED, deleted)), oldestInWindow);
+        assertFalse(thread.getItems().contains(deleted));
+        assertEquals(PAGE_SIZE, thread.getItems().size());
+    }
+
+    @Test
+    public void syntheticThreadKeepsAWindowInsteadOfEveryComment() {
+        int arrivals = 100;
+
+        // Before: every event cleared the list and rebuilt it from the whole thread
+        List<Comment> rebuilt = new ArrayList<>();
+        long rebuildTouches = 0;
+        for (int i = 0; i < arrivals; i++) {
+            rebuilt.clear();
+            for (int j = newestFirst.size() - 1; j >= 0; j--) {
+                rebuilt.add(newestFirst.get(j));
+            }
+            rebuildTouches += rebuilt.size();
+        }
+
+        // After: the newest page, two scrolled-up pages, then one row per arrival
+        thread.loadOlder();
+        thread.loadOlder();
+        long applyTouches = 0;
+        for (int i = 0; i < arrivals; i++) {
+            thread.applyChanges(Collections.singletonList(
+                    new CommentThread.Change(FeedChange.Type.ADDED, comment(THREAD_SIZE + i))), null);
+            applyTouches += listener.lastAppended;
+        }
+
+        int held = thread.getItems().size();
+        assertEquals(3 * PAGE_SIZE + arrivals, held);
+        assertEquals(arrivals, applyTouches);
+        assertTrue(held * 10 < rebuilt.size());
+        assertTrue(applyTouches * 1000 <= rebuildTouches);
+    }
+}
@@ -0,0 +1,275 @@
+package com.nexuspulse.app.repository;
+
+import com.nexuspulse.app.models.Post;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Page stitching against a fake offset-cursor source: every post appears
+ * exactly once and in feed order.
+ */
+public class FeedPagerTest {
+
+    /** Newest-first feed whose cursor is an offset; answers synchronously or on demand */
+    private static class FakePagedSource implements FeedPager.PageSource<Integer> {
+        final List<Post> feed = new ArrayList<>();
+        final List<Runnable> deferred = new ArrayList<>();
+        boolean deferResponses;
+        int requests;
+
+        FakePagedSource(int size) {
+            for (int i = 0; i < size; i++) {
+                feed.add(post("p" + i));
+            }
+        }
+
+        void pushNewPost(String id) {
+            feed.add(0, post(id));
+        }
+
+        @Override
+        public void loadPage(Integer cursor, int pageSize, FeedPager.OnPageLoadedListener<Integer> listener) {
+            requests++;
+            int from = cursor == null ? 0 : cursor;
+            int to = Math.min(from + pageSize, feed.size());
+            List<Post> page = new ArrayList<>(feed.subList(from, to));
+            Runnable respond = () -> listener.onSuccess(page, to, to < feed.size());
+            if (deferResponses) {
+                deferred.add(respond);
+            } else {
+                respond.run();
+            }
+        }
+    }
+
+    private static class RecordingListener implements FeedPager.Listener {
+        int pages;
+        int inserted;
+        int changes;
+
+        @Override
+        public void onPageLoaded(List<Post> items, int insertedFrom, int insertedCount, boolean firstPage) {
+            pages++;
+            inserted += insertedCount;
+        }
+
+        @Override
+        public void onItemsChanged(List<Post> items) {
+            changes++;
+        }
+
+        @Override
+        public void onError(String error) {
+            fail(error);
+        }
+    }
+
+    private static Post post(String id) {
+        Post post = new Post();
+        post.setPostId(id);
+        return post;
+    }
+
+    private static void assertNoGapsOrDuplicates(List<Post> items, int expected) {
+        assertEquals(expected, items.size());
+        for (int i = 0; i < expected; i++) {
+            assertEquals("p" + i, items.get(i).getPostId());
+        }
+    }
+
+    @Test
+    public void pagesAreStitchedInOrderUntilTheEnd() {
+        FakePagedSource source = new FakePagedSource(95);
+        RecordingListener listener = new RecordingListener();
+        FeedPager<Integer> pager = new FeedPager<>(source, 20, 5, listener);
+
+        pager.refresh();
+        while (!pager.isEndReached()) {
+            pager.loadNextPage();
+        }
+
+        assertNoGapsOrDuplicates(pager.getItems(), 95);
+        assertEquals(5, source.requests);
+        assertEquals(95, listener.inserted);
+    }
+
+    @Test
+    public void postsShiftedByNewPostAreNotDuplicated() {
+        FakePagedSource source = new FakePagedSource(40);
+        FeedPager<Integer> pager = new FeedPager<>(source, 20, 5, new RecordingListener());
+
+        pager.refresh();
+        // A new post at the top pushes p19 into the second page's offset range
+        source.pushNewPost("fresh");
+        pager.loadNextPage();
+
+        List<Post> items = pager.getItems();
+        assertNoGapsOrDuplicates(items.subList(0, 39), 39);
+        assertEquals(39, items.size());
+    }
+
+    @Test
+    public void prefetchOnlyNearTheEndAndNeverTwiceInFlight() {
+        FakePagedSource source = new FakePagedSource(100);
+        FeedPager<Integer> pager = new FeedPager<>(source, 20, 5, new RecordingListener());
+        pager.refresh();
+
+        source.deferResponses = true;
+        pager.onScrolled(10);
+        assertEquals(1, source.requests);
+
+        pager.onScrolled(14);
+        pager.onScrolled(16);
+        assertEquals(2, source.requests);
+
+        source.deferred.get(0).run();
+        assertNoGapsOrDuplicates(pager.getItems(), 40);
+    }
+
+    @Test
+    public void staleResponseAfterRefreshIsIgnored() {
+        FakePagedSource source = new FakePagedSource(60);
+        RecordingListener listener = new RecordingListener();
+        FeedPager<Integer> pager = new FeedPager<>(source, 20, 5, listener);
+
+        source.deferResponses = true;
+        pager.refresh();
+        pager.refresh();
+        source.deferred.get(1).run();
+        source.deferred.get(0).run();
+
+        assertNoGapsOrDuplicates(pager.getItems(), 20);
+        assertEquals(1, listener.pages);
+    }
+
+    @Test
+    public void removedPostLeavesTheListAndPagingContinues() {
+        FakePagedSource source = new FakePagedSource(40);
+        FeedPager<Integer> pager = new FeedPager<>(source, 20, 5, new RecordingListener());
+        pager.refresh();
+
+        pager.remove("p3");
+        pager.remove("missing");
+        assertEquals(19, pager.getItems().size());
+        for (Post post : pager.getItems()) {
+            assertNotEquals("p3", post.getPostId());
+        }
+
+        pager.loadNextPage();
+        assertEquals(39, pager.getItems().size());
+        assertEquals("p39", pager.getItems().get(38).getPostId());
+    }
+
+    /** Give loaded posts createdAt times in feed order, p0 newest */
+    private static void date(List<Post> items) {
+        for (int i = 0; i < items.size(); i++) {
+            items.get(i).setCreatedAt(new Date(1_000_000L - i * 1000L));
+        }
+    }
+
+    private static FeedChange change(FeedChange.Type type, Post post, int newIndex) {
+        return new FeedChange(type, post, newIndex);
+    }
+
+    @Test
+    public void liveModificationReplacesThePostInPlace() {
+        FakePagedSource source = new FakePagedSource(40);
+        RecordingListener listener = new RecordingListener();
+        FeedPager<Integer> pager = new FeedPager<>(source, 20, 5, listener);
+        pager.refresh();
+
+        Post updated = post("p2");
+        updated.setLikesCount(5);
+        pager.applyChanges(Arrays.asList(change(FeedChange.Type.MODIFIED, updated, 2)), null);
+
+        assertSame(updated, pager.getItems().get(2));
+        assertNoGapsOrDuplicates(pager.getItems(), 20);
+        assertEquals(1, listener.changes);
+    }
+
+    @Test
+    public void liveAdditionIsInsertedAndNotPagedInAgain() {
+        FakePagedSource source = new FakePagedSource(40);
+        FeedPager<Integer> pager = new FeedPager<>(source, 20, 5, new RecordingListener());
+        pager.refresh();
+
+        source.pushNewPost("new");
+        pager.applyChanges(Arrays.asList(change(FeedChange.Type.ADDED, post("new"), 0)), null);
+        assertEquals("new", pager.getItems().get(0).getPostId());
+
+        // Offsets shifted by the new post, so p19 comes back once and is dropped
+        pager.loadNextPage();
+        pager.loadNextPage();
+        assertEquals(41, pager.getItems().size());
+        assertEquals("p39", pager.getItems().get(40).getPostId());
+    }
+
+    @Test
+    public void inPlaceUpdateLeavesNewPostsOutOfTheOrder() {
+        FakePagedSource source = new FakePagedSource(40);
+        RecordingListener listener = new RecordingListener();
+        FeedPager<Integer> pager = new FeedPager<>(source, 20, 5, listener);
+        pager.refresh();
+
+        Post updated = post("p3");
+        updated.setLikesCount(2);
+        pager.updateInPlace(Arrays.asList(
+                change(FeedChange.Type.ADDED, post("new"), 0),
+                change(FeedChange.Type.ADDED, updated, 3),
+                change(FeedChange.Type.REMOVED, pager.getItems().get(7), -1)), null);
+
+        assertEquals(19, pager.getItems().size());
+        assertEquals("p0", pager.getItems().get(0).getPostId());
+        assertSame(updated, pager.getItems().get(3));
+        assertEquals(1, listener.changes);
+
+        pager.updateInPlace(Arrays.asList(change(FeedChange.Type.ADDED, post("newer"), 0)), null);
+        assertEquals(19, pager.getItems().size());
+        assertEquals(1, listener.changes);
+    }
+
+    @Test
+    public void postPushedOutOfAFullWindowStaysButDeletedPostGoes() {
+        FakePagedSource source = new FakePagedSource(40);
+        FeedPager<Integer> pager = new FeedPager<>(source, 20, 5, new RecordingListener());
+        pager.refresh();
+        date(pager.getItems());
+        Post p18 = pager.getItems().get(18);
+        Post p19 = pager.getItems().get(19);
+
+        Post fresh = post("new");
+        fresh.setCreatedAt(new Date(2_000_000L));
+        pager.applyChanges(Arrays.asList(
+                change(FeedChange.Type.REMOVED, p19, -1),
+                change(FeedChange.Type.ADDED, fresh, 0)), p18);
+        assertEquals(21, pager.getItems().size());
+        assertSame(p19, pager.getItems().get(20));
+
+        Post p5 = pager.getItems().get(6);
+        pager.applyChanges(Arrays.asList(change(FeedChange.Type.REMOVED, p5, -1)), p19);
+        assertEquals(20, pager.getItems().size());
+        assertFalse(pager.getItems().contains(p5));
+    }
+
+    @Test
+    public void changesToUnknownPostsAreIgnored() {
+        FakePagedSource source = new FakePagedSource(10);
+        RecordingListener listener = new RecordingListener();
+        FeedPager<Integer> pager = new FeedPager<>(source, 20, 5, listener);
+        pager.refresh();
+
+        pager.applyChanges(Arrays.asList(
+                change(FeedChange.Type.MODIFIED, post("other"), 0),
+                change(FeedChange.Type.REMOVED, post("gone"), -1)), null);
+
+        assertNoGapsOrDuplicates(pager.getItems(), 10);
+        assertEquals(0, listener.changes);
+    }
+}
@@ -0,0 +1,85 @@
+package com.nexuspulse.app.repository;
+
+import com.nexuspulse.app.models.Post;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LikedPostsCacheTest {
+
+    @Test
+    public void unknownUntilRecorded() {
+        LikedPostsCache cache = new LikedPostsCache(10);
+
+        assertNull(cache.isLiked("u1", "p1"));
+        cache.setLiked("u1", "p1", false);
+        assertEquals(Boolean.FALSE, cache.isLiked("u1", "p1"));
+        cache.setLiked("u1", "p1", true);
+        assertEquals(Boolean.TRUE, cache.isLiked("u1", "p1"));
+        assertNull(cache.isRetweeted("u1", "p1"));
+    }
+
+    @Test
+    public void otherUserSeesNothingAndClaimingDropsState() {
+        LikedPostsCache cache = new LikedPostsCache(10);
+        cache.setLiked("u1", "p1", true);
+
+        assertNull(cache.isLiked("u2", "p1"));
+
+        cache.setRetweeted("u2", "p2", true);
+        assertNull(cache.isLiked("u1", "p1"));
+        assertNull(cache.isLiked("u2", "p1"));
+        assertEquals(Boolean.TRUE, cache.isRetweeted("u2", "p2"));
+    }
+
+    @Test
+    public void unknownPostIds_needsBothLikeAndRetweetState() {
+        LikedPostsCache cache = new LikedPostsCache(10);
+        cache.setLiked("u1", "p1", true);
+        cache.setRetweeted("u1", "p1", false);
+        cache.setLiked("u1", "p2", false);
+
+        assertEquals(Arrays.asList("p2", "p3"), cache.unknownPostIds("u1", Arrays.asList("p1", "p2", "p3")));
+        assertEquals(Arrays.asList("p1", "p2"), cache.unknownPostIds("u2", Arrays.asList("p1", "p2")));
+    }
+
+    @Test
+    public void leastRecentlyUsedPostsAreEvicted() {
+        LikedPostsCache cache = new LikedPostsCache(3);
+        cache.setLiked("u1", "p1", true);
+        cache.setLiked("u1", "p2", true);
+        cache.setLiked("u1", "p3", true);
+        cache.isLiked("u1", "p1");
+        cache.setLiked("u1", "p4", true);
+
+        assertEquals(3, cache.size());
+        assertNull(cache.isLiked("u1", "p2"));
+        assertEquals(Boolean.TRUE, cache.isLiked("u1", "p1"));
+    }
+
+    @Test
+    public void applyTo_prefersCacheOverLegacyArray() {
+        LikedPostsCache cache = new LikedPostsCache(10);
+        Post post = new Post();
+        post.setPostId("p1");
+        List<String> likedBy = new ArrayList<>();
+        likedBy.add("u1");
+        post.setLikedBy(likedBy);
+
+        // Not looked up yet: fall back to the legacy array
+        cache.applyTo("u1", Arrays.asList(post));
+        assertTrue(post.isLikedByMe());
+        assertFalse(post.isRetweetedByMe());
+
+        cache.setLiked("u1", "p1", false);
+        cache.setRetweeted("u1", "p1", true);
+        cache.applyTo("u1", Arrays.asList(post));
+        assertFalse(post.isLikedByMe());
+        assertTrue(post.isRetweetedByMe());
+    }
+}
@@ -0,0 +1,365 @@
+package com.nexuspulse.app.repository;
+
+import com.nexuspulse.app.models.Notification;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class NotificationGroupsTest {
+    private static final long DAY = NotificationGroups.BUCKET_MILLIS;
+    private static final long NOW = 1_700_000_000_000L;
+
+    private static Notification event(String type, String postId, String actor) {
+        Notification event = new Notification(null, type, actor, actor, null, null);
+        event.setPostId(postId);
+        return event;
+    }
+
+    @Test
+    public void groupsByTypePostAndDay() {
+        long morning = Math.floorDiv(NOW, DAY) * DAY + 1000;
+        assertEquals(NotificationGroups.groupId("like", "p1", morning),
+                NotificationGroups.groupId("like", "p1", morning + DAY - 2000));
+        assertNotEquals(NotificationGroups.groupId("like", "p1", morning),
+                NotificationGroups.groupId("like", "p1", morning + DAY));
+        assertNotEquals(NotificationGroups.groupId("like", "p1", morning),
+                NotificationGroups.groupId("retweet", "p1", morning));
+        assertNotEquals(NotificationGroups.groupId("like", "p1", morning),
+                NotificationGroups.groupId("like", "p2", morning));
+        assertEquals(NotificationGroups.groupId("follow", null, morning),
+                NotificationGroups.groupId("follow", null, morning + 5000));
+    }
+
+    @Test
+    public void summaryNamesLatestActorAndCountsTheRest() {
+        Notification group = event("like", "p1", "alice");
+        assertEquals("@alice liked your post", NotificationGroups.summary(group));
+        group.setCount(2);
+        assertEquals("@alice and 1 other liked your post", NotificationGroups.summary(group));
+        group.setCount(10_000);
+        assertEquals("@alice and 9,999 others liked your post", NotificationGroups.summary(group));
+        group.setType("follow");
+        group.setCount(3);
+        assertEquals("@alice and 2 others followed you", NotificationGroups.summary(group));
+    }
+
+    @Test
+    public void badgeCountsGroupsAndOnlyWhatWasSeenIsRead() {
+        Store store = new Store();
+        String id = NotificationGroups.groupId("like", "p1", NOW);
+        store.event(id, event("like", "p1", "alice"));
+        store.event(id, event("like", "p1", "bob"));
+        store.event(id, event("like", "p1", "alice"));
+
+        assertEquals(1, store.unread.get());
+        Notification shown = store.snapshot(id);
+        assertEquals(2, shown.getCount());
+        assertEquals("the repeat actor moved the group up", "alice", shown.getFromUserId());
+
+        store.event(id, event("like", "p1", "carol"));
+        store.read(id, shown.getCreatedAt());
+        assertEquals("gained an event after it was shown", 1, store.unread.get());
+        assertFalse(store.snapshot(id).isRead());
+
+        store.read(id, store.snapshot(id).getCreatedAt());
+        store.read(id, store.snapshot(id).getCreatedAt());
+        assertEquals(0, store.unread.get());
+
+        Date readAt = store.snapshot(id).getCreatedAt();
+        store.event(id, event("like", "p1", "carol"));
+        assertEquals("a repeat actor does not ring again", 0, store.unread.get());
+        assertTrue(store.snapshot(id).getCreatedAt().after(readAt));
+        assertTrue(store.snapshot(id).isRead());
+        store.event(id, event("like", "p1", "dave"));
+        assertEquals(1, store.unread.get());
+        assertEquals(4, store.snapshot(id).getCount());
+    }
+
+    @Test
+    public void concurrentEventsAndReadsStayConsistent() throws InterruptedException {
+        Store store = new Store();
+        String[] groupIds = new String[6];
+        for (int i = 0; i < groupIds.length; i++) {
+            groupIds[i] = NotificationGroups.groupId(i % 2 == 0 ? "like" : "retweet", "p" + i / 2, NOW);
+        }
+        int writers = 8;
+        int eventsPerWriter = 3000;
+        Map<String, Set<String>> expectedActors = new HashMap<>();
+        for (String id : groupIds) {
+            expectedActors.put(id, Collections.synchronizedSet(new HashSet<>()));
+        }
+
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(writers);
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            Random random = new Random(w);
+            threads.add(new Thread(() -> {
+                await(start);
+                for (int i = 0; i < eventsPerWriter; i++) {
+                    int g = random.nextInt(groupIds.length);
+                    // Actors repeat, within a writer and across writers
+                    String actor = "user" + random.nextInt(2000);
+                    Notification event = event(g % 2 == 0 ? "like" : "retweet", "p" + g / 2, actor);
+                    store.event(groupIds[g], event);
+                    expectedActors.get(groupIds[g]).add(actor);
+                }
+                done.countDown();
+            }));
+        }
+        Thread reader = new Thread(() -> {
+            await(start);
+            Random random = new Random(99);
+            while (done.getCount() > 0) {
+                String id = groupIds[random.nextInt(groupIds.length)];
+                Notification shown = store.snapshot(id);
+                if (shown != null) {
+                    store.read(id, shown.getCreatedAt());
+                }
+            }
+        });
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        reader.start();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        reader.join();
+
+        for (String id : groupIds) {
+            assertEquals(id, expectedActors.get(id).size(), store.snapshot(id).getCount());
+        }
+        assertEquals(store.unreadGroups(), store.unread.get());
+    }
+
+    @Test
+    public void markAllReadMovesOnlyTheWatermark() {
+        Store store = new Store();
+        String first = NotificationGroups.groupId("like", "p1", NOW);
+        String second = NotificationGroups.groupId("retweet", "p1", NOW);
+        store.event(first, event("like", "p1", "alice"));
+        store.event(second, event("retweet", "p1", "bob"));
+        assertEquals(2, store.unread.get());
+
+        store.readAll();
+        assertEquals(0, store.unread.get());
+        assertFalse(NotificationGroups.isUnread(store.snapshot(first), store.lastReadAt));
+        assertFalse("the group document itself is untouched", store.snapshot(first).isRead());
+
+        store.read(first, null);
+        assertEquals("already read under the watermark", 0, store.unread.get());
+        store.event(first, event("like", "p1", "alice"));
+        assertEquals("moving up does not undo the watermark", 0, store.unread.get());
+        assertFalse(NotificationGroups.isUnread(store.snapshot(first), store.lastReadAt));
+        store.event(first, event("like", "p1", "carol"));
+        assertEquals(1, store.unread.get());
+        assertTrue(NotificationGroups.isUnread(store.snapshot(first), store.lastReadAt));
+
+        List<Notification> shown = new ArrayList<>();
+        shown.add(store.snapshot(first));
+        shown.add(store.snapshot(second));
+        NotificationGroups.applyWatermark(shown, store.lastReadAt);
+        assertFalse(shown.get(0).isRead());
+        assertTrue(shown.get(1).isRead());
+    }
+
+    @Test
+    public void clearing1000UnreadNotifications() {
+        int backlog = 1000;
+
+        Store single = storeWithUnread(backlog);
+        for (int i = 0; i < backlog; i++) {
+            single.read("g" + i, null);
+        }
+
+        Store watermark = storeWithUnread(backlog);
+        watermark.readAll();
+
+        for (Store store : new Store[]{single, watermark}) {
+            assertEquals(0, store.unread.get());
+            assertEquals(0, store.unreadGroups());
+        }
+        assertEquals(3 * backlog, single.roundTrips.get());
+        assertEquals(2 * backlog, single.writes.get());
+        assertEquals(1, watermark.roundTrips.get());
+        assertEquals(1, watermark.writes.get());
+    }
+
+    private static Store storeWithUnread(int groups) {
+        Store store = new Store();
+        for (int i = 0; i < groups; i++) {
+            store.event("g" + i, event("like", "p" + i, "alice"));
+        }
+        assertEquals(groups, store.unread.get());
+        store.roundTrips.set(0);
+        store.writes.set(0);
+        return store;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Stand-in for Firestore: transactions read versioned documents, compute
+     * without a lock and commit only if nothing they read has changed,
+     * retrying otherwise; the counter takes increments like FieldValue.increment.
+     * Events do not read the owner document transactionally, so the badge is
+     * only exact while no markAllRead races them.
+     * createdAt and lastReadAt are stamped at commit, as server timestamps
+     * are. Round trips are counted as the Android SDK makes them: one per
+     * transaction.get, one per commit.
+     */
+    private static class Store {
+        private final Map<String, Notification> groups = new HashMap<>();
+        private final Map<String, Long> versions = new HashMap<>();
+        private final Set<String> actors = new HashSet<>();
+        private long ownerVersion;
+        private long clock = NOW;
+        Date lastReadAt;
+        final AtomicLong unread = new AtomicLong();
+        final AtomicLong roundTrips = new AtomicLong();
+        final AtomicLong writes = new AtomicLong();
+
+        /**
+         * One createNotification: the watermark read, a transaction on the
+         * group and its actor only, then a blind increment of the counter
+         */
+        void event(String id, Notification event) {
+            String actorKey = id + "/" + event.getFromUserId();
+            Date watermark;
+            synchronized (this) {
+                watermark = lastReadAt;
+            }
+            roundTrips.incrementAndGet();
+            NotificationGroups.Change change;
+            while (true) {
+                Notification group;
+                long version;
+                boolean repeatActor;
+                synchronized (this) {
+                    group = copy(groups.get(id));
+                    version = versionOf(id);
+                    repeatActor = actors.contains(actorKey);
+                }
+                roundTrips.addAndGet(3);
+                change = NotificationGroups.onEvent(group, event, id, repeatActor, watermark);
+                synchronized (this) {
+                    if (versionOf(id) != version) {
+                        continue;
+                    }
+                    if (change.changed) {
+                        change.group.setCreatedAt(new Date(++clock));
+                        groups.put(id, change.group);
+                        versions.put(id, version + 1);
+                        actors.add(actorKey);
+                        writes.addAndGet(2);
+                    }
+                    break;
+                }
+            }
+            if (change.unreadDelta != 0) {
+                synchronized (this) {
+                    roundTrips.incrementAndGet();
+                    unread.addAndGet(change.unreadDelta);
+                    ownerVersion++;
+                    writes.incrementAndGet();
+                }
+            }
+        }
+
+        /**
+         * One markAsRead transaction, as of seenAt
+         */
+        void read(String id, Date seenAt) {
+            while (true) {
+                Notification group;
+                long version;
+                long owner;
+                Date watermark;
+                synchronized (this) {
+                    owner = ownerVersion;
+                    watermark = lastReadAt;
+                    group = copy(groups.get(id));
+                    version = versionOf(id);
+                }
+                roundTrips.addAndGet(3);
+                NotificationGroups.Change change = NotificationGroups.onRead(group, seenAt, watermark);
+                synchronized (this) {
+                    if (versionOf(id) != version || ownerVersion != owner) {
+                        continue;
+                    }
+                    if (change.changed) {
+                        groups.get(id).setRead(true);
+                        versions.put(id, version + 1);
+                        writes.incrementAndGet();
+                        unread.addAndGet(change.unreadDelta);
+                        ownerVersion++;
+                        writes.incrementAndGet();
+                    }
+                    return;
+                }
+            }
+        }
+
+        /**
+         * markAllRead: one blind write of the owner document
+         */
+        synchronized void readAll() {
+            roundTrips.incrementAndGet();
+            writes.incrementAndGet();
+            lastReadAt = new Date(++clock);
+            unread.set(0);
+            ownerVersion++;
+        }
+
+        synchronized Notification snapshot(String id) {
+            return copy(groups.get(id));
+        }
+
+        synchronized long unreadGroups() {
+            long unreadGroups = 0;
+            for (Notification group : groups.values()) {
+                unreadGroups += NotificationGroups.isUnread(group, lastReadAt) ? 1 : 0;
+            }
+            return unreadGroups;
+        }
+
+        private long versionOf(String id) {
+            Long version = versions.get(id);
+            return version != null ? version : 0;
+        }
+
+        private static Notification copy(Notification group) {
+            if (group == null) {
+                return null;
+            }
+            Notification copy = new Notification(group.getNotificationId(), group.getType(), group.getFromUserId(),
+                    group.getFromUsername(), group.getFromUserImage(), group.getMessage());
+            copy.setPostId(group.getPostId());
+            copy.setCount(group.getCount());
+            copy.setRead(group.isRead());
+            copy.setCreatedAt(group.getCreatedAt());
+            return copy;
+        }
+    }
+}
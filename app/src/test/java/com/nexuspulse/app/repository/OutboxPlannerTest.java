@@ -0,0 +1,130 @@
+package com.nexuspulse.app.repository;
+
+import com.nexuspulse.app.database.OutboxEntity;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class OutboxPlannerTest {
+    private static final int MAX_WRITES = 500;
+
+    private long nextId = 1;
+
+    private OutboxEntity toggle(String type, String userId, String targetId, boolean enabled) {
+        OutboxEntity row = OutboxEntity.toggle(type, userId, targetId, enabled);
+        row.id = nextId++;
+        return row;
+    }
+
+    private OutboxEntity write(String type, String userId, String targetId) {
+        OutboxEntity row = OutboxEntity.write(type, userId, targetId, "{}");
+        row.id = nextId++;
+        return row;
+    }
+
+    private static List<OutboxEntity> flatten(OutboxPlanner.Plan plan) {
+        List<OutboxEntity> rows = new ArrayList<>();
+        for (List<OutboxEntity> batch : plan.batches) {
+            rows.addAll(batch);
+        }
+        return rows;
+    }
+
+    @Test
+    public void likeUnlikeLikeIsOneLike() {
+        List<OutboxEntity> pending = new ArrayList<>();
+        pending.add(toggle(OutboxEntity.TYPE_LIKE, "u1", "p1", true));
+        pending.add(toggle(OutboxEntity.TYPE_LIKE, "u1", "p1", false));
+        OutboxEntity last = toggle(OutboxEntity.TYPE_LIKE, "u1", "p1", true);
+        pending.add(last);
+
+        OutboxPlanner.Plan plan = OutboxPlanner.plan(pending, MAX_WRITES);
+
+        assertEquals(1, plan.batches.size());
+        assertEquals(1, plan.batches.get(0).size());
+        assertSame(last, plan.batches.get(0).get(0));
+        assertEquals(2, plan.superseded.size());
+        assertEquals(2, plan.writeCount());
+    }
+
+    @Test
+    public void differentTargetsAndKindsDoNotCoalesce() {
+        List<OutboxEntity> pending = new ArrayList<>();
+        pending.add(toggle(OutboxEntity.TYPE_LIKE, "u1", "p1", true));
+        pending.add(toggle(OutboxEntity.TYPE_RETWEET, "u1", "p1", true));
+        pending.add(toggle(OutboxEntity.TYPE_LIKE, "u1", "p2", true));
+        pending.add(toggle(OutboxEntity.TYPE_LIKE, "u2", "p1", true));
+        pending.add(write(OutboxEntity.TYPE_CREATE_COMMENT, "u1", "c1"));
+        pending.add(write(OutboxEntity.TYPE_CREATE_COMMENT, "u1", "c2"));
+
+        OutboxPlanner.Plan plan = OutboxPlanner.plan(pending, MAX_WRITES);
+
+        assertTrue(plan.superseded.isEmpty());
+        assertEquals(pending, flatten(plan));
+    }
+
+    @Test
+    public void batchesStayUnderTheWriteLimitAndKeepQueueOrder() {
+        List<OutboxEntity> pending = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            pending.add(i % 4 == 0
+                    ? toggle(OutboxEntity.TYPE_FOLLOW, "u1", "f" + i, true)
+                    : write(OutboxEntity.TYPE_CREATE_COMMENT, "u1", "c" + i));
+        }
+
+        OutboxPlanner.Plan plan = OutboxPlanner.plan(pending, 50);
+
+        for (int i = 0; i < plan.batches.size(); i++) {
+            int writes = 0;
+            for (OutboxEntity row : plan.batches.get(i)) {
+                writes += OutboxPlanner.writesFor(row);
+            }
+            assertTrue(writes <= 50);
+            // A batch is only closed when the next row would not fit
+            if (i + 1 < plan.batches.size()) {
+                assertTrue(writes + OutboxPlanner.writesFor(plan.batches.get(i + 1).get(0)) > 50);
+            }
+        }
+        assertEquals(pending, flatten(plan));
+    }
+
+    @Test
+    public void offlineBurstCollapsesToFewBatches() {
+        Random random = new Random(11);
+        List<OutboxEntity> pending = new ArrayList<>();
+        boolean[] liked = new boolean[50];
+        Set<String> touched = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            int post = random.nextInt(liked.length);
+            liked[post] = !liked[post];
+            touched.add("p" + post);
+            pending.add(toggle(OutboxEntity.TYPE_LIKE, "u1", "p" + post, liked[post]));
+            if (i % 50 == 0) {
+                pending.add(write(OutboxEntity.TYPE_CREATE_POST, "u1", "new" + i));
+            }
+        }
+
+        OutboxPlanner.Plan plan = OutboxPlanner.plan(pending, MAX_WRITES);
+
+        int creates = 20;
+        int rows = flatten(plan).size();
+        assertEquals(touched.size() + creates, rows);
+        assertEquals(pending.size() - rows, plan.superseded.size());
+        assertEquals(2 * rows, plan.writeCount());
+        assertEquals(1, plan.batches.size());
+
+        // The last toggle per post is the one sent
+        for (OutboxEntity row : flatten(plan)) {
+            if (OutboxEntity.TYPE_LIKE.equals(row.type)) {
+                assertEquals(liked[Integer.parseInt(row.targetId.substring(1))], row.enabled);
+            }
+        }
+    }
+}
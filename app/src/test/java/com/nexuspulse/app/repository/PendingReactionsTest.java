@@ -0,0 +1,219 @@
+package com.nexuspulse.app.repository;
+
+import com.nexuspulse.app.database.OutboxEntity;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PendingReactionsTest {
+
+    private static class Send {
+        final String type;
+        final String postId;
+        final boolean on;
+        final ReactionRepository.OnUpdateListener listener;
+
+        Send(String type, String postId, boolean on, ReactionRepository.OnUpdateListener listener) {
+            this.type = type;
+            this.postId = postId;
+            this.on = on;
+            this.listener = listener;
+        }
+    }
+
+    /** Runs scheduled tasks as virtual time passes */
+    private static class FakeScheduler implements PendingReactions.Scheduler {
+        final List<Runnable> tasks = new ArrayList<>();
+        final List<Long> dueAt = new ArrayList<>();
+        long now;
+
+        @Override
+        public void schedule(Runnable task, long delayMillis) {
+            tasks.add(task);
+            dueAt.add(now + delayMillis);
+        }
+
+        @Override
+        public void cancel(Runnable task) {
+            int i = tasks.indexOf(task);
+            while (i >= 0) {
+                tasks.remove(i);
+                dueAt.remove(i);
+                i = tasks.indexOf(task);
+            }
+        }
+
+        void advance(long millis) {
+            now += millis;
+            for (int i = 0; i < tasks.size(); ) {
+                if (dueAt.get(i) <= now) {
+                    dueAt.remove(i);
+                    tasks.remove(i).run();
+                    i = 0;
+                } else {
+                    i++;
+                }
+            }
+        }
+    }
+
+    private LikedPostsCache cache;
+    private FakeScheduler scheduler;
+    private List<Send> sends;
+    private List<String> rollbacks;
+    private PendingReactions reactions;
+
+    @Before
+    public void setUp() {
+        cache = new LikedPostsCache(100);
+        sends = new ArrayList<>();
+        rollbacks = new ArrayList<>();
+        scheduler = new FakeScheduler();
+        reactions = new PendingReactions(cache, Runnable::run, scheduler,
+                (type, postId, userId, on, listener) -> sends.add(new Send(type, postId, on, listener)));
+        reactions.addListener((type, postId, restored, error) -> rollbacks.add(type + ":" + postId + ":" + restored));
+    }
+
+    private boolean tapLike(String postId) {
+        Boolean liked = cache.isLiked("u1", postId);
+        return reactions.toggleLike(postId, "u1", liked != null && liked);
+    }
+
+    /** Tap, then let the debounce run out */
+    private void tapLikeAndWait(String postId) {
+        tapLike(postId);
+        scheduler.advance(PendingReactions.DEBOUNCE_MILLIS);
+    }
+
+    @Test
+    public void tapShowsAtOnceAndIsQueuedAfterTheDebounce() {
+        assertTrue(tapLike("p1"));
+
+        assertEquals(Boolean.TRUE, cache.isLiked("u1", "p1"));
+        assertTrue(sends.isEmpty());
+        assertTrue(reactions.isPending(OutboxEntity.TYPE_LIKE, "p1", "u1"));
+
+        scheduler.advance(PendingReactions.DEBOUNCE_MILLIS);
+        assertEquals(1, sends.size());
+        assertTrue(sends.get(0).on);
+    }
+
+    @Test
+    public void rapidDoubleTapQueuesNothing() {
+        tapLike("p1");
+        scheduler.advance(150);
+        tapLike("p1");
+        scheduler.advance(PendingReactions.DEBOUNCE_MILLIS);
+
+        assertTrue(sends.isEmpty());
+        assertEquals(Boolean.FALSE, cache.isLiked("u1", "p1"));
+        assertFalse(reactions.isPending(OutboxEntity.TYPE_LIKE, "p1", "u1"));
+    }
+
+    @Test
+    public void rapidTapsQueueOnlyTheFinalState() {
+        tapLike("p1");
+        scheduler.advance(150);
+        tapLike("p1");
+        scheduler.advance(150);
+        tapLike("p1");
+        scheduler.advance(PendingReactions.DEBOUNCE_MILLIS);
+
+        assertEquals(1, sends.size());
+        assertTrue(sends.get(0).on);
+    }
+
+    @Test
+    public void tapAfterAQueuedWriteQueuesTheChangeOnly() {
+        tapLikeAndWait("p1");
+        tapLike("p1");
+        tapLike("p1");
+        scheduler.advance(PendingReactions.DEBOUNCE_MILLIS);
+        assertEquals(1, sends.size());
+        assertTrue(reactions.isPending(OutboxEntity.TYPE_LIKE, "p1", "u1"));
+
+        tapLikeAndWait("p1");
+        assertEquals(2, sends.size());
+        assertFalse(sends.get(1).on);
+    }
+
+    @Test
+    public void sentWriteClearsPending() {
+        tapLikeAndWait("p1");
+        sends.get(0).listener.onSuccess();
+        assertTrue(reactions.isPending(OutboxEntity.TYPE_LIKE, "p1", "u1"));
+
+        reactions.onSent(OutboxEntity.TYPE_LIKE, "p1", "u1", true);
+        assertFalse(reactions.isPending(OutboxEntity.TYPE_LIKE, "p1", "u1"));
+        assertTrue(rollbacks.isEmpty());
+    }
+
+    @Test
+    public void droppedWriteRollsBackToConfirmedState() {
+        tapLikeAndWait("p1");
+        reactions.onDropped(OutboxEntity.TYPE_LIKE, "p1", "u1", true, "rejected");
+
+        assertEquals(Boolean.FALSE, cache.isLiked("u1", "p1"));
+        assertEquals(1, rollbacks.size());
+        assertEquals(OutboxEntity.TYPE_LIKE + ":p1:false", rollbacks.get(0));
+        assertFalse(reactions.isPending(OutboxEntity.TYPE_LIKE, "p1", "u1"));
+    }
+
+    @Test
+    public void rollbackKeepsAnEarlierSentState() {
+        tapLikeAndWait("p1");
+        reactions.onSent(OutboxEntity.TYPE_LIKE, "p1", "u1", true);
+        tapLikeAndWait("p1");
+        reactions.onDropped(OutboxEntity.TYPE_LIKE, "p1", "u1", false, "rejected");
+
+        assertEquals(Boolean.TRUE, cache.isLiked("u1", "p1"));
+        assertEquals(OutboxEntity.TYPE_LIKE + ":p1:true", rollbacks.get(0));
+    }
+
+    @Test
+    public void droppedWriteOfTheConfirmedStateNeedsNoRollback() {
+        tapLikeAndWait("p1");
+        tapLikeAndWait("p1");
+        // The outbox coalesced the like and the later unlike into a single unlike
+        reactions.onDropped(OutboxEntity.TYPE_LIKE, "p1", "u1", false, "rejected");
+
+        assertEquals(Boolean.FALSE, cache.isLiked("u1", "p1"));
+        assertTrue(rollbacks.isEmpty());
+    }
+
+    @Test
+    public void failedQueueRollsBack() {
+        tapLikeAndWait("p1");
+        sends.get(0).listener.onFailure("disk full");
+
+        assertEquals(Boolean.FALSE, cache.isLiked("u1", "p1"));
+        assertEquals(1, rollbacks.size());
+    }
+
+    @Test
+    public void writeDroppedAfterRestartStillRollsBack() {
+        cache.setRetweeted("u1", "p1", true);
+        reactions.onDropped(OutboxEntity.TYPE_RETWEET, "p1", "u1", true, "rejected");
+
+        assertEquals(Boolean.FALSE, cache.isRetweeted("u1", "p1"));
+        assertEquals(OutboxEntity.TYPE_RETWEET + ":p1:false", rollbacks.get(0));
+    }
+
+    @Test
+    public void likesAndRetweetsArePendingSeparately() {
+        tapLike("p1");
+        reactions.toggleRetweet("p1", "u1", false);
+        scheduler.advance(PendingReactions.DEBOUNCE_MILLIS);
+        reactions.onSent(OutboxEntity.TYPE_LIKE, "p1", "u1", true);
+
+        assertEquals(2, sends.size());
+        assertEquals(Boolean.TRUE, cache.isRetweeted("u1", "p1"));
+        assertFalse(reactions.isPending(OutboxEntity.TYPE_LIKE, "p1", "u1"));
+        assertTrue(reactions.isPending(OutboxEntity.TYPE_RETWEET, "p1", "u1"));
+    }
+}
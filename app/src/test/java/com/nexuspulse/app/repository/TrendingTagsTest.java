@@ -0,0 +1,101 @@
+package com.nexuspulse.app.repository;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TrendingTagsTest {
+    private static final int WINDOW = 6;
+    private static final int BASELINE = 24;
+    private static final long NOW = 500_000;
+
+    /** Posts per tag per hour, replayed as hour buckets */
+    private static class Traffic {
+        final List<Object[]> buckets = new ArrayList<>();
+
+        Traffic steady(String tag, long perHour, long fromHour, long toHour) {
+            for (long hour = fromHour; hour <= toHour; hour++) {
+                buckets.add(new Object[]{tag, hour, perHour});
+            }
+            return this;
+        }
+
+        List<String> trending(long nowHour, int limit) {
+            TrendingTags trending = new TrendingTags(WINDOW, BASELINE);
+            for (Object[] bucket : buckets) {
+                trending.add((String) bucket[0], (Long) bucket[1], (Long) bucket[2], nowHour);
+            }
+            List<String> tags = new ArrayList<>();
+            for (TrendingTags.Trend trend : trending.top(limit)) {
+                tags.add(trend.tag);
+            }
+            return tags;
+        }
+    }
+
+    @Test
+    public void burstOnAQuietTagBeatsABusySteadyTag() {
+        Traffic traffic = new Traffic()
+                .steady("coffee", 40, NOW - 48, NOW)
+                .steady("launch", 25, NOW - 1, NOW)
+                .steady("meetup", 2, NOW - 48, NOW - WINDOW)
+                .steady("meetup", 8, NOW - WINDOW + 1, NOW);
+
+        assertEquals(Arrays.asList("launch", "meetup"), traffic.trending(NOW, 10));
+        assertEquals(Arrays.asList("launch"), traffic.trending(NOW, 1));
+    }
+
+    @Test
+    public void burstStopsTrendingOnceItLeavesTheWindow() {
+        Traffic traffic = new Traffic().steady("launch", 25, NOW - 1, NOW);
+
+        assertEquals(Arrays.asList("launch"), traffic.trending(NOW + WINDOW - 1, 10));
+        // In the baseline now: no recent posts
+        assertTrue(traffic.trending(NOW + WINDOW + 1, 10).isEmpty());
+
+        // A second, smaller burst right after the first is judged against it
+        traffic.steady("launch", 10, NOW + WINDOW + 1, NOW + WINDOW + 1);
+        assertTrue(traffic.trending(NOW + WINDOW + 1, 10).isEmpty());
+        traffic.steady("launch", 30, NOW + WINDOW + 2, NOW + WINDOW + 2);
+        assertEquals(Arrays.asList("launch"), traffic.trending(NOW + WINDOW + 2, 10));
+    }
+
+    @Test
+    public void tooFewPostsOldBucketsAndClockSkew() {
+        Traffic traffic = new Traffic()
+                .steady("tiny", 2, NOW, NOW)
+                .steady("ancient", 500, NOW - WINDOW - BASELINE - 10, NOW - WINDOW - BASELINE)
+                .steady("skewed", 5, NOW + 2, NOW + 2);
+
+        assertEquals(Arrays.asList("skewed"), traffic.trending(NOW, 10));
+        assertEquals(NOW - WINDOW - BASELINE + 1, new TrendingTags(WINDOW, BASELINE).firstHour(NOW));
+    }
+
+    @Test
+    public void syntheticBurstsAmongNoiseAreFound() {
+        Random random = new Random(23);
+        Traffic traffic = new Traffic();
+        // 300 background tags with Poisson-ish noise around their own rate
+        for (int t = 0; t < 300; t++) {
+            int rate = 1 + random.nextInt(30);
+            for (long hour = NOW - 40; hour <= NOW; hour++) {
+                long posts = Math.max(0, rate + Math.round(random.nextGaussian() * Math.sqrt(rate)));
+                traffic.buckets.add(new Object[]{"tag" + t, hour, posts});
+            }
+        }
+        // Three bursts of different sizes, starting at different times
+        traffic.steady("burst_big", 200, NOW - 2, NOW);
+        traffic.steady("burst_mid", 30, NOW - 4, NOW);
+        traffic.steady("tag7", 120, NOW - 1, NOW);
+
+        List<String> top = traffic.trending(NOW, 3);
+        assertEquals(3, top.size());
+        assertTrue(top.containsAll(Arrays.asList("burst_big", "burst_mid", "tag7")));
+        assertEquals("burst_big", top.get(0));
+    }
+}
@@ -0,0 +1,153 @@
+package com.nexuspulse.app.repository;
+
+import com.nexuspulse.app.models.User;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class UserProfileCacheTest {
+
+    private long now;
+
+    /** Loader that parks callbacks so tests control when a read completes */
+    private static class DeferredLoader implements UserProfileCache.Loader {
+        final List<String> requested = new ArrayList<>();
+        final List<UserRepository.OnUserFetchedListener> pending = new ArrayList<>();
+
+        @Override
+        public void load(String userId, UserRepository.OnUserFetchedListener listener) {
+            requested.add(userId);
+            pending.add(listener);
+        }
+
+        void completeAll() {
+            for (int i = 0; i < pending.size(); i++) {
+                String id = requested.get(i);
+                pending.get(i).onSuccess(new User(id, id, id + "@test", id));
+            }
+            pending.clear();
+        }
+    }
+
+    private static class CountingListener implements UserRepository.OnUserFetchedListener {
+        int successes;
+
+        @Override
+        public void onSuccess(User user) {
+            successes++;
+        }
+
+        @Override
+        public void onFailure(String error) {
+            fail(error);
+        }
+    }
+
+    private UserProfileCache newCache(int maxEntries, long ttlMillis) {
+        return new UserProfileCache(maxEntries, ttlMillis, () -> now);
+    }
+
+    @Test
+    public void concurrentBinds_shareOneRead() {
+        UserProfileCache cache = newCache(10, 1000);
+        DeferredLoader loader = new DeferredLoader();
+        CountingListener listener = new CountingListener();
+
+        for (int i = 0; i < 30; i++) {
+            cache.get("author", loader, listener);
+        }
+        loader.completeAll();
+
+        assertEquals(1, loader.requested.size());
+        assertEquals(30, listener.successes);
+        assertEquals(1, cache.getMissCount());
+        assertEquals(29, cache.getHitCount());
+    }
+
+    @Test
+    public void expiredEntry_isReloaded() {
+        UserProfileCache cache = newCache(10, 1000);
+        DeferredLoader loader = new DeferredLoader();
+        CountingListener listener = new CountingListener();
+
+        cache.get("author", loader, listener);
+        loader.completeAll();
+        now += 999;
+        cache.get("author", loader, listener);
+        now += 1;
+        cache.get("author", loader, listener);
+        loader.completeAll();
+
+        assertEquals(2, loader.requested.size());
+        assertEquals(3, listener.successes);
+    }
+
+    @Test
+    public void loadFinishingAfterClearOrInvalidate_isNotCached() {
+        UserProfileCache cache = newCache(10, 1000);
+        DeferredLoader loader = new DeferredLoader();
+        CountingListener listener = new CountingListener();
+
+        cache.get("author", loader, listener);
+        cache.clear();
+        cache.get("author", loader, listener);
+        cache.invalidate("author");
+        loader.completeAll();
+
+        assertEquals(2, listener.successes);
+        assertNull(cache.peek("author"));
+
+        // A read started after the clear is not disturbed by the stale one finishing
+        cache.get("author", loader, listener);
+        cache.clear();
+        cache.get("author", loader, listener);
+        loader.pending.remove(0).onSuccess(new User("author", "author", "author@test", "stale"));
+        loader.requested.remove(0);
+        assertNull(cache.peek("author"));
+        loader.completeAll();
+        assertEquals(4, listener.successes);
+        assertNotNull(cache.peek("author"));
+    }
+
+    @Test
+    public void leastRecentlyUsedEntry_isEvicted() {
+        UserProfileCache cache = newCache(2, 1000);
+        cache.put(new User("a", "a", "a@test", "a"));
+        cache.put(new User("b", "b", "b@test", "b"));
+        cache.peek("a");
+        cache.put(new User("c", "c", "c@test", "c"));
+
+        assertNotNull(cache.peek("a"));
+        assertNull(cache.peek("b"));
+        assertNotNull(cache.peek("c"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void callerEdits_doNotReachTheCache() {
+        UserProfileCache cache = newCache(10, 1000);
+        User author = new User("author", "author", "author@test", "Author");
+        author.setFollowersCount(5);
+        cache.put(author);
+
+        author.setFollowersCount(6);
+        cache.peek("author").setFollowersCount(7);
+        cache.get("author", (id, l) -> fail("served from cache"), new UserRepository.OnUserFetchedListener() {
+            @Override
+            public void onSuccess(User user) {
+                user.setFollowersCount(8);
+            }
+
+            @Override
+            public void onFailure(String error) {
+                fail(error);
+            }
+        });
+
+        assertEquals(5, cache.peek("author").getFollowersCount());
+    }
+}
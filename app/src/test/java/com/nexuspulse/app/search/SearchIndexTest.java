@@ -0,0 +1,212 @@
+package com.nexuspulse.app.search;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SearchIndexTest {
+
+    private static List<String> ids(List<SearchIndex.Hit> hits) {
+        List<String> ids = new ArrayList<>();
+        for (SearchIndex.Hit hit : hits) {
+            ids.add(hit.id);
+        }
+        return ids;
+    }
+
+    private static SearchIndex sampleIndex() {
+        SearchIndex index = new SearchIndex();
+        index.put("p1", "Launching NexusPulse today, the café is open", "#launch ", "alice");
+        index.put("p2", "Coffee and code all afternoon", "#coding ", "bob");
+        index.put("p3", "Nobody talks about the launch party", "", "carol");
+        index.put("p4", "Launch launch launch! We are live", "#launch ", "dave");
+        return index;
+    }
+
+    @Test
+    public void analyzerFoldsCaseAndAccentsAndKeepsMarkers() {
+        assertEquals(Arrays.asList("cafe", "#launch", "launch", "@alice", "alice", "rock_n_roll"),
+                TextAnalyzer.terms("Café #Launch, @Alice: rock_n_roll!"));
+        assertEquals(Arrays.asList("#launch", "day"), TextAnalyzer.queryTerms("#LAUNCH day"));
+    }
+
+    @Test
+    public void everyTermMustMatchAndRepetitionRanksHigher() {
+        SearchIndex index = sampleIndex();
+
+        // p3 and p1 mention it once; the shorter p3 ranks higher
+        assertEquals(Arrays.asList("p4", "p3", "p1"), ids(index.search("launch ", 10)));
+        assertEquals(Arrays.asList("p3"), ids(index.search("launch party ", 10)));
+        assertTrue(index.search("launch coffee ", 10).isEmpty());
+    }
+
+    @Test
+    public void lastTermMatchesAsPrefixWhileTyping() {
+        SearchIndex index = sampleIndex();
+
+        assertEquals(Arrays.asList("p1"), ids(index.search("nexusp", 10)));
+        assertEquals(Arrays.asList("p2"), ids(index.search("coffee aft", 10)));
+        // A finished word is not a prefix
+        assertTrue(index.search("nexusp ", 10).isEmpty());
+    }
+
+    @Test
+    public void typosStillFindTheTerm() {
+        SearchIndex index = sampleIndex();
+
+        assertEquals(Arrays.asList("p2"), ids(index.search("cofee ", 10)));
+        assertEquals(Arrays.asList("p2"), ids(index.search("afternon ", 10)));
+        assertTrue(index.search("xyzzy ", 10).isEmpty());
+    }
+
+    @Test
+    public void hashtagQueryOnlyMatchesHashtags() {
+        SearchIndex index = sampleIndex();
+
+        List<String> tagged = ids(index.search("#launch", 10));
+        assertEquals(2, tagged.size());
+        assertTrue(tagged.containsAll(Arrays.asList("p1", "p4")));
+        assertEquals(Arrays.asList("p1"), ids(index.search("café", 10)));
+        assertEquals(Arrays.asList("p1"), ids(index.search("CAFE", 10)));
+    }
+
+    @Test
+    public void replacedAndRemovedDocumentsAreNotFound() {
+        SearchIndex index = sampleIndex();
+        index.put("p2", "Tea all afternoon");
+        index.remove("p4");
+
+        assertTrue(index.search("coffee ", 10).isEmpty());
+        assertEquals(Arrays.asList("p2"), ids(index.search("tea ", 10)));
+        assertFalse(ids(index.search("launch ", 10)).contains("p4"));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    public void compactionKeepsLiveDocuments() {
+        SearchIndex index = new SearchIndex();
+        for (int i = 0; i < 3000; i++) {
+            index.put("p" + i, "post number" + i + (i % 2 == 0 ? " even" : " odd"));
+        }
+        for (int i = 0; i < 3000; i += 3) {
+            index.remove("p" + i);
+        }
+        for (int i = 1; i < 3000; i += 3) {
+            index.remove("p" + i);
+        }
+
+        assertEquals(1000, index.size());
+        assertEquals(Arrays.asList("p2999"), ids(index.search("number2999 ", 10)));
+        assertEquals(500, index.search("even ", 10_000).size());
+    }
+
+    @Test
+    public void trimDropsTheDocumentsPutLongestAgo() {
+        SearchIndex index = new SearchIndex();
+        for (int i = 0; i < 3000; i++) {
+            index.put("p" + i, "post number" + i);
+        }
+        index.put("p0", "post number0 again");
+
+        index.trimTo(1000);
+
+        assertEquals(1000, index.size());
+        assertTrue(index.contains("p0"));
+        assertFalse(index.contains("p2000"));
+        assertTrue(index.contains("p2001"));
+        assertEquals(Arrays.asList("p2999"), ids(index.search("number2999 ", 10)));
+    }
+
+    @Test
+    public void snapshotRoundTripsWithoutReindexing() throws Exception {
+        SearchIndex index = sampleIndex();
+        index.remove("p3");
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.writeTo(new DataOutputStream(bytes));
+        SearchIndex loaded = SearchIndex.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(3, loaded.size());
+        for (String query : new String[]{"launch ", "#launch", "nexusp", "cofee ", "alice"}) {
+            assertEquals(query, ids(index.search(query, 10)), ids(loaded.search(query, 10)));
+        }
+        loaded.remove("p1");
+        assertEquals(Arrays.asList("p4"), ids(loaded.search("#launch", 10)));
+    }
+
+    @Test
+    public void queriesOn100kPostsStayInteractive() {
+        Random random = new Random(5);
+        String[] vocabulary = new String[20_000];
+        for (int i = 0; i < vocabulary.length; i++) {
+            vocabulary[i] = word(random, 3 + random.nextInt(8));
+        }
+
+        SearchIndex index = new SearchIndex();
+        for (int i = 0; i < 100_000; i++) {
+            StringBuilder content = new StringBuilder();
+            int words = 8 + random.nextInt(20);
+            for (int w = 0; w < words; w++) {
+                content.append(vocabulary[zipf(random, vocabulary.length)]).append(' ');
+            }
+            String hashtags = random.nextInt(4) == 0 ? "#" + vocabulary[zipf(random, 500)] : "";
+            index.put("p" + i, content.toString(), hashtags, "user" + random.nextInt(5_000));
+        }
+
+        // Common and rare words, multi-term, prefixes, typos and hashtags
+        List<String> queries = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String common = vocabulary[zipf(random, 200)];
+            String rare = vocabulary[zipf(random, vocabulary.length)];
+            switch (i % 5) {
+                case 0: queries.add(common + " "); break;
+                case 1: queries.add(common + " " + rare + " "); break;
+                case 2: queries.add(rare.substring(0, Math.min(3, rare.length()))); break;
+                case 3: queries.add(rare.substring(1) + "q "); break;
+                default: queries.add("#" + common); break;
+            }
+        }
+
+        // Warm up, then measure
+        for (int round = 0; round < 3; round++) {
+            for (String query : queries) {
+                index.search(query, 20);
+            }
+        }
+        long[] micros = new long[queries.size() * 5];
+        int n = 0;
+        for (int round = 0; round < 5; round++) {
+            for (String query : queries) {
+                long start = System.nanoTime();
+                index.search(query, 20);
+                micros[n++] = (System.nanoTime() - start) / 1000;
+            }
+        }
+        Arrays.sort(micros);
+        long p50 = micros[micros.length / 2];
+        // Well under 1ms on a laptop; the bound only catches a quadratic slip on a loaded CI machine
+        assertTrue("p50 " + p50 + "us", p50 < 100_000);
+    }
+
+    private static String word(Random random, int length) {
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(26)));
+        }
+        return word.toString();
+    }
+
+    /** Roughly Zipf-distributed index below size: a few words are very common */
+    private static int zipf(Random random, int size) {
+        return (int) Math.min(size - 1, Math.floor(Math.pow(size + 1, random.nextDouble())) - 1);
+    }
+}
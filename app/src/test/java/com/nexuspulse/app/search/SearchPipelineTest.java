@@ -0,0 +1,272 @@
+package com.nexuspulse.app.search;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SearchPipelineTest {
+
+    private static final int LIMIT = 20;
+
+    private FakeClock clock;
+    private FakeBackend backend;
+    private List<String> shown;
+    private int outOfOrder;
+    private String typed;
+
+    @Before
+    public void setUp() {
+        clock = new FakeClock();
+        backend = new FakeBackend(clock, new Random(7));
+        shown = new ArrayList<>();
+        outOfOrder = 0;
+        typed = "";
+        for (int i = 0; i < 5; i++) {
+            backend.usernames.add("nexuspulse" + i);
+        }
+        backend.usernames.addAll(Arrays.asList("nexus", "nexo", "newton", "nora", "nadia"));
+        for (int i = 0; i < 30; i++) {
+            backend.usernames.add("n" + i);
+        }
+    }
+
+    private SearchPipeline<String> pipeline() {
+        return new SearchPipeline<>(clock, backend, String::startsWith, LIMIT, new SearchPipeline.Listener<String>() {
+            @Override
+            public void onLoading(String query) {
+            }
+
+            @Override
+            public void onResults(String query, List<String> items) {
+                record(query);
+            }
+
+            @Override
+            public void onFailure(String query, String error) {
+                record(query);
+            }
+
+            @Override
+            public void onCleared() {
+                shown.add("");
+            }
+        });
+    }
+
+    private void record(String query) {
+        shown.add(query);
+        if (!query.equals(typed.trim())) {
+            outOfOrder++;
+        }
+    }
+
+    /** Types text one key at a time, keyGapMillis apart */
+    private void type(String text, long keyGapMillis, SearchPipeline<String> pipeline) {
+        for (char c : text.toCharArray()) {
+            typed += c;
+            pipeline.setQuery(typed);
+            clock.advance(keyGapMillis);
+        }
+    }
+
+    @Test
+    public void typingSendsOneQueryAfterThePause() {
+        SearchPipeline<String> pipeline = pipeline();
+
+        type("nexus", 120, pipeline);
+        clock.advance(2_000);
+
+        assertEquals(Arrays.asList("nexus"), backend.queries);
+        assertEquals(Arrays.asList("nexus"), shown);
+    }
+
+    @Test
+    public void narrowingACompleteResultIsAnsweredFromCache() {
+        SearchPipeline<String> pipeline = pipeline();
+
+        // 7 users start with "nex": fewer than the limit, so that is all of them
+        type("nex", 0, pipeline);
+        clock.advance(2_000);
+        type("uspulse", 500, pipeline);
+        clock.advance(2_000);
+
+        assertEquals(Arrays.asList("nex"), backend.queries);
+        assertEquals(Arrays.asList("nex", "nexu", "nexus", "nexusp", "nexuspu", "nexuspul", "nexuspuls",
+                "nexuspulse"), shown);
+        assertEquals(7, pipeline.getCacheAnswers());
+    }
+
+    @Test
+    public void truncatedResultIsNotFilteredLocally() {
+        SearchPipeline<String> pipeline = pipeline();
+
+        // 40 users start with "n", only 20 came back
+        type("n", 0, pipeline);
+        clock.advance(2_000);
+        type("e", 0, pipeline);
+        clock.advance(2_000);
+
+        assertEquals(Arrays.asList("n", "ne"), backend.queries);
+    }
+
+    @Test
+    public void slowAnswerForAnOldQueryIsNeverShown() {
+        SearchPipeline<String> pipeline = pipeline();
+
+        backend.fixedLatency = 2_000L;
+        type("n", 400, pipeline);
+        backend.fixedLatency = 100L;
+        type("o", 400, pipeline);
+        clock.advance(5_000);
+
+        assertEquals(Arrays.asList("n", "no"), backend.queries);
+        assertEquals(Arrays.asList("no"), shown);
+        assertEquals(1, pipeline.getStaleResponses());
+        assertEquals(0, outOfOrder);
+
+        // Its answer was still cached
+        typed = "n";
+        pipeline.setQuery(typed);
+        clock.advance(400);
+        assertEquals(2, backend.queries.size());
+        assertEquals(Arrays.asList("no", "n"), shown);
+    }
+
+    @Test
+    public void clearingAndClosingStopPendingWork() {
+        SearchPipeline<String> pipeline = pipeline();
+
+        type("ne", 0, pipeline);
+        typed = "";
+        pipeline.setQuery("  ");
+        clock.advance(2_000);
+        assertTrue(backend.queries.isEmpty());
+        assertEquals(Arrays.asList(""), shown);
+
+        backend.fixedLatency = 1_000L;
+        type("n", 400, pipeline);
+        pipeline.close();
+        pipeline.setQuery("nexus");
+        clock.advance(5_000);
+        assertEquals(Arrays.asList("n"), backend.queries);
+        assertEquals(Arrays.asList(""), shown);
+    }
+
+    /**
+     * Replays a typing script with backspaces and pauses against a backend
+     * whose latency varies between 50 and 1500ms, once with a query per
+     * keystroke (the old behaviour) and once through the pipeline
+     */
+    @Test
+    public void typingScriptSendsFewerQueriesAndNeverShowsStaleResults() {
+        String[] script = {"nexuspulse", "<<<<<<", "o", "<", "wton", "<<<<<<<<", "nadia", "<<<<<", "nexus"};
+        long[] gaps = {90, 140, 220, 380, 110};
+
+        // Naive: every keystroke queries and every answer is shown
+        Random random = new Random(3);
+        int naiveQueries = 0;
+        int naiveOutOfOrder = 0;
+        List<long[]> arrivals = new ArrayList<>();
+        long now = 0;
+        int keys = 0;
+        for (String step : script) {
+            for (char c : step.toCharArray()) {
+                keys++;
+                naiveQueries++;
+                arrivals.add(new long[]{now + 50 + random.nextInt(1450), now});
+                now += gaps[keys % gaps.length];
+            }
+        }
+        arrivals.sort((a, b) -> Long.compare(a[0], b[0]));
+        long latestShown = -1;
+        for (long[] arrival : arrivals) {
+            if (arrival[1] < latestShown) {
+                naiveOutOfOrder++;
+            }
+            latestShown = Math.max(latestShown, arrival[1]);
+        }
+
+        // Pipeline
+        backend.fixedLatency = null;
+        SearchPipeline<String> pipeline = pipeline();
+        keys = 0;
+        for (String step : script) {
+            for (char c : step.toCharArray()) {
+                keys++;
+                typed = c == '<' ? typed.substring(0, typed.length() - 1) : typed + c;
+                pipeline.setQuery(typed);
+                clock.advance(gaps[keys % gaps.length]);
+            }
+        }
+        clock.advance(5_000);
+
+        assertTrue(naiveOutOfOrder > 0);
+        assertTrue(pipeline.getRequests() < naiveQueries / 3);
+        assertEquals(0, outOfOrder);
+        assertEquals("nexus", shown.get(shown.size() - 1));
+    }
+
+    /** Runs scheduled tasks as virtual time passes */
+    private static class FakeClock implements SearchPipeline.Scheduler {
+        private final PriorityQueue<Object[]> tasks = new PriorityQueue<>((a, b) -> {
+            int byTime = Long.compare((Long) a[0], (Long) b[0]);
+            return byTime != 0 ? byTime : Long.compare((Long) a[1], (Long) b[1]);
+        });
+        private long now;
+        private long sequence;
+
+        @Override
+        public void schedule(Runnable task, long delayMillis) {
+            tasks.add(new Object[]{now + delayMillis, sequence++, task});
+        }
+
+        @Override
+        public void cancel(Runnable task) {
+            tasks.removeIf(entry -> entry[2] == task);
+        }
+
+        void advance(long millis) {
+            long until = now + millis;
+            while (!tasks.isEmpty() && (Long) tasks.peek()[0] <= until) {
+                Object[] entry = tasks.poll();
+                now = (Long) entry[0];
+                ((Runnable) entry[2]).run();
+            }
+            now = until;
+        }
+    }
+
+    /** Username prefix search answering after a delay */
+    private static class FakeBackend implements SearchPipeline.Source<String> {
+        final List<String> usernames = new ArrayList<>();
+        final List<String> queries = new ArrayList<>();
+        private final FakeClock clock;
+        private final Random random;
+        Long fixedLatency = 100L;
+
+        FakeBackend(FakeClock clock, Random random) {
+            this.clock = clock;
+            this.random = random;
+        }
+
+        @Override
+        public void search(String query, SearchPipeline.Callback<String> callback) {
+            queries.add(query);
+            List<String> matches = new ArrayList<>();
+            for (String username : usernames) {
+                if (username.startsWith(query) && matches.size() < LIMIT) {
+                    matches.add(username);
+                }
+            }
+            long latency = fixedLatency != null ? fixedLatency : 50 + random.nextInt(1450);
+            clock.schedule(() -> callback.onSuccess(matches), latency);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.nexuspulse.app.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CommentPathTest {
+
+    @Test
+    public void olderCommentsSortFirstWhateverTheirIds() {
+        String first = CommentPath.root(2_000L, "zzz");
+        String second = CommentPath.root(100_000L, "aaa");
+        String third = CommentPath.root(1_700_000_000_000L, "mmm");
+
+        assertTrue(first.compareTo(second) < 0);
+        assertTrue(second.compareTo(third) < 0);
+        assertEquals(first.length(), second.length());
+    }
+}
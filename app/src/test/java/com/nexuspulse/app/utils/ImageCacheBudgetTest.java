@@ -0,0 +1,37 @@
+package com.nexuspulse.app.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ImageCacheBudgetTest {
+    private static final long MB = 1024 * 1024;
+
+    @Test
+    public void roomyDeviceGetsFullScreenBudgets() {
+        ImageCacheBudget budget = ImageCacheBudget.forDevice(256, false, 1080, 2400);
+
+        long screen = 1080L * 2400 * 4;
+        assertEquals(3 * screen, budget.memoryCacheBytes);
+        assertEquals(2 * screen, budget.bitmapPoolBytes);
+        assertEquals(ImageCacheBudget.DISK_CACHE_BYTES, budget.diskCacheBytes);
+    }
+
+    @Test
+    public void smallHeapsCapBothCachesInProportion() {
+        ImageCacheBudget budget = ImageCacheBudget.forDevice(128, false, 1440, 3200);
+
+        assertEquals(32 * MB, budget.memoryCacheBytes + budget.bitmapPoolBytes, 2);
+        assertEquals(1.5, budget.memoryCacheBytes / (double) budget.bitmapPoolBytes, 0.001);
+    }
+
+    @Test
+    public void lowRamDevicesTakeLess() {
+        ImageCacheBudget normal = ImageCacheBudget.forDevice(96, false, 720, 1600);
+        ImageCacheBudget lowRam = ImageCacheBudget.forDevice(96, true, 720, 1600);
+
+        assertTrue(lowRam.memoryCacheBytes + lowRam.bitmapPoolBytes <= 96 * MB * 0.15 + 1);
+        assertTrue(lowRam.memoryCacheBytes < normal.memoryCacheBytes);
+        assertEquals(ImageCacheBudget.LOW_RAM_DISK_CACHE_BYTES, lowRam.diskCacheBytes);
+    }
+}
@@ -0,0 +1,26 @@
+package com.nexuspulse.app.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ImageDownsamplerTest {
+
+    @Test
+    public void sampleSizeNeverDecodesBelowTheTarget() {
+        // 12 MP camera photo down to a 1500px cover image
+        assertEquals(2, ImageDownsampler.calculateInSampleSize(4000, 3000, 1500));
+        assertEquals(1, ImageDownsampler.calculateInSampleSize(4000, 3000, 2048));
+        assertEquals(8, ImageDownsampler.calculateInSampleSize(4000, 3000, 500));
+        assertEquals(1, ImageDownsampler.calculateInSampleSize(1200, 800, 2048));
+        assertEquals(1, ImageDownsampler.calculateInSampleSize(4000, 3000, 0));
+    }
+
+    @Test
+    public void targetSizeKeepsAspectRatioWithinTheLimit() {
+        assertArrayEquals(new int[]{2048, 1536}, ImageDownsampler.targetSize(4000, 3000, 2048));
+        assertArrayEquals(new int[]{384, 512}, ImageDownsampler.targetSize(1500, 2000, 512));
+        assertArrayEquals(new int[]{800, 600}, ImageDownsampler.targetSize(800, 600, 2048));
+        assertArrayEquals(new int[]{1, 512}, ImageDownsampler.targetSize(2, 5000, 512));
+    }
+}
@@ -0,0 +1,83 @@
+package com.nexuspulse.app.utils;
+
+import org.junit.Test;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class ImageUrlsTest {
+    private static final String BASE = "https://project.supabase.co";
+    private static final String POST_IMAGE = BASE + "/storage/v1/object/public/post_images/u1/abc.webp";
+
+    @Test
+    public void supabaseObjectsAreRenderedAtABucketedSize() {
+        assertEquals(BASE + "/storage/v1/render/image/public/post_images/u1/abc.webp"
+                        + "?width=1080&height=660&resize=cover&quality=75",
+                ImageUrls.sized(POST_IMAGE, 859, 525));
+        assertEquals(BASE + "/storage/v1/render/image/public/post_images/u1/abc.webp?t=1"
+                        + "&width=192&height=192&resize=cover&quality=75",
+                ImageUrls.sized(POST_IMAGE + "?t=1", 126, 126));
+    }
+
+    @Test
+    public void similarViewsShareOneRendition() {
+        assertEquals(ImageUrls.sized(POST_IMAGE, 1000, 500), ImageUrls.sized(POST_IMAGE, 1040, 520));
+        assertEquals(1440, ImageUrls.bucketWidth(4000));
+        assertEquals(96, ImageUrls.bucketWidth(1));
+    }
+
+    @Test
+    public void otherUrlsAreLeftAlone() {
+        String gif = BASE + "/storage/v1/object/public/post_images/u1/cat.GIF";
+        String other = "https://example.com/image.jpg";
+        assertEquals(gif, ImageUrls.sized(gif, 500, 500));
+        assertEquals(other, ImageUrls.sized(other, 500, 500));
+        assertEquals(POST_IMAGE, ImageUrls.sized(POST_IMAGE, 0, 500));
+        assertNull(ImageUrls.sized(null, 500, 500));
+    }
+
+    /**
+     * Bitmap bytes one visible feed row decodes on a 1080x2400, 2.625x
+     * screen: a 2048x1536 upload in the 200dp post image (859x525px) and a
+     * 512px avatar in 48dp (126px). Glide decodes to cover the target
+     * (CENTER_OUTSIDE), then center crop copies out the target size unless
+     * the decode already matches it.
+     */
+    @Test
+    public void decodedBytesPerVisibleRow() {
+        int viewWidth = 859;
+        int viewHeight = 525;
+        int avatar = 126;
+
+        // Before: original URL, ARGB_8888, target measured from the view
+        long beforePost = coverDecode(2048, 1536, viewWidth, viewHeight, 4) + (long) viewWidth * viewHeight * 4;
+        long beforeAvatar = coverDecode(512, 512, avatar, avatar, 4) + (long) avatar * avatar * 4;
+
+        // After: server rendition at the bucketed size, RGB_565 for the post image
+        int[] rendition = requestedSize(ImageUrls.sized(POST_IMAGE, viewWidth, viewHeight));
+        long afterDecode = coverDecode(rendition[0], rendition[1], viewWidth, viewHeight, 2);
+        long afterPost = afterDecode + (afterDecode == (long) viewWidth * viewHeight * 2
+                ? 0 : (long) viewWidth * viewHeight * 2);
+        int[] avatarRendition = requestedSize(ImageUrls.sized(POST_IMAGE, avatar, avatar));
+        long afterAvatar = coverDecode(avatarRendition[0], avatarRendition[1], avatar, avatar, 4)
+                + (long) avatar * avatar * 4;
+
+        long before = beforePost + beforeAvatar;
+        long after = afterPost + afterAvatar;
+        assertTrue(after * 2 < before);
+    }
+
+    /** Bytes of a srcW x srcH image decoded just large enough to cover the target */
+    private static long coverDecode(int srcW, int srcH, int targetW, int targetH, int bytesPerPixel) {
+        double scale = Math.min(1, Math.max(targetW / (double) srcW, targetH / (double) srcH));
+        return Math.round(srcW * scale) * Math.round(srcH * scale) * bytesPerPixel;
+    }
+
+    private static int[] requestedSize(String url) {
+        Matcher matcher = Pattern.compile("width=(\\d+)&height=(\\d+)").matcher(url);
+        assertTrue(url, matcher.find());
+        return new int[]{Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))};
+    }
+}
@@ -0,0 +1,181 @@
+package com.nexuspulse.app.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.*;
+
+public class ParallelBatchTest {
+    private static final int IMAGES = 4;
+    private static final long LATENCY_MS = 300;
+    private static final byte[] IMAGE = new byte[64 * 1024];
+
+    private ExecutorService executor;
+    private final List<Long> sleeps = Collections.synchronizedList(new ArrayList<>());
+
+    @Before
+    public void startExecutor() {
+        executor = Executors.newFixedThreadPool(IMAGES);
+    }
+
+    @After
+    public void stopExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void resultsComeBackInItemOrder() throws Exception {
+        List<String> results = ParallelBatch.run(executor, Arrays.asList(30, 0, 20, 10), 1, delay -> {
+            Thread.sleep(delay);
+            return "done " + delay;
+        });
+
+        assertEquals(Arrays.asList("done 30", "done 0", "done 20", "done 10"), results);
+    }
+
+    @Test
+    public void onlyTheFailedItemIsRetried() throws Exception {
+        Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+        List<String> results = ParallelBatch.run(executor, Arrays.asList("a", "b", "c"), 3, item -> {
+            int call = calls.computeIfAbsent(item, k -> new AtomicInteger()).incrementAndGet();
+            if (call == 1 && item.equals("b")) {
+                throw new IOException("connection reset");
+            }
+            if (call == 1 && item.equals("c")) {
+                return null;
+            }
+            return item;
+        }, sleeps::add);
+
+        assertEquals(Arrays.asList("a", "b", "c"), results);
+        assertEquals(1, calls.get("a").get());
+        assertEquals(2, calls.get("b").get());
+        assertEquals(2, calls.get("c").get());
+        assertEquals(2, sleeps.size());
+    }
+
+    @Test
+    public void itemsThatNeverSucceedAreNull() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        List<String> results = ParallelBatch.run(executor, Arrays.asList("ok", "broken"), 3, item -> {
+            if (item.equals("broken")) {
+                calls.incrementAndGet();
+                return null;
+            }
+            return item;
+        }, sleeps::add);
+
+        assertEquals(Arrays.asList("ok", null), results);
+        assertEquals(3, calls.get());
+        // Backoff between attempts, none after the last
+        assertEquals(2, sleeps.size());
+        assertTrue(sleeps.get(0) <= ResumableUploader.BASE_BACKOFF_MILLIS);
+        assertTrue(sleeps.get(1) <= 2 * ResumableUploader.BASE_BACKOFF_MILLIS);
+    }
+
+    @Test
+    public void rejectedItemIsNotRetriedAndFailsTheBatchOnceTheOthersAreDone() throws Exception {
+        Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+        try {
+            ParallelBatch.run(executor, Arrays.asList("ok", "too big", "slow"), 3, item -> {
+                calls.computeIfAbsent(item, k -> new AtomicInteger()).incrementAndGet();
+                if (item.equals("too big")) {
+                    throw new UploadRejectedException(413, "Payload too large");
+                }
+                if (item.equals("slow")) {
+                    Thread.sleep(50);
+                }
+                return item;
+            }, sleeps::add);
+            fail("rejection should reach the caller");
+        } catch (UploadRejectedException e) {
+            assertEquals(413, e.code);
+        }
+
+        assertEquals(1, calls.get("too big").get());
+        assertEquals(1, calls.get("slow").get());
+        assertTrue(sleeps.isEmpty());
+    }
+
+    @Test
+    public void concurrencyIsBoundedByTheExecutor() throws Exception {
+        ExecutorService two = Executors.newFixedThreadPool(2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        try {
+            ParallelBatch.run(two, Arrays.asList(1, 2, 3, 4, 5, 6), 1, item -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(20);
+                running.decrementAndGet();
+                return item;
+            });
+        } finally {
+            two.shutdownNow();
+        }
+
+        assertTrue(peak.get() <= 2);
+    }
+
+    /**
+     * Wall clock for a 4-image post against a storage server that takes
+     * LATENCY_MS to answer each upload: one at a time, as the single
+     * outbox thread used to, and side by side on the image pool.
+     */
+    @Test
+    public void fourImagesUploadInParallel() throws Exception {
+        long sequential = uploadFour(Executors.newSingleThreadExecutor());
+        long parallel = uploadFour(Executors.newFixedThreadPool(Constants.MAX_POST_IMAGES));
+
+        assertTrue(sequential >= IMAGES * LATENCY_MS);
+        // About one latency; the bound only needs the uploads to overlap, even on a loaded CI machine
+        assertTrue("parallel " + parallel + "ms", parallel < IMAGES * LATENCY_MS);
+    }
+
+    private long uploadFour(ExecutorService uploads) throws Exception {
+        MockWebServer server = new MockWebServer();
+        for (int i = 0; i < IMAGES; i++) {
+            server.enqueue(new MockResponse().setResponseCode(200)
+                    .setHeadersDelay(LATENCY_MS, TimeUnit.MILLISECONDS));
+        }
+        server.start();
+        String url = server.url("/").toString();
+        String baseUrl = url.substring(0, url.length() - 1);
+
+        List<Integer> images = new ArrayList<>();
+        for (int i = 0; i < IMAGES; i++) {
+            images.add(i);
+        }
+        try {
+            long start = System.nanoTime();
+            List<String> urls = ParallelBatch.run(uploads, images, 1, i -> SupabaseClient.upload(baseUrl,
+                    SupabaseClient.BUCKET_POST, "u1/" + i + ".webp",
+                    RequestBody.create(IMAGE, MediaType.get("image/webp"))));
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertEquals(IMAGES, server.getRequestCount());
+            assertFalse(urls.contains(null));
+            return elapsed;
+        } finally {
+            uploads.shutdownNow();
+            server.shutdown();
+        }
+    }
+}
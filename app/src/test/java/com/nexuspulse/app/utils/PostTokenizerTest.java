@@ -0,0 +1,122 @@
+package com.nexuspulse.app.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class PostTokenizerTest {
+
+    @Test
+    public void findsTagsAndMentionsAtWordStarts() {
+        PostTokenizer.Tokens tokens = PostTokenizer.tokenize(
+                "#Launch day! Thanks @alice_b and @Bob99 (#launch, #NexusPulse_2) mail bob@mail.com a#b");
+
+        assertEquals(Arrays.asList("launch", "nexuspulse_2"), tokens.hashtags);
+        assertEquals(Arrays.asList("alice_b", "Bob99"), tokens.mentions);
+    }
+
+    @Test
+    public void rejectsNumbersTooLongAndEmptyMarkers() {
+        PostTokenizer.Tokens tokens = PostTokenizer.tokenize(
+                "# #1 #2024 #" + repeat('x', PostTokenizer.MAX_TAG_LENGTH + 1) + " @ @ab @"
+                        + repeat('y', 21) + " #ok ##twice");
+
+        assertEquals(Arrays.asList("ok", "twice"), tokens.hashtags);
+        assertTrue(tokens.mentions.isEmpty());
+    }
+
+    @Test
+    public void foldsAccentsAndStopsAtTheLimit() {
+        assertEquals(Arrays.asList("cafe"), PostTokenizer.tokenize("#Café #cafe #CAFÉ").hashtags);
+
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            text.append("#tag").append(i).append(' ');
+        }
+        List<String> hashtags = PostTokenizer.tokenize(text.toString()).hashtags;
+        assertEquals(PostTokenizer.MAX_PER_POST, hashtags.size());
+        assertEquals("tag9", hashtags.get(9));
+    }
+
+    @Test
+    public void normalizesTypedTags() {
+        assertEquals("launch", PostTokenizer.normalizeTag("#Launch"));
+        assertEquals("launch", PostTokenizer.normalizeTag("launch"));
+        assertNull(PostTokenizer.normalizeTag("#two words"));
+        assertNull(PostTokenizer.normalizeTag("#123"));
+        assertNull(PostTokenizer.normalizeTag(""));
+        assertNull(PostTokenizer.normalizeTag(null));
+    }
+
+    /**
+     * Microbenchmark against the regex a first version would use, on 20k
+     * synthetic posts; both must find the same tags
+     */
+    @Test
+    public void agreesWithRegexOnSyntheticPosts() {
+        Pattern hashtag = Pattern.compile("(?<![\\p{L}\\p{Nd}_])#([\\p{L}\\p{Nd}_]+)");
+        Random random = new Random(19);
+        String[] words = {"launch", "Coffee", "code", "the", "and", "NexusPulse", "today", "2024", "mail@x.com"};
+        List<String> posts = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            StringBuilder post = new StringBuilder();
+            int length = 10 + random.nextInt(40);
+            for (int w = 0; w < length; w++) {
+                int kind = random.nextInt(10);
+                String word = words[random.nextInt(words.length)];
+                post.append(kind == 0 ? "#" + word : kind == 1 ? "@" + word : word)
+                        .append(random.nextInt(8) == 0 ? ", " : " ");
+            }
+            posts.add(post.toString());
+        }
+
+        for (String post : posts) {
+            assertEquals(post, regexTags(hashtag, post), PostTokenizer.tokenize(post).hashtags);
+        }
+
+        long tokenizerNanos = Long.MAX_VALUE;
+        int found = 0;
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            for (String post : posts) {
+                found += PostTokenizer.tokenize(post).hashtags.size();
+            }
+            tokenizerNanos = Math.min(tokenizerNanos, System.nanoTime() - start);
+
+            for (String post : posts) {
+                found -= regexTags(hashtag, post).size();
+            }
+        }
+        assertEquals(0, found);
+
+        assertTrue(tokenizerNanos / posts.size() < 50_000);
+    }
+
+    private static List<String> regexTags(Pattern pattern, String text) {
+        List<String> tags = new ArrayList<>();
+        Matcher matcher = pattern.matcher(text);
+        while (matcher.find() && tags.size() < PostTokenizer.MAX_PER_POST) {
+            String tag = matcher.group(1);
+            if (tag.length() <= PostTokenizer.MAX_TAG_LENGTH && tag.matches(".*\\p{L}.*")) {
+                tag = tag.toLowerCase(Locale.ROOT);
+                if (!tags.contains(tag)) {
+                    tags.add(tag);
+                }
+            }
+        }
+        return tags;
+    }
+
+    private static String repeat(char c, int count) {
+        return String.join("", Collections.nCopies(count, String.valueOf(c)));
+    }
+}
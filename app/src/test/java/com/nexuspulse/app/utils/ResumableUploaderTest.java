@@ -0,0 +1,187 @@
+package com.nexuspulse.app.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+
+import static org.junit.Assert.*;
+
+public class ResumableUploaderTest {
+    private static final int CHUNK = 64 * 1024;
+    private static final int SIZE = 2 * CHUNK + 1000;
+    private static final String LOCATION = "/storage/v1/upload/resumable/abc";
+
+    private MockWebServer server;
+    private ResumableUploader uploader;
+    private final List<Long> sleeps = new ArrayList<>();
+    private final List<Long> progress = new ArrayList<>();
+    private byte[] data;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        String url = server.url("/").toString();
+        OkHttpClient client = new OkHttpClient.Builder()
+                .readTimeout(5, TimeUnit.SECONDS)
+                .build();
+        uploader = new ResumableUploader(client, url.substring(0, url.length() - 1), "key",
+                CHUNK, new Random(42), sleeps::add);
+
+        data = new byte[SIZE];
+        new Random(7).nextBytes(data);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    private StreamingRequestBody body() {
+        return new StreamingRequestBody(MediaType.get("image/webp"), SIZE, () -> new ByteArrayInputStream(data));
+    }
+
+    private static MockResponse created() {
+        return new MockResponse().setResponseCode(201).setHeader("Location", LOCATION);
+    }
+
+    private static MockResponse offset(long offset) {
+        return new MockResponse().setResponseCode(204).setHeader("Upload-Offset", offset);
+    }
+
+    private List<RecordedRequest> recorded() throws InterruptedException {
+        List<RecordedRequest> requests = new ArrayList<>();
+        RecordedRequest request;
+        while ((request = server.takeRequest(100, TimeUnit.MILLISECONDS)) != null) {
+            requests.add(request);
+        }
+        return requests;
+    }
+
+    @Test
+    public void uploadsInChunksAndReportsProgress() throws Exception {
+        server.enqueue(created());
+        server.enqueue(offset(CHUNK));
+        server.enqueue(offset(2 * CHUNK));
+        server.enqueue(offset(SIZE));
+
+        assertTrue(uploader.upload("post_images", "u1/a.webp", body(),
+                (sent, total) -> progress.add(sent)));
+
+        List<RecordedRequest> requests = recorded();
+        assertEquals(4, requests.size());
+        assertEquals("POST", requests.get(0).getMethod());
+        assertEquals(String.valueOf(SIZE), requests.get(0).getHeader("Upload-Length"));
+        assertEquals("true", requests.get(0).getHeader("x-upsert"));
+        assertEquals("PATCH", requests.get(1).getMethod());
+        assertEquals(LOCATION, requests.get(1).getPath());
+        assertEquals("application/offset+octet-stream", requests.get(1).getHeader("Content-Type"));
+        assertArrayEquals(Arrays.copyOfRange(data, CHUNK, 2 * CHUNK),
+                requests.get(2).getBody().readByteArray());
+        assertEquals(1000, requests.get(3).getBodySize());
+
+        assertEquals(Arrays.asList((long) CHUNK, (long) 2 * CHUNK, (long) SIZE), progress);
+        assertTrue(sleeps.isEmpty());
+    }
+
+    @Test
+    public void droppedConnectionResumesFromTheServerOffset() throws Exception {
+        server.enqueue(created());
+        server.enqueue(offset(CHUNK));
+        server.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_DURING_REQUEST_BODY));
+        // The server kept nothing of the interrupted chunk
+        server.enqueue(new MockResponse().setResponseCode(200).setHeader("Upload-Offset", CHUNK));
+        server.enqueue(offset(2 * CHUNK));
+        server.enqueue(offset(SIZE));
+
+        assertTrue(uploader.upload("post_images", "u1/a.webp", body(),
+                (sent, total) -> progress.add(sent)));
+
+        List<RecordedRequest> requests = recorded();
+        RecordedRequest head = null;
+        RecordedRequest resumed = null;
+        for (int i = 0; i < requests.size(); i++) {
+            if ("HEAD".equals(requests.get(i).getMethod())) {
+                head = requests.get(i);
+                resumed = requests.get(i + 1);
+            }
+        }
+        assertNotNull(head);
+        assertEquals(LOCATION, head.getPath());
+        assertEquals(String.valueOf(CHUNK), resumed.getHeader("Upload-Offset"));
+        assertArrayEquals(Arrays.copyOfRange(data, CHUNK, 2 * CHUNK), resumed.getBody().readByteArray());
+
+        assertEquals(1, sleeps.size());
+        assertTrue(sleeps.get(0) <= ResumableUploader.BASE_BACKOFF_MILLIS);
+        assertEquals((long) SIZE, (long) progress.get(progress.size() - 1));
+    }
+
+    @Test
+    public void retriedCreateReusesTheObjectName() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(created());
+        server.enqueue(offset(CHUNK));
+        server.enqueue(offset(2 * CHUNK));
+        server.enqueue(offset(SIZE));
+
+        assertTrue(uploader.upload("post_images", "u1/a.webp", body(), null));
+
+        List<RecordedRequest> requests = recorded();
+        assertEquals("POST", requests.get(0).getMethod());
+        assertEquals("POST", requests.get(1).getMethod());
+        assertEquals(requests.get(0).getHeader("Upload-Metadata"), requests.get(1).getHeader("Upload-Metadata"));
+        assertEquals(1, sleeps.size());
+    }
+
+    @Test
+    public void rejectedUploadIsNotRetried() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(413));
+
+        try {
+            uploader.upload("post_images", "u1/a.webp", body(), null);
+            fail("413 should be rejected");
+        } catch (UploadRejectedException e) {
+            assertEquals(413, e.code);
+        }
+        assertEquals(1, server.getRequestCount());
+        assertTrue(sleeps.isEmpty());
+    }
+
+    @Test
+    public void givesUpAfterRepeatedFailures() throws Exception {
+        for (int i = 0; i < ResumableUploader.MAX_ATTEMPTS; i++) {
+            server.enqueue(new MockResponse().setResponseCode(500));
+        }
+
+        assertFalse(uploader.upload("post_images", "u1/a.webp", body(), null));
+        assertEquals(ResumableUploader.MAX_ATTEMPTS, server.getRequestCount());
+        assertEquals(ResumableUploader.MAX_ATTEMPTS - 1, sleeps.size());
+    }
+
+    @Test
+    public void backoffGrowsExponentiallyUpToTheCap() {
+        Random random = new Random(1);
+        for (int attempt = 0; attempt < 20; attempt++) {
+            long cap = Math.min(ResumableUploader.MAX_BACKOFF_MILLIS,
+                    ResumableUploader.BASE_BACKOFF_MILLIS << Math.min(attempt, 16));
+            for (int i = 0; i < 50; i++) {
+                long delay = ResumableUploader.backoffMillis(attempt, random);
+                assertTrue(delay >= 0 && delay <= cap);
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.nexuspulse.app.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+
+import okhttp3.MediaType;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+public class SupabaseClientTest {
+    private static final long UPLOAD_SIZE = 32L * 1024 * 1024;
+
+    private MockWebServer server;
+    private String baseUrl;
+
+    @Before
+    public void startServer() throws Exception {
+        server = new MockWebServer();
+        // Count the body but keep none of it, so the server does not skew the heap numbers
+        server.setBodyLimit(0);
+        server.start();
+        String url = server.url("/").toString();
+        baseUrl = url.substring(0, url.length() - 1);
+    }
+
+    @After
+    public void stopServer() throws Exception {
+        server.shutdown();
+    }
+
+    /**
+     * Image bytes generated on the fly, never held in memory as a whole
+     */
+    private static class GeneratedStream extends InputStream {
+        private long remaining;
+
+        GeneratedStream(long size) {
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() {
+            if (remaining == 0) {
+                return -1;
+            }
+            remaining--;
+            return (int) (remaining & 0xff);
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (remaining == 0) {
+                return -1;
+            }
+            int count = (int) Math.min(length, remaining);
+            for (int i = 0; i < count; i++) {
+                buffer[offset + i] = (byte) (--remaining & 0xff);
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Samples used heap on a background thread while an upload runs
+     */
+    private static class HeapSampler extends Thread {
+        private final Runtime runtime = Runtime.getRuntime();
+        private final long baseline;
+        private volatile boolean running = true;
+        private volatile long peak;
+
+        HeapSampler() {
+            System.gc();
+            baseline = runtime.totalMemory() - runtime.freeMemory();
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                peak = Math.max(peak, runtime.totalMemory() - runtime.freeMemory());
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        long finish() throws InterruptedException {
+            running = false;
+            join();
+            return Math.max(0, peak - baseline);
+        }
+    }
+
+    @Test
+    public void uploadStreamsTheBodyWithItsLength() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(200));
+        StreamingRequestBody body = new StreamingRequestBody(
+                MediaType.get("image/webp"), UPLOAD_SIZE, () -> new GeneratedStream(UPLOAD_SIZE));
+
+        HeapSampler sampler = new HeapSampler();
+        sampler.start();
+        String publicUrl = SupabaseClient.upload(baseUrl, "post_images", "u1/a.webp", body);
+        long peakHeapGrowth = sampler.finish();
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("/storage/v1/object/post_images/u1/a.webp", request.getPath());
+        assertEquals(String.valueOf(UPLOAD_SIZE), request.getHeader("Content-Length"));
+        assertEquals("image/webp", request.getHeader("Content-Type"));
+        assertEquals(UPLOAD_SIZE, request.getBodySize());
+        assertEquals(UPLOAD_SIZE, body.getBytesWritten());
+        assertEquals(baseUrl + "/storage/v1/object/public/post_images/u1/a.webp", publicUrl);
+
+        // Buffering the old way held two full copies of the image. Garbage the
+        // collector has not reached yet counts too, so this is only a smoke bound.
+        assertTrue("peak heap growth " + peakHeapGrowth, peakHeapGrowth < 2 * UPLOAD_SIZE);
+    }
+
+    @Test
+    public void bodyCanBeWrittenAgainForARetry() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(200));
+        server.enqueue(new MockResponse().setResponseCode(200));
+        StreamingRequestBody body = new StreamingRequestBody(
+                MediaType.get("image/jpeg"), 4096, () -> new GeneratedStream(4096));
+
+        assertNotNull(SupabaseClient.upload(baseUrl, "post_images", "u1/a.jpg", body));
+        assertNotNull(SupabaseClient.upload(baseUrl, "post_images", "u1/a.jpg", body));
+
+        assertEquals(4096, server.takeRequest().getBodySize());
+        assertEquals(4096, server.takeRequest().getBodySize());
+    }
+
+    @Test
+    public void rejectedUploadReturnsNull() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(400).setBody("{\"error\":\"Invalid key\"}"));
+        StreamingRequestBody body = new StreamingRequestBody(
+                MediaType.get("image/jpeg"), 16, () -> new GeneratedStream(16));
+
+        assertNull(SupabaseClient.upload(baseUrl, "post_images", "u1/a.jpg", body));
+    }
+}